@@ -43,6 +43,12 @@ dependencies {
 
     // PDF text extraction
     implementation("org.apache.pdfbox:pdfbox:2.0.30")
+
+    // LZ4 compression for stored AI artifacts
+    implementation("org.lz4:lz4-java:1.8.0")
+
+    // S3-compatible blob storage
+    implementation("software.amazon.awssdk:s3:2.25.60")
 }
 
 application {
@@ -64,6 +70,126 @@ tasks.shadowJar {
     archiveVersion.set("")
 }
 
+tasks.register<JavaExec>("backfillSourceTexts") {
+    group = "application"
+    description = "Move inline AI source text into the source_texts table"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.studytool.vertex.tools.SourceTextBackfill")
+}
+
+tasks.register<JavaExec>("benchmarkArtifactCompression") {
+    group = "application"
+    description = "Measure read/write latency and on-disk size of AI artifacts with and without LZ4"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.studytool.vertex.tools.ArtifactCompressionBenchmark")
+}
+
+tasks.register<JavaExec>("benchmarkPdfExtraction") {
+    group = "application"
+    description = "Measure PDF text extraction time at each parallelism level"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.studytool.extraction.PdfExtractionBenchmark")
+}
+
+tasks.register<JavaExec>("benchmarkTextExtractors") {
+    group = "application"
+    description = "Measure throughput of each text extractor on a fixture corpus"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.studytool.extraction.extractor.TextExtractorBenchmark")
+}
+
+tasks.register<JavaExec>("benchmarkTextReader") {
+    group = "application"
+    description = "Read large text files of several encodings with a small heap, failing on wrong text or OOM"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.studytool.extraction.MappedTextReaderBenchmark")
+    // Well below the size of the files read, to show memory use doesn't depend on it
+    maxHeapSize = "64m"
+    jvmArgs("-XX:+ExitOnOutOfMemoryError")
+}
+
+tasks.register<JavaExec>("checkTextNormalizerMemory") {
+    group = "verification"
+    description = "Normalize a document many times the size of a small heap, failing if memory runs out"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.studytool.extraction.TextNormalizerMemoryCheck")
+    // The default 400 MB document is over ten times this
+    maxHeapSize = "32m"
+    jvmArgs("-XX:+ExitOnOutOfMemoryError")
+}
+
+tasks.register<JavaExec>("benchmarkTextWindows") {
+    group = "application"
+    description = "Measure random access into the extracted text of growing documents"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.studytool.extraction.TextWindowBenchmark")
+}
+
+tasks.register<JavaExec>("benchmarkTextCache") {
+    group = "application"
+    description = "Compare GC pauses serving large documents from sidecars and from the off-heap text cache"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.studytool.extraction.TextCacheBenchmark")
+    // Small enough that large documents on the heap make the collector work
+    maxHeapSize = "512m"
+}
+
+tasks.register<JavaExec>("reportStorageDedup") {
+    group = "application"
+    description = "Report disk space saved by deduplicated file storage"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.studytool.filestorage.StorageDedupReport")
+}
+
+tasks.register<JavaExec>("benchmarkDownloads") {
+    group = "application"
+    description = "Measure file download throughput against a running backend"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.studytool.filestorage.DownloadBenchmark")
+}
+
+tasks.register<JavaExec>("benchmarkBlobStore") {
+    group = "application"
+    description = "Measure put/get throughput of the configured blob store"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.studytool.filestorage.blob.BlobStoreBenchmark")
+}
+
+tasks.register<JavaExec>("migrateStorageLayout") {
+    group = "application"
+    description = "Move stored files into the sharded blob directory layout"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.studytool.filestorage.StorageLayoutMigration")
+}
+
+tasks.register<JavaExec>("reconcileStorage") {
+    group = "application"
+    description = "Report orphaned and missing blobs in local file storage"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.studytool.filestorage.StorageReconciliation")
+}
+
+tasks.register<JavaExec>("benchmarkSearch") {
+    group = "application"
+    description = "Measure indexing throughput and query latency of the search index"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.studytool.search.SearchBenchmark")
+}
+
+tasks.register<JavaExec>("benchmarkBatchUpload") {
+    group = "application"
+    description = "Compare single-file and batch uploads against a running backend"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.studytool.filestorage.BatchUploadBenchmark")
+}
+
+tasks.register<JavaExec>("backfillFileListing") {
+    group = "application"
+    description = "Add files stored before paginated listing to their owners' file lists"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.studytool.filestorage.FileListingBackfill")
+}
+
 tasks.register("dev") {
     dependsOn("run")
     group = "application"
@@ -1,6 +1,11 @@
 package com.studytool;
 
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,15 +18,36 @@ import com.studytool.auth.LoginRequest;
 import com.studytool.auth.LoginResponse;
 import com.studytool.auth.ScyllaAuthService;
 import com.studytool.database.DatabaseConfig;
+import com.studytool.database.FileBlobRepository;
+import com.studytool.database.FileDeletionRepository;
 import com.studytool.database.FileRepository;
 import com.studytool.database.ScyllaManager;
+import com.studytool.database.StorageUsageRepository;
+import com.studytool.database.TaskLeaseRepository;
+import com.studytool.database.UploadSessionRepository;
 import com.studytool.database.UserRepository;
+import com.studytool.extraction.ExtractionWorkerPool;
+import com.studytool.extraction.OffHeapTextCache;
+import com.studytool.extraction.TextExtractionService;
+import com.studytool.extraction.extractor.ExtractorSettings;
+import com.studytool.extraction.extractor.TextExtractors;
+import com.studytool.filestorage.ExtractionRequeuer;
+import com.studytool.filestorage.FileGarbageCollector;
 import com.studytool.filestorage.FileStorageService;
 import com.studytool.filestorage.FileUploadController;
+import com.studytool.filestorage.StorageUsageTracker;
+import com.studytool.filestorage.StorageUsageVerifier;
+import com.studytool.filestorage.blob.BlobStore;
+import com.studytool.filestorage.blob.BlobStoreConfig;
+import com.studytool.search.SearchController;
+import com.studytool.search.SearchService;
 import com.studytool.vertex.VertexAiConfig;
 import com.studytool.vertex.VertexAiController;
 import com.studytool.vertex.VertexAiService;
 import com.studytool.vertex.VertexAiServiceImpl;
+import com.studytool.vertex.repository.QuestionBankRepository;
+import com.studytool.vertex.repository.SharedArtifactRepository;
+import com.studytool.vertex.repository.SourceTextRepository;
 import com.studytool.vertex.repository.SummaryRepository;
 
 import io.javalin.Javalin;
@@ -34,6 +60,11 @@ public class Main {
     private static ScyllaManager scyllaManager;
     private static AuthInterface authService;
     private static FileRepository fileRepository;
+    private static FileBlobRepository fileBlobRepository;
+    private static FileDeletionRepository fileDeletionRepository;
+    private static UploadSessionRepository uploadSessionRepository;
+    private static StorageUsageRepository storageUsageRepository;
+    private static TaskLeaseRepository taskLeaseRepository;
     private static UserRepository userRepository;
     private static VertexAiService vertexAiService;
     
@@ -49,17 +80,112 @@ public class Main {
         if (fileStoragePath == null || fileStoragePath.trim().isEmpty()) {
             fileStoragePath = "./uploads"; // Default fallback
         }
-        FileStorageService fileStorageService = new FileStorageService(fileStoragePath, fileRepository, userRepository);
-        FileUploadController fileUploadController = new FileUploadController(fileStorageService);
-        
-        // Initialize Vertex AI controller
-        VertexAiController vertexAiController = new VertexAiController(vertexAiService);
+        String textCachePath = System.getenv("TEXT_CACHE_PATH");
+        if (textCachePath == null || textCachePath.trim().isEmpty()) {
+            textCachePath = "./text-cache"; // Default fallback
+        }
+        String searchIndexPath = System.getenv("SEARCH_INDEX_PATH");
+        if (searchIndexPath == null || searchIndexPath.trim().isEmpty()) {
+            searchIndexPath = "./search-index"; // Default fallback
+        }
+        int extractionConcurrency = Runtime.getRuntime().availableProcessors();
+        String extractionConcurrencyStr = System.getenv("TEXT_EXTRACTION_CONCURRENCY");
+        if (extractionConcurrencyStr != null && !extractionConcurrencyStr.trim().isEmpty()) {
+            extractionConcurrency = Integer.parseInt(extractionConcurrencyStr.trim());
+        }
+        // Direct memory for the text of documents read whole; 0 turns the cache off
+        long textMemoryCacheMb = 256;
+        String textMemoryCacheStr = System.getenv("TEXT_MEMORY_CACHE_MB");
+        if (textMemoryCacheStr != null && !textMemoryCacheStr.trim().isEmpty()) {
+            textMemoryCacheMb = Long.parseLong(textMemoryCacheStr.trim());
+        }
+        int extractionParallelism = Runtime.getRuntime().availableProcessors();
+        String extractionParallelismStr = System.getenv("TEXT_EXTRACTION_PARALLELISM");
+        if (extractionParallelismStr != null && !extractionParallelismStr.trim().isEmpty()) {
+            extractionParallelism = Integer.parseInt(extractionParallelismStr.trim());
+        }
+        int extractionWorkerCount = 2;
+        String extractionWorkersStr = System.getenv("TEXT_EXTRACTION_WORKERS");
+        if (extractionWorkersStr != null && !extractionWorkersStr.trim().isEmpty()) {
+            extractionWorkerCount = Integer.parseInt(extractionWorkersStr.trim());
+        }
+        int extractionQueueCapacity = 100;
+        String extractionQueueStr = System.getenv("TEXT_EXTRACTION_QUEUE_CAPACITY");
+        if (extractionQueueStr != null && !extractionQueueStr.trim().isEmpty()) {
+            extractionQueueCapacity = Integer.parseInt(extractionQueueStr.trim());
+        }
+        int gcIntervalSeconds = 30;
+        String gcIntervalStr = System.getenv("FILE_GC_INTERVAL_SECONDS");
+        if (gcIntervalStr != null && !gcIntervalStr.trim().isEmpty()) {
+            gcIntervalSeconds = Integer.parseInt(gcIntervalStr.trim());
+        }
+        int uploadParallelism = 8;
+        String uploadParallelismStr = System.getenv("UPLOAD_BATCH_PARALLELISM");
+        if (uploadParallelismStr != null && !uploadParallelismStr.trim().isEmpty()) {
+            uploadParallelism = Integer.parseInt(uploadParallelismStr.trim());
+        }
+        int sweepIntervalMinutes = 60;
+        String sweepIntervalStr = System.getenv("STORAGE_SWEEP_INTERVAL_MINUTES");
+        if (sweepIntervalStr != null && !sweepIntervalStr.trim().isEmpty()) {
+            sweepIntervalMinutes = Integer.parseInt(sweepIntervalStr.trim());
+        }
+        // 0 turns quotas off
+        long storageQuotaMb = 1024;
+        String storageQuotaStr = System.getenv("USER_STORAGE_QUOTA_MB");
+        if (storageQuotaStr != null && !storageQuotaStr.trim().isEmpty()) {
+            storageQuotaMb = Long.parseLong(storageQuotaStr.trim());
+        }
+        int usageVerifyIntervalMinutes = 360;
+        String usageVerifyIntervalStr = System.getenv("USAGE_VERIFY_INTERVAL_MINUTES");
+        if (usageVerifyIntervalStr != null && !usageVerifyIntervalStr.trim().isEmpty()) {
+            usageVerifyIntervalMinutes = Integer.parseInt(usageVerifyIntervalStr.trim());
+        }
+        int extractionRequeueIntervalMinutes = 10;
+        String extractionRequeueIntervalStr = System.getenv("EXTRACTION_REQUEUE_INTERVAL_MINUTES");
+        if (extractionRequeueIntervalStr != null && !extractionRequeueIntervalStr.trim().isEmpty()) {
+            extractionRequeueIntervalMinutes = Integer.parseInt(extractionRequeueIntervalStr.trim());
+        }
+        TextExtractors textExtractors = TextExtractors.load(new ExtractorSettings(extractionParallelism));
+        OffHeapTextCache textMemoryCache = new OffHeapTextCache(textMemoryCacheMb * 1024 * 1024);
+        TextExtractionService textExtractionService = new TextExtractionService(Paths.get(textCachePath), extractionConcurrency, textExtractors,
+                                                                                textMemoryCache);
+        ExtractionWorkerPool extractionWorkers = new ExtractionWorkerPool(extractionWorkerCount, extractionQueueCapacity);
+        SearchService searchService = new SearchService(Paths.get(searchIndexPath), fileRepository, userRepository);
+        BlobStoreConfig blobStoreConfig = BlobStoreConfig.fromEnvironment();
+        logger.info("Initializing blob store with config: {}", blobStoreConfig);
+        BlobStore blobStore = blobStoreConfig.createStore(Paths.get(fileStoragePath, "blobs"));
+        // Files of a batch upload are mostly waiting on storage and the database, so run several at once
+        AtomicInteger uploadThreadCount = new AtomicInteger();
+        ExecutorService uploadExecutor = Executors.newFixedThreadPool(uploadParallelism, task -> {
+            Thread thread = new Thread(task, "upload-" + uploadThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        StorageUsageTracker storageUsageTracker = new StorageUsageTracker(storageUsageRepository, storageQuotaMb * 1024 * 1024);
+        FileStorageService fileStorageService = new FileStorageService(fileStoragePath, fileRepository, userRepository, fileBlobRepository,
+            uploadSessionRepository, blobStore, textExtractionService, extractionWorkers, searchService, uploadExecutor,
+            storageUsageTracker);
+        FileGarbageCollector fileGarbageCollector = new FileGarbageCollector(fileStoragePath, fileRepository,
+            fileDeletionRepository, fileBlobRepository, blobStore, textExtractionService, searchService);
+        fileGarbageCollector.start(Duration.ofSeconds(gcIntervalSeconds), Duration.ofMinutes(sweepIntervalMinutes));
+        StorageUsageVerifier storageUsageVerifier = new StorageUsageVerifier(fileRepository, storageUsageRepository,
+            storageUsageTracker, taskLeaseRepository);
+        storageUsageVerifier.start(Duration.ofMinutes(usageVerifyIntervalMinutes));
+        ExtractionRequeuer extractionRequeuer = new ExtractionRequeuer(fileRepository, fileStorageService,
+            taskLeaseRepository);
+        extractionRequeuer.start(Duration.ofMinutes(extractionRequeueIntervalMinutes));
         
         // Configure Jackson for proper timestamp serialization
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.registerModule(new JavaTimeModule());
         objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
         
+        FileUploadController fileUploadController = new FileUploadController(fileStorageService, textExtractionService, objectMapper);
+        SearchController searchController = new SearchController(searchService);
+        
+        // Initialize Vertex AI controller
+        VertexAiController vertexAiController = new VertexAiController(vertexAiService, fileStorageService);
+        
         // Create Javalin app with basic configuration
         Javalin app = Javalin.create(config -> {
             // Configure JSON mapper
@@ -67,19 +193,40 @@ public class Main {
             
             // Enable CORS for all origins (development setup)
             config.plugins.enableCors(cors -> {
-                cors.add(corsContainer -> corsContainer.anyHost());
+                cors.add(corsContainer -> {
+                    corsContainer.anyHost();
+                    // Let PDF viewers on other origins use ranges and revalidation
+                    corsContainer.exposeHeader("ETag");
+                    corsContainer.exposeHeader("Content-Range");
+                    corsContainer.exposeHeader("Accept-Ranges");
+                });
             });
             
-            // Configure multipart upload settings
+            // Largest request body read whole; file uploads are streamed and limited per file
             config.http.maxRequestSize = 10 * 1024 * 1024L; // 10MB max request size
         }).start(8080);
         
         // Add shutdown hook to properly close database connection
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             logger.info("Shutting down application...");
+            // Let running extractions record their result before the database goes away
+            uploadExecutor.shutdown();
+            extractionRequeuer.close();
+            extractionWorkers.close();
+            fileGarbageCollector.close();
+            storageUsageVerifier.close();
+            if (vertexAiService instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    logger.warn("Failed to close Vertex AI service: {}", e.getMessage());
+                }
+            }
             if (scyllaManager != null) {
                 scyllaManager.close();
             }
+            textExtractors.close();
+            blobStore.close();
             app.stop();
         }));
         
@@ -93,6 +240,7 @@ public class Main {
         
         // Register file upload routes
         fileUploadController.registerRoutes(app);
+        searchController.registerRoutes(app);
         
         // Register Vertex AI routes
         app.post("/api/ai/summarize", vertexAiController::summarize);
@@ -101,18 +249,26 @@ public class Main {
         app.post("/api/ai/explain", vertexAiController::explainConcept);
         app.get("/api/ai/flashcards/sets", vertexAiController::listFlashcardSets);
         app.get("/api/ai/flashcards/sets/{setId}", vertexAiController::getFlashcardSet);
+        app.get("/api/ai/reuse", vertexAiController::getReuseStats);
         
         logger.info("Study Tool Backend started on port 8080");
         logger.info("Visit: http://localhost:8080");
         logger.info("Login endpoint: POST http://localhost:8080/api/login");
         logger.info("Register endpoint: POST http://localhost:8080/api/register");
         logger.info("File upload endpoint: POST http://localhost:8080/api/files/upload");
+        logger.info("Batch upload endpoint: POST http://localhost:8080/api/files/batch");
+        logger.info("Storage usage endpoint: GET http://localhost:8080/api/files/usage");
+        logger.info("Search endpoint: GET http://localhost:8080/api/search?q=");
         logger.info("AI endpoints:");
         logger.info("  - Summarize: POST http://localhost:8080/api/ai/summarize");
         logger.info("  - Flashcards: POST http://localhost:8080/api/ai/flashcards");
         logger.info("  - Quiz: POST http://localhost:8080/api/ai/quiz");
         logger.info("  - Explain: POST http://localhost:8080/api/ai/explain");
+        logger.info("  - Reuse stats: GET http://localhost:8080/api/ai/reuse");
         logger.info("File storage path: {}", fileStoragePath);
+        logger.info("Text cache path: {}", textCachePath);
+        logger.info("Text memory cache: {} MB", textMemoryCacheMb);
+        logger.info("Search index path: {}", searchIndexPath);
     }
     
     /**
@@ -132,6 +288,11 @@ public class Main {
             scyllaManager.initialize();
             authService = new ScyllaAuthService(scyllaManager);
             fileRepository = new FileRepository(scyllaManager.getSession());
+            fileBlobRepository = new FileBlobRepository(scyllaManager.getSession());
+            fileDeletionRepository = new FileDeletionRepository(scyllaManager.getSession());
+            uploadSessionRepository = new UploadSessionRepository(scyllaManager.getSession());
+            storageUsageRepository = new StorageUsageRepository(scyllaManager.getSession());
+            taskLeaseRepository = new TaskLeaseRepository(scyllaManager.getSession());
             userRepository = new UserRepository(scyllaManager.getSession());
             
             logger.info("Database initialized successfully with ScyllaDB");
@@ -152,8 +313,12 @@ public class Main {
             com.studytool.vertex.repository.FlashcardRepository flashcardRepository = new com.studytool.vertex.repository.FlashcardRepository(scyllaManager.getSession());
             com.studytool.vertex.repository.QuizRepository quizRepository = new com.studytool.vertex.repository.QuizRepository(scyllaManager.getSession());
             com.studytool.vertex.repository.QuizQuestionRepository quizQuestionRepository = new com.studytool.vertex.repository.QuizQuestionRepository(scyllaManager.getSession());
+            QuestionBankRepository questionBankRepository = new QuestionBankRepository(scyllaManager.getSession());
+            SourceTextRepository sourceTextRepository = new SourceTextRepository(scyllaManager.getSession());
+            SharedArtifactRepository sharedArtifactRepository = new SharedArtifactRepository(scyllaManager.getSession());
 
-            vertexAiService = new VertexAiServiceImpl(vertexConfig, summaryRepository, flashcardRepository, quizRepository, quizQuestionRepository);
+            vertexAiService = new VertexAiServiceImpl(vertexConfig, summaryRepository, flashcardRepository, quizRepository, quizQuestionRepository,
+                    questionBankRepository, sourceTextRepository, sharedArtifactRepository);
             
             logger.info("Vertex AI service initialized successfully");
         } catch (Exception e) {
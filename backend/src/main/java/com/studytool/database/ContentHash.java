@@ -0,0 +1,24 @@
+package com.studytool.database;
+
+import java.nio.charset.StandardCharsets;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * Content hashing used to address stored text and files by their content.
+ */
+public final class ContentHash {
+    
+    private ContentHash() {
+    }
+    
+    /**
+     * Returns the lowercase hex SHA-256 of the UTF-8 encoding of the text.
+     * 
+     * @param text The text to hash
+     * @return 64-character hex digest
+     */
+    public static String sha256(String text) {
+        return Hashing.sha256().hashString(text, StandardCharsets.UTF_8).toString();
+    }
+}
@@ -0,0 +1,11 @@
+package com.studytool.database;
+
+/**
+ * Progress of the background text extraction for a file.
+ */
+public enum ExtractionStatus {
+    PENDING,
+    PROCESSING,
+    READY,
+    FAILED
+}
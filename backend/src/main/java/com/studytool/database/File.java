@@ -15,8 +15,14 @@ public class File {
     private long fileSize;
     private Instant uploadTime;
     private String filePath;
+    private String contentHash;
+    private ExtractionStatus extractionStatus;
+    private Integer pageCount;
+    private Long tokenEstimate;
+    private Integer searchIndexVersion;
     private Instant createdAt;
     private Instant updatedAt;
+    private Instant deletedAt;
     
     // Default constructor
     public File() {}
@@ -57,12 +63,34 @@ public class File {
     public String getFilePath() { return filePath; }
     public void setFilePath(String filePath) { this.filePath = filePath; }
     
+    // SHA-256 of the content; null for files stored before deduplication
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+    
+    // Null for files stored before background extraction
+    public ExtractionStatus getExtractionStatus() { return extractionStatus; }
+    public void setExtractionStatus(ExtractionStatus extractionStatus) { this.extractionStatus = extractionStatus; }
+    
+    public Integer getPageCount() { return pageCount; }
+    public void setPageCount(Integer pageCount) { this.pageCount = pageCount; }
+    
+    public Long getTokenEstimate() { return tokenEstimate; }
+    public void setTokenEstimate(Long tokenEstimate) { this.tokenEstimate = tokenEstimate; }
+    
+    // Search index format the text was indexed with; null until it is
+    public Integer getSearchIndexVersion() { return searchIndexVersion; }
+    public void setSearchIndexVersion(Integer searchIndexVersion) { this.searchIndexVersion = searchIndexVersion; }
+    
     public Instant getCreatedAt() { return createdAt; }
     public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
     
     public Instant getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
     
+    // Set when the file is deleted; its content is removed in the background
+    public Instant getDeletedAt() { return deletedAt; }
+    public void setDeletedAt(Instant deletedAt) { this.deletedAt = deletedAt; }
+    
     @Override
     public String toString() {
         return "File{" +
@@ -73,6 +101,8 @@ public class File {
                 ", fileSize=" + fileSize +
                 ", uploadTime=" + uploadTime +
                 ", filePath='" + filePath + '\'' +
+                ", contentHash='" + contentHash + '\'' +
+                ", extractionStatus=" + extractionStatus +
                 '}';
     }
 } 
\ No newline at end of file
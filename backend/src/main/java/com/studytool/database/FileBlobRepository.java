@@ -0,0 +1,229 @@
+package com.studytool.database;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.ResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+
+/**
+ * Repository for reference-counted, content-addressed file blobs. Every
+ * distinct upload is stored once; files rows point at the blob by hash and
+ * the blob may only be removed once its reference count reaches zero.
+ *
+ * Reference counts are updated with compare-and-set lightweight transactions
+ * so concurrent uploads and deletes of the same content never lose a count.
+ *
+ * Deleting a blob takes three steps: the record is marked as deleting
+ * (reference count 0), the content is deleted, then the record. An upload of
+ * the same content meanwhile waits for the record to go and stores the
+ * content again, rather than referencing content that is being deleted.
+ */
+public class FileBlobRepository {
+    private static final Logger logger = LoggerFactory.getLogger(FileBlobRepository.class);
+
+    // How long an upload waits for a deletion of the same content to finish
+    private static final Duration DELETION_WAIT = Duration.ofSeconds(10);
+    // A deletion this old has been abandoned by its node and may be taken over
+    private static final Duration STALE_DELETION = Duration.ofMinutes(10);
+
+    private final CqlSession session;
+    private final PreparedStatement insertStatement;
+    private final PreparedStatement findRefCountStatement;
+    private final PreparedStatement updateRefCountStatement;
+    private final PreparedStatement markDeletingStatement;
+    private final PreparedStatement insertDeletingStatement;
+    private final PreparedStatement reviveStatement;
+    private final PreparedStatement deleteStatement;
+
+    public FileBlobRepository(CqlSession session) {
+        this.session = session;
+
+        this.insertStatement = session.prepare(
+            "INSERT INTO file_blobs (content_hash, ref_count, size, blob_path, created_at) " +
+            "VALUES (?, 1, ?, ?, ?) IF NOT EXISTS"
+        );
+
+        this.findRefCountStatement = session.prepare(
+            "SELECT ref_count, deleting_at FROM file_blobs WHERE content_hash = ?"
+        );
+
+        this.updateRefCountStatement = session.prepare(
+            "UPDATE file_blobs SET ref_count = ? WHERE content_hash = ? IF ref_count = ?"
+        );
+
+        this.markDeletingStatement = session.prepare(
+            "UPDATE file_blobs SET ref_count = 0, deleting_at = ? WHERE content_hash = ? IF ref_count = ?"
+        );
+
+        this.insertDeletingStatement = session.prepare(
+            "INSERT INTO file_blobs (content_hash, ref_count, deleting_at) VALUES (?, 0, ?) IF NOT EXISTS"
+        );
+
+        this.reviveStatement = session.prepare(
+            "UPDATE file_blobs SET ref_count = 1, size = ?, blob_path = ?, deleting_at = null " +
+            "WHERE content_hash = ? IF ref_count = 0 AND deleting_at = ?"
+        );
+
+        this.deleteStatement = session.prepare(
+            "DELETE FROM file_blobs WHERE content_hash = ? IF ref_count = 0"
+        );
+
+        logger.info("FileBlobRepository initialized with prepared statements");
+    }
+
+    /**
+     * Adds a reference to the blob with the given hash, creating the blob
+     * record if this is the first one. If the blob is being deleted, waits
+     * for the deletion to finish and creates the record again.
+     *
+     * @param contentHash SHA-256 of the file content
+     * @param size Size of the content in bytes
+     * @param blobPath Where the content is stored
+     * @return true if the blob is new and the caller must store the content,
+     *         false if the content is already stored
+     */
+    public boolean addReference(String contentHash, long size, String blobPath) {
+        try {
+            long deadline = System.nanoTime() + DELETION_WAIT.toNanos();
+            long pauseMillis = 10;
+            while (true) {
+                ResultSet inserted = session.execute(insertStatement.bind(contentHash, size, blobPath, Instant.now()));
+                if (inserted.wasApplied()) {
+                    logger.debug("Created blob {} ({} bytes)", contentHash, size);
+                    return true;
+                }
+
+                Row row = inserted.one();
+                Integer current = refCount(row);
+                if (current != null && current == 0) {
+                    Instant deletingAt = row.getInstant("deleting_at");
+                    if (deletingAt == null || deletingAt.isBefore(Instant.now().minus(STALE_DELETION))) {
+                        if (session.execute(reviveStatement.bind(size, blobPath, contentHash, deletingAt)).wasApplied()) {
+                            logger.warn("Took over stalled deletion of blob {}", contentHash);
+                            return true;
+                        }
+                        continue;
+                    }
+                    if (System.nanoTime() > deadline) {
+                        throw new IllegalStateException("Blob " + contentHash + " is still being deleted");
+                    }
+                    // The content is being deleted; once the record is gone it is stored anew
+                    Thread.sleep(pauseMillis);
+                    pauseMillis = Math.min(pauseMillis * 2, 500);
+                    continue;
+                }
+                if (current != null && session.execute(
+                        updateRefCountStatement.bind(current + 1, contentHash, current)).wasApplied()) {
+                    logger.debug("Added reference to blob {} ({} references)", contentHash, current + 1);
+                    return false;
+                }
+                // Lost a race with another upload or the last delete; read again and retry
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while adding blob reference", e);
+        } catch (Exception e) {
+            logger.error("Failed to add reference to blob: {}", contentHash, e);
+            throw new RuntimeException("Failed to add blob reference", e);
+        }
+    }
+
+    /**
+     * Removes a reference to the blob with the given hash. When the last
+     * reference goes the blob is marked as deleting.
+     *
+     * @param contentHash SHA-256 of the file content
+     * @return true if the blob is being deleted: the caller must delete the
+     *         content and then call {@link #finishDelete}
+     */
+    public boolean removeReference(String contentHash) {
+        try {
+            while (true) {
+                Integer current = refCount(session.execute(findRefCountStatement.bind(contentHash)).one());
+                if (current == null) {
+                    logger.warn("Blob {} has no references to remove", contentHash);
+                    return false;
+                }
+                if (current <= 0) {
+                    // A deletion that didn't finish; finishing it again is harmless
+                    return true;
+                }
+
+                ResultSet updated = current == 1
+                    ? session.execute(markDeletingStatement.bind(Instant.now(), contentHash, current))
+                    : session.execute(updateRefCountStatement.bind(current - 1, contentHash, current));
+                if (updated.wasApplied()) {
+                    logger.debug("Removed reference to blob {} ({} references)", contentHash, current - 1);
+                    return current == 1;
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Failed to remove reference to blob: {}", contentHash, e);
+            throw new RuntimeException("Failed to remove blob reference", e);
+        }
+    }
+
+    /**
+     * The blob's reference count as recorded.
+     *
+     * @return The count, 0 while the blob is being deleted, or null if there is no record
+     */
+    public Integer findReferenceCount(String contentHash) {
+        try {
+            return refCount(session.execute(findRefCountStatement.bind(contentHash)).one());
+        } catch (Exception e) {
+            logger.error("Failed to read reference count of blob: {}", contentHash, e);
+            throw new RuntimeException("Failed to read blob reference count", e);
+        }
+    }
+
+    /**
+     * Marks a blob that no file references as deleting, whatever its count
+     * has drifted to. Only for blobs found to have no files at all.
+     *
+     * @param expectedCount The count seen when the blob was found unreferenced,
+     *                      or null if it had no record; nothing is marked if
+     *                      the count changed since, as an upload may have
+     *                      referenced the blob meanwhile
+     * @return true if the blob is being deleted: the caller must delete the
+     *         content and then call {@link #finishDelete}
+     */
+    public boolean markDeleting(String contentHash, Integer expectedCount) {
+        try {
+            ResultSet marked = expectedCount == null
+                ? session.execute(insertDeletingStatement.bind(contentHash, Instant.now()))
+                : session.execute(markDeletingStatement.bind(Instant.now(), contentHash, expectedCount));
+            return marked.wasApplied();
+        } catch (Exception e) {
+            logger.error("Failed to mark blob as deleting: {}", contentHash, e);
+            throw new RuntimeException("Failed to mark blob as deleting", e);
+        }
+    }
+
+    /**
+     * Drops the record of a blob whose content has been deleted, letting
+     * waiting uploads store the content again.
+     */
+    public void finishDelete(String contentHash) {
+        try {
+            session.execute(deleteStatement.bind(contentHash));
+            logger.debug("Deleted record of blob {}", contentHash);
+        } catch (Exception e) {
+            logger.error("Failed to delete record of blob: {}", contentHash, e);
+            throw new RuntimeException("Failed to delete blob record", e);
+        }
+    }
+
+    private static Integer refCount(Row row) {
+        if (row == null || !row.getColumnDefinitions().contains("ref_count") || row.isNull("ref_count")) {
+            return null;
+        }
+        return row.getInt("ref_count");
+    }
+}
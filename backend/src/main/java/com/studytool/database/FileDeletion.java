@@ -0,0 +1,79 @@
+package com.studytool.database;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A deleted file waiting for its content to be removed in the background.
+ * Holds everything needed for that, since the file's row is hidden once it
+ * is tombstoned.
+ */
+public class FileDeletion {
+    private UUID fileId;
+    private UUID userId;
+    private String storedFilename;
+    private String contentHash;
+    private String filePath;
+    private Instant deletedAt;
+    private int attempts;
+    private Instant nextAttemptAt;
+    private boolean referenceReleased;
+    
+    // Default constructor
+    public FileDeletion() {}
+    
+    // Constructor for queueing the deletion of a file
+    public FileDeletion(File file) {
+        this.fileId = file.getId();
+        this.userId = file.getUserId();
+        this.storedFilename = file.getStoredFilename();
+        this.contentHash = file.getContentHash();
+        this.filePath = file.getFilePath();
+        this.deletedAt = Instant.now();
+        this.attempts = 0;
+        this.nextAttemptAt = this.deletedAt;
+        this.referenceReleased = false;
+    }
+    
+    // Getters and setters
+    public UUID getFileId() { return fileId; }
+    public void setFileId(UUID fileId) { this.fileId = fileId; }
+    
+    public UUID getUserId() { return userId; }
+    public void setUserId(UUID userId) { this.userId = userId; }
+    
+    public String getStoredFilename() { return storedFilename; }
+    public void setStoredFilename(String storedFilename) { this.storedFilename = storedFilename; }
+    
+    // Null for files stored before deduplication
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+    
+    public String getFilePath() { return filePath; }
+    public void setFilePath(String filePath) { this.filePath = filePath; }
+    
+    public Instant getDeletedAt() { return deletedAt; }
+    public void setDeletedAt(Instant deletedAt) { this.deletedAt = deletedAt; }
+    
+    // Failed collection attempts so far
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+    
+    public Instant getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(Instant nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+    
+    // Whether the file's reference to its blob has been dropped already
+    public boolean isReferenceReleased() { return referenceReleased; }
+    public void setReferenceReleased(boolean referenceReleased) { this.referenceReleased = referenceReleased; }
+    
+    @Override
+    public String toString() {
+        return "FileDeletion{" +
+                "fileId=" + fileId +
+                ", storedFilename='" + storedFilename + '\'' +
+                ", contentHash='" + contentHash + '\'' +
+                ", attempts=" + attempts +
+                ", referenceReleased=" + referenceReleased +
+                '}';
+    }
+}
@@ -0,0 +1,132 @@
+package com.studytool.database;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+
+/**
+ * Repository for the queue of deleted files whose content still has to be
+ * removed. Entries are added by {@link FileRepository#tombstone(File)} and
+ * removed once the collector has cleaned up after the file.
+ */
+public class FileDeletionRepository {
+    private static final Logger logger = LoggerFactory.getLogger(FileDeletionRepository.class);
+    
+    private final CqlSession session;
+    private final PreparedStatement findAllStatement;
+    private final PreparedStatement releaseReferenceStatement;
+    private final PreparedStatement recordFailureStatement;
+    private final PreparedStatement deleteByIdStatement;
+    
+    public FileDeletionRepository(CqlSession session) {
+        this.session = session;
+        
+        this.findAllStatement = session.prepare(
+            "SELECT * FROM file_deletions"
+        );
+        
+        // Compare-and-set, so of two collectors racing on the same file only one drops the reference
+        this.releaseReferenceStatement = session.prepare(
+            "UPDATE file_deletions SET reference_released = true WHERE file_id = ? IF reference_released = false"
+        );
+        
+        this.recordFailureStatement = session.prepare(
+            "UPDATE file_deletions SET attempts = ?, next_attempt_at = ? WHERE file_id = ? IF EXISTS"
+        );
+        
+        this.deleteByIdStatement = session.prepare(
+            "DELETE FROM file_deletions WHERE file_id = ?"
+        );
+        
+        logger.info("FileDeletionRepository initialized with prepared statements");
+    }
+    
+    /**
+     * Finds queued deletions whose next attempt is due. The queue is read
+     * page by page and only as far as needed.
+     * 
+     * @param limit Maximum number of deletions to return
+     */
+    public List<FileDeletion> findDue(int limit) {
+        try {
+            Instant now = Instant.now();
+            List<FileDeletion> due = new ArrayList<>();
+            for (Row row : session.execute(findAllStatement.bind())) {
+                FileDeletion deletion = mapRowToFileDeletion(row);
+                if (deletion.getNextAttemptAt() == null || !deletion.getNextAttemptAt().isAfter(now)) {
+                    due.add(deletion);
+                    if (due.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            return due;
+        } catch (Exception e) {
+            logger.error("Failed to find queued file deletions", e);
+            throw new RuntimeException("Failed to find file deletions", e);
+        }
+    }
+    
+    /**
+     * Claims the right to drop the deleted file's blob reference.
+     * 
+     * @return true if the caller must drop the reference, false if it has been dropped already
+     */
+    public boolean releaseReference(UUID fileId) {
+        try {
+            return session.execute(releaseReferenceStatement.bind(fileId)).wasApplied();
+        } catch (Exception e) {
+            logger.error("Failed to mark blob reference released for file: {}", fileId, e);
+            throw new RuntimeException("Failed to update file deletion", e);
+        }
+    }
+    
+    /**
+     * Records a failed collection attempt and when to try again.
+     */
+    public void recordFailure(UUID fileId, int attempts, Instant nextAttemptAt) {
+        try {
+            session.execute(recordFailureStatement.bind(attempts, nextAttemptAt, fileId));
+        } catch (Exception e) {
+            logger.warn("Failed to record failed deletion of file {}: {}", fileId, e.getMessage());
+        }
+    }
+    
+    /**
+     * Removes a deletion from the queue once the file is fully cleaned up.
+     */
+    public void deleteById(UUID fileId) {
+        try {
+            session.execute(deleteByIdStatement.bind(fileId));
+            logger.debug("File deletion completed: {}", fileId);
+        } catch (Exception e) {
+            logger.error("Failed to remove file deletion: {}", fileId, e);
+            throw new RuntimeException("Failed to remove file deletion", e);
+        }
+    }
+    
+    /**
+     * Maps a database row to a FileDeletion object.
+     */
+    private FileDeletion mapRowToFileDeletion(Row row) {
+        FileDeletion deletion = new FileDeletion();
+        deletion.setFileId(row.getUuid("file_id"));
+        deletion.setUserId(row.getUuid("user_id"));
+        deletion.setStoredFilename(row.getString("stored_filename"));
+        deletion.setContentHash(row.getString("content_hash"));
+        deletion.setFilePath(row.getString("file_path"));
+        deletion.setDeletedAt(row.getInstant("deleted_at"));
+        deletion.setAttempts(row.isNull("attempts") ? 0 : row.getInt("attempts"));
+        deletion.setNextAttemptAt(row.getInstant("next_attempt_at"));
+        deletion.setReferenceReleased(row.getBoolean("reference_released"));
+        return deletion;
+    }
+}
@@ -0,0 +1,12 @@
+package com.studytool.database;
+
+import java.util.List;
+
+/**
+ * One page of a user's files, newest first.
+ *
+ * @param files The files on this page
+ * @param nextCursor Opaque cursor for the next page; null on the last page
+ */
+public record FilePage(List<File> files, String nextCursor) {
+}
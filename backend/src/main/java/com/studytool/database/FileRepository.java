@@ -2,31 +2,57 @@ package com.studytool.database;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.DefaultBatchType;
+import com.datastax.oss.driver.api.core.cql.PagingState;
 import com.datastax.oss.driver.api.core.cql.PreparedStatement;
 import com.datastax.oss.driver.api.core.cql.ResultSet;
 import com.datastax.oss.driver.api.core.cql.Row;
 
 /**
  * Repository class for handling file database operations.
+ * 
+ * Tombstoned (deleted) files are never returned by the finders; their rows
+ * stay until the background collector has removed their content.
  */
 public class FileRepository {
     private static final Logger logger = LoggerFactory.getLogger(FileRepository.class);
     
     private final CqlSession session;
     private final PreparedStatement insertStatement;
+    private final PreparedStatement insertByUserStatement;
+    private final PreparedStatement deleteByUserStatement;
+    private final PreparedStatement findPageByUserIdStatement;
     private final PreparedStatement findByIdStatement;
     private final PreparedStatement findByUserIdStatement;
     private final PreparedStatement findByStoredFilenameStatement;
     private final PreparedStatement deleteByIdStatement;
     private final PreparedStatement updateStatement;
+    private final PreparedStatement updateExtractionStatement;
+    private final PreparedStatement markExtractionQueuedStatement;
+    private final PreparedStatement updateSearchIndexVersionStatement;
+    private final PreparedStatement tombstoneStatement;
+    private final PreparedStatement queueDeletionStatement;
+    private final PreparedStatement findContentReferencesStatement;
+    private final PreparedStatement findSizesInTokenRangeStatement;
+    private final PreparedStatement findInTokenRangeStatement;
     
     public FileRepository(CqlSession session) {
         this.session = session;
@@ -34,8 +60,20 @@ public class FileRepository {
         // Prepare statements for better performance
         this.insertStatement = session.prepare(
             "INSERT INTO files (id, user_id, original_filename, stored_filename, file_size, " +
-            "upload_time, file_path, created_at, updated_at) " +
-            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)"
+            "upload_time, file_path, content_hash, extraction_status, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"
+        );
+        
+        this.insertByUserStatement = session.prepare(
+            "INSERT INTO files_by_user (user_id, upload_time, file_id) VALUES (?, ?, ?)"
+        );
+        
+        this.deleteByUserStatement = session.prepare(
+            "DELETE FROM files_by_user WHERE user_id = ? AND upload_time = ? AND file_id = ?"
+        );
+        
+        this.findPageByUserIdStatement = session.prepare(
+            "SELECT file_id FROM files_by_user WHERE user_id = ?"
         );
         
         this.findByIdStatement = session.prepare(
@@ -47,7 +85,7 @@ public class FileRepository {
         );
         
         this.findByStoredFilenameStatement = session.prepare(
-            "SELECT * FROM files WHERE stored_filename = ? ALLOW FILTERING"
+            "SELECT * FROM files WHERE stored_filename = ?"
         );
         
         this.deleteByIdStatement = session.prepare(
@@ -56,18 +94,57 @@ public class FileRepository {
         
         this.updateStatement = session.prepare(
             "UPDATE files SET original_filename = ?, stored_filename = ?, file_size = ?, " +
-            "upload_time = ?, file_path = ?, updated_at = ? WHERE id = ?"
+            "upload_time = ?, file_path = ?, content_hash = ?, updated_at = ? WHERE id = ?"
+        );
+        
+        // Extraction results only apply to live files: deleted_at = null skips tombstoned rows, and the
+        // user_id condition fails for rows already dropped, so a late result never recreates one
+        this.updateExtractionStatement = session.prepare(
+            "UPDATE files SET extraction_status = ?, page_count = ?, token_estimate = ?, updated_at = ? " +
+            "WHERE id = ? IF user_id = ? AND deleted_at = null"
+        );
+        
+        // Also conditional on the status, so a queued extraction that has already started isn't set back to pending
+        this.markExtractionQueuedStatement = session.prepare(
+            "UPDATE files SET extraction_status = ?, updated_at = ? " +
+            "WHERE id = ? IF user_id = ? AND deleted_at = null AND extraction_status = ?"
+        );
+        
+        this.updateSearchIndexVersionStatement = session.prepare(
+            "UPDATE files SET search_index_version = ? WHERE id = ? IF user_id = ? AND deleted_at = null"
+        );
+        
+        this.tombstoneStatement = session.prepare(
+            "UPDATE files SET deleted_at = ? WHERE id = ?"
+        );
+        
+        this.queueDeletionStatement = session.prepare(
+            "INSERT INTO file_deletions (file_id, user_id, stored_filename, content_hash, file_path, " +
+            "deleted_at, attempts, next_attempt_at, reference_released) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)"
+        );
+        
+        this.findContentReferencesStatement = session.prepare(
+            "SELECT content_hash, stored_filename FROM files"
+        );
+        
+        this.findSizesInTokenRangeStatement = session.prepare(
+            "SELECT user_id, file_size, deleted_at FROM files WHERE token(id) > ? AND token(id) <= ?"
+        );
+        
+        this.findInTokenRangeStatement = session.prepare(
+            "SELECT * FROM files WHERE token(id) > ? AND token(id) <= ?"
         );
         
         logger.info("FileRepository initialized with prepared statements");
     }
     
     /**
-     * Saves a file record to the database.
+     * Saves a file record to the database, together with its entry in the
+     * user's file list.
      */
     public File save(File file) {
         try {
-            session.execute(insertStatement.bind(
+            session.execute(BatchStatement.newInstance(DefaultBatchType.LOGGED, insertStatement.bind(
                 file.getId(),
                 file.getUserId(),
                 file.getOriginalFilename(),
@@ -75,9 +152,11 @@ public class FileRepository {
                 file.getFileSize(),
                 file.getUploadTime(),
                 file.getFilePath(),
+                file.getContentHash(),
+                file.getExtractionStatus() == null ? null : file.getExtractionStatus().name(),
                 file.getCreatedAt(),
                 file.getUpdatedAt()
-            ));
+            ), insertByUserStatement.bind(file.getUserId(), file.getUploadTime(), file.getId())));
             
             logger.debug("File record saved: {}", file.getId());
             return file;
@@ -95,7 +174,7 @@ public class FileRepository {
             ResultSet result = session.execute(findByIdStatement.bind(id));
             Row row = result.one();
             
-            if (row != null) {
+            if (row != null && row.isNull("deleted_at")) {
                 return Optional.of(mapRowToFile(row));
             }
             
@@ -106,6 +185,33 @@ public class FileRepository {
         }
     }
     
+    /**
+     * Finds several files by ID at once, reading them concurrently.
+     * 
+     * @return The files found, by ID; deleted files are left out
+     */
+    public Map<UUID, File> findByIds(Collection<UUID> ids) {
+        try {
+            List<CompletableFuture<AsyncResultSet>> rows = new ArrayList<>(ids.size());
+            for (UUID id : ids) {
+                rows.add(session.executeAsync(findByIdStatement.bind(id)).toCompletableFuture());
+            }
+            
+            Map<UUID, File> files = new HashMap<>();
+            for (CompletableFuture<AsyncResultSet> future : rows) {
+                Row row = future.join().one();
+                if (row != null && row.isNull("deleted_at")) {
+                    File file = mapRowToFile(row);
+                    files.put(file.getId(), file);
+                }
+            }
+            return files;
+        } catch (Exception e) {
+            logger.error("Failed to find {} files by ID", ids.size(), e);
+            throw new RuntimeException("Failed to find files", e);
+        }
+    }
+    
     /**
      * Finds all files uploaded by a specific user.
      */
@@ -115,7 +221,9 @@ public class FileRepository {
             List<File> files = new ArrayList<>();
             
             for (Row row : result) {
-                files.add(mapRowToFile(row));
+                if (row.isNull("deleted_at")) {
+                    files.add(mapRowToFile(row));
+                }
             }
             
             logger.debug("Found {} files for user: {}", files.size(), userId);
@@ -126,6 +234,55 @@ public class FileRepository {
         }
     }
     
+    /**
+     * Finds one page of a user's files, newest first. Only the page's keys
+     * are read from the user's file list; the rows themselves are read in
+     * parallel.
+     * 
+     * @param pageSize Maximum number of files on the page
+     * @param cursor The previous page's next cursor, or null for the first page
+     * @throws IllegalArgumentException if the cursor is malformed or from another query
+     */
+    public FilePage findPageByUserId(UUID userId, int pageSize, String cursor) {
+        BoundStatement statement = findPageByUserIdStatement.bind(userId).setPageSize(pageSize);
+        if (cursor != null) {
+            try {
+                // The driver rejects paging states issued for another statement or user
+                statement = statement.setPagingState(PagingState.fromBytes(Base64.getUrlDecoder().decode(cursor)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+        }
+        
+        try {
+            ResultSet result = session.execute(statement);
+            List<CompletableFuture<AsyncResultSet>> rows = new ArrayList<>();
+            // Only consume the fetched page; iterating further would fetch the next one
+            int available = result.getAvailableWithoutFetching();
+            for (int i = 0; i < available; i++) {
+                UUID fileId = result.one().getUuid("file_id");
+                rows.add(session.executeAsync(findByIdStatement.bind(fileId)).toCompletableFuture());
+            }
+            
+            List<File> files = new ArrayList<>(rows.size());
+            for (CompletableFuture<AsyncResultSet> future : rows) {
+                Row row = future.join().one();
+                // Tombstoned since the page's keys were read
+                if (row != null && row.isNull("deleted_at")) {
+                    files.add(mapRowToFile(row));
+                }
+            }
+            
+            PagingState next = result.getExecutionInfo().getSafePagingState();
+            String nextCursor = next == null ? null : Base64.getUrlEncoder().withoutPadding().encodeToString(next.toBytes());
+            logger.debug("Found {} files for user: {} (more: {})", files.size(), userId, nextCursor != null);
+            return new FilePage(files, nextCursor);
+        } catch (Exception e) {
+            logger.error("Failed to find files for user: {}", userId, e);
+            throw new RuntimeException("Failed to find user files", e);
+        }
+    }
+    
     /**
      * Finds a file by its stored filename.
      */
@@ -134,7 +291,7 @@ public class FileRepository {
             ResultSet result = session.execute(findByStoredFilenameStatement.bind(storedFilename));
             Row row = result.one();
             
-            if (row != null) {
+            if (row != null && row.isNull("deleted_at")) {
                 return Optional.of(mapRowToFile(row));
             }
             
@@ -159,6 +316,90 @@ public class FileRepository {
         }
     }
     
+    /**
+     * Marks a file deleted, takes it off the user's file list and queues the
+     * removal of its content, in one logged batch so the file is never
+     * hidden without being queued.
+     */
+    public FileDeletion tombstone(File file) {
+        try {
+            FileDeletion deletion = new FileDeletion(file);
+            session.execute(BatchStatement.newInstance(DefaultBatchType.LOGGED,
+                tombstoneStatement.bind(deletion.getDeletedAt(), file.getId()),
+                deleteByUserStatement.bind(file.getUserId(), file.getUploadTime(), file.getId()),
+                queueDeletionStatement.bind(
+                    deletion.getFileId(),
+                    deletion.getUserId(),
+                    deletion.getStoredFilename(),
+                    deletion.getContentHash(),
+                    deletion.getFilePath(),
+                    deletion.getDeletedAt(),
+                    deletion.getAttempts(),
+                    deletion.getNextAttemptAt(),
+                    deletion.isReferenceReleased()
+                )));
+            
+            file.setDeletedAt(deletion.getDeletedAt());
+            logger.debug("File record tombstoned: {}", file.getId());
+            return deletion;
+        } catch (Exception e) {
+            logger.error("Failed to tombstone file record: {}", file.getId(), e);
+            throw new RuntimeException("Failed to delete file record", e);
+        }
+    }
+    
+    /**
+     * Calls the consumer with the content hash (null for files stored before
+     * deduplication) and stored filename of every file, tombstoned ones
+     * included. Reads the whole table page by page.
+     */
+    public void forEachContentReference(BiConsumer<String, String> consumer) {
+        try {
+            for (Row row : session.execute(findContentReferencesStatement.bind())) {
+                consumer.accept(row.getString("content_hash"), row.getString("stored_filename"));
+            }
+        } catch (Exception e) {
+            logger.error("Failed to read file content references", e);
+            throw new RuntimeException("Failed to read file content references", e);
+        }
+    }
+    
+    /**
+     * Calls the consumer with the owner and size of every file whose
+     * partition token is in (fromToken, toToken]. Scanning the table a token
+     * range at a time keeps each query small and lets a long scan resume or
+     * retry one range instead of starting over.
+     */
+    public void forEachFileSizeInTokenRange(long fromToken, long toToken, BiConsumer<UUID, Long> consumer) {
+        try {
+            for (Row row : session.execute(findSizesInTokenRangeStatement.bind(fromToken, toToken))) {
+                if (row.getInstant("deleted_at") == null) {
+                    consumer.accept(row.getUuid("user_id"), row.getLong("file_size"));
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Failed to scan file sizes in token range ({}, {}]", fromToken, toToken, e);
+            throw new RuntimeException("Failed to scan file sizes", e);
+        }
+    }
+    
+    /**
+     * Calls the consumer with every file whose partition token is in
+     * (fromToken, toToken]; deleted files are left out.
+     */
+    public void forEachFileInTokenRange(long fromToken, long toToken, Consumer<File> consumer) {
+        try {
+            for (Row row : session.execute(findInTokenRangeStatement.bind(fromToken, toToken))) {
+                if (row.getInstant("deleted_at") == null) {
+                    consumer.accept(mapRowToFile(row));
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Failed to scan files in token range ({}, {}]", fromToken, toToken, e);
+            throw new RuntimeException("Failed to scan files", e);
+        }
+    }
+    
     /**
      * Updates an existing file record.
      */
@@ -172,6 +413,7 @@ public class FileRepository {
                 file.getFileSize(),
                 file.getUploadTime(),
                 file.getFilePath(),
+                file.getContentHash(),
                 file.getUpdatedAt(),
                 file.getId()
             ));
@@ -184,6 +426,70 @@ public class FileRepository {
         }
     }
     
+    /**
+     * Records the progress of a file's text extraction.
+     * 
+     * @param userId The file's owner
+     * @return false if the file has been deleted
+     */
+    public boolean updateExtraction(UUID id, UUID userId, ExtractionStatus status, Integer pageCount,
+                                    Long tokenEstimate) {
+        try {
+            boolean applied = session.execute(updateExtractionStatement.bind(
+                status.name(),
+                pageCount,
+                tokenEstimate,
+                Instant.now(),
+                id,
+                userId
+            )).wasApplied();
+            
+            logger.debug("File {} extraction status: {}", id, status);
+            return applied;
+        } catch (Exception e) {
+            logger.error("Failed to update extraction status of file: {}", id, e);
+            throw new RuntimeException("Failed to update extraction status", e);
+        }
+    }
+    
+    /**
+     * Marks a file whose extraction was just queued again as pending,
+     * unless its status has moved on from the one it was queued with.
+     * 
+     * @param userId The file's owner
+     * @param queuedStatus The status the file had when it was queued; null for files never extracted
+     * @return false if the status had changed (or the file has been deleted)
+     */
+    public boolean markExtractionQueued(UUID id, UUID userId, ExtractionStatus queuedStatus) {
+        try {
+            return session.execute(markExtractionQueuedStatement.bind(
+                ExtractionStatus.PENDING.name(),
+                Instant.now(),
+                id,
+                userId,
+                queuedStatus == null ? null : queuedStatus.name()
+            )).wasApplied();
+        } catch (Exception e) {
+            logger.error("Failed to mark extraction of file {} as queued", id, e);
+            throw new RuntimeException("Failed to update extraction status", e);
+        }
+    }
+    
+    /**
+     * Records the search index format a file's text was indexed with.
+     * 
+     * @param userId The file's owner
+     * @return false if the file has been deleted
+     */
+    public boolean updateSearchIndexVersion(UUID id, UUID userId, int version) {
+        try {
+            return session.execute(updateSearchIndexVersionStatement.bind(version, id, userId)).wasApplied();
+        } catch (Exception e) {
+            logger.error("Failed to update search index version of file: {}", id, e);
+            throw new RuntimeException("Failed to update search index version", e);
+        }
+    }
+    
     /**
      * Maps a database row to a File object.
      */
@@ -196,8 +502,15 @@ public class FileRepository {
         file.setFileSize(row.getLong("file_size"));
         file.setUploadTime(row.getInstant("upload_time"));
         file.setFilePath(row.getString("file_path"));
+        file.setContentHash(row.getString("content_hash"));
+        String extractionStatus = row.getString("extraction_status");
+        file.setExtractionStatus(extractionStatus == null ? null : ExtractionStatus.valueOf(extractionStatus));
+        file.setPageCount(row.isNull("page_count") ? null : row.getInt("page_count"));
+        file.setTokenEstimate(row.isNull("token_estimate") ? null : row.getLong("token_estimate"));
+        file.setSearchIndexVersion(row.isNull("search_index_version") ? null : row.getInt("search_index_version"));
         file.setCreatedAt(row.getInstant("created_at"));
         file.setUpdatedAt(row.getInstant("updated_at"));
+        file.setDeletedAt(row.getInstant("deleted_at"));
         return file;
     }
 } 
\ No newline at end of file
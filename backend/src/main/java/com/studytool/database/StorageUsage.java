@@ -0,0 +1,19 @@
+package com.studytool.database;
+
+/**
+ * How much a user has stored.
+ *
+ * @param bytes Total size of the user's files
+ * @param files Number of files
+ */
+public record StorageUsage(long bytes, long files) {
+    public static final StorageUsage NONE = new StorageUsage(0, 0);
+
+    public StorageUsage plus(long bytes, long files) {
+        return new StorageUsage(this.bytes + bytes, this.files + files);
+    }
+
+    public StorageUsage minus(StorageUsage other) {
+        return new StorageUsage(bytes - other.bytes, files - other.files);
+    }
+}
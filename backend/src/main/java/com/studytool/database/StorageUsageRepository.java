@@ -0,0 +1,99 @@
+package com.studytool.database;
+
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+
+/**
+ * Repository for per-user storage usage counters. Counters are only ever
+ * incremented or decremented, so concurrent uploads on any node never
+ * overwrite each other's updates.
+ */
+public class StorageUsageRepository {
+    private static final Logger logger = LoggerFactory.getLogger(StorageUsageRepository.class);
+
+    private final CqlSession session;
+    private final PreparedStatement addStatement;
+    private final PreparedStatement findByUserIdStatement;
+    private final PreparedStatement findAllStatement;
+
+    public StorageUsageRepository(CqlSession session) {
+        this.session = session;
+
+        this.addStatement = session.prepare(
+            "UPDATE user_storage_usage SET bytes = bytes + ?, file_count = file_count + ? WHERE user_id = ?"
+        );
+
+        this.findByUserIdStatement = session.prepare(
+            "SELECT bytes, file_count FROM user_storage_usage WHERE user_id = ?"
+        );
+
+        this.findAllStatement = session.prepare(
+            "SELECT user_id, bytes, file_count FROM user_storage_usage"
+        );
+
+        logger.info("StorageUsageRepository initialized with prepared statements");
+    }
+
+    /**
+     * The user's usage; users without a counter row have stored nothing.
+     */
+    public StorageUsage findByUserId(UUID userId) {
+        try {
+            Row row = session.execute(findByUserIdStatement.bind(userId)).one();
+            return row == null ? StorageUsage.NONE : mapRow(row);
+        } catch (Exception e) {
+            logger.error("Failed to read storage usage for user: {}", userId, e);
+            throw new RuntimeException("Failed to read storage usage", e);
+        }
+    }
+
+    /**
+     * Adjusts the user's counters.
+     */
+    public void add(UUID userId, StorageUsage delta) {
+        try {
+            session.execute(addStatement.bind(delta.bytes(), delta.files(), userId));
+        } catch (Exception e) {
+            logger.error("Failed to update storage usage for user: {}", userId, e);
+            throw new RuntimeException("Failed to update storage usage", e);
+        }
+    }
+
+    /**
+     * Adjusts the user's counters without waiting for the write.
+     *
+     * @return Completes when the write is acknowledged
+     */
+    public CompletionStage<Void> addAsync(UUID userId, StorageUsage delta) {
+        return session.executeAsync(addStatement.bind(delta.bytes(), delta.files(), userId))
+            .thenApply(resultSet -> null);
+    }
+
+    /**
+     * Calls the consumer with every user's counters.
+     */
+    public void forEach(BiConsumer<UUID, StorageUsage> consumer) {
+        try {
+            for (Row row : session.execute(findAllStatement.bind())) {
+                consumer.accept(row.getUuid("user_id"), mapRow(row));
+            }
+        } catch (Exception e) {
+            logger.error("Failed to read storage usage", e);
+            throw new RuntimeException("Failed to read storage usage", e);
+        }
+    }
+
+    private StorageUsage mapRow(Row row) {
+        // Counter columns read as null until first incremented
+        return new StorageUsage(row.isNull("bytes") ? 0 : row.getLong("bytes"),
+            row.isNull("file_count") ? 0 : row.getLong("file_count"));
+    }
+}
@@ -0,0 +1,60 @@
+package com.studytool.database;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+
+/**
+ * Repository for leases on background tasks that must only run on one node
+ * at a time. Leases are taken and renewed with lightweight transactions and
+ * expire on their own, so a node that dies holding one doesn't block the
+ * task for good.
+ */
+public class TaskLeaseRepository {
+    private static final Logger logger = LoggerFactory.getLogger(TaskLeaseRepository.class);
+
+    private final CqlSession session;
+    private final PreparedStatement acquireStatement;
+    private final PreparedStatement renewStatement;
+
+    public TaskLeaseRepository(CqlSession session) {
+        this.session = session;
+
+        this.acquireStatement = session.prepare(
+            "INSERT INTO task_leases (task, owner, acquired_at) VALUES (?, ?, ?) IF NOT EXISTS USING TTL ?"
+        );
+
+        this.renewStatement = session.prepare(
+            "UPDATE task_leases USING TTL ? SET owner = ?, acquired_at = ? WHERE task = ? IF owner = ?"
+        );
+
+        logger.info("TaskLeaseRepository initialized with prepared statements");
+    }
+
+    /**
+     * Takes the lease on a task, or renews it if the owner already holds it.
+     *
+     * @param owner Identifies the node taking the lease
+     * @param duration How long the lease lasts unless renewed
+     * @return true if the owner holds the lease for the given duration
+     */
+    public boolean tryAcquire(String task, UUID owner, Duration duration) {
+        try {
+            int ttl = (int) Math.max(1, duration.toSeconds());
+            Instant now = Instant.now();
+            if (session.execute(renewStatement.bind(ttl, owner, now, task, owner)).wasApplied()) {
+                return true;
+            }
+            return session.execute(acquireStatement.bind(task, owner, now, ttl)).wasApplied();
+        } catch (Exception e) {
+            logger.error("Failed to acquire lease on task: {}", task, e);
+            throw new RuntimeException("Failed to acquire task lease", e);
+        }
+    }
+}
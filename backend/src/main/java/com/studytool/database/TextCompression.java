@@ -0,0 +1,144 @@
+package com.studytool.database;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+/**
+ * Compresses text for storage in blob columns. Every compressed value is
+ * stored alongside the name of the codec that produced it so the format can
+ * change without rewriting existing rows.
+ *
+ * Two codecs are supported: gzip for large, rarely read documents (source
+ * texts) where ratio matters most, and LZ4 for generated artifacts that are
+ * read back on every request, where decode speed matters most.
+ */
+public final class TextCompression {
+
+    public static final String CODEC_GZIP = "gzip";
+    public static final String CODEC_LZ4 = "lz4";
+
+    /**
+     * Values shorter than this are stored as plain text: LZ4 framing costs
+     * more than it saves on a typical flashcard side.
+     */
+    public static final int MIN_COMPRESS_BYTES = 256;
+
+    private static final LZ4Factory LZ4 = LZ4Factory.fastestInstance();
+
+    /**
+     * A text column value as it is stored: either the plain text (codec and
+     * data null) or compressed bytes plus the codec that produced them.
+     */
+    public record StoredText(String text, String codec, ByteBuffer data) {
+    }
+
+    private TextCompression() {
+    }
+
+    /**
+     * Compresses the text with the default codec.
+     *
+     * @param text The text to compress
+     * @return The compressed bytes, ready to bind to a blob column
+     */
+    public static ByteBuffer compress(String text) {
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(raw);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to compress text", e);
+        }
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    /**
+     * Decompresses a value written by {@link #compress(String)} or {@link #encode(String)}.
+     *
+     * @param data The stored bytes
+     * @param codec The codec recorded with the value
+     * @return The original text
+     */
+    public static String decompress(ByteBuffer data, String codec) {
+        byte[] bytes = new byte[data.remaining()];
+        data.duplicate().get(bytes);
+
+        if (CODEC_LZ4.equals(codec)) {
+            // 4-byte big-endian original length, then the LZ4 block
+            int length = ByteBuffer.wrap(bytes, 0, 4).getInt();
+            LZ4FastDecompressor decompressor = LZ4.fastDecompressor();
+            byte[] raw = new byte[length];
+            decompressor.decompress(bytes, 4, raw, 0, length);
+            return new String(raw, StandardCharsets.UTF_8);
+        }
+        if (CODEC_GZIP.equals(codec)) {
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+                return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to decompress text", e);
+            }
+        }
+        throw new IllegalArgumentException("Unknown text codec: " + codec);
+    }
+
+    /**
+     * Name of the codec used by {@link #compress(String)}.
+     */
+    public static String defaultCodec() {
+        return CODEC_GZIP;
+    }
+
+    /**
+     * Prepares a text column value for storage. Values of at least
+     * {@link #MIN_COMPRESS_BYTES} are LZ4-compressed when that actually
+     * saves space; everything else is kept as plain text.
+     *
+     * @param text The value to store, may be null
+     * @return The stored form of the value
+     */
+    public static StoredText encode(String text) {
+        if (text == null) {
+            return new StoredText(null, null, null);
+        }
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        if (raw.length < MIN_COMPRESS_BYTES) {
+            return new StoredText(text, null, null);
+        }
+
+        LZ4Compressor compressor = LZ4.fastCompressor();
+        byte[] out = new byte[4 + compressor.maxCompressedLength(raw.length)];
+        ByteBuffer.wrap(out).putInt(raw.length);
+        int compressedLength = compressor.compress(raw, 0, raw.length, out, 4, out.length - 4);
+        if (4 + compressedLength >= raw.length) {
+            return new StoredText(text, null, null);
+        }
+        return new StoredText(null, CODEC_LZ4, ByteBuffer.wrap(out, 0, 4 + compressedLength));
+    }
+
+    /**
+     * Reads back a text column value written by {@link #encode(String)}.
+     * Rows written before compression was introduced have no data and are
+     * returned as-is.
+     *
+     * @param text The plain text column
+     * @param codec The codec column
+     * @param data The compressed blob column
+     * @return The original text
+     */
+    public static String decode(String text, String codec, ByteBuffer data) {
+        if (data == null) {
+            return text;
+        }
+        return decompress(data, codec);
+    }
+}
@@ -0,0 +1,63 @@
+package com.studytool.database;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Represents an in-progress resumable upload.
+ * The partial content is stored in a part file that grows chunk by chunk.
+ */
+public class UploadSession {
+    private UUID uploadId;
+    private UUID userId;
+    private String originalFilename;
+    private long totalSize;
+    private long received;
+    private String partPath;
+    private Instant createdAt;
+    private Instant updatedAt;
+    
+    // Default constructor
+    public UploadSession() {}
+    
+    // Constructor for starting a new upload
+    public UploadSession(UUID userId, String originalFilename, long totalSize, String partPath) {
+        this.uploadId = UUID.randomUUID();
+        this.userId = userId;
+        this.originalFilename = originalFilename;
+        this.totalSize = totalSize;
+        this.received = 0;
+        this.partPath = partPath;
+        this.createdAt = Instant.now();
+        this.updatedAt = Instant.now();
+    }
+    
+    // Getters and setters
+    public UUID getUploadId() { return uploadId; }
+    public void setUploadId(UUID uploadId) { this.uploadId = uploadId; }
+    
+    public UUID getUserId() { return userId; }
+    public void setUserId(UUID userId) { this.userId = userId; }
+    
+    public String getOriginalFilename() { return originalFilename; }
+    public void setOriginalFilename(String originalFilename) { this.originalFilename = originalFilename; }
+    
+    public long getTotalSize() { return totalSize; }
+    public void setTotalSize(long totalSize) { this.totalSize = totalSize; }
+    
+    public long getReceived() { return received; }
+    public void setReceived(long received) { this.received = received; }
+    
+    public String getPartPath() { return partPath; }
+    public void setPartPath(String partPath) { this.partPath = partPath; }
+    
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+    
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+    
+    public boolean isComplete() {
+        return received == totalSize;
+    }
+}
@@ -0,0 +1,133 @@
+package com.studytool.database;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+
+/**
+ * Repository for resumable upload sessions. The received offset is advanced
+ * with a compare-and-set so two requests can never both claim the same chunk,
+ * whichever node they land on.
+ */
+public class UploadSessionRepository {
+    private static final Logger logger = LoggerFactory.getLogger(UploadSessionRepository.class);
+    
+    private final CqlSession session;
+    private final PreparedStatement insertStatement;
+    private final PreparedStatement findByIdStatement;
+    private final PreparedStatement advanceStatement;
+    private final PreparedStatement deleteByIdStatement;
+    
+    public UploadSessionRepository(CqlSession session) {
+        this.session = session;
+        
+        this.insertStatement = session.prepare(
+            "INSERT INTO upload_sessions (upload_id, user_id, original_filename, total_size, received, " +
+            "part_path, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)"
+        );
+        
+        this.findByIdStatement = session.prepare(
+            "SELECT * FROM upload_sessions WHERE upload_id = ?"
+        );
+        
+        this.advanceStatement = session.prepare(
+            "UPDATE upload_sessions SET received = ?, updated_at = ? WHERE upload_id = ? IF received = ?"
+        );
+        
+        this.deleteByIdStatement = session.prepare(
+            "DELETE FROM upload_sessions WHERE upload_id = ?"
+        );
+        
+        logger.info("UploadSessionRepository initialized with prepared statements");
+    }
+    
+    /**
+     * Saves a new upload session.
+     */
+    public UploadSession save(UploadSession upload) {
+        try {
+            session.execute(insertStatement.bind(
+                upload.getUploadId(),
+                upload.getUserId(),
+                upload.getOriginalFilename(),
+                upload.getTotalSize(),
+                upload.getReceived(),
+                upload.getPartPath(),
+                upload.getCreatedAt(),
+                upload.getUpdatedAt()
+            ));
+            
+            logger.debug("Upload session saved: {}", upload.getUploadId());
+            return upload;
+        } catch (Exception e) {
+            logger.error("Failed to save upload session: {}", upload.getUploadId(), e);
+            throw new RuntimeException("Failed to save upload session", e);
+        }
+    }
+    
+    /**
+     * Finds an upload session by its ID.
+     */
+    public Optional<UploadSession> findById(UUID uploadId) {
+        try {
+            Row row = session.execute(findByIdStatement.bind(uploadId)).one();
+            if (row == null || row.isNull("part_path")) {
+                return Optional.empty();
+            }
+            return Optional.of(mapRowToUploadSession(row));
+        } catch (Exception e) {
+            logger.error("Failed to find upload session: {}", uploadId, e);
+            throw new RuntimeException("Failed to find upload session", e);
+        }
+    }
+    
+    /**
+     * Moves the received offset forward if it still has the expected value.
+     * 
+     * @return true if the offset was advanced, false if another request changed it first
+     */
+    public boolean advance(UUID uploadId, long expectedReceived, long newReceived) {
+        try {
+            return session.execute(advanceStatement.bind(newReceived, Instant.now(), uploadId, expectedReceived))
+                .wasApplied();
+        } catch (Exception e) {
+            logger.error("Failed to advance upload session: {}", uploadId, e);
+            throw new RuntimeException("Failed to update upload session", e);
+        }
+    }
+    
+    /**
+     * Deletes an upload session by its ID.
+     */
+    public void deleteById(UUID uploadId) {
+        try {
+            session.execute(deleteByIdStatement.bind(uploadId));
+            logger.debug("Upload session deleted: {}", uploadId);
+        } catch (Exception e) {
+            logger.warn("Failed to delete upload session {}: {}", uploadId, e.getMessage());
+        }
+    }
+    
+    /**
+     * Maps a database row to an UploadSession object.
+     */
+    private UploadSession mapRowToUploadSession(Row row) {
+        UploadSession upload = new UploadSession();
+        upload.setUploadId(row.getUuid("upload_id"));
+        upload.setUserId(row.getUuid("user_id"));
+        upload.setOriginalFilename(row.getString("original_filename"));
+        upload.setTotalSize(row.getLong("total_size"));
+        upload.setReceived(row.getLong("received"));
+        upload.setPartPath(row.getString("part_path"));
+        upload.setCreatedAt(row.getInstant("created_at"));
+        upload.setUpdatedAt(row.getInstant("updated_at"));
+        return upload;
+    }
+}
@@ -0,0 +1,139 @@
+package com.studytool.extraction;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes UTF-8 text as a series of gzip members of a fixed number of chars
+ * each. Concatenated members are still one valid gzip stream, so readers
+ * that want the whole text don't notice; but since every member can be
+ * decompressed on its own, a reader that knows where members start can
+ * begin anywhere (see {@link TextIndex}).
+ *
+ * Block i starts at char i * blockChars, or one char later when that
+ * position falls inside a surrogate pair, which is never split.
+ */
+final class BlockGzipWriter extends Writer {
+    private final MemberOutput out;
+    private final int blockChars;
+    private final LongStream.Builder blockStarts = LongStream.builder();
+    private final LongStream.Builder blockOffsets = LongStream.builder();
+    private Writer member;
+    private int blocks;
+    private long chars;
+    private char last;
+
+    /**
+     * @param out Where the members are written; closed with this writer
+     * @param blockChars Chars of text per member
+     */
+    BlockGzipWriter(OutputStream out, int blockChars) {
+        this.out = new MemberOutput(out);
+        this.blockChars = blockChars;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        while (len > 0) {
+            if (member == null || (chars >= (long) blocks * blockChars && !Character.isHighSurrogate(last))) {
+                startMember();
+            }
+            // Up to the next block boundary, or a single char to finish a surrogate pair
+            int n = (int) Math.min(len, Math.max(1, (long) blocks * blockChars - chars));
+            member.write(cbuf, off, n);
+            chars += n;
+            last = cbuf[off + n - 1];
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void startMember() throws IOException {
+        if (member != null) {
+            member.close();
+        }
+        blockStarts.add(chars);
+        blockOffsets.add(out.written);
+        member = new OutputStreamWriter(new GZIPOutputStream(out, 64 * 1024), StandardCharsets.UTF_8);
+        blocks++;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (member != null) {
+            member.flush();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (member == null) {
+            // Empty text is still written as one (empty) gzip member
+            startMember();
+        }
+        member.close();
+        out.target.close();
+    }
+
+    /**
+     * Chars written so far.
+     */
+    long chars() {
+        return chars;
+    }
+
+    /**
+     * The first char of each block, in block order. Call after {@link #close()}.
+     */
+    long[] blockCharOffsets() {
+        return blockStarts.build().toArray();
+    }
+
+    /**
+     * The file offset of each block's gzip member. Call after {@link #close()}.
+     */
+    long[] blockByteOffsets() {
+        return blockOffsets.build().toArray();
+    }
+
+    /**
+     * Counts the bytes written and keeps the target open when a member's
+     * gzip stream is closed.
+     */
+    private static final class MemberOutput extends OutputStream {
+        private final OutputStream target;
+        private long written;
+
+        MemberOutput(OutputStream target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target.write(b);
+            written++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target.write(b, off, len);
+            written += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target.flush();
+        }
+
+        @Override
+        public void close() {
+            // Only the member ends here
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.studytool.extraction;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fixed pool of background threads that extract text from uploaded files,
+ * so the text is ready before anyone asks for it.
+ *
+ * The queue is bounded. When it is full {@link #submit(Runnable)} runs the
+ * task on the submitting thread, which slows uploads down to the rate
+ * extraction keeps up with instead of queueing unbounded work in memory.
+ */
+public class ExtractionWorkerPool implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ExtractionWorkerPool.class);
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param workers Number of files extracted in the background at the same time
+     * @param queueCapacity Files that may wait for a worker before uploads run extraction themselves
+     */
+    public ExtractionWorkerPool(int workers, int queueCapacity) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+            workers, workers, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            task -> {
+                Thread thread = new Thread(task, "text-extraction-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * Queues a task, or runs it on the calling thread if the queue is full.
+     */
+    public void submit(Runnable task) {
+        if (!trySubmit(task)) {
+            if (executor.isShutdown()) {
+                logger.warn("Dropped text extraction task; worker pool is shut down");
+                return;
+            }
+            logger.debug("Extraction queue full; running task on {}", Thread.currentThread().getName());
+            task.run();
+        }
+    }
+
+    /**
+     * Queues a task if there is room.
+     *
+     * @return false if the queue is full and the task was not accepted
+     */
+    public boolean trySubmit(Runnable task) {
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Tasks waiting for a worker.
+     */
+    public int getQueuedTasks() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Stops taking tasks and waits briefly for running ones. Files still
+     * queued stay pending and are picked up again later.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("{} text extraction tasks still queued at shutdown", executor.getQueue().size());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+}
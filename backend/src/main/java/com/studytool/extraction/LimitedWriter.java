@@ -0,0 +1,77 @@
+package com.studytool.extraction;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Passes text through to another writer and fails once more than a set
+ * number of chars has gone through, so a document that expands without
+ * bound (a zip bomb, a huge compressed PDF stream) can't fill the disk.
+ * Several writers may share one count, e.g. the segments of a document
+ * extracted in parallel.
+ */
+public final class LimitedWriter extends Writer {
+    private final Writer out;
+    private final AtomicLong written;
+    private final long maxChars;
+
+    /**
+     * @param out Where the text is written; closed with this writer
+     */
+    public LimitedWriter(Writer out, long maxChars) {
+        this(out, new AtomicLong(), maxChars);
+    }
+
+    /**
+     * @param out Where the text is written; closed with this writer
+     * @param written Chars written so far, shared with other writers
+     */
+    public LimitedWriter(Writer out, AtomicLong written, long maxChars) {
+        this.out = out;
+        this.written = written;
+        this.maxChars = maxChars;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        count(1);
+        out.write(c);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        count(length);
+        out.write(chars, offset, length);
+    }
+
+    @Override
+    public void write(String text, int offset, int length) throws IOException {
+        count(length);
+        out.write(text, offset, length);
+    }
+
+    @Override
+    public Writer append(CharSequence text) throws IOException {
+        CharSequence chars = text == null ? "null" : text;
+        count(chars.length());
+        out.append(chars);
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void count(int chars) throws IOException {
+        if (written.addAndGet(chars) > maxChars) {
+            throw new IOException("Extracted text exceeds " + maxChars + " chars");
+        }
+    }
+}
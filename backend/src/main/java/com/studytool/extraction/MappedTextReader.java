@@ -0,0 +1,198 @@
+package com.studytool.extraction;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a text file of unknown encoding. The file is memory-mapped a
+ * window at a time and decoded straight into the caller's buffer, so the
+ * heap holds no copy of the file however large it is.
+ *
+ * The encoding is taken from a byte order mark if there is one. Otherwise
+ * the start of the file is inspected: UTF-16 without a BOM shows up as
+ * zero bytes in every other position, valid UTF-8 (including plain ASCII)
+ * is taken as UTF-8, and anything else is read as Windows-1252, the usual
+ * encoding of legacy Western text. Bytes that don't decode become U+FFFD.
+ */
+public class MappedTextReader extends Reader {
+
+    // Mapped at a time; windows are released by the GC, so this bounds address space, not heap
+    static final long WINDOW_BYTES = 32L * 1024 * 1024;
+    private static final int SAMPLE_BYTES = 64 * 1024;
+    private static final Charset WINDOWS_1252 = Charset.forName("windows-1252");
+    private static final Charset UTF_32BE = Charset.forName("UTF-32BE");
+    private static final Charset UTF_32LE = Charset.forName("UTF-32LE");
+
+    private final FileChannel channel;
+    private final long size;
+    private final Charset charset;
+    private final CharsetDecoder decoder;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private boolean flushing;
+    private boolean done;
+
+    private MappedTextReader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        map(0);
+        Detected detected = detect(window.duplicate().limit(Math.min(window.limit(), SAMPLE_BYTES)));
+        this.charset = detected.charset();
+        this.decoder = charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        window.position(detected.bomLength());
+    }
+
+    /**
+     * Opens the file and detects its encoding.
+     */
+    public static MappedTextReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new MappedTextReader(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Detects the encoding of a file from its first bytes.
+     */
+    public static Charset detectCharset(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer sample = ByteBuffer.allocate((int) Math.min(channel.size(), SAMPLE_BYTES));
+            while (sample.hasRemaining() && channel.read(sample) != -1) {
+            }
+            return detect(sample.flip()).charset();
+        }
+    }
+
+    /**
+     * The encoding the file is decoded with.
+     */
+    public Charset charset() {
+        return charset;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (window == null) {
+            throw new IOException("Reader is closed");
+        }
+        if (length == 0) {
+            return 0;
+        }
+        CharBuffer out = CharBuffer.wrap(buffer, offset, length);
+        while (out.position() == offset && !done) {
+            if (flushing) {
+                done = decoder.flush(out).isUnderflow();
+                continue;
+            }
+            boolean lastWindow = windowStart + window.limit() >= size;
+            CoderResult result = decoder.decode(window, out, lastWindow);
+            if (result.isUnderflow()) {
+                if (lastWindow) {
+                    flushing = true;
+                } else {
+                    // Bytes of a character split across windows are mapped again at the start of the next
+                    map(windowStart + window.position());
+                }
+            }
+        }
+        int read = out.position() - offset;
+        return read == 0 && done ? -1 : read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    private void map(long position) throws IOException {
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_BYTES, size - position));
+        windowStart = position;
+    }
+
+    private record Detected(Charset charset, int bomLength) {
+    }
+
+    private static Detected detect(ByteBuffer sample) {
+        int n = sample.remaining();
+        int b0 = n > 0 ? sample.get(sample.position()) & 0xFF : -1;
+        int b1 = n > 1 ? sample.get(sample.position() + 1) & 0xFF : -1;
+        int b2 = n > 2 ? sample.get(sample.position() + 2) & 0xFF : -1;
+        int b3 = n > 3 ? sample.get(sample.position() + 3) & 0xFF : -1;
+        if (b0 == 0xEF && b1 == 0xBB && b2 == 0xBF) {
+            return new Detected(StandardCharsets.UTF_8, 3);
+        }
+        if (b0 == 0x00 && b1 == 0x00 && b2 == 0xFE && b3 == 0xFF) {
+            return new Detected(UTF_32BE, 4);
+        }
+        if (b0 == 0xFF && b1 == 0xFE && b2 == 0x00 && b3 == 0x00) {
+            return new Detected(UTF_32LE, 4);
+        }
+        if (b0 == 0xFE && b1 == 0xFF) {
+            return new Detected(StandardCharsets.UTF_16BE, 2);
+        }
+        if (b0 == 0xFF && b1 == 0xFE) {
+            return new Detected(StandardCharsets.UTF_16LE, 2);
+        }
+
+        // Mostly-ASCII UTF-16 has a zero byte in every character, on the high side
+        int evenZeros = 0;
+        int oddZeros = 0;
+        for (int i = 0; i + 1 < n; i += 2) {
+            if (sample.get(sample.position() + i) == 0) {
+                evenZeros++;
+            }
+            if (sample.get(sample.position() + i + 1) == 0) {
+                oddZeros++;
+            }
+        }
+        int pairs = n / 2;
+        if (pairs > 0 && oddZeros > pairs * 3 / 10 && evenZeros < pairs / 20) {
+            return new Detected(StandardCharsets.UTF_16LE, 0);
+        }
+        if (pairs > 0 && evenZeros > pairs * 3 / 10 && oddZeros < pairs / 20) {
+            return new Detected(StandardCharsets.UTF_16BE, 0);
+        }
+
+        return new Detected(isUtf8(sample, n == SAMPLE_BYTES) ? StandardCharsets.UTF_8 : WINDOWS_1252, 0);
+    }
+
+    /**
+     * Whether the sample is valid UTF-8. If the sample is only the start of
+     * the file, a character cut off at its end doesn't count against it.
+     */
+    private static boolean isUtf8(ByteBuffer sample, boolean truncated) {
+        CharsetDecoder strict = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+        CharBuffer out = CharBuffer.allocate(4096);
+        ByteBuffer in = sample.duplicate();
+        while (true) {
+            CoderResult result = strict.decode(in, out, !truncated);
+            if (result.isError()) {
+                return false;
+            }
+            if (result.isUnderflow()) {
+                return true;
+            }
+            out.clear();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.studytool.extraction;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads large log-style text files through {@link MappedTextReader},
+ * reports the detected encoding, throughput and peak heap use, and fails if
+ * anything was read wrong. One file is generated per case: UTF-8,
+ * UTF-16LE and UTF-16BE with and without a byte order mark, and
+ * Windows-1252, with non-ASCII characters sprinkled in so detection has
+ * something to decide. At every mapping window boundary the files put a
+ * character whose bytes straddle it (a three-byte UTF-8 character, a UTF-16
+ * surrogate pair).
+ *
+ * Each file's detected encoding, character count and a checksum of its
+ * characters must match what was written, and the heap the reader retains
+ * must stay small. The gradle task runs with a 64 MB heap and exits on the
+ * first OutOfMemoryError, so reading files several times that size shows
+ * the reader's memory use doesn't grow with the file.
+ *
+ * Run with {@code gradle benchmarkTextReader --args="[megabytes] [retainedMegabytes]"}.
+ */
+public class MappedTextReaderBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(MappedTextReaderBenchmark.class);
+
+    private static final String[] LEVELS = {"INFO", "INFO", "INFO", "DEBUG", "WARN", "ERROR"};
+    private static final String[] MESSAGES = {
+        "Request completed in %d ms for caf\u00E9-%d",
+        "Cache miss for key na\u00EFve-%d, loading from store (%d bytes)",
+        "Retrying connection to node-%d after %d ms",
+        "User r\u00E9sum\u00E9-%d uploaded %d pages, \u20AC%d",
+    };
+    private static final Charset WINDOWS_1252 = Charset.forName("windows-1252");
+
+    /**
+     * A file to generate and read back.
+     *
+     * @param split Character written across each window boundary
+     * @param splitOffset How many of its bytes come before the boundary
+     */
+    private record Case(String name, Charset charset, boolean bom, String split, int splitOffset) {
+    }
+
+    /**
+     * What was written, to compare with what is read.
+     */
+    private record Written(long chars, long checksum) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        long megabytes = args.length > 0 ? Long.parseLong(args[0]) : 100;
+        long retainedLimit = (args.length > 1 ? Long.parseLong(args[1]) : 8) * 1024 * 1024;
+        logger.info("Max heap: {} MB", Runtime.getRuntime().maxMemory() / (1024 * 1024));
+        if (megabytes * 1024 * 1024 <= MappedTextReader.WINDOW_BYTES) {
+            throw new IllegalArgumentException("Files must be larger than one " + MappedTextReader.WINDOW_BYTES
+                + " byte window to cross a window boundary");
+        }
+
+        List<Case> cases = List.of(
+            new Case("UTF-8", StandardCharsets.UTF_8, false, "\u20AC", 1),
+            new Case("UTF-16LE with BOM", StandardCharsets.UTF_16LE, true, "\uD83D\uDCD8", 2),
+            new Case("UTF-16BE with BOM", StandardCharsets.UTF_16BE, true, "\uD83D\uDCD8", 2),
+            new Case("UTF-16LE without BOM", StandardCharsets.UTF_16LE, false, "\uD83D\uDCD8", 2),
+            new Case("UTF-16BE without BOM", StandardCharsets.UTF_16BE, false, "\uD83D\uDCD8", 2),
+            new Case("Windows-1252", WINDOWS_1252, false, "\u20AC", 0)
+        );
+        List<String> failures = new ArrayList<>();
+        for (Case c : cases) {
+            Path file = Files.createTempFile("text-reader-benchmark-", ".log");
+            try {
+                Written written = generate(file, c, megabytes * 1024 * 1024);
+                System.gc();
+                resetPeakHeap();
+                long heapBefore = retainedHeap();
+
+                long start = System.nanoTime();
+                long chars = 0;
+                long nonAscii = 0;
+                long checksum = 0;
+                long retained;
+                Charset detected;
+                try (MappedTextReader in = MappedTextReader.open(file)) {
+                    detected = in.charset();
+                    char[] buffer = new char[16 * 1024];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        chars += read;
+                        for (int i = 0; i < read; i++) {
+                            checksum = checksum * 31 + buffer[i];
+                            if (buffer[i] > 0x7F) {
+                                nonAscii++;
+                            }
+                        }
+                    }
+                    retained = retainedHeap() - heapBefore;
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                long bytes = Files.size(file);
+                logger.info("{}: detected {}, {} MB -> {} chars ({} non-ASCII) in {} s ({} MB/s), " +
+                           "heap before {} MB, peak {} MB, {} KB retained by the reader", c.name(), detected,
+                           bytes / (1024 * 1024), chars, nonAscii, String.format("%.2f", seconds),
+                           String.format("%.0f", bytes / (1024.0 * 1024) / seconds),
+                           heapBefore / (1024 * 1024), peakHeap() / (1024 * 1024), retained / 1024);
+
+                if (!detected.equals(c.charset())) {
+                    failures.add(c.name() + ": detected " + detected);
+                } else if (chars != written.chars() || checksum != written.checksum()) {
+                    failures.add(c.name() + ": read " + chars + " chars, wrote " + written.chars()
+                        + (checksum != written.checksum() ? ", contents differ" : ""));
+                }
+                if (retained > retainedLimit) {
+                    failures.add(c.name() + ": reader retained " + retained / 1024 + " KB");
+                }
+            } catch (OutOfMemoryError e) {
+                // Only reached without -XX:+ExitOnOutOfMemoryError
+                failures.add(c.name() + ": ran out of heap");
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            failures.forEach(failure -> logger.error("Failed: {}", failure));
+            System.exit(1);
+        }
+        logger.info("All {} files read correctly", cases.size());
+    }
+
+    /**
+     * Writes log lines until the file reaches the given size, padding up to
+     * each window boundary so the case's split character straddles it.
+     */
+    private static Written generate(Path file, Case c, long bytes) throws IOException {
+        Random random = new Random(42);
+        Instant time = Instant.parse("2024-01-01T00:00:00Z");
+        long written = 0;
+        long chars = 0;
+        long checksum = 0;
+        long boundary = MappedTextReader.WINDOW_BYTES;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024)) {
+            if (c.bom()) {
+                ByteBuffer bom = c.charset().encode("\uFEFF");
+                written += bom.remaining();
+                out.write(bom.array(), bom.arrayOffset(), bom.remaining());
+            }
+            while (written < bytes) {
+                time = time.plusMillis(random.nextInt(50));
+                String message = String.format(MESSAGES[random.nextInt(MESSAGES.length)],
+                    random.nextInt(1000), random.nextInt(100_000), random.nextInt(100));
+                String text = time + " " + LEVELS[random.nextInt(LEVELS.length)] + " [worker-"
+                    + random.nextInt(16) + "] " + message + "\n";
+                ByteBuffer encoded = c.charset().encode(CharBuffer.wrap(text));
+
+                if (written + encoded.remaining() > boundary - c.splitOffset()) {
+                    // Pad with spaces (one byte or two, like every ASCII char here) up to the split character
+                    int unit = c.charset().encode(" ").remaining();
+                    int spaces = (int) ((boundary - c.splitOffset() - written) / unit);
+                    text = " ".repeat(spaces) + c.split();
+                    encoded = c.charset().encode(CharBuffer.wrap(text));
+                    boundary += MappedTextReader.WINDOW_BYTES;
+                }
+                written += encoded.remaining();
+                out.write(encoded.array(), encoded.arrayOffset(), encoded.remaining());
+                for (int i = 0; i < text.length(); i++) {
+                    checksum = checksum * 31 + text.charAt(i);
+                }
+                chars += text.length();
+            }
+        }
+        return new Written(chars, checksum);
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static long retainedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
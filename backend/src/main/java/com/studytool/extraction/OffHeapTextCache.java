@@ -0,0 +1,388 @@
+package com.studytool.extraction;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the extracted text of recently read documents in direct memory, as
+ * UTF-8. A popular document (this week's lecture notes) is then served
+ * without decompressing its sidecar again, and without holding its text on
+ * the heap where large, short-lived copies end up churning the old
+ * generation.
+ *
+ * Memory is allocated once, in slabs divided into fixed-size pages, and
+ * pages are recycled when entries are evicted. Direct buffers are only freed
+ * when the garbage collector gets around to them, so allocating one per
+ * document would hand the cache's memory back to the collector after all.
+ *
+ * Entries are evicted least recently used first, but only for a document
+ * that has been asked for more often than the entry it would replace, so a
+ * stream of one-off reads can't push out the hot documents. Counts are
+ * halved now and then so documents that have cooled down make room. An
+ * entry that is still being read when it is evicted keeps its pages until
+ * its last reader closes it.
+ */
+public class OffHeapTextCache {
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapTextCache.class);
+
+    // Above Jetty's write aggregation size, so pages go to the socket without a copy
+    private static final int PAGE_BYTES = 16 * 1024;
+    private static final int SLAB_BYTES = 4 * 1024 * 1024;
+    private static final int PAGES_PER_SLAB = SLAB_BYTES / PAGE_BYTES;
+    // Larger documents are streamed from the sidecar instead
+    private static final long MAX_ENTRY_BYTES = 256L * 1024 * 1024;
+    // Documents whose access counts are kept, and lookups between halving them
+    private static final int TRACKED_KEYS = 4096;
+    private static final int AGING_INTERVAL = 1024;
+
+    /**
+     * Cache contents and counts since startup.
+     */
+    public record Stats(int entries, long bytes, long capacityBytes, long hits, long misses, long evictions) {
+    }
+
+    private final long capacityBytes;
+    private final int maxPages;
+    private final long maxEntryBytes;
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Integer> frequencies = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+            return size() > TRACKED_KEYS;
+        }
+    };
+    private int lookupsSinceAging;
+    private int[] freePages = new int[0];
+    private int freeCount;
+    private int allocatedPages;
+    private long cachedBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param capacityBytes Most direct memory to use; 0 turns the cache off
+     */
+    public OffHeapTextCache(long capacityBytes) {
+        this.capacityBytes = capacityBytes;
+        this.maxPages = (int) Math.min(Integer.MAX_VALUE, Math.max(0, capacityBytes / PAGE_BYTES));
+        // One document may take a quarter of the cache, so a few hot ones fit at once
+        this.maxEntryBytes = Math.min(MAX_ENTRY_BYTES, capacityBytes / 4);
+    }
+
+    public boolean isEnabled() {
+        return maxPages > 0;
+    }
+
+    /**
+     * Whether a text of the given size may be cached at all. Checking this
+     * before {@link #put} saves evicting entries for a text that turns out
+     * to be too large.
+     *
+     * @param bytes The text's UTF-8 size, or a lower bound on it
+     */
+    public boolean accepts(long bytes) {
+        return isEnabled() && bytes <= maxEntryBytes;
+    }
+
+    /**
+     * Looks up a document's text.
+     *
+     * @return The text, which the caller must close, or empty if it isn't cached
+     */
+    public synchronized Optional<CachedText> get(String key) {
+        recordLookup(key);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return Optional.empty();
+        }
+        hits++;
+        entry.references++;
+        return Optional.of(new CachedText(entry));
+    }
+
+    /**
+     * Copies a document's text into the cache, evicting older entries to
+     * make room. If the text is already cached, that entry is returned.
+     * Callers that know the text's size should check {@link #accepts}
+     * first, since a text found too large only partway through has already
+     * evicted entries by then.
+     *
+     * @param text UTF-8 text; read to the end unless the text isn't cached, but not closed
+     * @return The cached text, which the caller must close, or empty if the
+     *         text is too large to cache, is read less often than what it
+     *         would evict, or all memory is in use by readers
+     */
+    public Optional<CachedText> put(String key, InputStream text) throws IOException {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        ReadableByteChannel channel = Channels.newChannel(text);
+        int[] pages = new int[8];
+        List<ByteBuffer> buffers = new ArrayList<>();
+        long size = 0;
+        try {
+            while (true) {
+                int page = allocatePage(key);
+                if (page < 0) {
+                    release(pages, buffers.size());
+                    logger.debug("Not caching text for {}", key);
+                    return Optional.empty();
+                }
+                if (buffers.size() == pages.length) {
+                    pages = Arrays.copyOf(pages, pages.length * 2);
+                }
+                pages[buffers.size()] = page;
+                ByteBuffer buffer = pageBuffer(page);
+                buffers.add(buffer);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // Fill the page
+                }
+                size += buffer.position();
+                if (size > maxEntryBytes) {
+                    release(pages, buffers.size());
+                    return Optional.empty();
+                }
+                if (buffer.hasRemaining()) {
+                    break;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            release(pages, buffers.size());
+            throw e;
+        }
+
+        ByteBuffer[] contents = new ByteBuffer[buffers.size()];
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = buffers.get(i).flip().asReadOnlyBuffer();
+        }
+        Entry entry = new Entry(Arrays.copyOf(pages, contents.length), contents, size);
+        synchronized (this) {
+            Entry existing = entries.get(key);
+            if (existing != null) {
+                // Loaded concurrently by another request
+                freePages(entry.pages);
+                existing.references++;
+                return Optional.of(new CachedText(existing));
+            }
+            entries.put(key, entry);
+            cachedBytes += size;
+            entry.references = 2;
+            return Optional.of(new CachedText(entry));
+        }
+    }
+
+    /**
+     * Drops a document's text, e.g. once its file is deleted.
+     */
+    public synchronized void invalidate(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            cachedBytes -= entry.size;
+            unreference(entry);
+        }
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(entries.size(), cachedBytes, capacityBytes, hits, misses, evictions);
+    }
+
+    private void recordLookup(String key) {
+        frequencies.merge(key, 1, Integer::sum);
+        if (++lookupsSinceAging >= AGING_INTERVAL) {
+            lookupsSinceAging = 0;
+            frequencies.replaceAll((k, count) -> count / 2);
+        }
+    }
+
+    /**
+     * Takes a free page for the given document, allocating a slab or
+     * evicting entries if there is none.
+     *
+     * @return The page, or -1 if the document isn't worth evicting for or
+     *         all pages are held by readers
+     */
+    private synchronized int allocatePage(String key) {
+        while (freeCount == 0) {
+            if (allocatedPages < maxPages) {
+                allocateSlab();
+            } else if (!evictEldest(frequencies.getOrDefault(key, 0))) {
+                return -1;
+            }
+        }
+        return freePages[--freeCount];
+    }
+
+    private void allocateSlab() {
+        int pages = Math.min(PAGES_PER_SLAB, maxPages - allocatedPages);
+        int first = slabs.size() * PAGES_PER_SLAB;
+        slabs.add(ByteBuffer.allocateDirect(pages * PAGE_BYTES));
+        if (freePages.length < allocatedPages + pages) {
+            freePages = Arrays.copyOf(freePages, allocatedPages + pages);
+        }
+        for (int i = pages - 1; i >= 0; i--) {
+            freePages[freeCount++] = first + i;
+        }
+        allocatedPages += pages;
+    }
+
+    private boolean evictEldest(int candidateFrequency) {
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        if (!eldest.hasNext()) {
+            return false;
+        }
+        Map.Entry<String, Entry> victim = eldest.next();
+        Integer victimFrequency = frequencies.get(victim.getKey());
+        if (victimFrequency != null && victimFrequency >= candidateFrequency) {
+            return false;
+        }
+        Entry entry = victim.getValue();
+        eldest.remove();
+        cachedBytes -= entry.size;
+        evictions++;
+        unreference(entry);
+        return true;
+    }
+
+    private synchronized ByteBuffer pageBuffer(int page) {
+        ByteBuffer slab = slabs.get(page / PAGES_PER_SLAB);
+        return slab.slice((page % PAGES_PER_SLAB) * PAGE_BYTES, PAGE_BYTES);
+    }
+
+    private synchronized void unreference(Entry entry) {
+        if (--entry.references == 0) {
+            freePages(entry.pages);
+        }
+    }
+
+    private synchronized void release(int[] pages, int count) {
+        freePages(Arrays.copyOf(pages, count));
+    }
+
+    private void freePages(int[] pages) {
+        for (int page : pages) {
+            freePages[freeCount++] = page;
+        }
+    }
+
+    private static final class Entry {
+        final int[] pages;
+        final ByteBuffer[] contents;
+        final long size;
+        // The cache's own reference plus one per open CachedText; guarded by the cache
+        int references;
+
+        Entry(int[] pages, ByteBuffer[] contents, long size) {
+            this.pages = pages;
+            this.contents = contents;
+            this.size = size;
+        }
+    }
+
+    /**
+     * A reader's hold on a cached document's text. The memory stays valid
+     * until this is closed, even if the document is evicted meanwhile.
+     */
+    public final class CachedText implements AutoCloseable {
+        private final Entry entry;
+        private boolean closed;
+
+        private CachedText(Entry entry) {
+            this.entry = entry;
+        }
+
+        /**
+         * Length of the text in UTF-8 bytes.
+         */
+        public long size() {
+            return entry.size;
+        }
+
+        /**
+         * Read-only views of the text, in order, for writing it out without
+         * copying. Each call returns fresh views.
+         */
+        public List<ByteBuffer> buffers() {
+            ByteBuffer[] views = new ByteBuffer[entry.contents.length];
+            for (int i = 0; i < views.length; i++) {
+                views[i] = entry.contents[i].duplicate();
+            }
+            return Arrays.asList(views);
+        }
+
+        /**
+         * The text as a String, for building prompts.
+         */
+        public String readString() {
+            byte[] bytes = new byte[Math.toIntExact(entry.size)];
+            int position = 0;
+            for (ByteBuffer buffer : buffers()) {
+                int length = buffer.remaining();
+                buffer.get(bytes, position, length);
+                position += length;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * The text as a stream. Closing the stream closes this.
+         */
+        public InputStream asStream() {
+            List<ByteBuffer> buffers = buffers();
+            return new InputStream() {
+                private int current;
+
+                @Override
+                public int read() {
+                    byte[] one = new byte[1];
+                    return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    while (current < buffers.size() && !buffers.get(current).hasRemaining()) {
+                        current++;
+                    }
+                    if (current == buffers.size()) {
+                        return -1;
+                    }
+                    ByteBuffer buffer = buffers.get(current);
+                    int n = Math.min(len, buffer.remaining());
+                    buffer.get(b, off, n);
+                    return n;
+                }
+
+                @Override
+                public void close() {
+                    CachedText.this.close();
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            synchronized (OffHeapTextCache.this) {
+                if (!closed) {
+                    closed = true;
+                    unreference(entry);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.studytool.extraction;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+/**
+ * Extracts PDF text by splitting the page range into segments and stripping
+ * them concurrently on a dedicated fork-join pool.
+ *
+ * PDDocument is not thread-safe, so every segment opens its own copy of the
+ * document (with temp-file backed buffers) and writes its text to its own
+ * scratch file. The segment files are then concatenated in page order, so
+ * the output is identical to a single sequential pass.
+ */
+public class ParallelPdfExtractor implements AutoCloseable {
+
+    // Below this many pages per segment, reopening the document costs more than it saves
+    private static final int MIN_PAGES_PER_SEGMENT = 16;
+
+    // Parsed PDF streams beyond this spill to a scratch file
+    private static final long MAIN_MEMORY_BYTES = 8 * 1024 * 1024;
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+
+    /**
+     * @param parallelism Number of segments extracted at the same time
+     */
+    public ParallelPdfExtractor(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        this.pool = new ForkJoinPool(this.parallelism);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Extracts the text of every page into the target file, pages separated
+     * by {@link TextNormalizer#PAGE_BREAK}.
+     *
+     * @param source The PDF to read
+     * @param target The file to write UTF-8 text to
+     * @param scratchDirectory Where segment and buffer temp files are created
+     */
+    public void extract(Path source, Path target, Path scratchDirectory) throws IOException {
+        try (Writer out = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            extract(source, out, scratchDirectory, Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Extracts the text of every page, pages separated by
+     * {@link TextNormalizer#PAGE_BREAK}.
+     *
+     * @param source The PDF to read
+     * @param out Where the text is written; left open
+     * @param scratchDirectory Where segment and buffer temp files are created
+     * @param maxChars Most text the segment files may hold together; more fails the extraction
+     */
+    public void extract(Path source, Writer out, Path scratchDirectory, long maxChars) throws IOException {
+        int pages;
+        try (PDDocument doc = PDDocument.load(source.toFile(), memoryUsage(scratchDirectory))) {
+            pages = doc.getNumberOfPages();
+        }
+
+        int segments = Math.max(1, Math.min(parallelism, pages / MIN_PAGES_PER_SEGMENT));
+        if (segments == 1) {
+            extractRange(source, 1, pages, out, scratchDirectory);
+            return;
+        }
+
+        int pagesPerSegment = (pages + segments - 1) / segments;
+        List<Path> parts = new ArrayList<>(segments);
+        AtomicLong partChars = new AtomicLong();
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(segments);
+            for (int first = 1; first <= pages; first += pagesPerSegment) {
+                int start = first;
+                int end = Math.min(first + pagesPerSegment - 1, pages);
+                Path part = Files.createTempFile(scratchDirectory, "segment-", ".txt");
+                parts.add(part);
+                tasks.add(pool.submit(() -> {
+                    try (Writer partOut = new LimitedWriter(Files.newBufferedWriter(part, StandardCharsets.UTF_8),
+                                                            partChars, maxChars)) {
+                        extractRange(source, start, end, partOut, scratchDirectory);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+            // Wait for every segment before cleaning up, even if one fails
+            RuntimeException failure = null;
+            for (ForkJoinTask<?> task : tasks) {
+                try {
+                    task.join();
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+            if (failure instanceof UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+
+            for (Path part : parts) {
+                try (Reader in = Files.newBufferedReader(part, StandardCharsets.UTF_8)) {
+                    in.transferTo(out);
+                }
+            }
+        } finally {
+            for (Path part : parts) {
+                Files.deleteIfExists(part);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private static void extractRange(Path source, int startPage, int endPage, Writer out, Path scratchDirectory)
+            throws IOException {
+        try (PDDocument doc = PDDocument.load(source.toFile(), memoryUsage(scratchDirectory))) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            // Mark page boundaries so running headers and footers can be detected
+            stripper.setPageEnd(String.valueOf(TextNormalizer.PAGE_BREAK));
+            stripper.setStartPage(startPage);
+            stripper.setEndPage(endPage);
+            stripper.writeText(doc, out);
+        }
+    }
+
+    private static MemoryUsageSetting memoryUsage(Path scratchDirectory) {
+        return MemoryUsageSetting.setupMixed(MAIN_MEMORY_BYTES).setTempDir(scratchDirectory.toFile());
+    }
+}
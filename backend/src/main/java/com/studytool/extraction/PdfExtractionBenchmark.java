@@ -0,0 +1,60 @@
+package com.studytool.extraction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures how PDF extraction scales with {@link ParallelPdfExtractor}
+ * parallelism. Every level from 1 to the number of available processors
+ * (or the given maximum) is run a few times on the same document and the
+ * best time is reported together with the speedup over a single thread.
+ *
+ * Run with {@code gradle benchmarkPdfExtraction --args="<file.pdf> [maxParallelism]"}.
+ */
+public class PdfExtractionBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(PdfExtractionBenchmark.class);
+
+    private static final int RUNS = 3;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            logger.error("Usage: PdfExtractionBenchmark <file.pdf> [maxParallelism]");
+            System.exit(1);
+        }
+        Path source = Paths.get(args[0]);
+        int maxParallelism = args.length > 1
+                ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+
+        Path scratch = Files.createTempDirectory("pdf-benchmark-");
+        Path target = scratch.resolve("out.txt");
+        try {
+            long baseline = 0;
+            for (int parallelism = 1; parallelism <= maxParallelism; parallelism++) {
+                long best = Long.MAX_VALUE;
+                try (ParallelPdfExtractor extractor = new ParallelPdfExtractor(parallelism)) {
+                    // First run warms up the JIT and font caches and is not counted
+                    extractor.extract(source, target, scratch);
+                    for (int i = 0; i < RUNS; i++) {
+                        long start = System.nanoTime();
+                        extractor.extract(source, target, scratch);
+                        best = Math.min(best, System.nanoTime() - start);
+                    }
+                }
+                if (parallelism == 1) {
+                    baseline = best;
+                }
+                logger.info("parallelism={} best={} ms speedup={}x output={} bytes", parallelism,
+                           best / 1_000_000, String.format("%.2f", (double) baseline / best), Files.size(target));
+            }
+        } finally {
+            Files.deleteIfExists(target);
+            Files.deleteIfExists(scratch);
+        }
+    }
+}
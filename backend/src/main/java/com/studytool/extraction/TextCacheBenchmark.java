@@ -0,0 +1,214 @@
+package com.studytool.extraction;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.studytool.extraction.extractor.ExtractorSettings;
+import com.studytool.extraction.extractor.TextExtractors;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Serves many large documents from several threads, once straight from the
+ * compressed sidecars and once through the {@link OffHeapTextCache}, and
+ * reports garbage collection pauses and heap allocation per read for each.
+ *
+ * Two loads are run: whole-text downloads, which the cache writes out from
+ * direct memory, and prompt building, which still needs the text as a
+ * String but skips decompression. Most reads go to a few hot documents, as
+ * they do when a class is studying this week's notes.
+ *
+ * Run with {@code gradle benchmarkTextCache --args="[documents] [documentMegabytes] [reads] [threads]"}.
+ */
+public class TextCacheBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(TextCacheBenchmark.class);
+
+    private static final String[] WORDS = {
+        "lecture", "theorem", "proof", "integral", "example", "derivative", "matrix", "eigenvalue",
+        "entropy", "algorithm", "lemma", "hypothesis", "variance", "gradient", "caf\u00E9", "\u00DCbung",
+    };
+    // Share of reads that go to the hot documents, and how many documents are hot
+    private static final double HOT_SHARE = 0.8;
+    private static final int HOT_DOCUMENTS = 4;
+
+    private record Result(long gcCount, long gcMillis, long maxPauseMillis, long allocatedBytes, long millis) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int documents = args.length > 0 ? Integer.parseInt(args[0]) : 24;
+        int documentMegabytes = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int reads = args.length > 2 ? Integer.parseInt(args[2]) : 2_000;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+        // Room for the hot documents, not for all of them
+        long cacheBytes = 2L * HOT_DOCUMENTS * documentMegabytes * 1024 * 1024;
+
+        Path scratch = Files.createTempDirectory("text-cache-benchmark-");
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (TextExtractors extractors = TextExtractors.load(new ExtractorSettings(1))) {
+            Path cacheDirectory = scratch.resolve("cache");
+            TextExtractionService uncached = new TextExtractionService(cacheDirectory, threads, extractors,
+                                                                       new OffHeapTextCache(0));
+            OffHeapTextCache textCache = new OffHeapTextCache(cacheBytes);
+            TextExtractionService cached = new TextExtractionService(cacheDirectory, threads, extractors, textCache);
+
+            List<String> keys = new ArrayList<>();
+            List<Path> sources = new ArrayList<>();
+            for (int i = 0; i < documents; i++) {
+                String key = "notes-" + i + ".txt";
+                Path source = scratch.resolve(key);
+                generate(source, documentMegabytes, i);
+                uncached.extract(source, key);
+                keys.add(key);
+                sources.add(source);
+            }
+            logger.info("{} documents of {} MB, {} reads on {} threads, {} MB cache", documents, documentMegabytes,
+                       reads, threads, cacheBytes / 1024 / 1024);
+
+            for (boolean prompts : new boolean[] {false, true}) {
+                String load = prompts ? "prompt building" : "downloads";
+                for (TextExtractionService service : List.of(uncached, cached)) {
+                    // Warm up the JIT and, for the cache, load the hot documents
+                    run(executor, service, keys, sources, reads / 4, threads, prompts);
+                    Result result = run(executor, service, keys, sources, reads, threads, prompts);
+                    logger.info("{} from {}: {} ms, {} GCs taking {} ms (longest pause {} ms), {} KB allocated per read",
+                               load, service == cached ? "off-heap cache" : "sidecars", result.millis(),
+                               result.gcCount(), result.gcMillis(), result.maxPauseMillis(),
+                               result.allocatedBytes() / reads / 1024);
+                }
+            }
+            logger.info("Cache: {}", textCache.stats());
+        } finally {
+            executor.shutdown();
+            try (Stream<Path> files = Files.walk(scratch)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private static Result run(ExecutorService executor, TextExtractionService service, List<String> keys,
+                              List<Path> sources, int reads, int threads, boolean prompts) throws Exception {
+        System.gc();
+        List<Long> pauses = new ArrayList<>();
+        NotificationListener listener = (notification, handback) -> {
+            if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                GarbageCollectionNotificationInfo info =
+                    GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                synchronized (pauses) {
+                    pauses.add(info.getGcInfo().getDuration());
+                }
+            }
+        };
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        for (GarbageCollectorMXBean collector : collectors) {
+            ((NotificationEmitter) collector).addNotificationListener(listener, null, null);
+        }
+
+        ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long start = System.nanoTime();
+        List<Future<Long>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int share = reads / threads + (t < reads % threads ? 1 : 0);
+            workers.add(executor.submit(() -> {
+                long allocatedStart = threadBean.getCurrentThreadAllocatedBytes();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < share; i++) {
+                    int document = random.nextDouble() < HOT_SHARE
+                        ? random.nextInt(Math.min(HOT_DOCUMENTS, keys.size()))
+                        : random.nextInt(keys.size());
+                    if (prompts) {
+                        prompt(service, sources.get(document), keys.get(document));
+                    } else {
+                        download(service, sources.get(document), keys.get(document));
+                    }
+                }
+                return threadBean.getCurrentThreadAllocatedBytes() - allocatedStart;
+            }));
+        }
+        long allocated = 0;
+        for (Future<Long> worker : workers) {
+            allocated += worker.get();
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        for (GarbageCollectorMXBean collector : collectors) {
+            ((NotificationEmitter) collector).removeNotificationListener(listener);
+        }
+        synchronized (pauses) {
+            long total = pauses.stream().mapToLong(Long::longValue).sum();
+            long longest = pauses.stream().mapToLong(Long::longValue).max().orElse(0);
+            return new Result(pauses.size(), total, longest, allocated, millis);
+        }
+    }
+
+    /**
+     * Writes a document's whole text to nowhere, the way the text endpoint
+     * writes it to a connection.
+     */
+    private static void download(TextExtractionService service, Path source, String key) throws IOException {
+        Optional<OffHeapTextCache.CachedText> cached = service.cachedText(source, key);
+        if (cached.isPresent()) {
+            try (OffHeapTextCache.CachedText text = cached.get()) {
+                for (ByteBuffer buffer : text.buffers()) {
+                    // Stands in for the socket; a stream would copy the bytes onto the heap
+                    buffer.position(buffer.limit());
+                }
+            }
+            return;
+        }
+        try (InputStream in = service.openText(source, key)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    private static void prompt(TextExtractionService service, Path source, String key) throws IOException {
+        String text = service.readString(source, key);
+        if (text.isEmpty()) {
+            throw new IllegalStateException("No text for " + key);
+        }
+    }
+
+    private static void generate(Path file, int megabytes, int seed) throws IOException {
+        Random random = new Random(seed);
+        long target = megabytes * 1024L * 1024;
+        long written = 0;
+        try (Writer out = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 64 * 1024)) {
+            while (written < target) {
+                StringBuilder line = new StringBuilder();
+                for (int word = 0; word < 12; word++) {
+                    line.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+                }
+                line.append(random.nextInt(1_000_000)).append('\n');
+                out.write(line.toString());
+                written += line.length();
+            }
+        }
+    }
+}
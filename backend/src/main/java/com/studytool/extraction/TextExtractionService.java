@@ -0,0 +1,438 @@
+package com.studytool.extraction;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.studytool.extraction.extractor.TextExtractor;
+import com.studytool.extraction.extractor.TextExtractors;
+import com.studytool.extraction.extractor.TextSink;
+
+/**
+ * Extracts plain text from stored files and persists the result as a
+ * gzip-compressed sidecar, so each document is parsed once and later
+ * requests are served with a file read.
+ *
+ * Extraction runs with bounded memory: the {@link TextExtractor} for the
+ * file's format streams its text into a temp file, which is then normalized
+ * in two streaming passes. The number of concurrent extractions is capped.
+ *
+ * Page count and token estimate are kept in a small stats file next to each
+ * sidecar, since the normalized text no longer has page breaks.
+ *
+ * The sidecar is written in independently compressed blocks, and an index
+ * next to it records where each block and each page starts. A window of the
+ * text is read by decompressing from the block it starts in, so reading any
+ * part of a large document costs about the same as reading its first page.
+ *
+ * Whole documents that are read often are kept decompressed in an
+ * {@link OffHeapTextCache}, outside the heap.
+ */
+public class TextExtractionService {
+    private static final Logger logger = LoggerFactory.getLogger(TextExtractionService.class);
+
+    private static final String SIDECAR_SUFFIX = ".txt.gz";
+    private static final String STATS_SUFFIX = ".stats";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final List<String> SUFFIXES = List.of(SIDECAR_SUFFIX, STATS_SUFFIX, INDEX_SUFFIX);
+
+    // Chars per compressed block of the sidecar; the most decompressed in vain to reach an offset
+    private static final int BLOCK_CHARS = 64 * 1024;
+
+    private static final long SLOT_TIMEOUT_SECONDS = 60;
+
+    // Most raw text one document may produce; far beyond real course material, but bounds a zip bomb's output
+    private static final long MAX_TEXT_CHARS = 256L * 1024 * 1024;
+
+    private final Path cacheDirectory;
+    private final Semaphore extractionSlots;
+    private final TextExtractors extractors;
+    private final OffHeapTextCache textCache;
+    private final ConcurrentHashMap<String, Object> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param cacheDirectory Where extracted text sidecars are stored
+     * @param maxConcurrentExtractions Upper bound on documents parsed at the same time
+     * @param extractors The extractors for each supported format
+     * @param textCache Holds the text of documents read whole
+     */
+    public TextExtractionService(Path cacheDirectory, int maxConcurrentExtractions, TextExtractors extractors,
+                                 OffHeapTextCache textCache) {
+        this.cacheDirectory = cacheDirectory;
+        this.extractionSlots = new Semaphore(maxConcurrentExtractions);
+        this.extractors = extractors;
+        this.textCache = textCache;
+        try {
+            Files.createDirectories(cacheDirectory);
+        } catch (IOException e) {
+            logger.error("Failed to create text cache directory: {}", cacheDirectory, e);
+            throw new RuntimeException("Failed to initialize text cache", e);
+        }
+    }
+
+    /**
+     * Whether text can be extracted from files with this name.
+     */
+    public boolean isSupported(String filename) {
+        return extractors.forFilename(filename).isPresent();
+    }
+
+    /**
+     * The extensions text can be extracted from, e.g. ".pdf".
+     */
+    public Set<String> supportedExtensions() {
+        return extractors.extensions();
+    }
+
+    /**
+     * The content type of a supported file, judged by its extension.
+     */
+    public Optional<String> contentType(String filename) {
+        return extractors.contentType(filename);
+    }
+
+    /**
+     * Opens the normalized text of a stored file, extracting and caching it
+     * on first access.
+     *
+     * @param source The stored file
+     * @param key Cache key; the stored filename, which is unique and never rewritten
+     * @return A stream of UTF-8 text; the caller must close it
+     */
+    public InputStream openText(Path source, String key) throws IOException {
+        Path sidecar = sidecarPath(key);
+        if (!Files.exists(sidecar)) {
+            extractToSidecar(source, key, sidecar);
+        }
+        return new GZIPInputStream(new BufferedInputStream(Files.newInputStream(sidecar)), 64 * 1024);
+    }
+
+    /**
+     * The normalized text of a stored file from the off-heap text cache,
+     * loading it from the sidecar (extracting it first if need be) on a miss.
+     *
+     * @param source The stored file; may be null if {@link #isCached(String)}
+     * @param key Cache key, as for {@link #openText(Path, String)}
+     * @return The text, which the caller must close, or empty if it can't be
+     *         cached; then read it with {@link #openText(Path, String)}
+     */
+    public Optional<OffHeapTextCache.CachedText> cachedText(Path source, String key) throws IOException {
+        Optional<OffHeapTextCache.CachedText> cached = textCache.get(key);
+        if (cached.isPresent() || !textCache.isEnabled()) {
+            return cached;
+        }
+        try (InputStream in = openText(source, key)) {
+            // Known once extracted; UTF-8 takes at least a byte per char, so this rules out texts too large
+            // to cache before put evicts anything to make room for them
+            if (!textCache.accepts(textChars(key))) {
+                return Optional.empty();
+            }
+            return textCache.put(key, in);
+        }
+    }
+
+    private long textChars(String key) throws IOException {
+        try (TextIndex index = TextIndex.open(indexPath(key))) {
+            return index.totalChars();
+        }
+    }
+
+    /**
+     * Reads the whole normalized text of a stored file, from the off-heap
+     * text cache if possible.
+     *
+     * @param source The stored file; may be null if {@link #isCached(String)}
+     * @param key Cache key, as for {@link #openText(Path, String)}
+     */
+    public String readString(Path source, String key) throws IOException {
+        Optional<OffHeapTextCache.CachedText> cached = cachedText(source, key);
+        if (cached.isPresent()) {
+            try (OffHeapTextCache.CachedText text = cached.get()) {
+                return text.readString();
+            }
+        }
+        try (InputStream in = openText(source, key)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Reads a window of the normalized text of a stored file, extracting and
+     * caching it on first access.
+     *
+     * @param source The stored file; may be null if {@link #isCached(String)}
+     * @param key Cache key, as for {@link #openText(Path, String)}
+     * @param offset First char to read
+     * @param length Most chars to read; fewer are returned at the end of the text
+     */
+    public TextWindow readText(Path source, String key, long offset, int length) throws IOException {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("Offset and length must not be negative");
+        }
+        if (!isCached(key)) {
+            extractToSidecar(source, key, sidecarPath(key));
+        }
+        try (TextIndex index = TextIndex.open(indexPath(key))) {
+            return readWindow(key, index, offset, length);
+        }
+    }
+
+    /**
+     * Reads the normalized text of one page of a stored file, extracting and
+     * caching it on first access. Headers, footers and page numbers removed
+     * by normalization are not part of any page.
+     *
+     * @param source The stored file; may be null if {@link #isCached(String)}
+     * @param key Cache key, as for {@link #openText(Path, String)}
+     * @param page One-based page number
+     * @param maxLength Most chars to read; longer pages are cut off
+     */
+    public TextWindow readPage(Path source, String key, int page, int maxLength) throws IOException {
+        if (maxLength < 0) {
+            throw new IllegalArgumentException("Length must not be negative");
+        }
+        if (!isCached(key)) {
+            extractToSidecar(source, key, sidecarPath(key));
+        }
+        try (TextIndex index = TextIndex.open(indexPath(key))) {
+            if (page < 1 || page > index.pageCount()) {
+                throw new IllegalArgumentException("Page must be between 1 and " + index.pageCount());
+            }
+            long start = index.pageStart(page - 1);
+            long end = index.pageStart(page);
+            return readWindow(key, index, start, (int) Math.min(maxLength, end - start));
+        }
+    }
+
+    private TextWindow readWindow(String key, TextIndex index, long offset, int length) throws IOException {
+        long start = Math.min(offset, index.totalChars());
+        int count = (int) Math.min(length, index.totalChars() - start);
+        if (count == 0) {
+            return new TextWindow(start, "", index.totalChars(), index.pageCount());
+        }
+
+        TextIndex.Block block = index.blockAt(start);
+        // The channel is closed on its own too, in case the gzip header of a corrupt block fails to parse
+        try (FileChannel channel = FileChannel.open(sidecarPath(key), StandardOpenOption.READ);
+             Reader in = new InputStreamReader(new GZIPInputStream(
+                 new BufferedInputStream(Channels.newInputStream(channel.position(block.byteOffset()))), 64 * 1024),
+                 StandardCharsets.UTF_8)) {
+            // Decompression carries on into the following blocks if the window spans them
+            for (long skip = start - block.charOffset(); skip > 0; ) {
+                long skipped = in.skip(skip);
+                if (skipped <= 0) {
+                    throw new IOException("Text sidecar is shorter than its index for " + key);
+                }
+                skip -= skipped;
+            }
+            char[] chars = new char[count];
+            int read = 0;
+            while (read < count) {
+                int n = in.read(chars, read, count - read);
+                if (n < 0) {
+                    throw new IOException("Text sidecar is shorter than its index for " + key);
+                }
+                read += n;
+            }
+            return new TextWindow(start, new String(chars), index.totalChars(), index.pageCount());
+        }
+    }
+
+    /**
+     * Extracts and caches the text of a stored file unless that has been
+     * done already.
+     *
+     * @param source The stored file; may be null if {@link #isCached(String)}
+     * @param key Cache key, as for {@link #openText(Path, String)}
+     * @return The size of the extracted text
+     */
+    public TextStats extract(Path source, String key) throws IOException {
+        if (!isCached(key)) {
+            extractToSidecar(source, key, sidecarPath(key));
+        }
+        String[] stats = Files.readString(statsPath(key), StandardCharsets.UTF_8).trim().split(" ");
+        return new TextStats(Integer.parseInt(stats[0]), Long.parseLong(stats[1]));
+    }
+
+    /**
+     * Whether the text, stats and index for this key have already been
+     * extracted. Text cached before the index existed is extracted again.
+     */
+    public boolean isCached(String key) {
+        return Files.exists(sidecarPath(key)) && Files.exists(statsPath(key)) && Files.exists(indexPath(key));
+    }
+
+    /**
+     * Removes the cached text for a file that has been deleted.
+     */
+    public void invalidate(String key) {
+        textCache.invalidate(key);
+        try {
+            Files.deleteIfExists(sidecarPath(key));
+            Files.deleteIfExists(statsPath(key));
+            Files.deleteIfExists(indexPath(key));
+        } catch (IOException e) {
+            logger.warn("Failed to delete cached text for {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Removes cached text no file uses any more, and temp files left behind
+     * by interrupted extractions. Only entries last modified before the
+     * cutoff are touched, so text extracted for a file that is still being
+     * saved survives.
+     *
+     * @param inUse Whether a cache key still belongs to a stored file
+     * @param olderThan Cutoff for removal
+     * @return The number of files removed
+     */
+    public int removeUnused(Predicate<String> inUse, Instant olderThan) throws IOException {
+        int removed = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(cacheDirectory)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                String key = SUFFIXES.stream()
+                    .filter(name::endsWith)
+                    .map(suffix -> name.substring(0, name.length() - suffix.length()))
+                    .findFirst()
+                    .orElse(null);
+                if (key != null && inUse.test(key)) {
+                    continue;
+                }
+                try {
+                    if (Files.getLastModifiedTime(entry).toInstant().isBefore(olderThan) && Files.deleteIfExists(entry)) {
+                        if (key != null) {
+                            textCache.invalidate(key);
+                        }
+                        removed++;
+                    }
+                } catch (NoSuchFileException e) {
+                    // Removed by a concurrent invalidate
+                }
+            }
+        }
+        return removed;
+    }
+
+    private void extractToSidecar(Path source, String key, Path sidecar) throws IOException {
+        // One extraction per key; concurrent requests for the same file wait and reuse it
+        Object lock = inFlight.computeIfAbsent(key, k -> new Object());
+        synchronized (lock) {
+            try {
+                if (isCached(key)) {
+                    return;
+                }
+                acquireSlot();
+                try {
+                    extractAndNormalize(source, key, sidecar);
+                } finally {
+                    extractionSlots.release();
+                }
+            } finally {
+                inFlight.remove(key, lock);
+            }
+        }
+    }
+
+    private void extractAndNormalize(Path source, String key, Path sidecar) throws IOException {
+        long start = System.nanoTime();
+        TextExtractor extractor = extractors.forFilename(key)
+            .orElseThrow(() -> new IllegalArgumentException("Unsupported file type: " + key));
+
+        // Write to a temp file and move so concurrent readers never see a partial sidecar
+        Path raw = Files.createTempFile(cacheDirectory, "raw-", ".txt");
+        Path temp = Files.createTempFile(cacheDirectory, key, ".tmp");
+        Path tempIndex = Files.createTempFile(cacheDirectory, key, ".idx.tmp");
+        try {
+            try (Writer out = Files.newBufferedWriter(raw, StandardCharsets.UTF_8)) {
+                extractor.extract(source, new TextSink(out, MAX_TEXT_CHARS), cacheDirectory);
+            }
+
+            // Normalize in two streaming passes over the raw text
+            TextNormalizer normalizer = new TextNormalizer();
+            try (Reader in = Files.newBufferedReader(raw, StandardCharsets.UTF_8)) {
+                normalizer.scan(in);
+            }
+            BlockGzipWriter blocks = new BlockGzipWriter(new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024),
+                                                        BLOCK_CHARS);
+            LongStream.Builder pageStarts = LongStream.builder();
+            try (Reader in = Files.newBufferedReader(raw, StandardCharsets.UTF_8);
+                 Writer out = new BufferedWriter(blocks, 64 * 1024)) {
+                normalizer.write(in, out, pageStarts);
+            }
+            // Pages after the last content are empty and start at the end
+            long[] reported = pageStarts.build().toArray();
+            long[] pages = Arrays.copyOf(reported, normalizer.pages());
+            Arrays.fill(pages, Math.min(reported.length, pages.length), pages.length, blocks.chars());
+            TextIndex.write(tempIndex, BLOCK_CHARS, blocks.chars(), blocks.blockCharOffsets(), blocks.blockByteOffsets(),
+                            pages);
+
+            long originalTokens = TextNormalizer.estimateTokens(normalizer.inputChars());
+            long normalizedTokens = TextNormalizer.estimateTokens(normalizer.outputChars());
+            Files.writeString(statsPath(key), normalizer.pages() + " " + normalizedTokens, StandardCharsets.UTF_8);
+            // The index goes last: until it is there the entry isn't cached, so no reader pairs it with an older sidecar
+            Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(tempIndex, indexPath(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            textCache.invalidate(key);
+
+            logger.info("Extracted text for {} in {} ms: ~{} -> ~{} tokens after normalization ({}% saved)", key,
+                       (System.nanoTime() - start) / 1_000_000, originalTokens, normalizedTokens,
+                       originalTokens == 0 ? 0 : 100 * (originalTokens - normalizedTokens) / originalTokens);
+        } finally {
+            Files.deleteIfExists(temp);
+            Files.deleteIfExists(tempIndex);
+            Files.deleteIfExists(raw);
+        }
+    }
+
+    private void acquireSlot() throws IOException {
+        try {
+            if (!extractionSlots.tryAcquire(SLOT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IOException("Timed out waiting for a text extraction slot");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a text extraction slot", e);
+        }
+    }
+
+    private Path sidecarPath(String key) {
+        return cacheDirectory.resolve(key + SIDECAR_SUFFIX);
+    }
+
+    private Path statsPath(String key) {
+        return cacheDirectory.resolve(key + STATS_SUFFIX);
+    }
+
+    private Path indexPath(String key) {
+        return cacheDirectory.resolve(key + INDEX_SUFFIX);
+    }
+}
@@ -0,0 +1,145 @@
+package com.studytool.extraction;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Offsets into a text sidecar written by {@link BlockGzipWriter}: where
+ * each block's gzip member starts, and where each page starts in the text.
+ * Entries have a fixed size and are read individually, so finding the block
+ * for a char offset or the start of a page costs the same whatever the size
+ * of the document.
+ *
+ * Layout (big-endian): magic, block chars, total chars, block count, page
+ * count; then per block its first char and file offset; then per page its
+ * first char.
+ */
+final class TextIndex implements AutoCloseable {
+    private static final int MAGIC = 0x54584931; // "TXI1"
+    private static final int HEADER_BYTES = 24;
+    private static final int BLOCK_ENTRY_BYTES = 16;
+    private static final int PAGE_ENTRY_BYTES = 8;
+
+    /**
+     * A gzip member of the sidecar.
+     *
+     * @param charOffset The first char of text in the member
+     * @param byteOffset Where the member starts in the sidecar
+     */
+    record Block(long charOffset, long byteOffset) {
+    }
+
+    private final FileChannel channel;
+    private final int blockChars;
+    private final long totalChars;
+    private final int blockCount;
+    private final int pageCount;
+
+    private TextIndex(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = read(0, HEADER_BYTES);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a text index");
+        }
+        this.blockChars = header.getInt();
+        this.totalChars = header.getLong();
+        this.blockCount = header.getInt();
+        this.pageCount = header.getInt();
+    }
+
+    static TextIndex open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new TextIndex(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes an index.
+     *
+     * @param blockCharOffsets The first char of each block
+     * @param blockByteOffsets Where each block's member starts in the sidecar
+     * @param pageStarts The first char of each page
+     */
+    static void write(Path path, int blockChars, long totalChars, long[] blockCharOffsets, long[] blockByteOffsets,
+                      long[] pageStarts) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(blockChars);
+            out.writeLong(totalChars);
+            out.writeInt(blockCharOffsets.length);
+            out.writeInt(pageStarts.length);
+            for (int i = 0; i < blockCharOffsets.length; i++) {
+                out.writeLong(blockCharOffsets[i]);
+                out.writeLong(blockByteOffsets[i]);
+            }
+            for (long pageStart : pageStarts) {
+                out.writeLong(pageStart);
+            }
+        }
+    }
+
+    long totalChars() {
+        return totalChars;
+    }
+
+    int pageCount() {
+        return pageCount;
+    }
+
+    /**
+     * The block holding the char at the offset.
+     *
+     * @param charOffset At least 0 and less than {@link #totalChars()}
+     */
+    Block blockAt(long charOffset) throws IOException {
+        // Blocks start on a multiple of blockChars or one char after it
+        int index = (int) Math.min(charOffset / blockChars, blockCount - 1);
+        Block block = block(index);
+        return charOffset < block.charOffset() ? block(index - 1) : block;
+    }
+
+    /**
+     * The first char of a page, or the end of the text for the page after
+     * the last.
+     *
+     * @param page Zero-based, at most {@link #pageCount()}
+     */
+    long pageStart(int page) throws IOException {
+        if (page == pageCount) {
+            return totalChars;
+        }
+        return read(HEADER_BYTES + (long) blockCount * BLOCK_ENTRY_BYTES + (long) page * PAGE_ENTRY_BYTES,
+                    PAGE_ENTRY_BYTES).getLong();
+    }
+
+    private Block block(int index) throws IOException {
+        ByteBuffer entry = read(HEADER_BYTES + (long) index * BLOCK_ENTRY_BYTES, BLOCK_ENTRY_BYTES);
+        return new Block(entry.getLong(), entry.getLong());
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Truncated text index");
+            }
+        }
+        return buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
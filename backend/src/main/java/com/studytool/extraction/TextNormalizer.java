@@ -0,0 +1,397 @@
+package com.studytool.extraction;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Cleans extracted document text before it is used in prompts. Removes
+ * running headers/footers and page numbers that repeat across pages, rejoins
+ * words hyphenated across line breaks and collapses runs of whitespace.
+ *
+ * Pages are expected to be separated by {@link #PAGE_BREAK}. Only the first
+ * and last few lines of each page are considered as boilerplate.
+ *
+ * Normalization streams over the text twice: {@link #scan(Reader)} learns
+ * which edge lines repeat across pages, then {@link #write(Reader, Writer)}
+ * emits the cleaned text. Memory use is bounded by the longest line, not by
+ * the document, so the input can be a temp file of any size.
+ */
+public class TextNormalizer {
+
+    public static final char PAGE_BREAK = '\f';
+
+    // Lines at the top and bottom of a page that may be headers or footers
+    private static final int EDGE_LINES = 3;
+
+    // A line must repeat on at least this many pages (and half of all pages) to be boilerplate
+    private static final int MIN_REPEATS = 3;
+
+    // Numbers dressed as page numbers ("Page 3", "3 of 40", "- 3 -"), in terms of line keys.
+    // A bare number may be content (a list item, a table cell) and is only dropped if it repeats.
+    private static final Pattern PAGE_NUMBER = Pattern.compile("(- ?)?(page ?#( of #)?|# of #)( ?-)?|- ?# ?-");
+
+    // Edge lines that occur on too few pages are forgotten every this many pages, so
+    // documents of mostly distinct lines don't keep every line in memory
+    private static final int PRUNE_INTERVAL = 32;
+
+    // Pages each edge line was seen on, and how many it may have been forgotten for
+    private final Map<String, int[]> edgeKeyPages = new HashMap<>();
+    private final List<Integer> pageLineCounts = new ArrayList<>();
+    private Set<String> boilerplate = Set.of();
+    private int contentPages;
+    private long inputChars;
+    private long outputChars;
+
+    /**
+     * Normalizes text held in memory.
+     *
+     * @param text Extracted text, pages separated by form feeds
+     * @return The cleaned text
+     */
+    public static String normalize(String text) {
+        try {
+            TextNormalizer normalizer = new TextNormalizer();
+            normalizer.scan(new StringReader(text));
+            StringWriter out = new StringWriter(text.length());
+            normalizer.write(new StringReader(text), out);
+            return out.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Rough token count for prompt budgeting (about four characters per token).
+     */
+    public static long estimateTokens(long characters) {
+        return (characters + 3) / 4;
+    }
+
+    /**
+     * First pass: records the edge lines of every page.
+     */
+    public void scan(Reader in) throws IOException {
+        LineReader lines = new LineReader(in);
+        List<String> head = new ArrayList<>(EDGE_LINES);
+        Deque<String> tail = new ArrayDeque<>(EDGE_LINES);
+        int count = 0;
+
+        while (lines.next()) {
+            if (!lines.isBlank()) {
+                String key = lines.key();
+                if (head.size() < EDGE_LINES) {
+                    head.add(key);
+                }
+                if (tail.size() == EDGE_LINES) {
+                    tail.removeFirst();
+                }
+                tail.addLast(key);
+                count++;
+            }
+            if (lines.endsPage()) {
+                recordPage(head, new ArrayList<>(tail), count);
+                head.clear();
+                tail.clear();
+                count = 0;
+            }
+        }
+
+        int threshold = Math.max(MIN_REPEATS, (contentPages + 1) / 2);
+        Set<String> repeated = new HashSet<>();
+        edgeKeyPages.forEach((key, counts) -> {
+            if (counts[0] >= threshold) {
+                repeated.add(key);
+            }
+        });
+        boilerplate = repeated;
+    }
+
+    /**
+     * Second pass: writes the cleaned text. Must see the same input as {@link #scan(Reader)}.
+     */
+    public void write(Reader in, Writer out) throws IOException {
+        write(in, out, offset -> { });
+    }
+
+    /**
+     * Second pass, also reporting where each page starts in the output.
+     *
+     * @param pageStarts Called in page order with the output offset of each
+     *                   page's first character. Pages without content start
+     *                   where the next content does; pages after the last
+     *                   content are not reported.
+     */
+    public void write(Reader in, Writer out, LongConsumer pageStarts) throws IOException {
+        LineReader lines = new LineReader(in);
+        int page = 0;
+        int lineIndex = 0;
+        int breaks = 0;
+        int unreportedPages = 1;
+        boolean written = false;
+        boolean hyphenated = false;
+
+        while (lines.next()) {
+            if (!lines.isBlank()) {
+                int count = page < pageLineCounts.size() ? pageLineCounts.get(page) : 0;
+                int edge = edgeLines(count);
+                boolean isEdge = lineIndex < edge || lineIndex >= count - edge;
+                lineIndex++;
+
+                // A single page has no repetition to learn from, and a lone number may be content
+                if (!(isEdge && contentPages >= 2 && isBoilerplate(lines.key()))) {
+                    boolean joined = hyphenated && lines.startsLowerCase();
+                    if (!joined) {
+                        // "exam-\nple" -> "example", anything else keeps its hyphen
+                        if (hyphenated) {
+                            out.write('-');
+                            outputChars++;
+                        }
+                        if (written) {
+                            out.write(breaks >= 2 ? "\n\n" : "\n");
+                            outputChars += breaks >= 2 ? 2 : 1;
+                        }
+                    }
+                    for (; unreportedPages > 0; unreportedPages--) {
+                        pageStarts.accept(outputChars);
+                    }
+                    hyphenated = lines.endsHyphenated();
+                    outputChars += lines.writeCollapsed(out, hyphenated);
+                    written = true;
+                    breaks = 1;
+                }
+            } else {
+                breaks++;
+            }
+            if (lines.endsPage()) {
+                page++;
+                lineIndex = 0;
+                unreportedPages++;
+            }
+        }
+        if (hyphenated) {
+            out.write('-');
+            outputChars++;
+        }
+        inputChars = lines.charsRead();
+    }
+
+    /**
+     * Pages seen by {@link #scan(Reader)}. A page break at the very end of
+     * the text doesn't start another page.
+     */
+    public int pages() {
+        int pages = pageLineCounts.size();
+        if (pages > 1 && pageLineCounts.get(pages - 1) == 0) {
+            pages--;
+        }
+        return pages;
+    }
+
+    /**
+     * Characters read by the last {@link #write(Reader, Writer)}.
+     */
+    public long inputChars() {
+        return inputChars;
+    }
+
+    /**
+     * Characters written by the last {@link #write(Reader, Writer)}.
+     */
+    public long outputChars() {
+        return outputChars;
+    }
+
+    private void recordPage(List<String> head, List<String> tail, int count) {
+        pageLineCounts.add(count);
+        if (count == 0) {
+            return;
+        }
+        contentPages++;
+
+        // Keep at least the middle of short pages (slides) out of consideration
+        int edge = edgeLines(count);
+        Set<String> keys = new HashSet<>();
+        for (int i = 0; i < edge; i++) {
+            keys.add(head.get(i));
+            keys.add(tail.get(tail.size() - 1 - i));
+        }
+        // Lossy counting: a line is dropped once it has been missing from more pages than it
+        // was on, which costs a line on half of all pages at most one page per interval
+        int interval = (contentPages - 1) / PRUNE_INTERVAL + 1;
+        for (String key : keys) {
+            edgeKeyPages.computeIfAbsent(key, k -> new int[] {0, interval - 1})[0]++;
+        }
+        if (contentPages % PRUNE_INTERVAL == 0) {
+            edgeKeyPages.values().removeIf(counts -> counts[0] + counts[1] <= interval);
+        }
+    }
+
+    private boolean isBoilerplate(String key) {
+        return isPageNumber(key) || boilerplate.contains(key);
+    }
+
+    private static int edgeLines(int count) {
+        return Math.min(EDGE_LINES, (count - 1) / 2);
+    }
+
+    private static boolean isPageNumber(String key) {
+        return PAGE_NUMBER.matcher(key).matches();
+    }
+
+    private static boolean isHorizontalWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\u00A0' || c == '\u000B';
+    }
+
+    /**
+     * Reads one line at a time into a reused buffer, treating page breaks as
+     * line ends. Input is read in blocks and scanned for line ends, rather
+     * than a char at a time.
+     */
+    private static final class LineReader {
+        private final Reader in;
+        private final char[] block = new char[16 * 1024];
+        private int position;
+        private int limit;
+        private final StringBuilder line = new StringBuilder(256);
+        private int start;
+        private int stop;
+        private boolean pageEnd;
+        private boolean eof;
+        private long charsRead;
+
+        LineReader(Reader in) {
+            this.in = in;
+        }
+
+        boolean next() throws IOException {
+            if (eof) {
+                return false;
+            }
+            line.setLength(0);
+            pageEnd = false;
+            while (true) {
+                if (position == limit) {
+                    int read = in.read(block, 0, block.length);
+                    if (read < 0) {
+                        // The end of input also ends the last page
+                        eof = true;
+                        pageEnd = true;
+                        break;
+                    }
+                    position = 0;
+                    limit = read;
+                }
+                int end = position;
+                while (end < limit && block[end] != '\n' && block[end] != PAGE_BREAK) {
+                    end++;
+                }
+                line.append(block, position, end - position);
+                charsRead += end - position;
+                if (end < limit) {
+                    pageEnd = block[end] == PAGE_BREAK;
+                    charsRead++;
+                    position = end + 1;
+                    break;
+                }
+                position = limit;
+            }
+            start = 0;
+            while (start < line.length() && isHorizontalWhitespace(line.charAt(start))) {
+                start++;
+            }
+            stop = line.length();
+            while (stop > start && isHorizontalWhitespace(line.charAt(stop - 1))) {
+                stop--;
+            }
+            return true;
+        }
+
+        boolean isBlank() {
+            return start >= stop;
+        }
+
+        boolean endsPage() {
+            return pageEnd;
+        }
+
+        long charsRead() {
+            return charsRead;
+        }
+
+        boolean startsLowerCase() {
+            return Character.isLowerCase(line.charAt(start));
+        }
+
+        boolean endsHyphenated() {
+            return stop - start >= 2
+                    && line.charAt(stop - 1) == '-'
+                    && Character.isLetter(line.charAt(stop - 2));
+        }
+
+        /**
+         * Comparison key for the line: lowercased, whitespace collapsed and
+         * each run of digits replaced by one '#', so "Page 9 of 40" and
+         * "Page 10 of 40" match.
+         */
+        String key() {
+            StringBuilder key = new StringBuilder(stop - start);
+            boolean space = false;
+            for (int i = start; i < stop; i++) {
+                char c = line.charAt(i);
+                if (isHorizontalWhitespace(c)) {
+                    space = true;
+                    continue;
+                }
+                if (space) {
+                    key.append(' ');
+                }
+                space = false;
+                if (!Character.isDigit(c)) {
+                    key.append(Character.toLowerCase(c));
+                } else if (i == start || !Character.isDigit(line.charAt(i - 1))) {
+                    key.append('#');
+                }
+            }
+            return key.toString();
+        }
+
+        /**
+         * Writes the trimmed line with whitespace runs collapsed, optionally
+         * leaving off a trailing hyphen. Returns the number of chars written.
+         */
+        int writeCollapsed(Writer out, boolean dropTrailingHyphen) throws IOException {
+            int end = dropTrailingHyphen ? stop - 1 : stop;
+            int written = 0;
+            boolean space = false;
+            for (int i = start; i < end; i++) {
+                char c = line.charAt(i);
+                if (isHorizontalWhitespace(c)) {
+                    space = true;
+                } else {
+                    if (space) {
+                        out.write(' ');
+                        written++;
+                        space = false;
+                    }
+                    out.write(c);
+                    written++;
+                }
+            }
+            return written;
+        }
+    }
+}
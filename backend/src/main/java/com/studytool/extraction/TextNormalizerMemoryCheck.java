@@ -0,0 +1,133 @@
+package com.studytool.extraction;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Normalizes a synthetic document several times larger than the heap, the
+ * way extraction does (scan, then write to a temp file), and fails if the
+ * heap runs out or the normalizer holds on to more than a few megabytes
+ * afterwards. Pages carry a running header, a "Page N of M" footer and a
+ * bare number on some pages, so the repeat detection does its usual work.
+ *
+ * The gradle task runs with a 32 MB heap and exits on the first
+ * OutOfMemoryError, so a normalizer that buffers the document fails it.
+ *
+ * Run with {@code gradle checkTextNormalizerMemory --args="[megabytes] [retainedMegabytes]"}.
+ */
+public class TextNormalizerMemoryCheck {
+    private static final Logger logger = LoggerFactory.getLogger(TextNormalizerMemoryCheck.class);
+
+    private static final String[] WORDS = {
+        "lecture", "theorem", "proof", "integral", "exam-", "ple", "matrix", "eigenvalue",
+        "entropy", "algorithm", "lemma", "caf\u00E9", "variance", "gradient", "\u00DCbung", "  ",
+    };
+    private static final int LINES_PER_PAGE = 40;
+
+    public static void main(String[] args) throws IOException {
+        long megabytes = args.length > 0 ? Long.parseLong(args[0]) : 400;
+        long retainedLimit = (args.length > 1 ? Long.parseLong(args[1]) : 8) * 1024 * 1024;
+        long maxHeap = Runtime.getRuntime().maxMemory();
+        logger.info("Max heap: {} MB", maxHeap / (1024 * 1024));
+
+        Path input = Files.createTempFile("normalizer-check-", ".txt");
+        Path output = Files.createTempFile("normalizer-check-", ".out");
+        try {
+            int pages = generate(input, megabytes * 1024 * 1024);
+            long inputBytes = Files.size(input);
+            if (inputBytes < 4 * maxHeap) {
+                throw new IllegalArgumentException("Input of " + inputBytes / (1024 * 1024)
+                    + " MB is too small to show anything with this heap");
+            }
+            long heapBefore = retainedHeap();
+
+            long start = System.nanoTime();
+            TextNormalizer normalizer = new TextNormalizer();
+            try (Reader in = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+                normalizer.scan(in);
+            }
+            try (Reader in = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+                 Writer out = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+                normalizer.write(in, out);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long retained = retainedHeap() - heapBefore;
+
+            logger.info("{} MB, {} pages -> {} pages, {} chars -> {} chars in {} s, {} KB retained",
+                        inputBytes / (1024 * 1024), pages, normalizer.pages(), normalizer.inputChars(),
+                        normalizer.outputChars(), String.format("%.1f", seconds), retained / 1024);
+            if (normalizer.pages() != pages) {
+                fail("Expected " + pages + " pages, saw " + normalizer.pages());
+            }
+            if (normalizer.outputChars() >= normalizer.inputChars()) {
+                fail("Nothing was removed from the text");
+            }
+            if (retained > retainedLimit) {
+                fail("Normalizer retained " + retained / 1024 + " KB, limit " + retainedLimit / 1024 + " KB");
+            }
+            logger.info("Passed");
+        } catch (OutOfMemoryError e) {
+            // Only reached without -XX:+ExitOnOutOfMemoryError
+            fail("Ran out of heap: " + e.getMessage());
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+        }
+    }
+
+    /**
+     * Writes pages until the file reaches the given size.
+     *
+     * @return The number of pages written
+     */
+    private static int generate(Path file, long bytes) throws IOException {
+        Random random = new Random(42);
+        long estimatedPages = bytes / (LINES_PER_PAGE * 90L);
+        int pages = 0;
+        long written = 0;
+        try (Writer out = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 64 * 1024)) {
+            StringBuilder page = new StringBuilder(LINES_PER_PAGE * 100);
+            while (written < bytes) {
+                page.setLength(0);
+                if (pages > 0) {
+                    page.append(TextNormalizer.PAGE_BREAK);
+                }
+                page.append("CSI 3370 \u2013 Software Engineering\n");
+                for (int line = 0; line < LINES_PER_PAGE; line++) {
+                    for (int word = 0; word < 12; word++) {
+                        page.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+                    }
+                    page.append(random.nextInt(1_000_000)).append('\n');
+                }
+                if (pages % 7 == 0) {
+                    page.append(pages + 1).append('\n');
+                }
+                page.append("Page ").append(pages + 1).append(" of ").append(estimatedPages);
+                out.write(page.toString());
+                written += page.length();
+                pages++;
+            }
+        }
+        return pages;
+    }
+
+    private static long retainedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static void fail(String message) {
+        logger.error("Failed: {}", message);
+        System.exit(1);
+    }
+}
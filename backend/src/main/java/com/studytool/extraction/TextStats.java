@@ -0,0 +1,10 @@
+package com.studytool.extraction;
+
+/**
+ * Size of a document's extracted text.
+ *
+ * @param pageCount Pages in the source document (1 for plain text)
+ * @param tokenEstimate Rough prompt token count of the normalized text
+ */
+public record TextStats(int pageCount, long tokenEstimate) {
+}
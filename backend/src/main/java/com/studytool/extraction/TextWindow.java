@@ -0,0 +1,12 @@
+package com.studytool.extraction;
+
+/**
+ * A slice of a document's extracted text.
+ *
+ * @param offset Where the slice starts in the text, in chars
+ * @param text The text of the slice
+ * @param totalLength Length of the whole text, in chars
+ * @param pageCount Pages in the source document (1 for plain text)
+ */
+public record TextWindow(long offset, String text, long totalLength, int pageCount) {
+}
@@ -0,0 +1,128 @@
+package com.studytool.extraction;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.studytool.extraction.extractor.ExtractorSettings;
+import com.studytool.extraction.extractor.TextExtractors;
+
+/**
+ * Measures random access into extracted text with
+ * {@link TextExtractionService#readText} and
+ * {@link TextExtractionService#readPage} for documents of growing page
+ * counts. The time per read should stay flat as documents get longer.
+ *
+ * Documents are generated as plain text with form feeds between pages, with
+ * some non-ASCII text and surrogate pairs so block boundaries land inside
+ * multi-byte characters. Every window read is compared with the whole text,
+ * so a wrong index fails the run instead of producing a fast number.
+ *
+ * Run with {@code gradle benchmarkTextWindows --args="[reads]"}.
+ */
+public class TextWindowBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(TextWindowBenchmark.class);
+
+    private static final int[] PAGE_COUNTS = {10, 100, 1_000, 10_000};
+    private static final int WINDOW_CHARS = 4 * 1024;
+    private static final String[] WORDS = {
+        "lecture", "theorem", "na\u00EFve", "caf\u00E9", "proof", "\u00DCbung", "\uD835\uDF0B", "integral",
+        "\u65E5\u672C\u8A9E", "example", "derivative", "\uD83D\uDCDA", "matrix", "eigenvalue",
+    };
+
+    public static void main(String[] args) throws IOException {
+        int reads = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+
+        Path scratch = Files.createTempDirectory("text-window-benchmark-");
+        try (TextExtractors extractors = TextExtractors.load(new ExtractorSettings(1))) {
+            TextExtractionService service = new TextExtractionService(scratch.resolve("cache"), 1, extractors,
+                                                                      new OffHeapTextCache(0));
+            for (int pages : PAGE_COUNTS) {
+                String key = "document-" + pages + ".txt";
+                Path source = scratch.resolve(key);
+                generate(source, pages);
+
+                long start = System.nanoTime();
+                TextStats stats = service.extract(source, key);
+                long extractMillis = (System.nanoTime() - start) / 1_000_000;
+
+                String text;
+                try (InputStream in = service.openText(source, key)) {
+                    text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                }
+
+                Random random = new Random(42);
+                long windowNanos = 0;
+                for (int i = 0; i < reads; i++) {
+                    long offset = (long) (random.nextDouble() * text.length());
+                    long readStart = System.nanoTime();
+                    TextWindow window = service.readText(source, key, offset, WINDOW_CHARS);
+                    windowNanos += System.nanoTime() - readStart;
+                    String expected = text.substring((int) offset, (int) Math.min(text.length(), offset + WINDOW_CHARS));
+                    if (!window.text().equals(expected) || window.totalLength() != text.length()) {
+                        throw new IllegalStateException("Wrong window at offset " + offset + " of " + key);
+                    }
+                }
+
+                long pageNanos = 0;
+                long pageChars = 0;
+                for (int i = 0; i < reads; i++) {
+                    int page = 1 + random.nextInt(stats.pageCount());
+                    long readStart = System.nanoTime();
+                    TextWindow window = service.readPage(source, key, page, Integer.MAX_VALUE);
+                    pageNanos += System.nanoTime() - readStart;
+                    pageChars += window.text().length();
+                    if (!window.text().equals(text.substring((int) window.offset(), (int) window.offset() + window.text().length()))
+                            || !window.text().contains("This is page " + page + " of")) {
+                        throw new IllegalStateException("Wrong text for page " + page + " of " + key);
+                    }
+                }
+
+                logger.info("{} pages, {} chars: extracted in {} ms, window read {} us, page read {} us (avg {} chars)",
+                           stats.pageCount(), text.length(), extractMillis, windowNanos / reads / 1_000,
+                           pageNanos / reads / 1_000, pageChars / reads);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(scratch)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a document of about 3,000 chars per page. Each page says which
+     * it is in the middle, where normalization doesn't look for page numbers.
+     */
+    private static void generate(Path file, int pages) throws IOException {
+        Random random = new Random(pages);
+        try (Writer out = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 64 * 1024)) {
+            for (int page = 1; page <= pages; page++) {
+                for (int line = 0; line < 40; line++) {
+                    if (line == 20) {
+                        out.write("This is page " + page + " of the notes\n");
+                    }
+                    for (int word = 0; word < 10; word++) {
+                        out.write(WORDS[random.nextInt(WORDS.length)]);
+                        out.write(' ');
+                    }
+                    out.write('\n');
+                }
+                if (page < pages) {
+                    out.write('\f');
+                }
+            }
+        }
+    }
+}
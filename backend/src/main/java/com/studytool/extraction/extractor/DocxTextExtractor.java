@@ -0,0 +1,78 @@
+package com.studytool.extraction.extractor;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Word documents: the runs of text in the main document part, one line
+ * per paragraph. Page breaks are taken from explicit breaks and from the
+ * breaks Word recorded when it last laid the document out, so page counts
+ * roughly match what the author saw. Deleted revisions and field codes are
+ * not text and are skipped.
+ */
+public class DocxTextExtractor implements TextExtractor {
+    private static final String WORD_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+    private static final String DOCUMENT_PART = "word/document.xml";
+
+    @Override
+    public String contentType() {
+        return "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+    }
+
+    @Override
+    public List<String> extensions() {
+        return List.of(".docx");
+    }
+
+    @Override
+    public void extract(Path source, TextSink sink, Path scratchDirectory) throws IOException {
+        try (OoxmlPackage docx = new OoxmlPackage(source)) {
+            docx.readPart(DOCUMENT_PART, reader -> {
+                boolean inText = false;
+                while (reader.hasNext()) {
+                    switch (reader.next()) {
+                        case XMLStreamConstants.START_ELEMENT -> {
+                            if (!WORD_NS.equals(reader.getNamespaceURI())) {
+                                break;
+                            }
+                            switch (reader.getLocalName()) {
+                                case "t" -> inText = true;
+                                case "tab" -> sink.text("\t");
+                                case "br", "cr" -> {
+                                    if ("page".equals(reader.getAttributeValue(WORD_NS, "type"))) {
+                                        sink.pageBreak();
+                                    } else {
+                                        sink.lineBreak();
+                                    }
+                                }
+                                case "lastRenderedPageBreak" -> sink.pageBreak();
+                                default -> {
+                                }
+                            }
+                        }
+                        case XMLStreamConstants.CHARACTERS -> {
+                            if (inText) {
+                                sink.text(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                            }
+                        }
+                        case XMLStreamConstants.END_ELEMENT -> {
+                            if (WORD_NS.equals(reader.getNamespaceURI())) {
+                                if (reader.getLocalName().equals("t")) {
+                                    inText = false;
+                                } else if (reader.getLocalName().equals("p")) {
+                                    sink.lineBreak();
+                                }
+                            }
+                        }
+                        default -> {
+                        }
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.studytool.extraction.extractor;
+
+/**
+ * Settings passed to every extractor when it is loaded.
+ *
+ * @param parallelism Threads an extractor may use for a single document
+ */
+public record ExtractorSettings(
+    int parallelism
+) {
+}
@@ -0,0 +1,250 @@
+package com.studytool.extraction.extractor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.studytool.extraction.MappedTextReader;
+
+/**
+ * HTML, read with a small streaming tokenizer: text between tags is kept
+ * with entities decoded and whitespace collapsed, block-level tags become
+ * line breaks, and scripts, styles and comments are skipped. Only the tag
+ * name is ever held in memory, so long attributes (inline images) cost
+ * nothing.
+ */
+public class HtmlTextExtractor implements TextExtractor {
+
+    private static final Set<String> BLOCK_TAGS = Set.of(
+        "address", "article", "aside", "blockquote", "br", "caption", "dd", "div", "dl", "dt", "figcaption",
+        "figure", "footer", "form", "h1", "h2", "h3", "h4", "h5", "h6", "header", "hr", "li", "main", "nav",
+        "ol", "p", "pre", "section", "table", "title", "tr", "ul");
+    // Elements whose content is not text to read
+    private static final Set<String> SKIPPED_TAGS = Set.of("script", "style", "template", "noscript");
+    private static final Map<String, String> ENTITIES = Map.ofEntries(
+        Map.entry("amp", "&"), Map.entry("lt", "<"), Map.entry("gt", ">"), Map.entry("quot", "\""),
+        Map.entry("apos", "'"), Map.entry("nbsp", " "), Map.entry("copy", "\u00A9"), Map.entry("reg", "\u00AE"),
+        Map.entry("trade", "\u2122"), Map.entry("hellip", "\u2026"), Map.entry("mdash", "\u2014"),
+        Map.entry("ndash", "\u2013"), Map.entry("lsquo", "\u2018"), Map.entry("rsquo", "\u2019"),
+        Map.entry("ldquo", "\u201C"), Map.entry("rdquo", "\u201D"), Map.entry("bull", "\u2022"),
+        Map.entry("middot", "\u00B7"), Map.entry("deg", "\u00B0"), Map.entry("times", "\u00D7"));
+    private static final int MAX_ENTITY_LENGTH = 10;
+    private static final int FLUSH_CHARS = 8 * 1024;
+
+    @Override
+    public String contentType() {
+        return "text/html";
+    }
+
+    @Override
+    public List<String> extensions() {
+        return List.of(".html", ".htm");
+    }
+
+    @Override
+    public void extract(Path source, TextSink sink, Path scratchDirectory) throws IOException {
+        try (BufferedReader in = new BufferedReader(MappedTextReader.open(source))) {
+            new Tokenizer(in, sink).run();
+        }
+    }
+
+    private static class Tokenizer {
+        private final BufferedReader in;
+        private final TextSink sink;
+        private final StringBuilder text = new StringBuilder();
+        private final StringBuilder tagName = new StringBuilder();
+        private boolean lineHasText;
+        private boolean pendingSpace;
+        private int preDepth;
+
+        Tokenizer(BufferedReader in, TextSink sink) {
+            this.in = in;
+            this.sink = sink;
+        }
+
+        void run() throws IOException {
+            int c;
+            while ((c = in.read()) != -1) {
+                if (c == '<') {
+                    tag();
+                } else if (c == '&') {
+                    append(entity());
+                } else {
+                    append((char) c);
+                }
+            }
+            flush();
+        }
+
+        private void append(CharSequence chars) throws IOException {
+            for (int i = 0; i < chars.length(); i++) {
+                append(chars.charAt(i));
+            }
+        }
+
+        private void append(char c) throws IOException {
+            if (preDepth == 0 && Character.isWhitespace(c)) {
+                pendingSpace = lineHasText;
+                return;
+            }
+            if (pendingSpace) {
+                text.append(' ');
+                pendingSpace = false;
+            }
+            text.append(c);
+            lineHasText = true;
+            if (text.length() >= FLUSH_CHARS) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            if (text.length() > 0) {
+                sink.text(text);
+                text.setLength(0);
+            }
+        }
+
+        private void lineBreak() throws IOException {
+            flush();
+            pendingSpace = false;
+            lineHasText = false;
+            sink.lineBreak();
+        }
+
+        private void tag() throws IOException {
+            in.mark(3);
+            if (in.read() == '!' && in.read() == '-' && in.read() == '-') {
+                skipPast("-->");
+                return;
+            }
+            in.reset();
+
+            int c = in.read();
+            boolean closing = c == '/';
+            if (closing) {
+                c = in.read();
+            }
+            if (!Character.isLetter(c)) {
+                // Not a tag after all (e.g. "a < b"), or a declaration like <!DOCTYPE>
+                if (c == '!' || c == '?') {
+                    skipTag(-1);
+                    return;
+                }
+                append('<');
+                if (closing) {
+                    append('/');
+                }
+                if (c != -1) {
+                    append((char) c);
+                }
+                return;
+            }
+            tagName.setLength(0);
+            while (c != -1 && (Character.isLetterOrDigit(c) || c == '-')) {
+                tagName.append((char) Character.toLowerCase(c));
+                c = in.read();
+            }
+            boolean selfClosing = skipTag(c);
+            String name = tagName.toString();
+
+            if (!closing && !selfClosing && SKIPPED_TAGS.contains(name)) {
+                skipPast("</" + name);
+                skipTag(-1);
+                return;
+            }
+            if (name.equals("pre")) {
+                preDepth = Math.max(0, preDepth + (closing ? -1 : 1));
+            }
+            if (BLOCK_TAGS.contains(name)) {
+                lineBreak();
+            } else if (name.equals("td") || name.equals("th")) {
+                append(' ');
+            }
+        }
+
+        /**
+         * Skips the rest of a tag, honouring quoted attribute values.
+         *
+         * @param c The character after the tag name, or -1 to read it
+         * @return Whether the tag ended with "/>"
+         */
+        private boolean skipTag(int c) throws IOException {
+            int quote = 0;
+            int previous = 0;
+            if (c == -1) {
+                c = in.read();
+            }
+            for (; c != -1; previous = c, c = in.read()) {
+                if (quote != 0) {
+                    if (c == quote) {
+                        quote = 0;
+                    }
+                } else if (c == '"' || c == '\'') {
+                    quote = c;
+                } else if (c == '>') {
+                    return previous == '/';
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Skips input up to and including the marker, case-insensitively.
+         */
+        private void skipPast(String marker) throws IOException {
+            char[] expected = marker.toCharArray();
+            char[] window = new char[expected.length];
+            int seen = 0;
+            int c;
+            while ((c = in.read()) != -1) {
+                System.arraycopy(window, 1, window, 0, window.length - 1);
+                window[window.length - 1] = (char) Character.toLowerCase(c);
+                if (++seen >= window.length && Arrays.equals(window, expected)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Decodes the character reference after an '&', or returns "&" if
+         * there is none and leaves the input where it was.
+         */
+        private String entity() throws IOException {
+            in.mark(MAX_ENTITY_LENGTH + 1);
+            StringBuilder name = new StringBuilder(MAX_ENTITY_LENGTH);
+            int c;
+            while ((c = in.read()) != -1 && c != ';' && name.length() < MAX_ENTITY_LENGTH
+                    && (Character.isLetterOrDigit(c) || c == '#')) {
+                name.append((char) c);
+            }
+            if (c == ';' && name.length() > 0) {
+                String decoded = decode(name.toString());
+                if (decoded != null) {
+                    return decoded;
+                }
+            }
+            in.reset();
+            return "&";
+        }
+
+        private static String decode(String name) {
+            if (name.charAt(0) != '#') {
+                return ENTITIES.get(name);
+            }
+            try {
+                boolean hex = name.length() > 1 && (name.charAt(1) == 'x' || name.charAt(1) == 'X');
+                int codePoint = Integer.parseInt(name.substring(hex ? 2 : 1), hex ? 16 : 10);
+                return Character.isValidCodePoint(codePoint) && codePoint != 0
+                    ? new String(Character.toChars(codePoint))
+                    : "\uFFFD";
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
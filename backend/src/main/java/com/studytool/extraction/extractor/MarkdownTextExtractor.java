@@ -0,0 +1,136 @@
+package com.studytool.extraction.extractor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import com.studytool.extraction.MappedTextReader;
+
+/**
+ * Markdown, line by line: keeps the words and drops the markup (heading and
+ * list markers, emphasis, link targets, fences, front matter). Code blocks
+ * are kept as they are. This is a light-weight reading of CommonMark, not a
+ * parser; constructs spanning lines other than fences are handled per line.
+ */
+public class MarkdownTextExtractor implements TextExtractor {
+
+    private static final Pattern FENCE = Pattern.compile("^\\s{0,3}(```|~~~).*");
+    private static final Pattern HEADING = Pattern.compile("^\\s{0,3}#{1,6}\\s+(.*?)(\\s+#+)?\\s*$");
+    private static final Pattern BLOCKQUOTE = Pattern.compile("^\\s{0,3}(>\\s?)+");
+    private static final Pattern LIST_MARKER = Pattern.compile("^(\\s*)([-*+]|\\d{1,9}[.)])\\s+(\\[[ xX]\\]\\s+)?");
+    private static final Pattern THEMATIC_BREAK = Pattern.compile("^\\s{0,3}([-*_])(\\s*\\1){2,}\\s*$");
+    private static final Pattern TABLE_DELIMITER = Pattern.compile("^\\s*\\|?\\s*:?-+:?\\s*(\\|\\s*:?-+:?\\s*)*\\|?\\s*$");
+    private static final Pattern LINK_DEFINITION = Pattern.compile("^\\s{0,3}\\[[^\\]]+\\]:\\s+\\S+.*$");
+
+    private static final Pattern IMAGE = Pattern.compile("!\\[([^\\]]*)\\]\\([^)]*\\)");
+    private static final Pattern LINK = Pattern.compile("\\[([^\\]]*)\\](\\([^)]*\\)|\\[[^\\]]*\\])");
+    private static final Pattern AUTOLINK = Pattern.compile("<((?:https?|mailto):[^>\\s]+)>");
+    private static final Pattern HTML_TAG = Pattern.compile("</?[a-zA-Z][^>]*>");
+    private static final Pattern CODE_SPAN = Pattern.compile("(`+)(.+?)\\1");
+    private static final Pattern STRONG = Pattern.compile("(\\*\\*|__)(?=\\S)(.+?)(?<=\\S)\\1");
+    private static final Pattern EMPHASIS = Pattern.compile("(?<![\\w*])([*_])(?=\\S)(.+?)(?<=\\S)\\1(?![\\w*])");
+    private static final Pattern STRIKETHROUGH = Pattern.compile("~~(.+?)~~");
+    private static final Pattern ESCAPE = Pattern.compile("\\\\([\\\\`*_{}\\[\\]()#+\\-.!|>~])");
+
+    @Override
+    public String contentType() {
+        return "text/markdown";
+    }
+
+    @Override
+    public List<String> extensions() {
+        return List.of(".md", ".markdown");
+    }
+
+    @Override
+    public void extract(Path source, TextSink sink, Path scratchDirectory) throws IOException {
+        try (BufferedReader in = new BufferedReader(MappedTextReader.open(source))) {
+            String line = in.readLine();
+            if (line != null && line.trim().equals("---")) {
+                // YAML front matter is metadata, not content
+                while ((line = in.readLine()) != null && !line.trim().equals("---") && !line.trim().equals("...")) {
+                }
+                line = in.readLine();
+            }
+
+            String fence = null;
+            for (; line != null; line = in.readLine()) {
+                if (FENCE.matcher(line).matches()) {
+                    String marker = line.trim().substring(0, 3);
+                    if (fence == null) {
+                        fence = marker;
+                        continue;
+                    }
+                    if (fence.equals(marker)) {
+                        fence = null;
+                        continue;
+                    }
+                }
+                if (fence == null) {
+                    line = stripMarkup(line);
+                    if (line == null) {
+                        continue;
+                    }
+                }
+                sink.text(line);
+                sink.lineBreak();
+            }
+        }
+    }
+
+    /**
+     * The text of one line outside code blocks, or null if the line is
+     * only markup.
+     */
+    static String stripMarkup(String line) {
+        // Block markers start the line; most lines have none, so look before matching
+        char first = firstNonSpace(line);
+        if (((first == '-' || first == '*' || first == '_') && THEMATIC_BREAK.matcher(line).matches())
+                || (first == '[' && LINK_DEFINITION.matcher(line).matches())
+                || (line.indexOf('|') >= 0 && line.indexOf('-') >= 0 && TABLE_DELIMITER.matcher(line).matches())) {
+            return null;
+        }
+        if (first == '>') {
+            line = BLOCKQUOTE.matcher(line).replaceFirst("");
+            first = firstNonSpace(line);
+        }
+        if (first == '#') {
+            line = HEADING.matcher(line).replaceFirst("$1");
+        } else if (first == '-' || first == '*' || first == '+' || (first >= '0' && first <= '9')) {
+            line = LIST_MARKER.matcher(line).replaceFirst("$1");
+        }
+        if (line.indexOf('[') >= 0) {
+            line = IMAGE.matcher(line).replaceAll("$1");
+            line = LINK.matcher(line).replaceAll("$1");
+        }
+        if (line.indexOf('<') >= 0) {
+            line = AUTOLINK.matcher(line).replaceAll("$1");
+            line = HTML_TAG.matcher(line).replaceAll("");
+        }
+        if (line.indexOf('`') >= 0) {
+            line = CODE_SPAN.matcher(line).replaceAll("$2");
+        }
+        if (line.indexOf('*') >= 0 || line.indexOf('_') >= 0) {
+            line = STRONG.matcher(line).replaceAll("$2");
+            line = EMPHASIS.matcher(line).replaceAll("$2");
+        }
+        if (line.indexOf('~') >= 0) {
+            line = STRIKETHROUGH.matcher(line).replaceAll("$1");
+        }
+        if (line.indexOf('\\') >= 0) {
+            line = ESCAPE.matcher(line).replaceAll("$1");
+        }
+        return line;
+    }
+
+    private static char firstNonSpace(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (!Character.isWhitespace(line.charAt(i))) {
+                return line.charAt(i);
+            }
+        }
+        return 0;
+    }
+}
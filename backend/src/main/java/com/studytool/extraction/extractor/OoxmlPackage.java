@@ -0,0 +1,131 @@
+package com.studytool.extraction.extractor;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * An Office Open XML document (DOCX, PPTX): a zip of XML parts, read one
+ * part at a time with a streaming (StAX) parser. DTDs and external
+ * entities are disabled, since the documents come from users. For the same
+ * reason a part may only decompress to so much: its declared size is
+ * checked up front and the bytes actually inflated as it is read, since the
+ * declared size can lie.
+ */
+class OoxmlPackage implements AutoCloseable {
+    static final String RELATIONSHIPS_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    static final String PACKAGE_RELATIONSHIPS_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+    // Markup takes several times the text it holds, so this still allows a very large document
+    private static final long MAX_PART_BYTES = 512L * 1024 * 1024;
+
+    private final ZipFile zip;
+
+    OoxmlPackage(Path source) throws IOException {
+        this.zip = new ZipFile(source.toFile());
+    }
+
+    boolean hasPart(String name) {
+        return zip.getEntry(name) != null;
+    }
+
+    ZipFile zip() {
+        return zip;
+    }
+
+    /**
+     * Parses one part; the handler reads events until the end of the part.
+     *
+     * @throws IOException if the part is missing or not well-formed XML
+     */
+    void readPart(String name, PartHandler handler) throws IOException {
+        ZipEntry entry = zip.getEntry(name);
+        if (entry == null) {
+            throw new IOException("Missing document part: " + name);
+        }
+        if (entry.getSize() > MAX_PART_BYTES) {
+            throw new IOException("Document part " + name + " is too large: " + entry.getSize() + " bytes");
+        }
+        try (InputStream in = new LimitedInputStream(zip.getInputStream(entry), name)) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                handler.handle(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed document part: " + name, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        zip.close();
+    }
+
+    /**
+     * Fails once more than {@link #MAX_PART_BYTES} have been inflated.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+        private final String name;
+        private long read;
+
+        LimitedInputStream(InputStream in, String name) {
+            super(in);
+            this.name = name;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        private void count(long bytes) throws IOException {
+            read += bytes;
+            if (read > MAX_PART_BYTES) {
+                throw new IOException("Document part " + name + " inflates to more than " + MAX_PART_BYTES + " bytes");
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface PartHandler {
+        void handle(XMLStreamReader reader) throws XMLStreamException, IOException;
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        return factory;
+    }
+}
@@ -0,0 +1,46 @@
+package com.studytool.extraction.extractor;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.studytool.extraction.ParallelPdfExtractor;
+
+/**
+ * PDF text, one page per {@link TextSink#pageBreak()}, stripped in parallel
+ * page ranges by {@link ParallelPdfExtractor}.
+ */
+public class PdfTextExtractor implements TextExtractor {
+    private ParallelPdfExtractor pdfExtractor;
+
+    @Override
+    public String contentType() {
+        return "application/pdf";
+    }
+
+    @Override
+    public List<String> extensions() {
+        return List.of(".pdf");
+    }
+
+    @Override
+    public void configure(ExtractorSettings settings) {
+        close();
+        pdfExtractor = new ParallelPdfExtractor(settings.parallelism());
+    }
+
+    @Override
+    public void extract(Path source, TextSink sink, Path scratchDirectory) throws IOException {
+        if (pdfExtractor == null) {
+            throw new IllegalStateException("PDF extractor is not configured");
+        }
+        pdfExtractor.extract(source, sink.writer(), scratchDirectory, sink.maxChars());
+    }
+
+    @Override
+    public void close() {
+        if (pdfExtractor != null) {
+            pdfExtractor.close();
+        }
+    }
+}
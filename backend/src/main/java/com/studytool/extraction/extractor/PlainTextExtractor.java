@@ -0,0 +1,36 @@
+package com.studytool.extraction.extractor;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.studytool.extraction.MappedTextReader;
+
+/**
+ * Plain text files in whatever encoding {@link MappedTextReader} detects.
+ * Malformed bytes become U+FFFD rather than failing the extraction.
+ */
+public class PlainTextExtractor implements TextExtractor {
+
+    @Override
+    public String contentType() {
+        return "text/plain";
+    }
+
+    @Override
+    public List<String> extensions() {
+        return List.of(".txt");
+    }
+
+    @Override
+    public void extract(Path source, TextSink sink, Path scratchDirectory) throws IOException {
+        try (Reader in = MappedTextReader.open(source)) {
+            char[] buffer = new char[16 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                sink.text(buffer, 0, read);
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.studytool.extraction.extractor;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * PowerPoint presentations: the text of each slide in presentation order,
+ * one line per paragraph and one page per slide, so footers and slide
+ * numbers repeated on every slide are removed by the normalizer.
+ */
+public class PptxTextExtractor implements TextExtractor {
+    private static final String PRESENTATION_NS = "http://schemas.openxmlformats.org/presentationml/2006/main";
+    private static final String DRAWING_NS = "http://schemas.openxmlformats.org/drawingml/2006/main";
+    private static final String PRESENTATION_PART = "ppt/presentation.xml";
+    private static final String PRESENTATION_RELS_PART = "ppt/_rels/presentation.xml.rels";
+    private static final Pattern SLIDE_PART = Pattern.compile("ppt/slides/slide(\\d+)\\.xml");
+
+    @Override
+    public String contentType() {
+        return "application/vnd.openxmlformats-officedocument.presentationml.presentation";
+    }
+
+    @Override
+    public List<String> extensions() {
+        return List.of(".pptx");
+    }
+
+    @Override
+    public void extract(Path source, TextSink sink, Path scratchDirectory) throws IOException {
+        try (OoxmlPackage pptx = new OoxmlPackage(source)) {
+            for (String slide : slideParts(pptx)) {
+                pptx.readPart(slide, reader -> readSlide(reader, sink));
+                sink.pageBreak();
+            }
+        }
+    }
+
+    private static void readSlide(XMLStreamReader reader, TextSink sink) throws XMLStreamException, IOException {
+        boolean inText = false;
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT -> {
+                    if (DRAWING_NS.equals(reader.getNamespaceURI())) {
+                        if (reader.getLocalName().equals("t")) {
+                            inText = true;
+                        } else if (reader.getLocalName().equals("br")) {
+                            sink.lineBreak();
+                        }
+                    }
+                }
+                case XMLStreamConstants.CHARACTERS -> {
+                    if (inText) {
+                        sink.text(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                }
+                case XMLStreamConstants.END_ELEMENT -> {
+                    if (DRAWING_NS.equals(reader.getNamespaceURI())) {
+                        if (reader.getLocalName().equals("t")) {
+                            inText = false;
+                        } else if (reader.getLocalName().equals("p")) {
+                            sink.lineBreak();
+                        }
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    /**
+     * The slide parts in presentation order: the slide list in the
+     * presentation part, resolved through its relationships. Packages
+     * without them fall back to the slide part numbers.
+     */
+    private static List<String> slideParts(OoxmlPackage pptx) throws IOException {
+        if (!pptx.hasPart(PRESENTATION_PART) || !pptx.hasPart(PRESENTATION_RELS_PART)) {
+            return numberedSlideParts(pptx);
+        }
+
+        Map<String, String> slideTargets = new HashMap<>();
+        pptx.readPart(PRESENTATION_RELS_PART, reader -> {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT
+                        && OoxmlPackage.PACKAGE_RELATIONSHIPS_NS.equals(reader.getNamespaceURI())
+                        && reader.getLocalName().equals("Relationship")
+                        && String.valueOf(reader.getAttributeValue(null, "Type")).endsWith("/slide")) {
+                    slideTargets.put(reader.getAttributeValue(null, "Id"), reader.getAttributeValue(null, "Target"));
+                }
+            }
+        });
+
+        List<String> slides = new ArrayList<>();
+        pptx.readPart(PRESENTATION_PART, reader -> {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT
+                        && PRESENTATION_NS.equals(reader.getNamespaceURI())
+                        && reader.getLocalName().equals("sldId")) {
+                    String target = slideTargets.get(reader.getAttributeValue(OoxmlPackage.RELATIONSHIPS_NS, "id"));
+                    if (target != null) {
+                        slides.add(resolve(target));
+                    }
+                }
+            }
+        });
+        slides.removeIf(slide -> !pptx.hasPart(slide));
+        return slides.isEmpty() ? numberedSlideParts(pptx) : slides;
+    }
+
+    private static List<String> numberedSlideParts(OoxmlPackage pptx) {
+        return pptx.zip().stream()
+            .map(entry -> SLIDE_PART.matcher(entry.getName()))
+            .filter(Matcher::matches)
+            .sorted(Comparator.comparingInt(matcher -> Integer.parseInt(matcher.group(1))))
+            .map(matcher -> matcher.group())
+            .toList();
+    }
+
+    /**
+     * Resolves a relationship target against the presentation part.
+     */
+    private static String resolve(String target) {
+        try {
+            String resolved = URI.create("/" + PRESENTATION_PART).resolve(target).getPath();
+            return resolved.startsWith("/") ? resolved.substring(1) : resolved;
+        } catch (IllegalArgumentException e) {
+            return "ppt/" + target;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.studytool.extraction.extractor;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Extracts plain text from one document format. Implementations are
+ * registered in {@code META-INF/services} and found with
+ * {@link java.util.ServiceLoader}, see {@link TextExtractors}.
+ *
+ * Extractors stream: text is written to the sink as it is read, so memory
+ * use doesn't grow with the document. They must be safe to call from
+ * several threads at once.
+ */
+public interface TextExtractor extends AutoCloseable {
+
+    /**
+     * The MIME type of the format, e.g. {@code application/pdf}.
+     */
+    String contentType();
+
+    /**
+     * File extensions of the format, lower case and with the dot.
+     */
+    List<String> extensions();
+
+    /**
+     * Called once after loading, before the first extraction.
+     */
+    default void configure(ExtractorSettings settings) {
+    }
+
+    /**
+     * Writes the text of the document to the sink.
+     *
+     * @param source The document to read
+     * @param sink Where the text goes
+     * @param scratchDirectory Where temp files may be created
+     */
+    void extract(Path source, TextSink sink, Path scratchDirectory) throws IOException;
+
+    /**
+     * Releases threads and other resources held by the extractor.
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,325 @@
+package com.studytool.extraction.extractor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the throughput of every registered extractor on a fixture
+ * corpus: each extractor reads the corpus files with its extensions a few
+ * times and the best run is reported in MB of input and characters of
+ * output per second.
+ *
+ * Without a corpus directory a synthetic one is generated: for every format
+ * the same number of documents with the same Zipf-like prose, formatted
+ * the way each format usually carries it (headings, lists, links, markup,
+ * one slide or page per section).
+ *
+ * Run with {@code gradle benchmarkTextExtractors --args="[corpusDirectory] [runs]"}.
+ */
+public class TextExtractorBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(TextExtractorBenchmark.class);
+
+    private static final int DOCUMENTS_PER_FORMAT = 10;
+    private static final int SECTIONS_PER_DOCUMENT = 40;
+    private static final int VOCABULARY = 20_000;
+
+    public static void main(String[] args) throws IOException {
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        Path scratch = Files.createTempDirectory("extractor-benchmark-");
+        Path corpus = args.length > 0 ? Paths.get(args[0]) : generateCorpus(scratch.resolve("corpus"));
+
+        try (TextExtractors extractors = TextExtractors.load(new ExtractorSettings(Runtime.getRuntime().availableProcessors()))) {
+            for (TextExtractor extractor : extractors.all()) {
+                List<Path> files = corpusFiles(corpus, extractor);
+                if (files.isEmpty()) {
+                    logger.info("{}: no fixtures", extractor.contentType());
+                    continue;
+                }
+                long bytes = 0;
+                for (Path file : files) {
+                    bytes += Files.size(file);
+                }
+
+                long best = Long.MAX_VALUE;
+                long chars = 0;
+                // First run warms up the JIT and is not counted
+                for (int run = 0; run <= runs; run++) {
+                    CountingWriter out = new CountingWriter();
+                    long start = System.nanoTime();
+                    for (Path file : files) {
+                        extractor.extract(file, new TextSink(out), scratch);
+                    }
+                    if (run > 0) {
+                        best = Math.min(best, System.nanoTime() - start);
+                    }
+                    chars = out.chars;
+                }
+                double seconds = best / 1e9;
+                logger.info("{}: {} files, {} KB -> {} chars, best {} ms: {} MB/s, {} Mchars/s", extractor.contentType(),
+                           files.size(), bytes / 1024, chars, best / 1_000_000,
+                           String.format("%.1f", bytes / (1024.0 * 1024) / seconds),
+                           String.format("%.1f", chars / 1e6 / seconds));
+            }
+        } finally {
+            try (var paths = Files.walk(scratch)) {
+                paths.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static List<Path> corpusFiles(Path corpus, TextExtractor extractor) throws IOException {
+        try (var paths = Files.walk(corpus)) {
+            return paths.filter(Files::isRegularFile)
+                .filter(path -> extractor.extensions().stream()
+                    .anyMatch(path.getFileName().toString().toLowerCase()::endsWith))
+                .sorted()
+                .toList();
+        }
+    }
+
+    private static Path generateCorpus(Path corpus) throws IOException {
+        Files.createDirectories(corpus);
+        Random random = new Random(42);
+        for (int i = 0; i < DOCUMENTS_PER_FORMAT; i++) {
+            List<List<String>> sections = new ArrayList<>(SECTIONS_PER_DOCUMENT);
+            for (int s = 0; s < SECTIONS_PER_DOCUMENT; s++) {
+                List<String> paragraphs = new ArrayList<>();
+                for (int p = 0; p < 6; p++) {
+                    paragraphs.add(sentences(random, 3 + random.nextInt(4)));
+                }
+                sections.add(paragraphs);
+            }
+            writeText(corpus.resolve("doc-" + i + ".txt"), sections);
+            writeMarkdown(corpus.resolve("doc-" + i + ".md"), sections);
+            writeHtml(corpus.resolve("doc-" + i + ".html"), sections);
+            writeDocx(corpus.resolve("doc-" + i + ".docx"), sections);
+            writePptx(corpus.resolve("doc-" + i + ".pptx"), sections);
+            writePdf(corpus.resolve("doc-" + i + ".pdf"), sections);
+        }
+        logger.info("Generated {} fixture documents per format in {}", DOCUMENTS_PER_FORMAT, corpus);
+        return corpus;
+    }
+
+    private static void writeText(Path file, List<List<String>> sections) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int s = 0; s < sections.size(); s++) {
+                out.write("Section " + (s + 1) + "\n\n");
+                for (String paragraph : sections.get(s)) {
+                    out.write(paragraph + "\n\n");
+                }
+            }
+        }
+    }
+
+    private static void writeMarkdown(Path file, List<List<String>> sections) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("---\ntitle: Fixture\n---\n\n");
+            for (int s = 0; s < sections.size(); s++) {
+                out.write("## Section " + (s + 1) + "\n\n");
+                List<String> paragraphs = sections.get(s);
+                for (int p = 0; p < paragraphs.size(); p++) {
+                    String paragraph = paragraphs.get(p);
+                    if (p == 1) {
+                        out.write(("- " + paragraph.replace(". ", ".\n- ")).replaceAll("(?m)^- (\\w+)", "- **$1**") + "\n\n");
+                    } else if (p == 3) {
+                        out.write("```\n" + paragraph.replace(". ", ".\n") + "\n```\n\n");
+                    } else {
+                        out.write(paragraph.replaceFirst(" (\\w+) ", " [$1](https://example.com/$1) ") + "\n\n");
+                    }
+                }
+            }
+        }
+    }
+
+    private static void writeHtml(Path file, List<List<String>> sections) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("<!DOCTYPE html>\n<html><head><title>Fixture</title>"
+                + "<style>p { margin: 0; }</style><script>var x = 1 < 2;</script></head><body>\n");
+            for (int s = 0; s < sections.size(); s++) {
+                out.write("<h2 id=\"s" + s + "\">Section " + (s + 1) + " &amp; more</h2>\n");
+                for (String paragraph : sections.get(s)) {
+                    out.write("<p class=\"body\">" + paragraph.replaceFirst(" (\\w+) ", " <a href=\"#$1\"><b>$1</b></a> ")
+                        + "</p>\n");
+                }
+            }
+            out.write("</body></html>\n");
+        }
+    }
+
+    private static void writeDocx(Path file, List<List<String>> sections) throws IOException {
+        StringBuilder document = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+            + "<w:document xmlns:w=\"http://schemas.openxmlformats.org/wordprocessingml/2006/main\"><w:body>");
+        for (int s = 0; s < sections.size(); s++) {
+            document.append("<w:p><w:pPr><w:pStyle w:val=\"Heading2\"/></w:pPr><w:r>");
+            if (s > 0) {
+                document.append("<w:lastRenderedPageBreak/>");
+            }
+            document.append("<w:t>Section ").append(s + 1).append("</w:t></w:r></w:p>");
+            for (String paragraph : sections.get(s)) {
+                // Word splits paragraphs into runs wherever formatting changes
+                int split = paragraph.indexOf(' ', paragraph.length() / 2);
+                document.append("<w:p><w:r><w:t xml:space=\"preserve\">").append(paragraph, 0, split)
+                    .append("</w:t></w:r><w:r><w:rPr><w:b/></w:rPr><w:t xml:space=\"preserve\">")
+                    .append(paragraph, split, paragraph.length()).append("</w:t></w:r></w:p>");
+            }
+        }
+        document.append("</w:body></w:document>");
+
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(file))) {
+            putEntry(zip, "word/document.xml", document.toString());
+        }
+    }
+
+    private static void writePptx(Path file, List<List<String>> sections) throws IOException {
+        StringBuilder presentation = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+            + "<p:presentation xmlns:p=\"http://schemas.openxmlformats.org/presentationml/2006/main\" "
+            + "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\"><p:sldIdLst>");
+        StringBuilder relationships = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+            + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(file))) {
+            for (int s = 0; s < sections.size(); s++) {
+                presentation.append("<p:sldId id=\"").append(256 + s).append("\" r:id=\"rId").append(s + 1).append("\"/>");
+                relationships.append("<Relationship Id=\"rId").append(s + 1)
+                    .append("\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/slide\" ")
+                    .append("Target=\"slides/slide").append(s + 1).append(".xml\"/>");
+
+                StringBuilder slide = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                    + "<p:sld xmlns:p=\"http://schemas.openxmlformats.org/presentationml/2006/main\" "
+                    + "xmlns:a=\"http://schemas.openxmlformats.org/drawingml/2006/main\"><p:cSld><p:spTree>");
+                slide.append("<p:sp><p:txBody><a:p><a:r><a:t>Section ").append(s + 1).append("</a:t></a:r></a:p></p:txBody></p:sp>");
+                slide.append("<p:sp><p:txBody>");
+                for (String paragraph : sections.get(s)) {
+                    slide.append("<a:p><a:r><a:t>").append(paragraph).append("</a:t></a:r></a:p>");
+                }
+                slide.append("</p:txBody></p:sp>");
+                slide.append("<p:sp><p:txBody><a:p><a:r><a:t>Fixture deck</a:t></a:r></a:p></p:txBody></p:sp>");
+                slide.append("</p:spTree></p:cSld></p:sld>");
+                putEntry(zip, "ppt/slides/slide" + (s + 1) + ".xml", slide.toString());
+            }
+            presentation.append("</p:sldIdLst></p:presentation>");
+            relationships.append("</Relationships>");
+            putEntry(zip, "ppt/presentation.xml", presentation.toString());
+            putEntry(zip, "ppt/_rels/presentation.xml.rels", relationships.toString());
+        }
+    }
+
+    private static void writePdf(Path file, List<List<String>> sections) throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            for (int s = 0; s < sections.size(); s++) {
+                PDPage page = new PDPage();
+                doc.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(doc, page)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 10);
+                    content.setLeading(12);
+                    content.newLineAtOffset(50, 740);
+                    content.showText("Section " + (s + 1));
+                    content.newLine();
+                    for (String paragraph : sections.get(s)) {
+                        for (String line : wrap(paragraph, 95)) {
+                            content.showText(line);
+                            content.newLine();
+                        }
+                        content.newLine();
+                    }
+                    content.showText("Fixture document, page " + (s + 1));
+                    content.endText();
+                }
+            }
+            doc.save(file.toFile());
+        }
+    }
+
+    private static List<String> wrap(String text, int width) {
+        List<String> lines = new ArrayList<>();
+        StringBuilder line = new StringBuilder();
+        for (String word : text.split(" ")) {
+            if (line.length() + word.length() + 1 > width && line.length() > 0) {
+                lines.add(line.toString());
+                line.setLength(0);
+            }
+            if (line.length() > 0) {
+                line.append(' ');
+            }
+            line.append(word);
+        }
+        if (line.length() > 0) {
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    private static void putEntry(ZipOutputStream zip, String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    private static String sentences(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            int words = 8 + random.nextInt(12);
+            for (int w = 0; w < words; w++) {
+                String word = word(random);
+                if (w == 0) {
+                    word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+                }
+                text.append(word).append(w == words - 1 ? ". " : " ");
+            }
+        }
+        return text.toString().trim();
+    }
+
+    private static String word(Random random) {
+        // Squaring skews the draw towards low ranks, i.e. common words
+        double r = random.nextDouble();
+        return "w" + Integer.toString((int) (r * r * VOCABULARY), 36);
+    }
+
+    /**
+     * Discards the text, counting it.
+     */
+    private static class CountingWriter extends Writer {
+        private long chars;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            chars += length;
+        }
+
+        @Override
+        public void write(int c) {
+            chars++;
+        }
+
+        @Override
+        public Writer append(CharSequence text) {
+            chars += text.length();
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
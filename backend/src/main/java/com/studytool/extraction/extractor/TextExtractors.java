@@ -0,0 +1,87 @@
+package com.studytool.extraction.extractor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The extractors found on the classpath, keyed by content type. Stored
+ * files carry no content type, so it is derived from the extension.
+ */
+public class TextExtractors implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(TextExtractors.class);
+
+    private final Map<String, TextExtractor> byContentType = new LinkedHashMap<>();
+    private final Map<String, String> contentTypeByExtension = new LinkedHashMap<>();
+
+    private TextExtractors() {
+    }
+
+    /**
+     * Loads and configures every registered extractor. If two extractors
+     * claim the same content type or extension, the first one loaded wins.
+     */
+    public static TextExtractors load(ExtractorSettings settings) {
+        TextExtractors extractors = new TextExtractors();
+        for (TextExtractor extractor : ServiceLoader.load(TextExtractor.class)) {
+            if (extractors.byContentType.containsKey(extractor.contentType())) {
+                logger.warn("Ignoring {}: content type {} is already handled by {}", extractor.getClass().getName(),
+                           extractor.contentType(), extractors.byContentType.get(extractor.contentType()).getClass().getName());
+                extractor.close();
+                continue;
+            }
+            extractor.configure(settings);
+            extractors.byContentType.put(extractor.contentType(), extractor);
+            for (String extension : extractor.extensions()) {
+                extractors.contentTypeByExtension.putIfAbsent(extension, extractor.contentType());
+            }
+        }
+        logger.info("Loaded text extractors for {}", extractors.contentTypeByExtension);
+        return extractors;
+    }
+
+    public Optional<TextExtractor> forContentType(String contentType) {
+        return Optional.ofNullable(byContentType.get(contentType));
+    }
+
+    public Optional<TextExtractor> forFilename(String filename) {
+        return contentType(filename).map(byContentType::get);
+    }
+
+    /**
+     * The content type of a file, judged by its extension.
+     */
+    public Optional<String> contentType(String filename) {
+        int lastDot = filename.lastIndexOf('.');
+        if (lastDot == -1) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(contentTypeByExtension.get(filename.substring(lastDot).toLowerCase()));
+    }
+
+    /**
+     * Every extension some extractor handles, sorted.
+     */
+    public Set<String> extensions() {
+        return new TreeSet<>(contentTypeByExtension.keySet());
+    }
+
+    public List<TextExtractor> all() {
+        return new ArrayList<>(byContentType.values());
+    }
+
+    @Override
+    public void close() {
+        for (TextExtractor extractor : byContentType.values()) {
+            extractor.close();
+        }
+    }
+}
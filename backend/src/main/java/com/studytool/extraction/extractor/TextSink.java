@@ -0,0 +1,67 @@
+package com.studytool.extraction.extractor;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import com.studytool.extraction.LimitedWriter;
+import com.studytool.extraction.TextNormalizer;
+
+/**
+ * Receives extracted text. Every extractor writes the same shape of output:
+ * lines separated by newlines and pages (or slides) ended with
+ * {@link TextNormalizer#PAGE_BREAK}, which is what the normalizer expects.
+ *
+ * Text beyond the sink's limit fails the extraction with an IOException.
+ */
+public class TextSink {
+    private final Writer out;
+    private final long maxChars;
+
+    /**
+     * @param out Where the text is written; not closed by the sink
+     */
+    public TextSink(Writer out) {
+        this(out, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param out Where the text is written; not closed by the sink
+     * @param maxChars Most text the document may produce
+     */
+    public TextSink(Writer out, long maxChars) {
+        this.out = new LimitedWriter(out, maxChars);
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * Most text the document may produce, for extractors that spool text
+     * elsewhere before writing it here.
+     */
+    public long maxChars() {
+        return maxChars;
+    }
+
+    public void text(CharSequence text) throws IOException {
+        out.append(text);
+    }
+
+    public void text(char[] chars, int offset, int length) throws IOException {
+        out.write(chars, offset, length);
+    }
+
+    public void lineBreak() throws IOException {
+        out.write('\n');
+    }
+
+    public void pageBreak() throws IOException {
+        out.write(TextNormalizer.PAGE_BREAK);
+    }
+
+    /**
+     * The underlying writer, for extractors whose library already produces
+     * text in the sink's shape.
+     */
+    public Writer writer() {
+        return out;
+    }
+}
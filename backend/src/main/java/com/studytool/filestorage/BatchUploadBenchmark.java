@@ -0,0 +1,114 @@
+package com.studytool.filestorage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Uploads the same set of text files to a running backend twice: one
+ * request per file, as the upload form used to, and then as a single
+ * batch. Every file has distinct content so none is deduplicated. The
+ * uploaded files are left in the user's account.
+ * 
+ * Run with {@code gradle benchmarkBatchUpload --args="<baseUrl> <userId> [files] [fileKilobytes]"}.
+ */
+public class BatchUploadBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(BatchUploadBenchmark.class);
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            logger.error("Usage: BatchUploadBenchmark <baseUrl> <userId> [files] [fileKilobytes]");
+            System.exit(1);
+        }
+        String baseUrl = args[0].replaceAll("/+$", "");
+        String userId = args[1];
+        int fileCount = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        int fileKilobytes = args.length > 3 ? Integer.parseInt(args[3]) : 256;
+        
+        HttpClient client = HttpClient.newHttpClient();
+        Random random = new Random(42);
+        
+        List<byte[]> singles = files(random, fileCount, fileKilobytes);
+        long start = System.nanoTime();
+        for (int i = 0; i < singles.size(); i++) {
+            Multipart body = new Multipart();
+            body.addFile("file", "single-" + i + ".txt", singles.get(i));
+            send(client, URI.create(baseUrl + "/api/files/upload"), userId, body);
+        }
+        long singleNanos = System.nanoTime() - start;
+        
+        List<byte[]> batched = files(random, fileCount, fileKilobytes);
+        Multipart body = new Multipart();
+        for (int i = 0; i < batched.size(); i++) {
+            body.addFile("files", "batch-" + i + ".txt", batched.get(i));
+        }
+        start = System.nanoTime();
+        send(client, URI.create(baseUrl + "/api/files/batch"), userId, body);
+        long batchNanos = System.nanoTime() - start;
+        
+        logger.info("{} files of {} KB: {} ms as single uploads, {} ms as one batch ({}x)", fileCount, fileKilobytes,
+                   singleNanos / 1_000_000, batchNanos / 1_000_000,
+                   String.format("%.1f", (double) singleNanos / batchNanos));
+    }
+    
+    private static void send(HttpClient client, URI uri, String userId, Multipart body)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+            .header("X-User-ID", userId)
+            .header("Content-Type", body.contentType())
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+            .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("Upload failed with status " + response.statusCode() + ": " + response.body());
+        }
+    }
+    
+    private static List<byte[]> files(Random random, int count, int kilobytes) {
+        List<byte[]> files = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder text = new StringBuilder(kilobytes * 1024);
+            while (text.length() < kilobytes * 1024) {
+                text.append("w").append(Integer.toString(random.nextInt(50_000), 36))
+                    .append(random.nextInt(15) == 0 ? ".\n" : " ");
+            }
+            files.add(text.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return files;
+    }
+    
+    private static class Multipart {
+        private final String boundary = "----benchmark" + UUID.randomUUID();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        
+        void addFile(String field, String filename, byte[] content) {
+            body.writeBytes(("--" + boundary + "\r\n" +
+                "Content-Disposition: form-data; name=\"" + field + "\"; filename=\"" + filename + "\"\r\n" +
+                "Content-Type: text/plain\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            body.writeBytes(content);
+            body.writeBytes("\r\n".getBytes(StandardCharsets.UTF_8));
+        }
+        
+        String contentType() {
+            return "multipart/form-data; boundary=" + boundary;
+        }
+        
+        byte[] toByteArray() {
+            ByteArrayOutputStream complete = new ByteArrayOutputStream(body.size() + 64);
+            complete.writeBytes(body.toByteArray());
+            complete.writeBytes(("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+            return complete.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.studytool.filestorage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * One file of a batch upload, as it arrives in the request. The content
+ * can only be read until the next file is requested from the source.
+ */
+public record BatchUploadFile(
+    String filename,
+    InputStream content
+) {
+    /**
+     * The files of a batch in the order they were sent.
+     */
+    @FunctionalInterface
+    public interface Source {
+        /**
+         * @return The next file, or null after the last one
+         */
+        BatchUploadFile next() throws IOException;
+    }
+}
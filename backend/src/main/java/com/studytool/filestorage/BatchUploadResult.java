@@ -0,0 +1,21 @@
+package com.studytool.filestorage;
+
+/**
+ * Outcome of one file of a batch upload: the stored file, or the reason
+ * it was rejected.
+ */
+public record BatchUploadResult(
+    String originalFilename,
+    // Null if the file failed
+    FileUploadResult file,
+    // Null if the file was stored
+    String error
+) {
+    public static BatchUploadResult stored(FileUploadResult file) {
+        return new BatchUploadResult(file.originalFilename(), file, null);
+    }
+
+    public static BatchUploadResult failed(String originalFilename, String error) {
+        return new BatchUploadResult(originalFilename, null, error);
+    }
+}
@@ -0,0 +1,75 @@
+package com.studytool.filestorage;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.management.OperatingSystemMXBean;
+
+/**
+ * Downloads one file repeatedly from a running backend and reports
+ * throughput and the client's CPU per GB. The server's CPU per GB comes from
+ * the per-download CPU time FileDownloadResponder logs at debug level.
+ * 
+ * Run with {@code gradle benchmarkDownloads --args="<url> <userId> [requests] [concurrency]"}.
+ */
+public class DownloadBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(DownloadBenchmark.class);
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            logger.error("Usage: DownloadBenchmark <url> <userId> [requests] [concurrency]");
+            System.exit(1);
+        }
+        URI uri = URI.create(args[0]);
+        String userId = args[1];
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int concurrency = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+        
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(uri).header("X-User-ID", userId).build();
+        
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        OperatingSystemMXBean os = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        long clientCpuStart = os.getProcessCpuTime();
+        long start = System.nanoTime();
+        try {
+            List<Future<Long>> results = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                results.add(executor.submit(() -> {
+                    HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                    try (InputStream body = response.body()) {
+                        return body.transferTo(OutputStream.nullOutputStream());
+                    }
+                }));
+            }
+            long bytes = 0;
+            for (Future<Long> result : results) {
+                bytes += result.get();
+            }
+            
+            double seconds = (System.nanoTime() - start) / 1e9;
+            double gigabytes = bytes / (1024.0 * 1024 * 1024);
+            logger.info("{} requests, {} bytes in {} s: {} MB/s", requests, bytes,
+                       String.format("%.2f", seconds), String.format("%.1f", bytes / (1024.0 * 1024) / seconds));
+            if (gigabytes > 0) {
+                long clientCpu = os.getProcessCpuTime() - clientCpuStart;
+                logger.info("Client CPU: {} ms per GB received", String.format("%.0f", clientCpu / 1e6 / gigabytes));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
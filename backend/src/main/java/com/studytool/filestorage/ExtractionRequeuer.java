@@ -0,0 +1,151 @@
+package com.studytool.filestorage;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.studytool.database.ExtractionStatus;
+import com.studytool.database.File;
+import com.studytool.database.FileRepository;
+import com.studytool.database.TaskLeaseRepository;
+import com.studytool.search.SearchService;
+
+/**
+ * Finds files whose background work was never done or got lost and queues
+ * it again: files stored before background extraction, extractions left
+ * pending or processing by a restart, and text indexed with an older search
+ * index format (or before search existed). Re-indexing leaves a file's
+ * extraction status alone, so its text stays usable while it waits.
+ *
+ * The files table is scanned one token range at a time, queueing as much
+ * as the extraction queue has room for; the rest waits for the next run.
+ * Only the node holding the task lease requeues, so a file isn't queued on
+ * every node at once.
+ */
+public class ExtractionRequeuer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ExtractionRequeuer.class);
+
+    private static final int TOKEN_RANGES = 256;
+    private static final Duration FIRST_RUN_DELAY = Duration.ofMinutes(1);
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+    private static final String LEASE_TASK = "extraction-requeuer";
+    // Pending extractions this old are assumed lost (e.g. in a restart) and queued again
+    private static final Duration STALE_EXTRACTION = Duration.ofMinutes(10);
+
+    private final FileRepository fileRepository;
+    private final FileStorageService fileStorageService;
+    private final TaskLeaseRepository taskLeaseRepository;
+    private final UUID nodeId = UUID.randomUUID();
+    private final ScheduledExecutorService scheduler;
+    // Outlasts the pause between runs, so the node requeueing keeps the lease
+    private volatile Duration leaseDuration = Duration.ofHours(1);
+
+    public ExtractionRequeuer(FileRepository fileRepository, FileStorageService fileStorageService,
+                              TaskLeaseRepository taskLeaseRepository) {
+        this.fileRepository = fileRepository;
+        this.fileStorageService = fileStorageService;
+        this.taskLeaseRepository = taskLeaseRepository;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "extraction-requeuer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts requeueing on a background thread.
+     */
+    public void start(Duration interval) {
+        leaseDuration = interval.multipliedBy(2).plus(FIRST_RUN_DELAY);
+        scheduler.scheduleWithFixedDelay(this::requeueQuietly, FIRST_RUN_DELAY.toMillis(), interval.toMillis(),
+            TimeUnit.MILLISECONDS);
+        logger.info("Extraction requeuer started (every {} min)", interval.toMinutes());
+    }
+
+    /**
+     * Queues extraction or indexing for the files that need it, until the
+     * queue is full. Does nothing unless this node holds the lease.
+     *
+     * @return The number of files queued
+     */
+    public int requeue() {
+        if (!taskLeaseRepository.tryAcquire(LEASE_TASK, nodeId, leaseDuration)) {
+            logger.debug("Extractions are requeued by another node");
+            return 0;
+        }
+        long start = System.nanoTime();
+        Instant staleBefore = Instant.now().minus(STALE_EXTRACTION);
+        int[] queued = new int[2];
+        boolean[] full = new boolean[1];
+        long step = Long.divideUnsigned(-1L, TOKEN_RANGES);
+        long fromToken = Long.MIN_VALUE;
+        for (int i = 0; i < TOKEN_RANGES && !full[0]; i++) {
+            long toToken = i == TOKEN_RANGES - 1 ? Long.MAX_VALUE : fromToken + step;
+            fileRepository.forEachFileInTokenRange(fromToken, toToken, file -> {
+                if (full[0]) {
+                    return;
+                }
+                if (isExtractionStale(file, staleBefore)) {
+                    if (fileStorageService.tryRequeueExtraction(file)) {
+                        queued[0]++;
+                    } else {
+                        full[0] = true;
+                    }
+                } else if (isIndexStale(file)) {
+                    if (fileStorageService.tryRequeueIndexing(file)) {
+                        queued[1]++;
+                    } else {
+                        full[0] = true;
+                    }
+                }
+            });
+            fromToken = toToken;
+        }
+
+        logger.info("Requeued {} extractions and {} re-indexings in {} ms{}", queued[0], queued[1],
+                   (System.nanoTime() - start) / 1_000_000, full[0] ? "; queue full, the rest wait for the next run" : "");
+        return queued[0] + queued[1];
+    }
+
+    private static boolean isExtractionStale(File file, Instant staleBefore) {
+        ExtractionStatus status = file.getExtractionStatus();
+        return status == null
+            || ((status == ExtractionStatus.PENDING || status == ExtractionStatus.PROCESSING)
+                && file.getUpdatedAt() != null && file.getUpdatedAt().isBefore(staleBefore));
+    }
+
+    private static boolean isIndexStale(File file) {
+        return file.getExtractionStatus() == ExtractionStatus.READY
+            && (file.getSearchIndexVersion() == null || file.getSearchIndexVersion() < SearchService.INDEX_VERSION);
+    }
+
+    private void requeueQuietly() {
+        try {
+            requeue();
+        } catch (RuntimeException e) {
+            logger.error("Failed to requeue extractions", e);
+        }
+    }
+
+    /**
+     * Stops the background thread, letting a running scan finish.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.studytool.filestorage;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * A stored file ready to be served, with the validators used for
+ * conditional and range requests. Either path (a local file) or redirect
+ * (a URL the client downloads from directly) is set.
+ */
+public record FileDownload(
+    Path path,
+    URI redirect,
+    String filename,
+    long size,
+    String etag,
+    Instant lastModified
+) {
+}
@@ -0,0 +1,227 @@
+package com.studytool.filestorage;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.eclipse.jetty.server.HttpOutput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.studytool.extraction.MappedTextReader;
+
+import io.javalin.http.Context;
+import jakarta.servlet.ServletOutputStream;
+
+/**
+ * Writes stored files to HTTP responses. Supports conditional requests
+ * (If-None-Match, If-Modified-Since) and single byte ranges (Range, If-Range)
+ * so browsers and PDF viewers can revalidate and fetch pages on demand.
+ *
+ * Local file content is memory-mapped and handed to Jetty as direct
+ * buffers, so the kernel copies pages from the page cache to the socket and
+ * the bytes never pass through the Java heap. Files in a remote blob store
+ * are answered with a redirect to a presigned URL.
+ */
+class FileDownloadResponder {
+    private static final Logger logger = LoggerFactory.getLogger(FileDownloadResponder.class);
+
+    // Upper bound on a single mapping; larger ranges are sent in several
+    private static final long MAX_MAPPING_BYTES = 64L * 1024 * 1024;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    // Content type by filename, from the registered text extractors
+    private final Function<String, Optional<String>> contentTypes;
+
+    FileDownloadResponder(Function<String, Optional<String>> contentTypes) {
+        this.contentTypes = contentTypes;
+    }
+
+    private record ByteRange(long start, long end) {
+        long length() {
+            return end - start + 1;
+        }
+    }
+
+    void send(Context ctx, FileDownload download) throws IOException {
+        String lastModified = DateTimeFormatter.RFC_1123_DATE_TIME.format(
+            download.lastModified().atZone(ZoneOffset.UTC));
+        ctx.header("ETag", download.etag());
+        ctx.header("Last-Modified", lastModified);
+        ctx.header("Cache-Control", "private, no-cache");
+        ctx.header("Accept-Ranges", "bytes");
+
+        if (notModified(ctx, download)) {
+            ctx.status(304);
+            return;
+        }
+
+        if (download.redirect() != null) {
+            // The object store serves the bytes (and ranges) itself
+            ctx.header("Location", download.redirect().toString());
+            ctx.status(302);
+            return;
+        }
+
+        long size = download.size();
+        ByteRange range = new ByteRange(0, size - 1);
+        String rangeHeader = ctx.header("Range");
+        if (rangeHeader != null && size > 0 && ifRangeMatches(ctx, download)) {
+            ByteRange requested = parseRange(rangeHeader, size);
+            if (requested == null) {
+                ctx.header("Content-Range", "bytes */" + size);
+                ctx.status(416);
+                return;
+            }
+            range = requested;
+            ctx.status(206);
+            ctx.header("Content-Range", "bytes " + range.start() + "-" + range.end() + "/" + size);
+        } else {
+            ctx.status(200);
+        }
+
+        ctx.contentType(contentType(download));
+        ctx.header("Content-Disposition", "attachment; filename=\"" + download.filename() + "\"");
+        ctx.res().setContentLengthLong(size == 0 ? 0 : range.length());
+        if (size == 0) {
+            return;
+        }
+
+        long cpuStart = THREADS.getCurrentThreadCpuTime();
+        long start = System.nanoTime();
+        writeRange(ctx, download, range);
+        logger.debug("Served {} bytes of {} in {} ms ({} ms CPU)", range.length(), download.filename(),
+                    (System.nanoTime() - start) / 1_000_000,
+                    (THREADS.getCurrentThreadCpuTime() - cpuStart) / 1_000_000);
+    }
+
+    private void writeRange(Context ctx, FileDownload download, ByteRange range) throws IOException {
+        ServletOutputStream out = ctx.res().getOutputStream();
+        try (FileChannel channel = FileChannel.open(download.path(), StandardOpenOption.READ)) {
+            if (!(out instanceof HttpOutput httpOutput)) {
+                // Not running on Jetty: fall back to a channel copy
+                WritableByteChannel target = Channels.newChannel(out);
+                for (long position = range.start(); position <= range.end(); ) {
+                    position += channel.transferTo(position, range.end() - position + 1, target);
+                }
+                return;
+            }
+            for (long position = range.start(); position <= range.end(); position += MAX_MAPPING_BYTES) {
+                long length = Math.min(MAX_MAPPING_BYTES, range.end() - position + 1);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                httpOutput.sendContent(mapped);
+            }
+        }
+    }
+
+    private boolean notModified(Context ctx, FileDownload download) {
+        String ifNoneMatch = ctx.header("If-None-Match");
+        if (ifNoneMatch != null) {
+            // Weak comparison, as required for If-None-Match
+            String etag = opaqueTag(download.etag());
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || opaqueTag(tag).equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Instant since = parseDate(ctx.header("If-Modified-Since"));
+        return since != null && !download.lastModified().truncatedTo(ChronoUnit.SECONDS).isAfter(since);
+    }
+
+    private boolean ifRangeMatches(Context ctx, FileDownload download) {
+        String ifRange = ctx.header("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            // Strong comparison: weak tags never match
+            return ifRange.equals(download.etag());
+        }
+        Instant date = parseDate(ifRange);
+        return date != null && download.lastModified().truncatedTo(ChronoUnit.SECONDS).equals(date);
+    }
+
+    /**
+     * Parses a single "bytes=" range. Multiple ranges are answered with the
+     * whole file, which the spec allows.
+     *
+     * @return The range clamped to the file, the whole file for headers this
+     *         doesn't handle, or null if the range can't be satisfied
+     */
+    private ByteRange parseRange(String header, long size) {
+        ByteRange whole = new ByteRange(0, size - 1);
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return whole;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return whole;
+        }
+
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // Suffix range: the last N bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                return new ByteRange(Math.max(0, size - suffix), size - 1);
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            if (start >= size || start > end) {
+                return null;
+            }
+            return new ByteRange(start, end);
+        } catch (NumberFormatException e) {
+            return whole;
+        }
+    }
+
+    private static String opaqueTag(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static Instant parseDate(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private String contentType(FileDownload download) throws IOException {
+        String contentType = contentTypes.apply(download.filename()).orElse("application/octet-stream");
+        if (!contentType.startsWith("text/")) {
+            return contentType;
+        }
+        // Text is sent as uploaded, so label it with the encoding it was written in
+        Charset charset = MappedTextReader.detectCharset(download.path());
+        return contentType + "; charset=" + charset.name().toLowerCase();
+    }
+}
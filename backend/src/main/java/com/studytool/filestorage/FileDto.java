@@ -3,6 +3,8 @@ package com.studytool.filestorage;
 import java.time.Instant;
 import java.util.UUID;
 
+import com.studytool.database.ExtractionStatus;
+
 /**
  * Data Transfer Object for file information in API responses.
  */
@@ -12,7 +14,10 @@ public record FileDto(
     String storedFilename,
     long fileSize,
     Instant uploadTime,
-    String userId
+    String userId,
+    ExtractionStatus extractionStatus,
+    Integer pageCount,
+    Long tokenEstimate
 ) {
     /**
      * Creates a FileDto from a FileInfo object.
@@ -24,7 +29,10 @@ public record FileDto(
             fileInfo.storedFilename(),
             fileInfo.size(),
             fileInfo.uploadTime(),
-            userId
+            userId,
+            fileInfo.extractionStatus(),
+            fileInfo.pageCount(),
+            fileInfo.tokenEstimate()
         );
     }
 } 
\ No newline at end of file
@@ -0,0 +1,282 @@
+package com.studytool.filestorage;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.studytool.database.FileBlobRepository;
+import com.studytool.database.FileDeletion;
+import com.studytool.database.FileDeletionRepository;
+import com.studytool.database.FileRepository;
+import com.studytool.extraction.TextExtractionService;
+import com.studytool.filestorage.blob.BlobStore;
+import com.studytool.search.SearchService;
+
+/**
+ * Removes the content of deleted files in the background, so deleting a
+ * file costs a single database write whatever its size.
+ *
+ * Deleted files are queued (see {@link FileRepository#tombstone}). The
+ * collector works through the queue in batches: it drops each file's row,
+ * search entry and blob reference, and the blob itself once nothing else
+ * references it. Every step can be repeated safely, so a failed file is
+ * simply retried later with exponential backoff.
+ *
+ * Less often it sweeps storage for leftovers of crashes and lost races:
+ * blobs and cached text no file references, and part files of expired
+ * uploads. A blob is only removed if it was unreferenced on the previous
+ * sweep too, with the same reference count, so content whose file row is
+ * still being written survives.
+ */
+public class FileGarbageCollector implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(FileGarbageCollector.class);
+
+    private static final int BATCH_SIZE = 100;
+    private static final Duration FIRST_RETRY_DELAY = Duration.ofSeconds(30);
+    private static final Duration MAX_RETRY_DELAY = Duration.ofHours(1);
+    // Nothing this recent is swept; it may belong to an upload in progress
+    private static final Duration SWEEP_GRACE = Duration.ofHours(1);
+    // Upload sessions expire after a day; their part files are kept a little longer
+    private static final Duration PART_RETENTION = Duration.ofHours(25);
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final FileRepository fileRepository;
+    private final FileDeletionRepository fileDeletionRepository;
+    private final FileBlobRepository fileBlobRepository;
+    private final BlobStore blobStore;
+    private final TextExtractionService textExtractionService;
+    private final SearchService searchService;
+    private final Path partDirectory;
+    private final ScheduledExecutorService scheduler;
+    // Blobs found unreferenced by the last sweep and their reference counts then (null
+    // without a record); only used on the scheduler thread
+    private Map<String, Integer> suspectedOrphans = new HashMap<>();
+
+    public FileGarbageCollector(String baseStoragePath, FileRepository fileRepository,
+                                FileDeletionRepository fileDeletionRepository, FileBlobRepository fileBlobRepository,
+                                BlobStore blobStore, TextExtractionService textExtractionService,
+                                SearchService searchService) {
+        this.fileRepository = fileRepository;
+        this.fileDeletionRepository = fileDeletionRepository;
+        this.fileBlobRepository = fileBlobRepository;
+        this.blobStore = blobStore;
+        this.textExtractionService = textExtractionService;
+        this.searchService = searchService;
+        this.partDirectory = Paths.get(baseStoragePath, FileStorageService.PART_DIRECTORY);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "file-gc");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts collecting and sweeping on a background thread.
+     *
+     * @param collectInterval Pause between passes over the deletion queue
+     * @param sweepInterval Pause between storage sweeps
+     */
+    public void start(Duration collectInterval, Duration sweepInterval) {
+        scheduler.scheduleWithFixedDelay(this::collectQuietly,
+            collectInterval.toMillis(), collectInterval.toMillis(), TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::sweepQuietly,
+            sweepInterval.toMillis(), sweepInterval.toMillis(), TimeUnit.MILLISECONDS);
+        logger.info("File garbage collector started (collect every {} s, sweep every {} min)",
+                   collectInterval.toSeconds(), sweepInterval.toMinutes());
+    }
+
+    /**
+     * Removes the content of every deleted file that is due, a batch at a
+     * time. Files that fail are rescheduled.
+     *
+     * @return The number of files cleaned up
+     */
+    public int collect() {
+        long start = System.nanoTime();
+        int collected = 0;
+        int failed = 0;
+        while (true) {
+            List<FileDeletion> batch = fileDeletionRepository.findDue(BATCH_SIZE);
+            int collectedBefore = collected;
+            for (FileDeletion deletion : batch) {
+                try {
+                    collect(deletion);
+                    collected++;
+                } catch (IOException | RuntimeException e) {
+                    failed++;
+                    retryLater(deletion, e);
+                }
+            }
+            // A short batch drained the queue; a batch without progress would just be read again
+            if (batch.size() < BATCH_SIZE || collected == collectedBefore) {
+                break;
+            }
+        }
+        if (collected > 0 || failed > 0) {
+            logger.info("Collected {} deleted files ({} failed) in {} ms", collected, failed,
+                       (System.nanoTime() - start) / 1_000_000);
+        }
+        return collected;
+    }
+
+    private void collect(FileDeletion deletion) throws IOException {
+        if (!fileRepository.deleteById(deletion.getFileId())) {
+            throw new IOException("Failed to delete file record " + deletion.getFileId());
+        }
+        searchService.removeFile(deletion.getUserId(), deletion.getFileId());
+
+        String contentHash = deletion.getContentHash();
+        String cacheKey = FileStorageService.textCacheKey(contentHash, deletion.getStoredFilename());
+        if (contentHash == null) {
+            // Stored before deduplication: the file is this record's own copy
+            Files.deleteIfExists(Paths.get(deletion.getFilePath()));
+            textExtractionService.invalidate(cacheKey);
+        } else {
+            // If dropping the reference fails after the claim, the count stays one too high and the sweep removes the blob
+            if (!deletion.isReferenceReleased() && fileDeletionRepository.releaseReference(deletion.getFileId())) {
+                fileBlobRepository.removeReference(contentHash);
+            }
+            // A count of 0 marks a deletion, ours or one a failed attempt left unfinished
+            Integer references = fileBlobRepository.findReferenceCount(contentHash);
+            if (references != null && references == 0) {
+                blobStore.delete(contentHash);
+                textExtractionService.invalidate(cacheKey);
+                fileBlobRepository.finishDelete(contentHash);
+                logger.info("Deleted blob {} (no references left)", contentHash);
+            }
+        }
+
+        fileDeletionRepository.deleteById(deletion.getFileId());
+        logger.debug("Collected deleted file {} ({})", deletion.getFileId(), deletion.getStoredFilename());
+    }
+
+    private void retryLater(FileDeletion deletion, Exception cause) {
+        int attempts = deletion.getAttempts() + 1;
+        Duration delay = FIRST_RETRY_DELAY.multipliedBy(1L << Math.min(attempts - 1, 16));
+        if (delay.compareTo(MAX_RETRY_DELAY) > 0) {
+            delay = MAX_RETRY_DELAY;
+        }
+        logger.warn("Failed to collect deleted file {} (attempt {}), retrying in {} s: {}",
+                   deletion.getFileId(), attempts, delay.toSeconds(), cause.getMessage());
+        fileDeletionRepository.recordFailure(deletion.getFileId(), attempts, Instant.now().plus(delay));
+    }
+
+    /**
+     * Removes blobs and cached text that no file references, and part files
+     * of expired uploads.
+     */
+    public void sweep() throws IOException {
+        long start = System.nanoTime();
+        Instant cutoff = Instant.now().minus(SWEEP_GRACE);
+
+        Set<String> referencedBlobs = new HashSet<>();
+        Set<String> textKeys = new HashSet<>();
+        fileRepository.forEachContentReference((contentHash, storedFilename) -> {
+            if (contentHash != null) {
+                referencedBlobs.add(contentHash);
+            }
+            textKeys.add(FileStorageService.textCacheKey(contentHash, storedFilename));
+        });
+
+        Set<String> unreferenced = new HashSet<>();
+        blobStore.forEach((key, lastModified) -> {
+            if (!referencedBlobs.contains(key) && lastModified.isBefore(cutoff)) {
+                unreferenced.add(key);
+            }
+        });
+        int removedBlobs = 0;
+        Map<String, Integer> suspects = new HashMap<>();
+        for (String key : unreferenced) {
+            Integer references = fileBlobRepository.findReferenceCount(key);
+            suspects.put(key, references);
+            // An upload that referenced the blob since the last sweep changed the count
+            if (!suspectedOrphans.containsKey(key) || !Objects.equals(suspectedOrphans.get(key), references)
+                    || !fileBlobRepository.markDeleting(key, references)) {
+                continue;
+            }
+            blobStore.delete(key);
+            fileBlobRepository.finishDelete(key);
+            suspects.remove(key);
+            removedBlobs++;
+            logger.info("Deleted orphaned blob {}", key);
+        }
+        suspectedOrphans = suspects;
+
+        int removedText = textExtractionService.removeUnused(textKeys::contains, cutoff);
+        int removedParts = removeExpiredParts(Instant.now().minus(PART_RETENTION));
+
+        logger.info("Swept storage in {} ms: {} orphaned blobs, {} cached texts and {} part files removed, " +
+                   "{} blobs unreferenced since this sweep", (System.nanoTime() - start) / 1_000_000,
+                   removedBlobs, removedText, removedParts, unreferenced.size() - removedBlobs);
+    }
+
+    /**
+     * Deletes part files of expired upload sessions and scratch files left
+     * behind by interrupted uploads and extractions.
+     */
+    private int removeExpiredParts(Instant olderThan) throws IOException {
+        int removed = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(partDirectory)) {
+            for (Path entry : entries) {
+                try {
+                    if (Files.getLastModifiedTime(entry).toInstant().isBefore(olderThan) && Files.deleteIfExists(entry)) {
+                        removed++;
+                    }
+                } catch (NoSuchFileException e) {
+                    // Completed while sweeping
+                }
+            }
+        }
+        return removed;
+    }
+
+    private void collectQuietly() {
+        try {
+            collect();
+        } catch (RuntimeException e) {
+            logger.error("Failed to collect deleted files", e);
+        }
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to sweep storage", e);
+        }
+    }
+
+    /**
+     * Stops the background thread, letting a running pass finish. Queued
+     * deletions are picked up again after a restart.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -3,12 +3,17 @@ package com.studytool.filestorage;
 import java.time.Instant;
 import java.util.UUID;
 
+import com.studytool.database.ExtractionStatus;
+
 public record FileInfo(
     UUID fileId,
     String originalFilename,
     String storedFilename,
     long size,
     Instant uploadTime,
-    String filePath
+    String filePath,
+    ExtractionStatus extractionStatus,
+    Integer pageCount,
+    Long tokenEstimate
 ) {
 } 
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.studytool.filestorage;
+
+import java.util.List;
+
+/**
+ * One page of a user's file list, newest first.
+ *
+ * @param nextCursor Passed back to get the next page; null on the last page
+ */
+public record FileListing(
+    List<FileInfo> files,
+    String nextCursor
+) {
+}
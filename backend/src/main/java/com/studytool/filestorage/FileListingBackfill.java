@@ -0,0 +1,61 @@
+package com.studytool.filestorage;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.studytool.database.DatabaseConfig;
+import com.studytool.database.ScyllaManager;
+
+/**
+ * One-off tool that adds files stored before the files_by_user table
+ * existed to their owner's file list, so they show up in the paginated
+ * listing. Deleted files are skipped. Safe to re-run; existing entries are
+ * simply written again.
+ *
+ * Run with {@code gradle backfillFileListing} (add {@code --args=--dry-run}
+ * to only count).
+ */
+public class FileListingBackfill {
+    private static final Logger logger = LoggerFactory.getLogger(FileListingBackfill.class);
+
+    public static void main(String[] args) {
+        boolean dryRun = List.of(args).contains("--dry-run");
+        DatabaseConfig dbConfig = DatabaseConfig.fromEnvironment();
+        ScyllaManager scyllaManager = new ScyllaManager(
+            dbConfig.getContactPoint(),
+            dbConfig.getDatacenter(),
+            dbConfig.getKeyspace()
+        );
+
+        try {
+            scyllaManager.initialize();
+            CqlSession session = scyllaManager.getSession();
+            PreparedStatement insert = session.prepare(
+                "INSERT INTO files_by_user (user_id, upload_time, file_id) VALUES (?, ?, ?)"
+            );
+
+            long added = 0;
+            long skipped = 0;
+            // The driver fetches further pages transparently while iterating
+            for (Row row : session.execute("SELECT id, user_id, upload_time, deleted_at FROM files")) {
+                if (!row.isNull("deleted_at") || row.isNull("user_id") || row.isNull("upload_time")) {
+                    skipped++;
+                    continue;
+                }
+                if (!dryRun) {
+                    session.execute(insert.bind(row.getUuid("user_id"), row.getInstant("upload_time"), row.getUuid("id")));
+                }
+                added++;
+            }
+            logger.info("{} files {} the file list, {} deleted or incomplete rows skipped",
+                       added, dryRun ? "would be added to" : "added to", skipped);
+        } finally {
+            scyllaManager.close();
+        }
+    }
+}
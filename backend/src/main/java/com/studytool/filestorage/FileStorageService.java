@@ -1,23 +1,49 @@
 package com.studytool.filestorage;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.Arrays;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.io.ByteStreams;
+import com.studytool.database.ExtractionStatus;
+import com.studytool.database.FileBlobRepository;
+import com.studytool.database.FilePage;
 import com.studytool.database.FileRepository;
+import com.studytool.database.StorageUsage;
+import com.studytool.database.UploadSession;
+import com.studytool.database.UploadSessionRepository;
 import com.studytool.database.User;
 import com.studytool.database.UserRepository;
+import com.studytool.extraction.ExtractionWorkerPool;
+import com.studytool.extraction.OffHeapTextCache;
+import com.studytool.extraction.TextExtractionService;
+import com.studytool.extraction.TextStats;
+import com.studytool.extraction.TextWindow;
+import com.studytool.filestorage.blob.BlobStore;
+import com.studytool.search.SearchService;
 
 public class FileStorageService {
     private static final Logger logger = LoggerFactory.getLogger(FileStorageService.class);
@@ -25,13 +51,44 @@ public class FileStorageService {
     private final String baseStoragePath;
     private final FileRepository fileRepository;
     private final UserRepository userRepository;
-    private static final List<String> ALLOWED_EXTENSIONS = Arrays.asList(".txt", ".pdf");
+    private final FileBlobRepository fileBlobRepository;
+    private final UploadSessionRepository uploadSessionRepository;
+    private final TextExtractionService textExtractionService;
+    private final ExtractionWorkerPool extractionWorkers;
+    private final SearchService searchService;
+    private final BlobStore blobStore;
+    private final ExecutorService uploadExecutor;
+    private final StorageUsageTracker storageUsageTracker;
+    private final Path partDirectory;
+    // Files queued for re-indexing on this node, so a later requeue run doesn't queue them twice
+    private final Set<UUID> queuedIndexing = ConcurrentHashMap.newKeySet();
     private static final long MAX_FILE_SIZE = 10 * 1024 * 1024; // 10MB
+    private static final long MAX_RESUMABLE_FILE_SIZE = 1024L * 1024 * 1024; // 1GB
+    private static final long MAX_CHUNK_SIZE = 8 * 1024 * 1024; // 8MB, below the request size limit
+    private static final int MAX_PAGE_SIZE = 200;
+    static final int MAX_BATCH_FILES = 100;
+    // Allowance for multipart boundaries and part headers in an upload request
+    private static final long MULTIPART_OVERHEAD = 64 * 1024;
+    private static final Duration DOWNLOAD_URL_VALIDITY = Duration.ofMinutes(15);
+    static final String PART_DIRECTORY = "parts";
     
-    public FileStorageService(String baseStoragePath, FileRepository fileRepository, UserRepository userRepository) {
+    public FileStorageService(String baseStoragePath, FileRepository fileRepository, UserRepository userRepository,
+                              FileBlobRepository fileBlobRepository, UploadSessionRepository uploadSessionRepository,
+                              BlobStore blobStore, TextExtractionService textExtractionService,
+                              ExtractionWorkerPool extractionWorkers, SearchService searchService,
+                              ExecutorService uploadExecutor, StorageUsageTracker storageUsageTracker) {
         this.baseStoragePath = baseStoragePath;
         this.fileRepository = fileRepository;
         this.userRepository = userRepository;
+        this.fileBlobRepository = fileBlobRepository;
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.textExtractionService = textExtractionService;
+        this.extractionWorkers = extractionWorkers;
+        this.searchService = searchService;
+        this.blobStore = blobStore;
+        this.uploadExecutor = uploadExecutor;
+        this.storageUsageTracker = storageUsageTracker;
+        this.partDirectory = Paths.get(baseStoragePath, PART_DIRECTORY);
         initializeStorageDirectory();
     }
     
@@ -42,6 +99,7 @@ public class FileStorageService {
                 Files.createDirectories(storagePath);
                 logger.info("Created storage directory: {}", baseStoragePath);
             }
+            Files.createDirectories(partDirectory);
         } catch (IOException e) {
             logger.error("Failed to create storage directory: {}", baseStoragePath, e);
             throw new RuntimeException("Failed to initialize file storage", e);
@@ -63,49 +121,52 @@ public class FileStorageService {
         return user.get().getId();
     }
 
-    public FileUploadResult storeFile(String userId, String originalFilename, InputStream fileContent, long fileSize) {
-        validateFile(originalFilename, fileSize);
+    /**
+     * Checks an upload's request length before any of it is read, so
+     * oversized requests and requests that can't fit in the user's quota are
+     * turned away without receiving them. The length includes the multipart
+     * framing, so only what exceeds it by more than that framing is rejected
+     * here; the exact limits are applied while the content is stored.
+     * 
+     * @param requestLength The request's Content-Length, or -1 if unknown
+     * @param maxFiles Most files the request may carry
+     */
+    public void checkUploadLength(String userId, long requestLength, int maxFiles) {
+        if (requestLength < 0) {
+            return;
+        }
+        if (requestLength > maxFiles * MAX_FILE_SIZE + MULTIPART_OVERHEAD) {
+            throw new IllegalArgumentException("File size exceeds maximum allowed size of " + MAX_FILE_SIZE + " bytes");
+        }
+        storageUsageTracker.checkQuota(resolveUserIdFromUsername(userId),
+                                       Math.max(0, requestLength - MULTIPART_OVERHEAD));
+    }
+    
+    /**
+     * Stores a file straight from the request. The name is checked before
+     * any content is read; the content is hashed while it is written to a
+     * temp file, which is then moved into the blob store, so it is written
+     * to disk once.
+     * 
+     * @throws IllegalArgumentException if the file is not allowed, or turns out to be too large
+     */
+    public FileUploadResult storeFile(String userId, String originalFilename, InputStream fileContent) {
+        validateFile(originalFilename, 0);
         
         try {
             // Resolve username to UUID
             UUID userUuid = resolveUserIdFromUsername(userId);
             
-            // Create user-specific directory
-            Path userDirectory = createUserDirectory(userId);
-            
-            // Generate unique filename
-            String fileExtension = getFileExtension(originalFilename);
-            String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
-            Path targetPath = userDirectory.resolve(uniqueFilename);
-            
-            // Store the file
-            Files.copy(fileContent, targetPath, StandardCopyOption.REPLACE_EXISTING);
-            
-            // Create file record in database
-            com.studytool.database.File fileRecord = new com.studytool.database.File(
-                userUuid,
-                originalFilename,
-                uniqueFilename,
-                fileSize,
-                targetPath.toString()
-            );
-            
-            // Save to database
-            fileRecord = fileRepository.save(fileRecord);
-            
-            logger.info("File stored successfully: {} for user: {} with ID: {}", 
-                       uniqueFilename, userId, fileRecord.getId());
-            
-            return new FileUploadResult(
-                fileRecord.getId(),
-                uniqueFilename,
-                originalFilename,
-                targetPath.toString(),
-                fileSize,
-                userId,
-                fileRecord.getUploadTime()
-            );
+            long start = System.nanoTime();
+            SpooledContent content = spool(fileContent, MAX_FILE_SIZE);
+            try {
+                return commitFile(userId, userUuid, originalFilename, content, start);
+            } finally {
+                Files.deleteIfExists(content.path());
+            }
             
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (IOException e) {
             logger.error("Failed to store file: {} for user: {}", originalFilename, userId, e);
             throw new RuntimeException("Failed to store file", e);
@@ -115,39 +176,648 @@ public class FileStorageService {
         }
     }
     
-    public File getFile(String userId, String filename) {
-        Path userDirectory = Paths.get(baseStoragePath, userId);
-        Path filePath = userDirectory.resolve(filename);
+    /**
+     * Stores several files at once, as they arrive in one request. Each file
+     * is hashed and written to disk as it is read; moving it into the blob
+     * store and recording it then runs on the upload executor while the next
+     * file is read. A file that fails doesn't affect the others, and files
+     * beyond {@link #MAX_BATCH_FILES} are rejected one by one.
+     * 
+     * If the request itself breaks off, the files read before that are
+     * still stored and reported.
+     * 
+     * @return One result per file, in the order sent
+     */
+    public List<BatchUploadResult> storeFiles(String userId, BatchUploadFile.Source files) throws IOException {
+        long start = System.nanoTime();
+        UUID userUuid = resolveUserIdFromUsername(userId);
+        
+        List<CompletableFuture<BatchUploadResult>> pending = new ArrayList<>();
+        try {
+            BatchUploadFile file;
+            while ((file = files.next()) != null) {
+                pending.add(storeBatchFile(userId, userUuid, file, pending.size()));
+            }
+        } catch (IOException e) {
+            if (pending.isEmpty()) {
+                throw e;
+            }
+            logger.warn("Batch upload for user: {} broke off after {} files: {}", userId, pending.size(),
+                       e.getMessage());
+        }
+        if (pending.isEmpty()) {
+            throw new IllegalArgumentException("No files uploaded");
+        }
+        
+        List<BatchUploadResult> results = new ArrayList<>(pending.size());
+        for (CompletableFuture<BatchUploadResult> result : pending) {
+            results.add(result.join());
+        }
+        
+        long failed = results.stream().filter(result -> result.error() != null).count();
+        logger.info("Stored batch of {} files ({} failed) for user: {} in {} ms", results.size(), failed, userId,
+                   (System.nanoTime() - start) / 1_000_000);
+        return results;
+    }
+    
+    /**
+     * Reads one file of a batch to disk and hands the rest of its storing to
+     * the upload executor. A read error other than a rejected file ends the
+     * batch, since the request can't be read any further.
+     */
+    private CompletableFuture<BatchUploadResult> storeBatchFile(String userId, UUID userUuid, BatchUploadFile file,
+                                                                int index) throws IOException {
+        long start = System.nanoTime();
+        SpooledContent content;
+        try {
+            if (index >= MAX_BATCH_FILES) {
+                throw new IllegalArgumentException("At most " + MAX_BATCH_FILES + " files can be uploaded at once");
+            }
+            validateFile(file.filename(), 0);
+            content = spool(file.content(), MAX_FILE_SIZE);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(BatchUploadResult.failed(file.filename(), e.getMessage()));
+        }
         
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return BatchUploadResult.stored(commitFile(userId, userUuid, file.filename(), content, start));
+            } catch (IllegalArgumentException e) {
+                return BatchUploadResult.failed(file.filename(), e.getMessage());
+            } catch (IOException | RuntimeException e) {
+                logger.error("Failed to store file: {} for user: {}", file.filename(), userId, e);
+                return BatchUploadResult.failed(file.filename(), "File upload failed");
+            } finally {
+                try {
+                    Files.deleteIfExists(content.path());
+                } catch (IOException e) {
+                    logger.warn("Failed to delete upload temp file: {}", content.path(), e);
+                }
+            }
+        }, uploadExecutor);
+    }
+    
+    /**
+     * Moves spooled content into the blob store and records the file, once
+     * its size is known to fit in the user's quota.
+     */
+    private FileUploadResult commitFile(String userId, UUID userUuid, String originalFilename, SpooledContent content,
+                                        long startNanos) throws IOException {
+        try (StorageUsageTracker.Reservation reservation = storageUsageTracker.reserve(userUuid, content.size())) {
+            // Store the content once, shared by every upload of the same bytes
+            StoredBlob blob = commitBlob(content.path(), content.hash(), content.size(), originalFilename, startNanos);
+            
+            return saveFileRecord(userId, userUuid, originalFilename, blob);
+        }
+    }
+    
+    /**
+     * Starts a resumable upload. The content is then sent with
+     * {@link #appendChunk} and turned into a file by {@link #completeUpload}.
+     */
+    public UploadSession startUpload(String userId, String originalFilename, long fileSize) {
+        validateFile(originalFilename, fileSize, MAX_RESUMABLE_FILE_SIZE);
+        
+        try {
+            UUID userUuid = resolveUserIdFromUsername(userId);
+            // Checked again on completion; room isn't held for uploads that may never finish
+            storageUsageTracker.checkQuota(userUuid, fileSize);
+            
+            UploadSession upload = new UploadSession(userUuid, originalFilename, fileSize, null);
+            Path partPath = partDirectory.resolve(upload.getUploadId() + ".part");
+            Files.createFile(partPath);
+            upload.setPartPath(partPath.toString());
+            
+            uploadSessionRepository.save(upload);
+            logger.info("Started upload {} of {} ({} bytes) for user: {}",
+                       upload.getUploadId(), originalFilename, fileSize, userId);
+            return upload;
+        } catch (IOException e) {
+            logger.error("Failed to start upload: {} for user: {}", originalFilename, userId, e);
+            throw new RuntimeException("Failed to start upload", e);
+        }
+    }
+    
+    /**
+     * Largest chunk accepted by {@link #appendChunk}.
+     */
+    public long getMaxChunkSize() {
+        return MAX_CHUNK_SIZE;
+    }
+    
+    /**
+     * Returns the state of a resumable upload, so a client can resume from
+     * the received offset after a dropped connection.
+     */
+    public UploadSession getUpload(String userId, UUID uploadId) {
+        UUID userUuid = resolveUserIdFromUsername(userId);
+        Optional<UploadSession> upload = uploadSessionRepository.findById(uploadId);
+        if (upload.isEmpty() || !upload.get().getUserId().equals(userUuid)) {
+            throw new RuntimeException("Upload not found: " + uploadId);
+        }
+        return upload.get();
+    }
+    
+    /**
+     * Writes one chunk of a resumable upload at the given offset. The chunk
+     * is streamed into a file of its own and hashed on the way; only if its
+     * SHA-256 matches the one the client sent and this request claims the
+     * offset is it copied into the part file. Two requests for the same
+     * offset (a client retrying on another node) therefore never write to
+     * the part file at once.
+     * 
+     * @param offset Must equal the number of bytes received so far
+     * @param length Size of the chunk in bytes
+     * @param sha256 Hex SHA-256 of the chunk
+     * @return The upload with its new received offset
+     * @throws UploadOffsetException if the offset isn't the one the upload is at
+     * @throws IllegalArgumentException if the chunk is too large, short or corrupt
+     */
+    public UploadSession appendChunk(String userId, UUID uploadId, long offset, long length, String sha256,
+                                     InputStream data) throws IOException {
+        UploadSession upload = getUpload(userId, uploadId);
+        if (offset != upload.getReceived()) {
+            throw new UploadOffsetException(upload.getReceived());
+        }
+        if (length <= 0 || length > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Chunk size must be between 1 and " + MAX_CHUNK_SIZE + " bytes");
+        }
+        if (offset + length > upload.getTotalSize()) {
+            throw new IllegalArgumentException("Chunk extends past the declared file size");
+        }
+        if (sha256 == null || sha256.isBlank()) {
+            throw new IllegalArgumentException("Chunk checksum is required");
+        }
+        
+        // Left behind by a crash, the chunk file is removed with expired part files
+        Path chunkPath = partDirectory.resolve(uploadId + "." + UUID.randomUUID() + ".chunk");
+        try {
+            HashingInputStream hashingData = new HashingInputStream(Hashing.sha256(), data);
+            ReadableByteChannel source = Channels.newChannel(hashingData);
+            try (FileChannel chunk = FileChannel.open(chunkPath, StandardOpenOption.CREATE_NEW,
+                                                      StandardOpenOption.WRITE)) {
+                long written = 0;
+                while (written < length) {
+                    long transferred = chunk.transferFrom(source, written, length - written);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    written += transferred;
+                }
+                if (written != length) {
+                    throw new IllegalArgumentException("Chunk ended after " + written + " of " + length + " bytes");
+                }
+                if (!hashingData.hash().toString().equalsIgnoreCase(sha256.trim())) {
+                    throw new IllegalArgumentException("Chunk checksum mismatch");
+                }
+            }
+            
+            if (!uploadSessionRepository.advance(uploadId, offset, offset + length)) {
+                // Another request for the same chunk got there first
+                throw new UploadOffsetException(getUpload(userId, uploadId).getReceived());
+            }
+            try (FileChannel chunk = FileChannel.open(chunkPath, StandardOpenOption.READ);
+                 FileChannel part = FileChannel.open(Paths.get(upload.getPartPath()), StandardOpenOption.WRITE)) {
+                long copied = 0;
+                while (copied < length) {
+                    long transferred = part.transferFrom(chunk, offset + copied, length - copied);
+                    if (transferred <= 0) {
+                        throw new IOException("Chunk file ended after " + copied + " of " + length + " bytes");
+                    }
+                    copied += transferred;
+                }
+                // Make the chunk durable before the client moves on to the next one
+                part.force(false);
+            } catch (IOException | RuntimeException e) {
+                // Hand the offset back so the client's retry of this chunk is accepted
+                uploadSessionRepository.advance(uploadId, offset + length, offset);
+                throw e;
+            }
+        } finally {
+            Files.deleteIfExists(chunkPath);
+        }
+        upload.setReceived(offset + length);
+        return upload;
+    }
+    
+    /**
+     * Turns a fully received upload into a stored file.
+     * 
+     * @throws UploadOffsetException if not every byte has been received yet
+     */
+    public FileUploadResult completeUpload(String userId, UUID uploadId) {
+        UploadSession upload = getUpload(userId, uploadId);
+        if (!upload.isComplete()) {
+            throw new UploadOffsetException(upload.getReceived());
+        }
+        
+        Path partPath = Paths.get(upload.getPartPath());
+        try (StorageUsageTracker.Reservation reservation =
+                 storageUsageTracker.reserve(upload.getUserId(), upload.getTotalSize())) {
+            // Chunks may have arrived on different nodes, so hash the assembled file once here
+            long start = System.nanoTime();
+            String contentHash = com.google.common.io.Files.asByteSource(partPath.toFile())
+                .hash(Hashing.sha256())
+                .toString();
+            StoredBlob blob = commitBlob(partPath, contentHash, upload.getTotalSize(), upload.getOriginalFilename(),
+                                         start);
+            
+            // Already stored content leaves the part file behind
+            Files.deleteIfExists(partPath);
+            uploadSessionRepository.deleteById(uploadId);
+            return saveFileRecord(userId, upload.getUserId(), upload.getOriginalFilename(), blob);
+        } catch (IOException e) {
+            logger.error("Failed to complete upload: {} for user: {}", uploadId, userId, e);
+            throw new RuntimeException("Failed to complete upload", e);
+        }
+    }
+    
+    /**
+     * Creates the user's file record for a stored blob, releasing the blob
+     * reference again if the record can't be saved.
+     */
+    private FileUploadResult saveFileRecord(String userId, UUID userUuid, String originalFilename, StoredBlob blob)
+            throws IOException {
+        // Generate unique filename; this is the user's handle for the file
+        String fileExtension = getFileExtension(originalFilename);
+        String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
+        
+        // Create file record in database
+        com.studytool.database.File fileRecord = new com.studytool.database.File(
+            userUuid,
+            originalFilename,
+            uniqueFilename,
+            blob.size(),
+            blob.location()
+        );
+        fileRecord.setContentHash(blob.contentHash());
+        fileRecord.setExtractionStatus(ExtractionStatus.PENDING);
+        
+        // Save to database
+        try {
+            fileRecord = fileRepository.save(fileRecord);
+        } catch (RuntimeException e) {
+            releaseBlob(blob.contentHash(), textCacheKey(blob.contentHash(), uniqueFilename));
+            throw e;
+        }
+        
+        logger.info("File stored successfully: {} for user: {} with ID: {}", 
+                   uniqueFilename, userId, fileRecord.getId());
+        storageUsageTracker.recordStored(userUuid, blob.size());
+        
+        // Have the text ready by the time the user asks for AI features
+        scheduleExtraction(fileRecord);
+        
+        return new FileUploadResult(
+            fileRecord.getId(),
+            uniqueFilename,
+            originalFilename,
+            blob.location(),
+            blob.size(),
+            userId,
+            fileRecord.getUploadTime()
+        );
+    }
+    
+    /**
+     * Finds a file record owned by the user.
+     * 
+     * @throws RuntimeException if the file doesn't exist or belongs to someone else
+     */
+    private com.studytool.database.File findUserFile(String userId, String filename) {
+        UUID userUuid = resolveUserIdFromUsername(userId);
+        Optional<com.studytool.database.File> fileRecord = fileRepository.findByStoredFilename(filename);
+        if (fileRecord.isEmpty() || !fileRecord.get().getUserId().equals(userUuid)) {
+            throw new RuntimeException("File not found: " + filename);
+        }
+        return fileRecord.get();
+    }
+    
+    /**
+     * Looks up a user's file for serving. Deduplicated files get a strong
+     * ETag from their content hash; older files fall back to a weak one
+     * from size and modification time.
+     */
+    public FileDownload getDownload(String userId, String filename) throws IOException {
+        com.studytool.database.File fileRecord = findUserFile(userId, filename);
+        String contentHash = fileRecord.getContentHash();
+        Instant lastModified = fileRecord.getUploadTime();
+        
+        if (contentHash != null) {
+            String etag = "\"" + contentHash + "\"";
+            Optional<Path> localPath = blobStore.localPath(contentHash);
+            if (localPath.isPresent()) {
+                if (!Files.exists(localPath.get())) {
+                    throw new RuntimeException("File not found: " + filename);
+                }
+                return new FileDownload(localPath.get(), null, filename, fileRecord.getFileSize(), etag, lastModified);
+            }
+            // Remote blob: send the client straight to the object store
+            URI redirect = blobStore.presignedDownloadUrl(contentHash, filename, DOWNLOAD_URL_VALIDITY)
+                .orElseThrow(() -> new IllegalStateException("Blob store can't serve downloads"));
+            return new FileDownload(null, redirect, filename, fileRecord.getFileSize(), etag, lastModified);
+        }
+        
+        Path filePath = Paths.get(fileRecord.getFilePath());
         if (!Files.exists(filePath)) {
             throw new RuntimeException("File not found: " + filename);
         }
         
-        return filePath.toFile();
+        long size = Files.size(filePath);
+        String etag = "W/\"" + size + "-" + Files.getLastModifiedTime(filePath).toMillis() + "\"";
+        return new FileDownload(filePath, null, filename, size, etag, lastModified);
+    }
+    
+    /**
+     * Opens the extracted text of a user's file. Files with the same content
+     * share one cached extraction.
+     * 
+     * @return A stream of UTF-8 text; the caller must close it
+     */
+    public InputStream openFileText(String userId, String filename) throws IOException {
+        com.studytool.database.File fileRecord = findUserFile(userId, filename);
+        return textExtractionService.openText(extractedTextSource(fileRecord), textCacheKey(fileRecord));
+    }
+    
+    /**
+     * The extracted text of a user's file, held in direct memory so it can
+     * be written out without copying it onto the heap.
+     * 
+     * @return The text, which the caller must close, or empty if it is too
+     *         large to cache; then use {@link #openFileText}
+     */
+    public Optional<OffHeapTextCache.CachedText> cachedFileText(String userId, String filename) throws IOException {
+        com.studytool.database.File fileRecord = findUserFile(userId, filename);
+        return textExtractionService.cachedText(extractedTextSource(fileRecord), textCacheKey(fileRecord));
+    }
+    
+    /**
+     * Reads the extracted text of several of a user's files, separated by
+     * blank lines, for building a prompt from them.
+     */
+    public String readFilesText(String userId, List<String> filenames) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (String filename : filenames) {
+            com.studytool.database.File fileRecord = findUserFile(userId, filename);
+            if (text.length() > 0) {
+                text.append("\n\n");
+            }
+            text.append(textExtractionService.readString(extractedTextSource(fileRecord), textCacheKey(fileRecord)));
+        }
+        return text.toString();
+    }
+    
+    /**
+     * Reads a window of the extracted text of a user's file.
+     * 
+     * @param offset First char to read
+     * @param length Most chars to read
+     */
+    public TextWindow readFileText(String userId, String filename, long offset, int length) throws IOException {
+        com.studytool.database.File fileRecord = findUserFile(userId, filename);
+        return textExtractionService.readText(extractedTextSource(fileRecord), textCacheKey(fileRecord), offset, length);
+    }
+    
+    /**
+     * Reads the extracted text of one page of a user's file.
+     * 
+     * @param page One-based page number
+     * @param maxLength Most chars to read; longer pages are cut off
+     */
+    public TextWindow readFileTextPage(String userId, String filename, int page, int maxLength) throws IOException {
+        com.studytool.database.File fileRecord = findUserFile(userId, filename);
+        return textExtractionService.readPage(extractedTextSource(fileRecord), textCacheKey(fileRecord), page, maxLength);
+    }
+    
+    /**
+     * Makes sure a file's text has been extracted.
+     * 
+     * @return The stored file to extract from if the cached text goes
+     *         missing, or null if it isn't on local disk
+     */
+    private Path extractedTextSource(com.studytool.database.File fileRecord) throws IOException {
+        if (!textExtractionService.isCached(textCacheKey(fileRecord))) {
+            // Still queued, or stored before background extraction: extract now
+            extractFileText(fileRecord);
+        }
+        String contentHash = fileRecord.getContentHash();
+        return contentHash == null
+            ? Paths.get(fileRecord.getFilePath())
+            : blobStore.localPath(contentHash).orElse(null);
+    }
+    
+    private static String textCacheKey(com.studytool.database.File fileRecord) {
+        return textCacheKey(fileRecord.getContentHash(), fileRecord.getStoredFilename());
+    }
+    
+    /**
+     * Queues background text extraction for a file. If the queue is full
+     * the extraction runs on the calling thread.
+     */
+    private void scheduleExtraction(com.studytool.database.File fileRecord) {
+        extractionWorkers.submit(extractionTask(fileRecord));
+    }
+    
+    private Runnable extractionTask(com.studytool.database.File fileRecord) {
+        return () -> {
+            try {
+                extractFileText(fileRecord);
+            } catch (Exception e) {
+                logger.error("Background text extraction failed for file: {}", fileRecord.getId(), e);
+            }
+        };
+    }
+    
+    /**
+     * Queues extraction again for a file whose extraction never ran or was
+     * lost, and marks it pending once the task is accepted.
+     *
+     * @return false if the queue is full and nothing was queued
+     */
+    boolean tryRequeueExtraction(com.studytool.database.File fileRecord) {
+        ExtractionStatus status = fileRecord.getExtractionStatus();
+        if (!extractionWorkers.trySubmit(extractionTask(fileRecord))) {
+            return false;
+        }
+        fileRepository.markExtractionQueued(fileRecord.getId(), fileRecord.getUserId(), status);
+        return true;
+    }
+    
+    /**
+     * Queues a file whose text was indexed with an older index format (or
+     * not at all) to be indexed again. Its extraction status is left alone;
+     * the text stays usable meanwhile.
+     *
+     * @return false if the queue is full and nothing was queued
+     */
+    boolean tryRequeueIndexing(com.studytool.database.File fileRecord) {
+        UUID fileId = fileRecord.getId();
+        if (!queuedIndexing.add(fileId)) {
+            return true;
+        }
+        boolean queued = extractionWorkers.trySubmit(() -> {
+            try {
+                indexFileText(fileRecord);
+            } catch (Exception e) {
+                logger.error("Background indexing failed for file: {}", fileId, e);
+            } finally {
+                queuedIndexing.remove(fileId);
+            }
+        });
+        if (!queued) {
+            queuedIndexing.remove(fileId);
+        }
+        return queued;
+    }
+    
+    /**
+     * Extracts a file's text (or reuses the text already extracted from the
+     * same content), records the status, page count and token estimate on
+     * the file and adds the text to the owner's search index. Indexing comes
+     * after the text is recorded as ready and doesn't change that status if
+     * it fails; the requeuer indexes the file again later.
+     */
+    private TextStats extractFileText(com.studytool.database.File fileRecord) throws IOException {
+        UUID fileId = fileRecord.getId();
+        if (!fileRepository.updateExtraction(fileId, fileRecord.getUserId(), ExtractionStatus.PROCESSING, null, null)) {
+            logger.debug("Skipping text extraction for deleted file: {}", fileId);
+            return null;
+        }
+        
+        TextStats stats;
+        try {
+            stats = extractText(fileRecord);
+            if (!fileRepository.updateExtraction(fileId, fileRecord.getUserId(), ExtractionStatus.READY, stats.pageCount(),
+                                                 stats.tokenEstimate())) {
+                logger.debug("File {} was deleted while extracting its text", fileId);
+                return stats;
+            }
+        } catch (IOException | RuntimeException e) {
+            fileRepository.updateExtraction(fileId, fileRecord.getUserId(), ExtractionStatus.FAILED, null, null);
+            throw e;
+        }
+        logger.info("Text ready for file {}: {} pages, ~{} tokens", fileId, stats.pageCount(), stats.tokenEstimate());
+        
+        Integer indexVersion = fileRecord.getSearchIndexVersion();
+        if (indexVersion == null || indexVersion < SearchService.INDEX_VERSION
+                || !searchService.isIndexed(fileRecord.getUserId(), fileId)) {
+            try {
+                indexText(fileRecord);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Failed to index file {}: {}", fileId, e.getMessage());
+            }
+        }
+        return stats;
+    }
+    
+    /**
+     * Indexes a file whose text is already extracted, extracting it again
+     * only if its sidecar has been evicted.
+     */
+    private void indexFileText(com.studytool.database.File fileRecord) throws IOException {
+        extractText(fileRecord);
+        indexText(fileRecord);
+        logger.info("Re-indexed file {}", fileRecord.getId());
     }
     
-    public List<FileInfo> getUserFiles(String userId) {
+    /**
+     * Adds a file's extracted text to its owner's index and records the
+     * index version on the file.
+     */
+    private void indexText(com.studytool.database.File fileRecord) throws IOException {
+        UUID fileId = fileRecord.getId();
+        String cacheKey = textCacheKey(fileRecord.getContentHash(), fileRecord.getStoredFilename());
+        try (InputStream text = textExtractionService.openText(null, cacheKey)) {
+            searchService.indexFile(fileRecord.getUserId(), fileId, text);
+        }
+        if (!fileRepository.updateSearchIndexVersion(fileId, fileRecord.getUserId(), SearchService.INDEX_VERSION)) {
+            // Collected while indexing; don't leave it in the index
+            searchService.removeFile(fileRecord.getUserId(), fileId);
+        }
+    }
+    
+    private TextStats extractText(com.studytool.database.File fileRecord) throws IOException {
+        String contentHash = fileRecord.getContentHash();
+        String cacheKey = textCacheKey(contentHash, fileRecord.getStoredFilename());
+        
+        if (contentHash == null) {
+            return textExtractionService.extract(Paths.get(fileRecord.getFilePath()), cacheKey);
+        }
+        Optional<Path> localPath = blobStore.localPath(contentHash);
+        if (localPath.isPresent() || textExtractionService.isCached(cacheKey)) {
+            return textExtractionService.extract(localPath.orElse(null), cacheKey);
+        }
+        
+        // Remote blob that hasn't been extracted yet: fetch a scratch copy to extract from
+        Path scratch = Files.createTempFile(partDirectory, "extract-", getFileExtension(fileRecord.getStoredFilename()));
+        try {
+            try (InputStream in = blobStore.get(contentHash)) {
+                Files.copy(in, scratch, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return textExtractionService.extract(scratch, cacheKey);
+        } finally {
+            Files.deleteIfExists(scratch);
+        }
+    }
+    
+    /**
+     * How much the user has stored, from the usage counters.
+     */
+    public StorageUsage getUsage(String userId) {
+        return storageUsageTracker.getUsage(resolveUserIdFromUsername(userId));
+    }
+    
+    /**
+     * @return The per-user storage quota in bytes, or 0 if there is none
+     */
+    public long getQuotaBytes() {
+        return storageUsageTracker.getQuotaBytes();
+    }
+    
+    /**
+     * Lists one page of the user's files, newest first.
+     * 
+     * @param pageSize Maximum number of files on the page
+     * @param cursor The previous page's next cursor, or null for the first page
+     * @throws IllegalArgumentException if the page size or cursor is invalid
+     */
+    public FileListing getUserFiles(String userId, int pageSize, String cursor) {
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        
         try {
             UUID userUuid = resolveUserIdFromUsername(userId);
-            List<com.studytool.database.File> fileRecords = fileRepository.findByUserId(userUuid);
+            FilePage page = fileRepository.findPageByUserId(userUuid, pageSize, cursor);
+            List<com.studytool.database.File> fileRecords = page.files();
             
-            return fileRecords.stream()
+            List<FileInfo> files = fileRecords.stream()
                 .map(fileRecord -> new FileInfo(
                     fileRecord.getId(),
                     fileRecord.getOriginalFilename(),
                     fileRecord.getStoredFilename(),
                     fileRecord.getFileSize(),
                     fileRecord.getUploadTime(),
-                    fileRecord.getFilePath()
+                    fileRecord.getFilePath(),
+                    fileRecord.getExtractionStatus(),
+                    fileRecord.getPageCount(),
+                    fileRecord.getTokenEstimate()
                 ))
                 .toList();
+            return new FileListing(files, page.nextCursor());
                 
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Failed to list files for user: {}", userId, e);
             throw new RuntimeException("Failed to list user files", e);
         }
     }
     
+    /**
+     * Deletes a user's file. The file is gone for the user at once; its
+     * content is removed in the background.
+     */
     public boolean deleteFile(String userId, String filename) {
         try {
             // Resolve username to UUID
@@ -165,22 +835,14 @@ public class FileStorageService {
                     return false;
                 }
                 
-                // Delete physical file
-                Path filePath = Paths.get(file.getFilePath());
-                if (Files.exists(filePath)) {
-                    Files.delete(filePath);
-                }
-                
-                // Delete database record
-                fileRepository.deleteById(file.getId());
+                // Hide the file now; FileGarbageCollector removes its content in the background
+                fileRepository.tombstone(file);
+                storageUsageTracker.recordDeleted(userUuid, file.getFileSize());
                 
                 logger.info("File deleted: {} for user: {}", filename, userId);
                 return true;
             }
             
-            return false;
-        } catch (IOException e) {
-            logger.error("Failed to delete file: {} for user: {}", filename, userId, e);
             return false;
         } catch (Exception e) {
             logger.error("Failed to delete file record: {} for user: {}", filename, userId, e);
@@ -188,31 +850,113 @@ public class FileStorageService {
         }
     }
     
-    private Path createUserDirectory(String userId) throws IOException {
-        Path userDirectory = Paths.get(baseStoragePath, userId);
-        if (!Files.exists(userDirectory)) {
-            Files.createDirectories(userDirectory);
-            logger.info("Created user directory for: {}", userId);
+    /**
+     * Streams the upload into a temp file while hashing it, stopping as soon
+     * as it exceeds the size limit. The caller deletes the temp file, which
+     * {@link #commitBlob} may already have moved into the blob store.
+     * 
+     * @throws IllegalArgumentException if the content is larger than maxSize
+     */
+    private SpooledContent spool(InputStream fileContent, long maxSize) throws IOException {
+        Path tempPath = Files.createTempFile(partDirectory, "upload-", ".tmp");
+        try {
+            HashingInputStream hashingContent = new HashingInputStream(Hashing.sha256(),
+                                                                       ByteStreams.limit(fileContent, maxSize + 1));
+            long size = Files.copy(hashingContent, tempPath, StandardCopyOption.REPLACE_EXISTING);
+            if (size > maxSize) {
+                throw new IllegalArgumentException("File size exceeds maximum allowed size of " + maxSize + " bytes");
+            }
+            return new SpooledContent(tempPath, hashingContent.hash().toString(), size);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempPath);
+            throw e;
+        }
+    }
+    
+    private record SpooledContent(Path path, String hash, long size) {
+    }
+    
+    /**
+     * Adds a reference to the blob for the content in the given file, putting
+     * the file in the blob store if the content isn't stored yet. The file
+     * may be moved; whatever is left is for the caller to delete. If the
+     * content can't be stored the reference is released again.
+     * 
+     * @param filename The uploaded file's name, whose extension keys its extracted text
+     */
+    private StoredBlob commitBlob(Path contentPath, String contentHash, long size, String filename, long startNanos)
+            throws IOException {
+        String location = blobStore.location(contentHash);
+        
+        boolean created = fileBlobRepository.addReference(contentHash, size, location);
+        if (created || !blobStore.exists(contentHash)) {
+            try {
+                blobStore.put(contentHash, contentPath);
+            } catch (IOException | RuntimeException e) {
+                try {
+                    releaseBlob(contentHash, textCacheKey(contentHash, filename));
+                } catch (IOException | RuntimeException releaseFailure) {
+                    e.addSuppressed(releaseFailure);
+                }
+                throw e;
+            }
         }
-        return userDirectory;
+        
+        logger.info("Stored blob {} ({} bytes, {}) in {} ms", contentHash, size,
+                   created ? "new" : "deduplicated, " + size + " bytes saved",
+                   (System.nanoTime() - startNanos) / 1_000_000);
+        return new StoredBlob(contentHash, location, size);
+    }
+    
+    /**
+     * Drops one reference to a blob and deletes its content and cached text
+     * once nothing references it any more.
+     */
+    private void releaseBlob(String contentHash, String cacheKey) throws IOException {
+        if (fileBlobRepository.removeReference(contentHash)) {
+            blobStore.delete(contentHash);
+            textExtractionService.invalidate(cacheKey);
+            fileBlobRepository.finishDelete(contentHash);
+            logger.info("Deleted blob {} (no references left)", contentHash);
+        }
+    }
+    
+    /**
+     * Key for the extracted text cache. Deduplicated files are keyed by
+     * content so every copy shares one extraction; the extension is kept
+     * because it selects the extractor.
+     */
+    static String textCacheKey(String contentHash, String storedFilename) {
+        if (contentHash == null) {
+            return storedFilename;
+        }
+        return contentHash + getFileExtension(storedFilename).toLowerCase();
+    }
+    
+    private record StoredBlob(String contentHash, String location, long size) {
     }
     
     private void validateFile(String filename, long fileSize) {
+        validateFile(filename, fileSize, MAX_FILE_SIZE);
+    }
+    
+    private void validateFile(String filename, long fileSize, long maxFileSize) {
         if (filename == null || filename.trim().isEmpty()) {
             throw new IllegalArgumentException("Filename cannot be empty");
         }
         
-        if (fileSize > MAX_FILE_SIZE) {
-            throw new IllegalArgumentException("File size exceeds maximum allowed size of " + MAX_FILE_SIZE + " bytes");
+        if (fileSize > maxFileSize) {
+            throw new IllegalArgumentException("File size exceeds maximum allowed size of " + maxFileSize + " bytes");
         }
         
-        String extension = getFileExtension(filename).toLowerCase();
-        if (!ALLOWED_EXTENSIONS.contains(extension)) {
-            throw new IllegalArgumentException("File type not allowed. Supported types: " + ALLOWED_EXTENSIONS);
+        // Only formats text can be extracted from are useful for study material
+        if (!textExtractionService.isSupported(filename)) {
+            throw new IllegalArgumentException("File type not allowed. Supported types: "
+                + textExtractionService.supportedExtensions());
         }
     }
     
-    private String getFileExtension(String filename) {
+    private static String getFileExtension(String filename) {
         int lastDotIndex = filename.lastIndexOf('.');
         if (lastDotIndex == -1) {
             return "";
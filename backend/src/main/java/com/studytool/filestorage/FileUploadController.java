@@ -1,27 +1,62 @@
 package com.studytool.filestorage;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 
+import org.eclipse.jetty.server.HttpOutput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.studytool.database.StorageUsage;
+import com.studytool.database.UploadSession;
+import com.studytool.extraction.OffHeapTextCache;
+import com.studytool.extraction.TextExtractionService;
+import com.studytool.extraction.TextWindow;
+
 import io.javalin.Javalin;
+import io.javalin.http.ContentType;
 import io.javalin.http.Context;
-import io.javalin.http.UploadedFile;
+import jakarta.servlet.ServletOutputStream;
 
 public class FileUploadController {
     private static final Logger logger = LoggerFactory.getLogger(FileUploadController.class);
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    // Chars of text returned by one windowed text request, by default and at most
+    private static final int DEFAULT_TEXT_WINDOW = 64 * 1024;
+    private static final int MAX_TEXT_WINDOW = 1024 * 1024;
     
     private final FileStorageService fileStorageService;
+    private final TextExtractionService textExtractionService;
+    private final ObjectMapper objectMapper;
+    private final FileDownloadResponder downloadResponder;
     
-    public FileUploadController(FileStorageService fileStorageService) {
+    public FileUploadController(FileStorageService fileStorageService, TextExtractionService textExtractionService,
+                                ObjectMapper objectMapper) {
         this.fileStorageService = fileStorageService;
+        this.textExtractionService = textExtractionService;
+        this.objectMapper = objectMapper;
+        this.downloadResponder = new FileDownloadResponder(textExtractionService::contentType);
     }
     
     public void registerRoutes(Javalin app) {
         app.post("/api/files/upload", this::uploadFile);
+        app.post("/api/files/batch", this::uploadBatch);
+        app.post("/api/files/uploads", this::startUpload);
+        app.get("/api/files/uploads/{uploadId}", this::getUpload);
+        app.put("/api/files/uploads/{uploadId}", this::uploadChunk);
+        app.post("/api/files/uploads/{uploadId}/complete", this::completeUpload);
         app.get("/api/files", this::listFiles);
+        app.get("/api/files/usage", this::getUsage);
         app.get("/api/files/{filename}", this::downloadFile);
         app.get("/api/files/text/{filename}", this::downloadFileAsText);
         app.delete("/api/files/{filename}", this::deleteFile);
@@ -32,19 +67,253 @@ public class FileUploadController {
             // Get user ID from session or auth header (for now, we'll use a placeholder)
             String userId = getUserId(ctx);
             
-            UploadedFile uploadedFile = ctx.uploadedFile("file");
-            if (uploadedFile == null) {
+            // Turn away oversized uploads before reading them
+            fileStorageService.checkUploadLength(userId, ctx.req().getContentLengthLong(), 1);
+            
+            MultipartReader multipart = MultipartReader.open(ctx.contentType(), ctx.req().getInputStream());
+            MultipartReader.Part part = nextFilePart(multipart, "file");
+            if (part == null) {
                 ctx.status(400).json(Map.of("error", "No file uploaded"));
                 return;
             }
             
-            FileUploadResult result = fileStorageService.storeFile(
+            FileUploadResult result = fileStorageService.storeFile(userId, part.filename(), part.content());
+            
+            ctx.status(200).json(Map.of(
+                "message", "File uploaded successfully",
+                "file", fileJson(result)
+            ));
+            
+        } catch (StorageQuotaExceededException e) {
+            ctx.status(413).json(Map.of("error", e.getMessage(), "quotaBytes", e.getQuotaBytes()));
+        } catch (IllegalArgumentException e) {
+            logger.warn("File upload validation error: {}", e.getMessage());
+            ctx.status(400).json(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            logger.warn("File upload could not be read: {}", e.getMessage());
+            ctx.status(400).json(Map.of("error", "Upload could not be read"));
+        } catch (Exception e) {
+            logger.error("File upload error", e);
+            ctx.status(500).json(Map.of("error", "File upload failed"));
+        }
+    }
+    
+    /**
+     * Uploads several files in one request, sent as multipart "files"
+     * parts. Each file is stored as it arrives and gets its own result, so
+     * one rejected file doesn't fail the batch.
+     */
+    private void uploadBatch(Context ctx) {
+        try {
+            String userId = getUserId(ctx);
+            
+            fileStorageService.checkUploadLength(userId, ctx.req().getContentLengthLong(),
+                                                 FileStorageService.MAX_BATCH_FILES);
+            
+            MultipartReader multipart = MultipartReader.open(ctx.contentType(), ctx.req().getInputStream());
+            List<BatchUploadResult> results = fileStorageService.storeFiles(userId, () -> {
+                MultipartReader.Part part = nextFilePart(multipart, "files");
+                return part == null ? null : new BatchUploadFile(part.filename(), part.content());
+            });
+            
+            List<Map<String, Object>> resultsJson = new ArrayList<>(results.size());
+            int uploaded = 0;
+            for (BatchUploadResult result : results) {
+                Map<String, Object> resultJson = new LinkedHashMap<>();
+                resultJson.put("originalFilename", result.originalFilename());
+                if (result.file() != null) {
+                    resultJson.put("file", fileJson(result.file()));
+                    uploaded++;
+                } else {
+                    resultJson.put("error", result.error());
+                }
+                resultsJson.add(resultJson);
+            }
+            
+            ctx.status(200).json(Map.of(
+                "uploaded", uploaded,
+                "failed", results.size() - uploaded,
+                "results", resultsJson
+            ));
+            
+        } catch (StorageQuotaExceededException e) {
+            ctx.status(413).json(Map.of("error", e.getMessage(), "quotaBytes", e.getQuotaBytes()));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Batch upload validation error: {}", e.getMessage());
+            ctx.status(400).json(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            logger.warn("Batch upload could not be read: {}", e.getMessage());
+            ctx.status(400).json(Map.of("error", "Upload could not be read"));
+        } catch (Exception e) {
+            logger.error("Batch upload error", e);
+            ctx.status(500).json(Map.of("error", "File upload failed"));
+        }
+    }
+    
+    /**
+     * Writes text from the off-heap cache. On Jetty the cache's direct
+     * buffers are handed to the connection as they are, so the text is never
+     * copied onto the heap.
+     */
+    private static void writeCachedText(Context ctx, OffHeapTextCache.CachedText text) throws IOException {
+        ctx.res().setContentLengthLong(text.size());
+        ServletOutputStream out = ctx.res().getOutputStream();
+        if (out instanceof HttpOutput httpOutput) {
+            for (ByteBuffer buffer : text.buffers()) {
+                httpOutput.write(buffer);
+            }
+        } else {
+            // Not running on Jetty: fall back to a channel copy
+            WritableByteChannel target = Channels.newChannel(out);
+            for (ByteBuffer buffer : text.buffers()) {
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Skips to the next file sent in the given form field. Parts are read
+     * straight from the request rather than spooled by the server first, so
+     * each file's name can be checked before its content arrives.
+     * 
+     * @return The part, or null if there are no more files
+     */
+    private static MultipartReader.Part nextFilePart(MultipartReader multipart, String field) throws IOException {
+        MultipartReader.Part part;
+        while ((part = multipart.next()) != null) {
+            if (field.equals(part.name()) && part.filename() != null) {
+                return part;
+            }
+        }
+        return null;
+    }
+    
+    private static Map<String, Object> fileJson(FileUploadResult result) {
+        return Map.of(
+            "id", result.fileId(),
+            "filename", result.storedFilename(),
+            "originalFilename", result.originalFilename(),
+            "size", result.fileSize(),
+            "uploadTime", result.uploadTime(),
+            "userId", result.userId()
+        );
+    }
+    
+    /**
+     * Starts a resumable upload. Body: {"filename": ..., "size": ...}.
+     * The response carries the upload id and the largest accepted chunk.
+     */
+    private void startUpload(Context ctx) {
+        try {
+            String userId = getUserId(ctx);
+            StartUploadRequest request = ctx.bodyAsClass(StartUploadRequest.class);
+            
+            UploadSession upload = fileStorageService.startUpload(userId, request.filename(), request.size());
+            
+            ctx.status(201).json(Map.of(
+                "uploadId", upload.getUploadId(),
+                "offset", upload.getReceived(),
+                "size", upload.getTotalSize(),
+                "maxChunkSize", fileStorageService.getMaxChunkSize()
+            ));
+            
+        } catch (StorageQuotaExceededException e) {
+            ctx.status(413).json(Map.of("error", e.getMessage(), "quotaBytes", e.getQuotaBytes()));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Upload validation error: {}", e.getMessage());
+            ctx.status(400).json(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Failed to start upload", e);
+            ctx.status(500).json(Map.of("error", "Failed to start upload"));
+        }
+    }
+    
+    /**
+     * Returns how many bytes of an upload have been received, so a client
+     * can resume after a dropped connection.
+     */
+    private void getUpload(Context ctx) {
+        try {
+            String userId = getUserId(ctx);
+            UUID uploadId = UUID.fromString(ctx.pathParam("uploadId"));
+            
+            UploadSession upload = fileStorageService.getUpload(userId, uploadId);
+            
+            ctx.status(200).json(Map.of(
+                "uploadId", upload.getUploadId(),
+                "offset", upload.getReceived(),
+                "size", upload.getTotalSize()
+            ));
+            
+        } catch (RuntimeException e) {
+            logger.warn("Upload lookup error: {}", e.getMessage());
+            ctx.status(404).json(Map.of("error", "Upload not found"));
+        }
+    }
+    
+    /**
+     * Receives one chunk of an upload. The raw bytes are the request body,
+     * the "offset" query parameter says where they go and the
+     * X-Chunk-SHA256 header carries their checksum. A chunk at the wrong
+     * offset gets 409 with the offset the upload is actually at.
+     */
+    private void uploadChunk(Context ctx) {
+        try {
+            String userId = getUserId(ctx);
+            UUID uploadId = UUID.fromString(ctx.pathParam("uploadId"));
+            String offsetParam = ctx.queryParam("offset");
+            if (offsetParam == null) {
+                ctx.status(400).json(Map.of("error", "Missing offset"));
+                return;
+            }
+            long offset = Long.parseLong(offsetParam);
+            long length = ctx.req().getContentLengthLong();
+            if (length < 0) {
+                ctx.status(411).json(Map.of("error", "Content-Length is required"));
+                return;
+            }
+            
+            UploadSession upload = fileStorageService.appendChunk(
                 userId,
-                uploadedFile.filename(),
-                uploadedFile.content(),
-                uploadedFile.size()
+                uploadId,
+                offset,
+                length,
+                ctx.header("X-Chunk-SHA256"),
+                ctx.bodyInputStream()
             );
             
+            ctx.status(200).json(Map.of(
+                "uploadId", upload.getUploadId(),
+                "offset", upload.getReceived(),
+                "size", upload.getTotalSize()
+            ));
+            
+        } catch (UploadOffsetException e) {
+            ctx.status(409).json(Map.of("error", "Unexpected offset", "offset", e.getExpectedOffset()));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Chunk rejected: {}", e.getMessage());
+            ctx.status(400).json(Map.of("error", e.getMessage()));
+        } catch (RuntimeException e) {
+            logger.warn("Chunk upload error: {}", e.getMessage());
+            ctx.status(404).json(Map.of("error", "Upload not found"));
+        } catch (Exception e) {
+            logger.error("Chunk upload error", e);
+            ctx.status(500).json(Map.of("error", "Chunk upload failed"));
+        }
+    }
+    
+    /**
+     * Stores a fully received upload as a file. Responds like a regular upload.
+     */
+    private void completeUpload(Context ctx) {
+        try {
+            String userId = getUserId(ctx);
+            UUID uploadId = UUID.fromString(ctx.pathParam("uploadId"));
+            
+            FileUploadResult result = fileStorageService.completeUpload(userId, uploadId);
+            
             ctx.status(200).json(Map.of(
                 "message", "File uploaded successfully",
                 "file", Map.of(
@@ -57,27 +326,51 @@ public class FileUploadController {
                 )
             ));
             
-        } catch (IllegalArgumentException e) {
-            logger.warn("File upload validation error: {}", e.getMessage());
-            ctx.status(400).json(Map.of("error", e.getMessage()));
+        } catch (UploadOffsetException e) {
+            ctx.status(409).json(Map.of("error", "Upload is incomplete", "offset", e.getExpectedOffset()));
+        } catch (StorageQuotaExceededException e) {
+            ctx.status(413).json(Map.of("error", e.getMessage(), "quotaBytes", e.getQuotaBytes()));
         } catch (Exception e) {
-            logger.error("File upload error", e);
+            logger.error("Failed to complete upload", e);
             ctx.status(500).json(Map.of("error", "File upload failed"));
         }
     }
     
+    /**
+     * GET /api/files?pageSize=...&amp;cursor=...
+     * Lists one page of the user's files, newest first. The response's
+     * nextCursor fetches the next page and is null on the last one.
+     */
     private void listFiles(Context ctx) {
         try {
             String userId = getUserId(ctx);
-            List<FileInfo> files = fileStorageService.getUserFiles(userId);
-            
-            // Convert FileInfo to FileDto for better API response
-            List<FileDto> fileDtos = files.stream()
-                .map(fileInfo -> FileDto.fromFileInfo(fileInfo, userId))
-                .toList();
+            int pageSize = DEFAULT_PAGE_SIZE;
+            String pageSizeParam = ctx.queryParam("pageSize");
+            if (pageSizeParam != null) {
+                try {
+                    pageSize = Integer.parseInt(pageSizeParam);
+                } catch (NumberFormatException e) {
+                    ctx.status(400).json(Map.of("error", "pageSize must be a number"));
+                    return;
+                }
+            }
+            FileListing listing = fileStorageService.getUserFiles(userId, pageSize, ctx.queryParam("cursor"));
             
-            ctx.status(200).json(Map.of("files", fileDtos));
+            // Write each FileDto straight to the response instead of building the whole body first
+            ctx.status(200).contentType(ContentType.APPLICATION_JSON);
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(ctx.outputStream())) {
+                json.writeStartObject();
+                json.writeArrayFieldStart("files");
+                for (FileInfo fileInfo : listing.files()) {
+                    json.writeObject(FileDto.fromFileInfo(fileInfo, userId));
+                }
+                json.writeEndArray();
+                json.writeStringField("nextCursor", listing.nextCursor());
+                json.writeEndObject();
+            }
             
+        } catch (IllegalArgumentException e) {
+            ctx.status(400).json(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             logger.error("Error listing files", e);
             ctx.status(500).json(Map.of("error", "Failed to list files"));
@@ -89,10 +382,8 @@ public class FileUploadController {
             String userId = getUserId(ctx);
             String filename = ctx.pathParam("filename");
             
-            var file = fileStorageService.getFile(userId, filename);
-            
-            ctx.header("Content-Disposition", "attachment; filename=\"" + filename + "\"");
-            ctx.result(java.nio.file.Files.newInputStream(file.toPath()));
+            FileDownload download = fileStorageService.getDownload(userId, filename);
+            downloadResponder.send(ctx, download);
             
         } catch (RuntimeException e) {
             logger.warn("File download error: {}", e.getMessage());
@@ -104,32 +395,60 @@ public class FileUploadController {
     }
     
     /**
-     * Returns a plain-text representation of the stored file. Currently supports
-     * PDF and text files. Other formats return HTTP 415.
+     * Returns a plain-text representation of the stored file, for every format
+     * a text extractor is registered for. Other formats return HTTP 415. Text
+     * is extracted once and served from the extraction cache afterwards.
+     *
+     * With {@code offset}/{@code length} or {@code page} query parameters
+     * only that part of the text is returned, as JSON with the position and
+     * the length of the whole text, so large documents can be read in pieces.
+     * Offsets and lengths count UTF-16 chars, as JavaScript strings do.
      */
     private void downloadFileAsText(Context ctx) {
         try {
             String userId = getUserId(ctx);
             String filename = ctx.pathParam("filename");
 
-            var filePath = fileStorageService.getFile(userId, filename).toPath();
+            if (!textExtractionService.isSupported(filename)) {
+                ctx.status(415).json(Map.of("error", "Unsupported file type"));
+                return;
+            }
 
-            String lower = filename.toLowerCase();
-            String text;
-            if (lower.endsWith(".pdf")) {
-                try (org.apache.pdfbox.pdmodel.PDDocument doc = org.apache.pdfbox.pdmodel.PDDocument.load(filePath.toFile())) {
-                    text = new org.apache.pdfbox.text.PDFTextStripper().getText(doc);
+            String page = ctx.queryParam("page");
+            String offset = ctx.queryParam("offset");
+            String length = ctx.queryParam("length");
+            if (page == null && offset == null && length == null) {
+                ctx.contentType("text/plain; charset=utf-8");
+                Optional<OffHeapTextCache.CachedText> cached = fileStorageService.cachedFileText(userId, filename);
+                if (cached.isEmpty()) {
+                    ctx.result(fileStorageService.openFileText(userId, filename));
+                    return;
+                }
+                try (OffHeapTextCache.CachedText text = cached.get()) {
+                    writeCachedText(ctx, text);
                 }
-            } else if (lower.endsWith(".txt")) {
-                text = java.nio.file.Files.readString(filePath);
-            } else {
-                ctx.status(415).json(Map.of("error", "Unsupported file type"));
                 return;
             }
 
-            ctx.contentType("text/plain; charset=utf-8");
-            ctx.result(text);
+            int maxLength = length == null ? DEFAULT_TEXT_WINDOW : Math.min(Integer.parseInt(length), MAX_TEXT_WINDOW);
+            TextWindow window = page != null
+                ? fileStorageService.readFileTextPage(userId, filename, Integer.parseInt(page), maxLength)
+                : fileStorageService.readFileText(userId, filename, offset == null ? 0 : Long.parseLong(offset), maxLength);
+
+            Map<String, Object> response = new LinkedHashMap<>();
+            if (page != null) {
+                response.put("page", Integer.parseInt(page));
+            }
+            response.put("offset", window.offset());
+            response.put("length", window.text().length());
+            response.put("totalLength", window.totalLength());
+            response.put("pageCount", window.pageCount());
+            response.put("text", window.text());
+            ctx.status(200).json(response);
 
+        } catch (IllegalArgumentException e) {
+            ctx.status(400).json(Map.of("error", e instanceof NumberFormatException
+                ? "Page, offset and length must be numbers" : e.getMessage()));
         } catch (RuntimeException e) {
             logger.warn("File text extraction error: {}", e.getMessage());
             ctx.status(404).json(Map.of("error", "File not found"));
@@ -139,6 +458,30 @@ public class FileUploadController {
         }
     }
     
+    /**
+     * Returns how much the user has stored and their quota, if any.
+     */
+    private void getUsage(Context ctx) {
+        try {
+            String userId = getUserId(ctx);
+            StorageUsage usage = fileStorageService.getUsage(userId);
+            long quotaBytes = fileStorageService.getQuotaBytes();
+            
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("bytes", usage.bytes());
+            response.put("files", usage.files());
+            if (quotaBytes > 0) {
+                response.put("quotaBytes", quotaBytes);
+                response.put("remainingBytes", Math.max(0, quotaBytes - usage.bytes()));
+            }
+            ctx.status(200).json(response);
+            
+        } catch (Exception e) {
+            logger.error("Failed to read storage usage", e);
+            ctx.status(500).json(Map.of("error", "Failed to read storage usage"));
+        }
+    }
+    
     private void deleteFile(Context ctx) {
         try {
             String userId = getUserId(ctx);
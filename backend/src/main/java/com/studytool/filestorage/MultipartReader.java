@@ -0,0 +1,326 @@
+package com.studytool.filestorage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads a multipart/form-data body one part at a time, straight from the
+ * request stream. Unlike the servlet multipart support, nothing is spooled:
+ * each part's headers are available before any of its content is read, and
+ * the content is handed to the caller as a stream, so uploads can be
+ * validated early and written to their destination in a single pass.
+ *
+ * Memory use is one fixed buffer per request. A part that isn't read to the
+ * end is skipped when the next part is requested.
+ */
+final class MultipartReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Headers of a single part; browsers send a few hundred bytes
+    private static final int MAX_HEADER_BYTES = 16 * 1024;
+
+    private final InputStream in;
+    private final byte[] delimiter;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int head;
+    private int tail;
+    // Where the next delimiter starts in the buffer, or -1 if not found yet
+    private int found = -1;
+    // Delimiters can't start before this position
+    private int scanFrom;
+    private boolean eof;
+    private boolean finished;
+    private PartInputStream current;
+
+    /**
+     * A part's headers and content.
+     *
+     * @param name The form field name
+     * @param filename The submitted filename without any path, or null for plain fields
+     * @param contentType The part's content type, or null if not given
+     * @param content The part's bytes; valid until the next part is requested
+     */
+    record Part(String name, String filename, String contentType, InputStream content) {
+    }
+
+    private MultipartReader(InputStream in, String boundary) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        // The first delimiter has no line break before it; pretend there is one
+        buffer[0] = '\r';
+        buffer[1] = '\n';
+        tail = 2;
+    }
+
+    /**
+     * @param contentType The request's Content-Type header
+     * @throws IllegalArgumentException If the request isn't multipart/form-data with a boundary
+     */
+    static MultipartReader open(String contentType, InputStream in) {
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/form-data")) {
+            throw new IllegalArgumentException("Expected a multipart/form-data request");
+        }
+        String boundary = parameters(contentType).get("boundary");
+        if (boundary == null || boundary.isEmpty() || boundary.length() > 70) {
+            throw new IllegalArgumentException("Multipart request has no valid boundary");
+        }
+        return new MultipartReader(in, boundary);
+    }
+
+    /**
+     * Skips the rest of the current part and reads the next part's headers.
+     *
+     * @return The next part, or null after the last one
+     */
+    Part next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        // Skip the preamble, or whatever the caller didn't read of the last part
+        PartInputStream skipped = current != null ? current : new PartInputStream();
+        skipped.skipAll();
+        current = null;
+
+        // The delimiter is followed by "--" after the last part, or a line break
+        int first = readByte();
+        int second = readByte();
+        if (first == '-' && second == '-') {
+            finished = true;
+            return null;
+        }
+        while (first == ' ' || first == '\t') {
+            first = second;
+            second = readByte();
+        }
+        if (first != '\r' || second != '\n') {
+            throw new IOException("Malformed multipart boundary");
+        }
+
+        Map<String, String> headers = readHeaders();
+        Map<String, String> disposition = parameters(headers.getOrDefault("content-disposition", ""));
+        current = new PartInputStream();
+        return new Part(disposition.get("name"), submittedFilename(disposition), headers.get("content-type"), current);
+    }
+
+    private Map<String, String> readHeaders() throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int total = 0;
+        while (true) {
+            int b = readByte();
+            if (++total > MAX_HEADER_BYTES) {
+                throw new IllegalArgumentException("Multipart part headers are too large");
+            }
+            if (b != '\n') {
+                line.write(b);
+                continue;
+            }
+            String text = line.toString(StandardCharsets.UTF_8);
+            line.reset();
+            if (text.endsWith("\r")) {
+                text = text.substring(0, text.length() - 1);
+            }
+            if (text.isEmpty()) {
+                return headers;
+            }
+            int colon = text.indexOf(':');
+            if (colon > 0) {
+                headers.put(text.substring(0, colon).trim().toLowerCase(Locale.ROOT), text.substring(colon + 1).trim());
+            }
+        }
+    }
+
+    private int readByte() throws IOException {
+        if (head == tail && !fill()) {
+            throw new EOFException("Multipart body ended unexpectedly");
+        }
+        return buffer[head++] & 0xFF;
+    }
+
+    /**
+     * Reads more of the request into the buffer, moving unread bytes to the
+     * front first.
+     *
+     * @return False at the end of the request
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (head > 0) {
+            System.arraycopy(buffer, head, buffer, 0, tail - head);
+            tail -= head;
+            scanFrom = Math.max(0, scanFrom - head);
+            found = found < 0 ? -1 : found - head;
+            head = 0;
+        }
+        int read = in.read(buffer, tail, buffer.length - tail);
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        tail += read;
+        return true;
+    }
+
+    /**
+     * Finds the next delimiter in the buffered bytes.
+     *
+     * @return Its position, or -1 if it isn't (completely) buffered yet
+     */
+    private int findDelimiter() {
+        if (found >= head) {
+            return found;
+        }
+        int last = tail - delimiter.length;
+        for (int i = Math.max(scanFrom, head); i <= last; i++) {
+            if (buffer[i] == delimiter[0] && matchesAt(i)) {
+                found = i;
+                return i;
+            }
+        }
+        // A delimiter may start in the bytes not buffered in full yet
+        scanFrom = Math.max(head, last + 1);
+        found = -1;
+        return -1;
+    }
+
+    private boolean matchesAt(int position) {
+        for (int j = 1; j < delimiter.length; j++) {
+            if (buffer[position + j] != delimiter[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The content of one part: everything up to the next delimiter.
+     */
+    private final class PartInputStream extends InputStream {
+        private boolean ended;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (ended) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            while (true) {
+                int delimiterAt = findDelimiter();
+                int available = delimiterAt >= 0
+                    ? delimiterAt - head
+                    : tail - head - (delimiter.length - 1);
+                if (available > 0) {
+                    int n = Math.min(len, available);
+                    System.arraycopy(buffer, head, b, off, n);
+                    head += n;
+                    return n;
+                }
+                if (delimiterAt >= 0) {
+                    // Consume the delimiter; what follows it is read by next()
+                    head = delimiterAt + delimiter.length;
+                    found = -1;
+                    ended = true;
+                    return -1;
+                }
+                if (!fill()) {
+                    throw new EOFException("Multipart body ended before the closing boundary");
+                }
+            }
+        }
+
+        @Override
+        public int available() {
+            if (ended) {
+                return 0;
+            }
+            int delimiterAt = findDelimiter();
+            return Math.max(0, delimiterAt >= 0 ? delimiterAt - head : tail - head - (delimiter.length - 1));
+        }
+
+        void skipAll() throws IOException {
+            byte[] discard = new byte[8 * 1024];
+            while (read(discard, 0, discard.length) >= 0) {
+                // Skip
+            }
+        }
+
+        @Override
+        public void close() {
+            // The request stream stays open for the following parts
+        }
+    }
+
+    /**
+     * Parses the parameters of a header value such as
+     * {@code form-data; name="file"; filename="notes.pdf"}. Names are
+     * lowercased; quoted values are unquoted. An RFC 5987 {@code filename*}
+     * is decoded and returned under {@code filename*}.
+     */
+    private static Map<String, String> parameters(String value) {
+        Map<String, String> parameters = new HashMap<>();
+        int i = value.indexOf(';');
+        while (i >= 0 && i < value.length()) {
+            i++;
+            int equals = value.indexOf('=', i);
+            if (equals < 0) {
+                break;
+            }
+            String name = value.substring(i, equals).trim().toLowerCase(Locale.ROOT);
+            StringBuilder parameter = new StringBuilder();
+            int j = equals + 1;
+            while (j < value.length() && value.charAt(j) == ' ') {
+                j++;
+            }
+            if (j < value.length() && value.charAt(j) == '"') {
+                for (j++; j < value.length() && value.charAt(j) != '"'; j++) {
+                    char c = value.charAt(j);
+                    if (c == '\\' && j + 1 < value.length()) {
+                        c = value.charAt(++j);
+                    }
+                    parameter.append(c);
+                }
+                j = value.indexOf(';', j);
+            } else {
+                int end = value.indexOf(';', j);
+                parameter.append(value.substring(j, end < 0 ? value.length() : end).trim());
+                j = end;
+            }
+            parameters.putIfAbsent(name, parameter.toString());
+            i = j;
+        }
+        return parameters;
+    }
+
+    private static String submittedFilename(Map<String, String> disposition) {
+        String filename = disposition.get("filename");
+        String extended = disposition.get("filename*");
+        if (extended != null) {
+            // charset'language'percent-encoded
+            int quote = extended.indexOf('\'', extended.indexOf('\'') + 1);
+            if (quote > 0 && extended.regionMatches(true, 0, "UTF-8", 0, 5)) {
+                filename = URLDecoder.decode(extended.substring(quote + 1).replace("+", "%2B"), StandardCharsets.UTF_8);
+            }
+        }
+        if (filename == null) {
+            return null;
+        }
+        // Some browsers send the full client path
+        return filename.substring(Math.max(filename.lastIndexOf('/'), filename.lastIndexOf('\\')) + 1);
+    }
+}
@@ -0,0 +1,9 @@
+package com.studytool.filestorage;
+
+/**
+ * Request body for starting a resumable upload.
+ */
+public record StartUploadRequest(
+    String filename,
+    long size
+) {}
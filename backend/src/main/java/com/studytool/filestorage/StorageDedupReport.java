@@ -0,0 +1,63 @@
+package com.studytool.filestorage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.studytool.database.DatabaseConfig;
+import com.studytool.database.ScyllaManager;
+
+/**
+ * Read-only report of how much disk space blob deduplication saves: the
+ * total size of all uploaded files against the size of the distinct blobs
+ * actually stored, plus the size of files stored before deduplication.
+ * 
+ * Run with {@code gradle reportStorageDedup}.
+ */
+public class StorageDedupReport {
+    private static final Logger logger = LoggerFactory.getLogger(StorageDedupReport.class);
+    
+    public static void main(String[] args) {
+        DatabaseConfig dbConfig = DatabaseConfig.fromEnvironment();
+        ScyllaManager scyllaManager = new ScyllaManager(
+            dbConfig.getContactPoint(),
+            dbConfig.getDatacenter(),
+            dbConfig.getKeyspace()
+        );
+        
+        try {
+            scyllaManager.initialize();
+            report(scyllaManager.getSession());
+        } finally {
+            scyllaManager.close();
+        }
+    }
+    
+    private static void report(CqlSession session) {
+        long files = 0;
+        long logicalBytes = 0;
+        long legacyFiles = 0;
+        long legacyBytes = 0;
+        for (Row row : session.execute("SELECT file_size, content_hash FROM files")) {
+            files++;
+            logicalBytes += row.getLong("file_size");
+            if (row.isNull("content_hash")) {
+                legacyFiles++;
+                legacyBytes += row.getLong("file_size");
+            }
+        }
+        
+        long blobs = 0;
+        long blobBytes = 0;
+        for (Row row : session.execute("SELECT size FROM file_blobs")) {
+            blobs++;
+            blobBytes += row.getLong("size");
+        }
+        
+        long storedBytes = blobBytes + legacyBytes;
+        logger.info("{} files ({} bytes) stored as {} blobs plus {} undeduplicated files: {} bytes on disk, {} bytes saved ({}%)",
+                   files, logicalBytes, blobs, legacyFiles, storedBytes, logicalBytes - storedBytes,
+                   logicalBytes == 0 ? "0.0" : String.format("%.1f", 100.0 * (logicalBytes - storedBytes) / logicalBytes));
+    }
+}
@@ -0,0 +1,207 @@
+package com.studytool.filestorage;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.google.common.hash.Hashing;
+import com.studytool.database.DatabaseConfig;
+import com.studytool.database.FileBlobRepository;
+import com.studytool.database.ScyllaManager;
+import com.studytool.filestorage.blob.BlobStore;
+import com.studytool.filestorage.blob.BlobStoreConfig;
+import com.studytool.filestorage.blob.LocalBlobStore;
+
+/**
+ * One-off tool that moves stored files into the sharded blob layout:
+ * <ul>
+ *   <li>blobs stored flat in the blob directory move to their ab/cd/ shard;</li>
+ *   <li>files uploaded before deduplication (one copy per user under
+ *       FILE_STORAGE_PATH/username) are hashed, moved into the blob store
+ *       (or dropped if the content is already there) and their records
+ *       updated to reference the blob;</li>
+ *   <li>every files row's file_path is updated to the blob's location.</li>
+ * </ul>
+ * A legacy file is only deleted once its record references the blob, so
+ * the tool is safe to re-run after a crash or a failed write; already
+ * migrated files are skipped. A crash between adding the blob reference and
+ * updating the record leaves one reference too many, which keeps the blob
+ * around but never loses content. Deleted files still waiting for the
+ * collector are left alone; it removes their legacy copy itself.
+ *
+ * Run with {@code gradle migrateStorageLayout} (add {@code --args=--dry-run}
+ * to only report what would move).
+ */
+public class StorageLayoutMigration {
+    private static final Logger logger = LoggerFactory.getLogger(StorageLayoutMigration.class);
+
+    private static final Pattern BLOB_KEY = Pattern.compile("[0-9a-f]{64}");
+
+    private final CqlSession session;
+    private final BlobStore blobStore;
+    private final FileBlobRepository fileBlobRepository;
+    private final boolean dryRun;
+
+    private long blobsMoved;
+    private long legacyFilesMigrated;
+    private long legacyFilesDeduplicated;
+    private long legacyBytesSaved;
+    private long pathsUpdated;
+
+    public StorageLayoutMigration(CqlSession session, BlobStore blobStore, boolean dryRun) {
+        this.session = session;
+        this.blobStore = blobStore;
+        this.fileBlobRepository = new FileBlobRepository(session);
+        this.dryRun = dryRun;
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean dryRun = List.of(args).contains("--dry-run");
+        String fileStoragePath = System.getenv("FILE_STORAGE_PATH");
+        if (fileStoragePath == null || fileStoragePath.trim().isEmpty()) {
+            fileStoragePath = "./uploads";
+        }
+
+        DatabaseConfig dbConfig = DatabaseConfig.fromEnvironment();
+        ScyllaManager scyllaManager = new ScyllaManager(
+            dbConfig.getContactPoint(),
+            dbConfig.getDatacenter(),
+            dbConfig.getKeyspace()
+        );
+
+        try (BlobStore blobStore = BlobStoreConfig.fromEnvironment().createStore(Paths.get(fileStoragePath, "blobs"))) {
+            scyllaManager.initialize();
+            StorageLayoutMigration migration = new StorageLayoutMigration(scyllaManager.getSession(), blobStore, dryRun);
+            if (blobStore instanceof LocalBlobStore localStore) {
+                migration.shardFlatBlobs(localStore);
+            }
+            migration.migrateFileRecords();
+            migration.report();
+        } finally {
+            scyllaManager.close();
+        }
+    }
+
+    private void shardFlatBlobs(LocalBlobStore localStore) throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(localStore.getDirectory())) {
+            for (Path entry : entries) {
+                String key = entry.getFileName().toString();
+                if (!Files.isRegularFile(entry) || !BLOB_KEY.matcher(key).matches()) {
+                    continue;
+                }
+                if (!dryRun) {
+                    Path target = localStore.shardedPath(key);
+                    Files.createDirectories(target.getParent());
+                    Files.move(entry, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+                blobsMoved++;
+            }
+        }
+        logger.info("{} flat blobs {}", blobsMoved, dryRun ? "to shard" : "sharded");
+    }
+
+    private void migrateFileRecords() throws IOException {
+        PreparedStatement updateFile = session.prepare(
+            "UPDATE files SET content_hash = ?, file_path = ? WHERE id = ?"
+        );
+        PreparedStatement updateBlobPath = session.prepare(
+            "UPDATE file_blobs SET blob_path = ? WHERE content_hash = ? IF EXISTS"
+        );
+
+        // The driver fetches further pages transparently while iterating
+        for (Row row : session.execute("SELECT id, file_path, content_hash, file_size, deleted_at FROM files")) {
+            if (!row.isNull("deleted_at")) {
+                // Its file_deletions entry has no content hash, so a blob reference added here would never be dropped
+                continue;
+            }
+            String contentHash = row.getString("content_hash");
+            String filePath = row.getString("file_path");
+            Path legacyPath = null;
+
+            if (contentHash == null) {
+                legacyPath = filePath == null ? null : Paths.get(filePath);
+                if (legacyPath == null || !Files.exists(legacyPath)) {
+                    logger.warn("Skipping file {}: content missing at {}", row.getUuid("id"), filePath);
+                    continue;
+                }
+                contentHash = migrateLegacyFile(legacyPath, row.getLong("file_size"));
+            }
+
+            String location = blobStore.location(contentHash);
+            if (!location.equals(filePath)) {
+                if (!dryRun) {
+                    session.execute(updateFile.bind(contentHash, location, row.getUuid("id")));
+                    session.execute(updateBlobPath.bind(location, contentHash));
+                }
+                pathsUpdated++;
+            }
+            if (legacyPath != null && !dryRun) {
+                // Only now that the record points at the blob
+                deleteLegacyFile(legacyPath);
+            }
+        }
+    }
+
+    /**
+     * Hashes a pre-deduplication file and copies it into the blob store.
+     * The legacy file is left in place for the caller to delete once the
+     * record is updated.
+     *
+     * @return The content hash the file's record should reference
+     */
+    private String migrateLegacyFile(Path legacyPath, long size) throws IOException {
+        String contentHash = com.google.common.io.Files.asByteSource(legacyPath.toFile())
+            .hash(Hashing.sha256())
+            .toString();
+        legacyFilesMigrated++;
+        if (dryRun) {
+            return contentHash;
+        }
+
+        boolean created = fileBlobRepository.addReference(contentHash, size, blobStore.location(contentHash));
+        if (created || !blobStore.exists(contentHash)) {
+            // put may move the file it is given, and the legacy file has to outlive the record update
+            Path copy = Files.createTempFile(legacyPath.getParent(), ".migrate-", ".tmp");
+            try {
+                Files.copy(legacyPath, copy, StandardCopyOption.REPLACE_EXISTING);
+                blobStore.put(contentHash, copy);
+            } finally {
+                Files.deleteIfExists(copy);
+            }
+        } else {
+            legacyFilesDeduplicated++;
+            legacyBytesSaved += size;
+        }
+        return contentHash;
+    }
+
+    private void deleteLegacyFile(Path legacyPath) throws IOException {
+        Files.deleteIfExists(legacyPath);
+
+        // Drop the user directory once its last file has moved
+        Path userDirectory = legacyPath.getParent();
+        try (DirectoryStream<Path> remaining = Files.newDirectoryStream(userDirectory)) {
+            if (!remaining.iterator().hasNext()) {
+                Files.delete(userDirectory);
+            }
+        }
+    }
+
+    private void report() {
+        logger.info("{}Sharded {} flat blobs, moved {} legacy files into the blob store ({} duplicates, {} bytes freed), " +
+                   "updated {} file paths",
+                   dryRun ? "[dry run] " : "", blobsMoved, legacyFilesMigrated, legacyFilesDeduplicated,
+                   legacyBytesSaved, pathsUpdated);
+    }
+}
@@ -0,0 +1,19 @@
+package com.studytool.filestorage;
+
+/**
+ * Thrown when an upload would take a user past their storage quota. It is
+ * an IllegalArgumentException so callers that report validation errors
+ * report it too.
+ */
+public class StorageQuotaExceededException extends IllegalArgumentException {
+    private final long quotaBytes;
+    
+    public StorageQuotaExceededException(long quotaBytes) {
+        super("Storage quota of " + quotaBytes + " bytes exceeded");
+        this.quotaBytes = quotaBytes;
+    }
+    
+    public long getQuotaBytes() {
+        return quotaBytes;
+    }
+}
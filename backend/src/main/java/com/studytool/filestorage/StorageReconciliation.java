@@ -0,0 +1,241 @@
+package com.studytool.filestorage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.google.common.hash.Hashing;
+import com.studytool.database.DatabaseConfig;
+import com.studytool.database.ScyllaManager;
+import com.studytool.filestorage.blob.BlobStoreConfig;
+import com.studytool.filestorage.blob.LocalBlobStore;
+
+/**
+ * Read-only check that the local blob directory and the files table agree.
+ * Reports orphans (blobs on disk that no file references) and missing blobs
+ * (files whose content isn't on disk).
+ *
+ * The referenced hashes are loaded into memory, then the 256 top-level shard
+ * directories are walked in parallel on a fork-join pool, each worker
+ * crossing its blobs off the set. Whatever is left in the set afterwards is
+ * missing. The walk rate is logged so the run time on large trees can be
+ * estimated.
+ *
+ * Run with {@code gradle reconcileStorage}. Options:
+ * <ul>
+ *   <li>{@code --parallelism N}: walker threads (default: available processors)</li>
+ *   <li>{@code --synthetic N}: skip the database and walk a generated tree of
+ *       N empty blobs in a temporary directory, to measure the walk rate</li>
+ * </ul>
+ */
+public class StorageReconciliation {
+    private static final Logger logger = LoggerFactory.getLogger(StorageReconciliation.class);
+
+    private static final Pattern BLOB_KEY = Pattern.compile("[0-9a-f]{64}");
+
+    // Only this many orphans and missing blobs are listed individually
+    private static final int MAX_LISTED = 100;
+
+    private final Path blobDirectory;
+    private final Set<String> referenced;
+    private final ForkJoinPool pool;
+
+    private final LongAdder filesWalked = new LongAdder();
+    private final LongAdder orphanBytes = new LongAdder();
+    private final Queue<Path> orphans = new ConcurrentLinkedQueue<>();
+
+    public StorageReconciliation(Path blobDirectory, Set<String> referenced, int parallelism) {
+        this.blobDirectory = blobDirectory;
+        this.referenced = referenced;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int parallelism = intOption(args, "--parallelism", Runtime.getRuntime().availableProcessors());
+        int synthetic = intOption(args, "--synthetic", 0);
+        if (synthetic > 0) {
+            runSynthetic(synthetic, parallelism);
+            return;
+        }
+
+        String fileStoragePath = System.getenv("FILE_STORAGE_PATH");
+        if (fileStoragePath == null || fileStoragePath.trim().isEmpty()) {
+            fileStoragePath = "./uploads";
+        }
+        if (BlobStoreConfig.fromEnvironment().getType() != BlobStoreConfig.Type.LOCAL) {
+            throw new IllegalStateException("Storage reconciliation only supports the local blob store");
+        }
+        LocalBlobStore blobStore = new LocalBlobStore(Paths.get(fileStoragePath, "blobs"));
+
+        DatabaseConfig dbConfig = DatabaseConfig.fromEnvironment();
+        ScyllaManager scyllaManager = new ScyllaManager(
+            dbConfig.getContactPoint(),
+            dbConfig.getDatacenter(),
+            dbConfig.getKeyspace()
+        );
+
+        try {
+            scyllaManager.initialize();
+            CqlSession session = scyllaManager.getSession();
+
+            Set<String> referenced = ConcurrentHashMap.newKeySet();
+            long legacyFiles = 0;
+            long legacyMissing = 0;
+            for (Row row : session.execute("SELECT id, file_path, content_hash FROM files")) {
+                String contentHash = row.getString("content_hash");
+                if (contentHash != null) {
+                    referenced.add(contentHash);
+                    continue;
+                }
+                // Files uploaded before deduplication live outside the blob directory
+                legacyFiles++;
+                String filePath = row.getString("file_path");
+                if (filePath == null || !Files.exists(Paths.get(filePath))) {
+                    legacyMissing++;
+                    logger.warn("Missing legacy file {} at {}", row.getUuid("id"), filePath);
+                }
+            }
+            logger.info("Loaded {} referenced blobs and {} legacy files ({} missing)",
+                       referenced.size(), legacyFiles, legacyMissing);
+
+            StorageReconciliation reconciliation = new StorageReconciliation(
+                blobStore.getDirectory(), referenced, parallelism);
+            reconciliation.run();
+        } finally {
+            scyllaManager.close();
+        }
+    }
+
+    /**
+     * Walks the blob directory and logs orphaned and missing blobs.
+     */
+    public void run() throws IOException {
+        long start = System.nanoTime();
+        List<Shard> shards = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(blobDirectory)) {
+            for (Path entry : entries) {
+                if (Files.isDirectory(entry)) {
+                    shards.add(new Shard(entry));
+                } else {
+                    // Flat blob written before sharding
+                    check(entry);
+                }
+            }
+        }
+        try {
+            pool.submit(() -> ForkJoinTask.invokeAll(shards)).join();
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int listed = 0;
+        for (Path orphan : orphans) {
+            if (listed++ == MAX_LISTED) {
+                break;
+            }
+            logger.warn("Orphaned blob: {}", orphan);
+        }
+        listed = 0;
+        for (String missing : referenced) {
+            if (listed++ == MAX_LISTED) {
+                break;
+            }
+            logger.warn("Missing blob: {}", missing);
+        }
+
+        long walked = filesWalked.sum();
+        logger.info("Walked {} files in {} shards in {} s ({} files/s, parallelism {}): {} orphaned ({} bytes), {} missing",
+                   walked, shards.size(), String.format("%.2f", seconds),
+                   String.format("%.0f", walked / Math.max(seconds, 1e-9)), pool.getParallelism(),
+                   orphans.size(), orphanBytes.sum(), referenced.size());
+    }
+
+    private void check(Path file) {
+        filesWalked.increment();
+        String key = file.getFileName().toString();
+        if (BLOB_KEY.matcher(key).matches() && referenced.remove(key)) {
+            return;
+        }
+        orphans.add(file);
+        try {
+            orphanBytes.add(Files.size(file));
+        } catch (IOException e) {
+            // Deleted while walking; still worth reporting
+        }
+    }
+
+    /**
+     * Walks one top-level shard directory.
+     */
+    private class Shard extends RecursiveAction {
+        private final Path directory;
+
+        Shard(Path directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        protected void compute() {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.filter(Files::isRegularFile).forEach(StorageReconciliation.this::check);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to walk " + directory, e);
+            }
+        }
+    }
+
+    private static void runSynthetic(int count, int parallelism) throws IOException {
+        Path directory = Files.createTempDirectory("reconcile-bench");
+        try {
+            logger.info("Generating {} blobs in {}", count, directory);
+            LocalBlobStore blobStore = new LocalBlobStore(directory);
+            Set<String> referenced = ConcurrentHashMap.newKeySet();
+            for (int i = 0; i < count; i++) {
+                String key = Hashing.sha256().hashInt(i).toString();
+                Path blob = blobStore.shardedPath(key);
+                Files.createDirectories(blob.getParent());
+                Files.createFile(blob);
+                // Leave roughly one in a hundred unreferenced so the orphan path is exercised
+                if (i % 100 != 0) {
+                    referenced.add(key);
+                }
+            }
+            new StorageReconciliation(directory, referenced, parallelism).run();
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static int intOption(String[] args, String name, int defaultValue) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(name)) {
+                return Integer.parseInt(args[i + 1]);
+            }
+        }
+        return defaultValue;
+    }
+}
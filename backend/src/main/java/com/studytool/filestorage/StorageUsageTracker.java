@@ -0,0 +1,135 @@
+package com.studytool.filestorage;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.studytool.database.StorageUsage;
+import com.studytool.database.StorageUsageRepository;
+
+/**
+ * Keeps each user's storage usage and enforces the storage quota.
+ *
+ * Usage is cached in memory and updated locally as files are stored and
+ * deleted, so checking the quota costs no database round trip. The
+ * counters in the database are updated without waiting, and cached
+ * entries are reloaded from them in the background now and then to pick
+ * up uploads handled by other nodes.
+ *
+ * Uploads in progress reserve their size, so concurrent uploads can't
+ * together exceed the quota on one node.
+ */
+public class StorageUsageTracker {
+    private static final Logger logger = LoggerFactory.getLogger(StorageUsageTracker.class);
+    
+    private static final Duration REFRESH_AFTER = Duration.ofMinutes(1);
+    private static final long MAX_CACHED_USERS = 100_000;
+    
+    private final StorageUsageRepository storageUsageRepository;
+    private final long quotaBytes;
+    private final LoadingCache<UUID, StorageUsage> usage;
+    // Bytes of uploads in progress, per user
+    private final ConcurrentHashMap<UUID, Long> reserved = new ConcurrentHashMap<>();
+    
+    /**
+     * @param quotaBytes Most a user may store; 0 for no limit
+     */
+    public StorageUsageTracker(StorageUsageRepository storageUsageRepository, long quotaBytes) {
+        this.storageUsageRepository = storageUsageRepository;
+        this.quotaBytes = quotaBytes;
+        this.usage = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_USERS)
+            .refreshAfterWrite(REFRESH_AFTER)
+            .build(CacheLoader.asyncReloading(CacheLoader.from(storageUsageRepository::findByUserId),
+                Executors.newSingleThreadExecutor(task -> {
+                    Thread thread = new Thread(task, "storage-usage-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                })));
+    }
+    
+    /**
+     * The user's usage. Read from the database only the first time.
+     */
+    public StorageUsage getUsage(UUID userId) {
+        return usage.getUnchecked(userId);
+    }
+    
+    /**
+     * @return The quota in bytes, or 0 if there is none
+     */
+    public long getQuotaBytes() {
+        return quotaBytes;
+    }
+    
+    /**
+     * Fails if storing this many more bytes would exceed the user's quota,
+     * without reserving them.
+     */
+    public void checkQuota(UUID userId, long bytes) {
+        reserve(userId, bytes).close();
+    }
+    
+    /**
+     * Reserves room for an upload, to be released once its file is
+     * recorded (or the upload fails).
+     *
+     * @throws StorageQuotaExceededException if there isn't room
+     */
+    public Reservation reserve(UUID userId, long bytes) {
+        if (quotaBytes <= 0) {
+            return () -> { };
+        }
+        long used = getUsage(userId).bytes();
+        reserved.compute(userId, (id, pending) -> {
+            long total = (pending == null ? 0 : pending) + bytes;
+            if (used + total > quotaBytes) {
+                throw new StorageQuotaExceededException(quotaBytes);
+            }
+            return total;
+        });
+        return () -> reserved.computeIfPresent(userId, (id, pending) -> pending == bytes ? null : pending - bytes);
+    }
+    
+    public void recordStored(UUID userId, long bytes) {
+        record(userId, new StorageUsage(bytes, 1));
+    }
+    
+    public void recordDeleted(UUID userId, long bytes) {
+        record(userId, new StorageUsage(-bytes, -1));
+    }
+    
+    /**
+     * Applies a correction found by {@link StorageUsageVerifier}.
+     */
+    void correct(UUID userId, StorageUsage delta) {
+        storageUsageRepository.add(userId, delta);
+        usage.asMap().computeIfPresent(userId, (id, current) -> current.plus(delta.bytes(), delta.files()));
+    }
+    
+    private void record(UUID userId, StorageUsage delta) {
+        usage.asMap().computeIfPresent(userId, (id, current) -> current.plus(delta.bytes(), delta.files()));
+        // A lost update is corrected by the verifier
+        storageUsageRepository.addAsync(userId, delta).whenComplete((ignored, e) -> {
+            if (e != null) {
+                logger.warn("Failed to update storage usage for user {} by {}: {}", userId, delta, e.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * Room reserved for an upload in progress.
+     */
+    @FunctionalInterface
+    public interface Reservation extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
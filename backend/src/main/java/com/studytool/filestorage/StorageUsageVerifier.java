@@ -0,0 +1,157 @@
+package com.studytool.filestorage;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.studytool.database.FileRepository;
+import com.studytool.database.StorageUsage;
+import com.studytool.database.StorageUsageRepository;
+import com.studytool.database.TaskLeaseRepository;
+
+/**
+ * Recomputes every user's storage usage from the files table and corrects
+ * the counters where they have drifted: counter updates can be lost (a
+ * failed write) or applied twice (a retried one), and usage from before
+ * the counters existed was never counted.
+ *
+ * The files table is scanned one token range at a time. Uploads and
+ * deletes during the scan make the totals briefly disagree with the
+ * counters, so a difference is only corrected if the same difference was
+ * found by the previous run too.
+ *
+ * Corrections are counter increments, which would be applied once per node
+ * if every node verified. Only the node holding the task lease verifies;
+ * it renews the lease on every run and again before correcting anything.
+ */
+public class StorageUsageVerifier implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(StorageUsageVerifier.class);
+    
+    private static final int TOKEN_RANGES = 256;
+    private static final Duration FIRST_RUN_DELAY = Duration.ofMinutes(1);
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+    private static final String LEASE_TASK = "storage-usage-verifier";
+    
+    private final FileRepository fileRepository;
+    private final StorageUsageRepository storageUsageRepository;
+    private final StorageUsageTracker storageUsageTracker;
+    private final TaskLeaseRepository taskLeaseRepository;
+    private final UUID nodeId = UUID.randomUUID();
+    private final ScheduledExecutorService scheduler;
+    // Outlasts the pause between runs, so the node verifying keeps the lease
+    private volatile Duration leaseDuration = Duration.ofHours(1);
+    // Differences found by the last run; only used on the scheduler thread
+    private Map<UUID, StorageUsage> suspectedDrift = new HashMap<>();
+    
+    public StorageUsageVerifier(FileRepository fileRepository, StorageUsageRepository storageUsageRepository,
+                                StorageUsageTracker storageUsageTracker, TaskLeaseRepository taskLeaseRepository) {
+        this.fileRepository = fileRepository;
+        this.storageUsageRepository = storageUsageRepository;
+        this.storageUsageTracker = storageUsageTracker;
+        this.taskLeaseRepository = taskLeaseRepository;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "storage-usage-verifier");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Starts verifying on a background thread. The first run is soon after
+     * startup, so counters missing after an upgrade are fixed by the second.
+     */
+    public void start(Duration interval) {
+        leaseDuration = interval.multipliedBy(2).plus(FIRST_RUN_DELAY);
+        scheduler.scheduleWithFixedDelay(this::verifyQuietly, FIRST_RUN_DELAY.toMillis(), interval.toMillis(),
+            TimeUnit.MILLISECONDS);
+        logger.info("Storage usage verifier started (every {} min)", interval.toMinutes());
+    }
+    
+    /**
+     * Recomputes usage and corrects counters that were off by the same
+     * amount on the previous run. Does nothing unless this node holds the
+     * lease.
+     *
+     * @return The number of users whose counters were corrected
+     */
+    public int verify() {
+        if (!taskLeaseRepository.tryAcquire(LEASE_TASK, nodeId, leaseDuration)) {
+            // Differences seen before another node took over are stale by the time this one gets it back
+            suspectedDrift = new HashMap<>();
+            logger.debug("Storage usage is verified by another node");
+            return 0;
+        }
+        long start = System.nanoTime();
+        Map<UUID, StorageUsage> actual = new HashMap<>();
+        long step = Long.divideUnsigned(-1L, TOKEN_RANGES);
+        long fromToken = Long.MIN_VALUE;
+        for (int i = 0; i < TOKEN_RANGES; i++) {
+            long toToken = i == TOKEN_RANGES - 1 ? Long.MAX_VALUE : fromToken + step;
+            fileRepository.forEachFileSizeInTokenRange(fromToken, toToken, (userId, size) ->
+                actual.merge(userId, new StorageUsage(size, 1), (a, b) -> a.plus(b.bytes(), b.files())));
+            fromToken = toToken;
+        }
+        
+        Map<UUID, StorageUsage> counted = new HashMap<>();
+        storageUsageRepository.forEach(counted::put);
+        
+        Set<UUID> users = new HashSet<>(actual.keySet());
+        users.addAll(counted.keySet());
+        Map<UUID, StorageUsage> drift = new HashMap<>();
+        int corrected = 0;
+        // The scan may have outlasted the lease; another node could be correcting by now
+        boolean leased = taskLeaseRepository.tryAcquire(LEASE_TASK, nodeId, leaseDuration);
+        for (UUID userId : users) {
+            StorageUsage delta = actual.getOrDefault(userId, StorageUsage.NONE)
+                .minus(counted.getOrDefault(userId, StorageUsage.NONE));
+            if (delta.equals(StorageUsage.NONE)) {
+                continue;
+            }
+            if (!leased || !delta.equals(suspectedDrift.get(userId))) {
+                drift.put(userId, delta);
+                continue;
+            }
+            storageUsageTracker.correct(userId, delta);
+            corrected++;
+            logger.info("Corrected storage usage of user {} by {} bytes, {} files", userId, delta.bytes(), delta.files());
+        }
+        suspectedDrift = drift;
+        
+        logger.info("Verified storage usage of {} users in {} ms: {} corrected, {} differing since this run",
+                   users.size(), (System.nanoTime() - start) / 1_000_000, corrected, drift.size());
+        return corrected;
+    }
+    
+    private void verifyQuietly() {
+        try {
+            verify();
+        } catch (RuntimeException e) {
+            logger.error("Failed to verify storage usage", e);
+        }
+    }
+    
+    /**
+     * Stops the background thread, letting a running verification finish.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.studytool.filestorage;
+
+/**
+ * Thrown when a resumable upload request doesn't match the offset the
+ * server has received up to, e.g. a chunk was retried after it already
+ * landed or the upload is finalized before all bytes arrived.
+ */
+public class UploadOffsetException extends RuntimeException {
+    private final long expectedOffset;
+    
+    public UploadOffsetException(long expectedOffset) {
+        super("Upload is at offset " + expectedOffset);
+        this.expectedOffset = expectedOffset;
+    }
+    
+    public long getExpectedOffset() {
+        return expectedOffset;
+    }
+}
@@ -0,0 +1,82 @@
+package com.studytool.filestorage.blob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+/**
+ * Storage for immutable file contents, addressed by key (the content hash).
+ * Implementations keep blobs on the local filesystem or in an S3-compatible
+ * object store, so the backend can run on several nodes without shared disk.
+ */
+public interface BlobStore extends AutoCloseable {
+
+    /**
+     * Stores the content of a local file under the key. The file may be
+     * moved rather than copied; callers must not use it afterwards other
+     * than to delete it if it still exists.
+     *
+     * @param key The blob key
+     * @param file The content to store
+     */
+    void put(String key, Path file) throws IOException;
+
+    /**
+     * Opens the whole blob.
+     *
+     * @return A stream the caller must close
+     */
+    InputStream get(String key) throws IOException;
+
+    /**
+     * Opens a byte range of the blob.
+     *
+     * @param offset First byte to read
+     * @param length Number of bytes to read
+     * @return A stream the caller must close
+     */
+    InputStream get(String key, long offset, long length) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    /**
+     * Lists every stored blob.
+     *
+     * @param consumer Called with each blob's key and last-modified time
+     */
+    void forEach(BiConsumer<String, Instant> consumer) throws IOException;
+
+    /**
+     * The blob as a local file, if this store keeps blobs on local disk.
+     * Lets callers read it directly (memory-mapped, zero-copy).
+     */
+    Optional<Path> localPath(String key);
+
+    /**
+     * A time-limited URL the client can download the blob from directly,
+     * if the store supports it, so large downloads bypass the backend.
+     *
+     * @param filename Name the browser should save the download as
+     * @param validity How long the URL stays valid
+     */
+    Optional<URI> presignedDownloadUrl(String key, String filename, Duration validity);
+
+    /**
+     * A human-readable location of the blob, recorded with file metadata.
+     */
+    String location(String key);
+
+    /**
+     * Releases clients and connections held by the store.
+     */
+    @Override
+    default void close() {
+    }
+}
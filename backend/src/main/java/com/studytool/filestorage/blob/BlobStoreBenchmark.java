@@ -0,0 +1,100 @@
+package com.studytool.filestorage.blob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures put, get and ranged-get throughput of the configured blob store.
+ * Run it once with BLOB_STORE=local and once with BLOB_STORE=s3 (e.g.
+ * against the MinIO service in docker-compose) to compare the backends.
+ * 
+ * Run with {@code gradle benchmarkBlobStore --args="[blobs] [sizeMB]"}.
+ */
+public class BlobStoreBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(BlobStoreBenchmark.class);
+    
+    // Size of each ranged read, about what a PDF viewer asks for per page
+    private static final long RANGE_BYTES = 256 * 1024;
+    
+    public static void main(String[] args) throws IOException {
+        int blobs = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        long size = (args.length > 1 ? Long.parseLong(args[1]) : 16) * 1024 * 1024;
+        
+        BlobStoreConfig config = BlobStoreConfig.fromEnvironment();
+        Path scratch = Files.createTempDirectory("blob-benchmark-");
+        try (BlobStore store = config.createStore(scratch.resolve("blobs"))) {
+            logger.info("Benchmarking {} with {} blobs of {} bytes", config, blobs, size);
+            Random random = new Random(42);
+            List<String> keys = new ArrayList<>(blobs);
+            
+            long putNanos = 0;
+            for (int i = 0; i < blobs; i++) {
+                Path file = writeRandomFile(scratch, size, random);
+                String key = "benchmark-" + System.nanoTime() + "-" + i;
+                long start = System.nanoTime();
+                store.put(key, file);
+                putNanos += System.nanoTime() - start;
+                Files.deleteIfExists(file);
+                keys.add(key);
+            }
+            report("put", blobs * size, putNanos);
+            
+            long getNanos = 0;
+            for (String key : keys) {
+                long start = System.nanoTime();
+                try (InputStream in = store.get(key)) {
+                    in.transferTo(OutputStream.nullOutputStream());
+                }
+                getNanos += System.nanoTime() - start;
+            }
+            report("get", blobs * size, getNanos);
+            
+            long rangeNanos = 0;
+            long rangeBytes = 0;
+            for (String key : keys) {
+                long offset = (long) (random.nextDouble() * (size - RANGE_BYTES));
+                long start = System.nanoTime();
+                try (InputStream in = store.get(key, offset, RANGE_BYTES)) {
+                    rangeBytes += in.transferTo(OutputStream.nullOutputStream());
+                }
+                rangeNanos += System.nanoTime() - start;
+            }
+            report("ranged get", rangeBytes, rangeNanos);
+            logger.info("ranged get: {} ms per request", String.format("%.2f", rangeNanos / 1e6 / blobs));
+            
+            for (String key : keys) {
+                store.delete(key);
+            }
+        } finally {
+            try (var files = Files.walk(scratch)) {
+                files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+    
+    private static Path writeRandomFile(Path directory, long size, Random random) throws IOException {
+        Path file = Files.createTempFile(directory, "blob-", ".bin");
+        byte[] buffer = new byte[1024 * 1024];
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (long written = 0; written < size; written += buffer.length) {
+                random.nextBytes(buffer);
+                out.write(buffer, 0, (int) Math.min(buffer.length, size - written));
+            }
+        }
+        return file;
+    }
+    
+    private static void report(String operation, long bytes, long nanos) {
+        logger.info("{}: {} bytes in {} ms, {} MB/s", operation, bytes, nanos / 1_000_000,
+                   String.format("%.1f", bytes / (1024.0 * 1024) / (nanos / 1e9)));
+    }
+}
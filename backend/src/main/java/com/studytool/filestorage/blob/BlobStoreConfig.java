@@ -0,0 +1,154 @@
+package com.studytool.filestorage.blob;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Configuration for where uploaded file contents are stored.
+ */
+public class BlobStoreConfig {
+    
+    // Default configuration values
+    public static final String DEFAULT_REGION = "us-east-1";
+    public static final String DEFAULT_PREFIX = "blobs/";
+    
+    /**
+     * Where blobs live: a directory under FILE_STORAGE_PATH, or an
+     * S3-compatible bucket.
+     */
+    public enum Type { LOCAL, S3 }
+    
+    private final Type type;
+    private final String endpoint;
+    private final String region;
+    private final String bucket;
+    private final String prefix;
+    private final String accessKey;
+    private final String secretKey;
+    private final boolean pathStyle;
+    
+    /**
+     * Creates a BlobStoreConfig for local storage.
+     */
+    public BlobStoreConfig() {
+        this(Type.LOCAL, null, DEFAULT_REGION, null, DEFAULT_PREFIX, null, null, false);
+    }
+    
+    /**
+     * Creates a BlobStoreConfig with specified values.
+     * 
+     * @param type Local directory or S3-compatible bucket
+     * @param endpoint S3 endpoint URL; null for AWS S3
+     * @param region S3 region
+     * @param bucket S3 bucket name
+     * @param prefix Prefix prepended to every object key
+     * @param accessKey S3 access key
+     * @param secretKey S3 secret key
+     * @param pathStyle Whether to use path-style bucket addressing (needed by MinIO)
+     */
+    public BlobStoreConfig(Type type, String endpoint, String region, String bucket, String prefix,
+                           String accessKey, String secretKey, boolean pathStyle) {
+        this.type = type;
+        this.endpoint = endpoint;
+        this.region = region;
+        this.bucket = bucket;
+        this.prefix = prefix;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.pathStyle = pathStyle;
+    }
+    
+    /**
+     * Creates a BlobStoreConfig from environment variables or uses defaults.
+     * 
+     * @return BlobStoreConfig instance
+     */
+    public static BlobStoreConfig fromEnvironment() {
+        String typeStr = System.getenv("BLOB_STORE");
+        Type type = typeStr == null || typeStr.isEmpty() ? Type.LOCAL : Type.valueOf(typeStr.trim().toUpperCase());
+        
+        String endpoint = System.getenv("S3_ENDPOINT");
+        if (endpoint != null && endpoint.isEmpty()) {
+            endpoint = null;
+        }
+        
+        String region = System.getenv("S3_REGION");
+        if (region == null || region.isEmpty()) {
+            region = DEFAULT_REGION;
+        }
+        
+        String prefix = System.getenv("S3_PREFIX");
+        if (prefix == null) {
+            prefix = DEFAULT_PREFIX;
+        }
+        
+        String pathStyleStr = System.getenv("S3_PATH_STYLE");
+        boolean pathStyle = pathStyleStr != null ? Boolean.parseBoolean(pathStyleStr) : endpoint != null;
+        
+        return new BlobStoreConfig(type, endpoint, region, System.getenv("S3_BUCKET"), prefix,
+                                   System.getenv("S3_ACCESS_KEY"), System.getenv("S3_SECRET_KEY"), pathStyle);
+    }
+    
+    /**
+     * Creates the configured store.
+     * 
+     * @param localDirectory Directory used by the local store
+     */
+    public BlobStore createStore(Path localDirectory) {
+        if (type == Type.S3) {
+            if (bucket == null || bucket.isEmpty()) {
+                throw new IllegalStateException("S3_BUCKET must be set when BLOB_STORE=s3");
+            }
+            return new S3BlobStore(this);
+        }
+        try {
+            return new LocalBlobStore(localDirectory);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to initialize blob store", e);
+        }
+    }
+    
+    public Type getType() {
+        return type;
+    }
+    
+    public String getEndpoint() {
+        return endpoint;
+    }
+    
+    public String getRegion() {
+        return region;
+    }
+    
+    public String getBucket() {
+        return bucket;
+    }
+    
+    public String getPrefix() {
+        return prefix;
+    }
+    
+    public String getAccessKey() {
+        return accessKey;
+    }
+    
+    public String getSecretKey() {
+        return secretKey;
+    }
+    
+    public boolean isPathStyle() {
+        return pathStyle;
+    }
+    
+    @Override
+    public String toString() {
+        return "BlobStoreConfig{" +
+                "type=" + type +
+                ", endpoint='" + endpoint + '\'' +
+                ", region='" + region + '\'' +
+                ", bucket='" + bucket + '\'' +
+                ", prefix='" + prefix + '\'' +
+                ", pathStyle=" + pathStyle +
+                '}';
+    }
+}
@@ -0,0 +1,131 @@
+package com.studytool.filestorage.blob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Keeps blobs as files in a directory on local (or shared) disk.
+ *
+ * Blobs are sharded into two levels of directories by the first four hex
+ * digits of their key (ab/cd/abcd...), so no directory holds more than a few
+ * hundred entries until there are tens of millions of blobs. Blobs written
+ * before sharding sit directly in the directory and are still found there
+ * until StorageLayoutMigration moves them.
+ */
+public class LocalBlobStore implements BlobStore {
+
+    private final Path directory;
+
+    public LocalBlobStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    @Override
+    public void put(String key, Path file) throws IOException {
+        Path target = shardedPath(key);
+        Files.createDirectories(target.getParent());
+        Files.move(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public InputStream get(String key, long offset, long length) throws IOException {
+        FileChannel channel = FileChannel.open(resolve(key), StandardOpenOption.READ);
+        channel.position(offset);
+        return ByteStreams.limit(Channels.newInputStream(channel), length);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(resolve(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(shardedPath(key));
+        Files.deleteIfExists(directory.resolve(key));
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, Instant> consumer) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            Iterator<Path> iterator = files.filter(Files::isRegularFile).iterator();
+            while (iterator.hasNext()) {
+                Path file = iterator.next();
+                Instant lastModified;
+                try {
+                    lastModified = Files.getLastModifiedTime(file).toInstant();
+                } catch (NoSuchFileException e) {
+                    // Deleted while walking
+                    continue;
+                }
+                consumer.accept(file.getFileName().toString(), lastModified);
+            }
+        }
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.of(resolve(key));
+    }
+
+    @Override
+    public Optional<URI> presignedDownloadUrl(String key, String filename, Duration validity) {
+        return Optional.empty();
+    }
+
+    @Override
+    public String location(String key) {
+        return resolve(key).toString();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Where the blob lives in the sharded layout.
+     */
+    public Path shardedPath(String key) {
+        if (key.length() < 4) {
+            return directory.resolve(key);
+        }
+        return directory.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+
+    /**
+     * The blob's current file: the sharded path, or the flat path for blobs
+     * that haven't been migrated yet.
+     */
+    private Path resolve(String key) {
+        Path sharded = shardedPath(key);
+        if (!Files.exists(sharded)) {
+            Path flat = directory.resolve(key);
+            if (Files.exists(flat)) {
+                return flat;
+            }
+        }
+        return sharded;
+    }
+}
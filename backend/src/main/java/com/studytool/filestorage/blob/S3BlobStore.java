@@ -0,0 +1,223 @@
+package com.studytool.filestorage.blob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.ByteStreams;
+
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+
+/**
+ * Keeps blobs in an S3-compatible object store (AWS S3, MinIO, ...).
+ *
+ * Files larger than one part are uploaded with a multipart upload, each part
+ * streamed from disk, so memory use doesn't grow with file size. Downloads
+ * are served through presigned URLs where possible.
+ */
+public class S3BlobStore implements BlobStore {
+    private static final Logger logger = LoggerFactory.getLogger(S3BlobStore.class);
+
+    // S3 requires every part but the last to be at least 5MB
+    private static final long PART_SIZE = 8 * 1024 * 1024;
+
+    private final S3Client client;
+    private final S3Presigner presigner;
+    private final String bucket;
+    private final String prefix;
+
+    public S3BlobStore(BlobStoreConfig config) {
+        StaticCredentialsProvider credentials = StaticCredentialsProvider.create(
+            AwsBasicCredentials.create(config.getAccessKey(), config.getSecretKey()));
+        Region region = Region.of(config.getRegion());
+        // MinIO and most stand-ins only support path-style bucket addressing
+        S3Configuration s3Configuration = S3Configuration.builder()
+            .pathStyleAccessEnabled(config.isPathStyle())
+            .build();
+
+        var clientBuilder = S3Client.builder()
+            .region(region)
+            .credentialsProvider(credentials)
+            .serviceConfiguration(s3Configuration);
+        var presignerBuilder = S3Presigner.builder()
+            .region(region)
+            .credentialsProvider(credentials)
+            .serviceConfiguration(s3Configuration);
+        if (config.getEndpoint() != null) {
+            clientBuilder.endpointOverride(URI.create(config.getEndpoint()));
+            presignerBuilder.endpointOverride(URI.create(config.getEndpoint()));
+        }
+
+        this.client = clientBuilder.build();
+        this.presigner = presignerBuilder.build();
+        this.bucket = config.getBucket();
+        this.prefix = config.getPrefix();
+    }
+
+    @Override
+    public void put(String key, Path file) throws IOException {
+        long size = Files.size(file);
+        try {
+            if (size <= PART_SIZE) {
+                client.putObject(PutObjectRequest.builder().bucket(bucket).key(objectKey(key)).build(),
+                                 RequestBody.fromFile(file));
+            } else {
+                putMultipart(key, file, size);
+            }
+        } catch (S3Exception e) {
+            throw new IOException("Failed to store blob " + key, e);
+        }
+    }
+
+    private void putMultipart(String key, Path file, long size) throws IOException {
+        String uploadId = client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+            .bucket(bucket).key(objectKey(key)).build()).uploadId();
+        try (InputStream in = Files.newInputStream(file)) {
+            List<CompletedPart> parts = new ArrayList<>();
+            int partNumber = 1;
+            for (long offset = 0; offset < size; offset += PART_SIZE, partNumber++) {
+                long length = Math.min(PART_SIZE, size - offset);
+                // Each part is read straight from the file as it is sent
+                String etag = client.uploadPart(UploadPartRequest.builder()
+                        .bucket(bucket).key(objectKey(key)).uploadId(uploadId)
+                        .partNumber(partNumber).contentLength(length).build(),
+                    RequestBody.fromInputStream(ByteStreams.limit(in, length), length)).eTag();
+                parts.add(CompletedPart.builder().partNumber(partNumber).eTag(etag).build());
+            }
+            client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(bucket).key(objectKey(key)).uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                .build());
+            logger.debug("Stored blob {} in {} parts", key, parts.size());
+        } catch (IOException | RuntimeException e) {
+            client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                .bucket(bucket).key(objectKey(key)).uploadId(uploadId).build());
+            throw e;
+        }
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        try {
+            return client.getObject(GetObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+        } catch (S3Exception e) {
+            throw new IOException("Failed to read blob " + key, e);
+        }
+    }
+
+    @Override
+    public InputStream get(String key, long offset, long length) throws IOException {
+        try {
+            return client.getObject(GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(objectKey(key))
+                .range("bytes=" + offset + "-" + (offset + length - 1))
+                .build());
+        } catch (S3Exception e) {
+            throw new IOException("Failed to read blob " + key, e);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        try {
+            client.headObject(HeadObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return false;
+            }
+            throw new IOException("Failed to check blob " + key, e);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            client.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+        } catch (S3Exception e) {
+            throw new IOException("Failed to delete blob " + key, e);
+        }
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, Instant> consumer) throws IOException {
+        try {
+            ListObjectsV2Request request = ListObjectsV2Request.builder().bucket(bucket).prefix(prefix).build();
+            // The paginator fetches the next page of up to 1000 keys as iteration reaches it
+            for (S3Object object : client.listObjectsV2Paginator(request).contents()) {
+                consumer.accept(object.key().substring(prefix.length()), object.lastModified());
+            }
+        } catch (S3Exception e) {
+            throw new IOException("Failed to list blobs", e);
+        }
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<URI> presignedDownloadUrl(String key, String filename, Duration validity) {
+        GetObjectRequest request = GetObjectRequest.builder()
+            .bucket(bucket)
+            .key(objectKey(key))
+            .responseContentDisposition("attachment; filename=\"" + filename + "\"")
+            .build();
+        GetObjectPresignRequest presignRequest = GetObjectPresignRequest.builder()
+            .signatureDuration(validity)
+            .getObjectRequest(request)
+            .build();
+        return Optional.of(URI.create(presigner.presignGetObject(presignRequest).url().toString()));
+    }
+
+    @Override
+    public String location(String key) {
+        return "s3://" + bucket + "/" + objectKey(key);
+    }
+
+    @Override
+    public void close() {
+        presigner.close();
+        client.close();
+    }
+
+    private String objectKey(String key) {
+        return prefix + key;
+    }
+}
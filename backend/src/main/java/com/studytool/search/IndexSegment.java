@@ -0,0 +1,218 @@
+package com.studytool.search;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+/**
+ * Read-only view of a segment written by {@link SegmentWriter}. The whole
+ * file is memory-mapped, so lookups read straight from the page cache and
+ * nothing but the header is copied onto the heap.
+ */
+final class IndexSegment {
+
+    interface PostingConsumer {
+        void accept(int doc, int frequency, int firstByteOffset);
+    }
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final int docCount;
+    private final int termCount;
+    private final int docTableOffset;
+    private final int termIndexOffset;
+    private final int termDataOffset;
+    private final int postingsOffset;
+    private final int textOffset;
+    private final long totalTokens;
+
+    private IndexSegment(Path file, MappedByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.getInt(0) != SegmentWriter.MAGIC || buffer.getInt(4) != SegmentWriter.VERSION) {
+            throw new IOException("Not a search index segment: " + file);
+        }
+        this.docCount = buffer.getInt(8);
+        this.termCount = buffer.getInt(12);
+        this.docTableOffset = (int) buffer.getLong(16);
+        this.termIndexOffset = (int) buffer.getLong(24);
+        this.termDataOffset = (int) buffer.getLong(32);
+        this.postingsOffset = (int) buffer.getLong(40);
+        this.textOffset = (int) buffer.getLong(48);
+
+        long tokens = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            tokens += tokenCount(doc);
+        }
+        this.totalTokens = tokens;
+    }
+
+    static IndexSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new IndexSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * Size of the segment file in bytes.
+     */
+    long sizeBytes() {
+        return buffer.capacity();
+    }
+
+    int docCount() {
+        return docCount;
+    }
+
+    long totalTokens() {
+        return totalTokens;
+    }
+
+    UUID fileId(int doc) {
+        int entry = docEntry(doc);
+        return new UUID(buffer.getLong(entry), buffer.getLong(entry + 8));
+    }
+
+    int tokenCount(int doc) {
+        return buffer.getInt(docEntry(doc) + 16);
+    }
+
+    /**
+     * Binary search of the term dictionary.
+     *
+     * @return The term's ordinal, or -1 if no document in this segment has it
+     */
+    int findTerm(byte[] term) {
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareTerm(termEntry(mid), term);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    int docFreq(int ordinal) {
+        int entry = termEntry(ordinal);
+        return buffer.getInt(entry + 2 + buffer.getShort(entry));
+    }
+
+    /**
+     * Decodes the postings of a term in doc order.
+     */
+    void forEachPosting(int ordinal, PostingConsumer consumer) {
+        int entry = termEntry(ordinal);
+        int length = buffer.getShort(entry);
+        int docFreq = buffer.getInt(entry + 2 + length);
+        int[] position = {postingsOffset + (int) buffer.getLong(entry + 2 + length + 4)};
+        int doc = 0;
+        for (int i = 0; i < docFreq; i++) {
+            doc += SegmentWriter.readVarint(buffer, position);
+            int frequency = SegmentWriter.readVarint(buffer, position);
+            int firstOffset = SegmentWriter.readVarint(buffer, position);
+            consumer.accept(doc, frequency, firstOffset);
+        }
+    }
+
+    /**
+     * Streams a document's stored UTF-8 text.
+     */
+    InputStream openText(int doc) {
+        int entry = docEntry(doc);
+        int start = textOffset + (int) buffer.getLong(entry + 20);
+        int length = buffer.getInt(entry + 28);
+        ByteBuffer text = buffer.duplicate().position(start).limit(start + length).slice();
+        return new InputStream() {
+            @Override
+            public int read() {
+                return text.hasRemaining() ? text.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] target, int offset, int count) {
+                if (!text.hasRemaining()) {
+                    return -1;
+                }
+                int read = Math.min(count, text.remaining());
+                text.get(target, offset, read);
+                return read;
+            }
+        };
+    }
+
+    /**
+     * Cuts a snippet of about the given length out of a document's text,
+     * starting a little before the byte offset and trimmed to whole words.
+     */
+    String snippet(int doc, int byteOffset, int length) {
+        int entry = docEntry(doc);
+        int textStart = textOffset + (int) buffer.getLong(entry + 20);
+        int textLength = buffer.getInt(entry + 28);
+
+        int start = Math.max(0, byteOffset - length / 3);
+        int end = Math.min(textLength, start + length);
+        // Don't start or end in the middle of a multi-byte character
+        while (start > 0 && isContinuationByte(buffer.get(textStart + start))) {
+            start--;
+        }
+        while (end < textLength && isContinuationByte(buffer.get(textStart + end))) {
+            end--;
+        }
+
+        byte[] bytes = new byte[end - start];
+        buffer.get(textStart + start, bytes);
+        String snippet = new String(bytes, StandardCharsets.UTF_8).replaceAll("\\s+", " ");
+
+        int firstSpace = snippet.indexOf(' ');
+        if (start > 0 && firstSpace >= 0 && firstSpace < byteOffset - start) {
+            snippet = snippet.substring(firstSpace + 1);
+        }
+        int lastSpace = snippet.lastIndexOf(' ');
+        if (end < textLength && lastSpace > 0) {
+            snippet = snippet.substring(0, lastSpace);
+        }
+        return (start > 0 ? "..." : "") + snippet.strip() + (end < textLength ? "..." : "");
+    }
+
+    private int docEntry(int doc) {
+        return docTableOffset + doc * SegmentWriter.DOC_ENTRY_BYTES;
+    }
+
+    private int termEntry(int ordinal) {
+        return termDataOffset + buffer.getInt(termIndexOffset + ordinal * 4);
+    }
+
+    private int compareTerm(int entry, byte[] term) {
+        int length = buffer.getShort(entry);
+        int common = Math.min(length, term.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Integer.compare(buffer.get(entry + 2 + i) & 0xFF, term[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, term.length);
+    }
+
+    private static boolean isContinuationByte(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+}
@@ -0,0 +1,83 @@
+package com.studytool.search;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures indexing throughput and query latency of a single user's index
+ * filled with synthetic documents. Words are drawn from a Zipf-like
+ * vocabulary so common terms have long postings lists, as in real notes.
+ *
+ * Run with {@code gradle benchmarkSearch --args="[documents] [wordsPerDocument] [queries]"}.
+ */
+public class SearchBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(SearchBenchmark.class);
+
+    private static final int VOCABULARY = 50_000;
+
+    public static void main(String[] args) throws IOException {
+        int documents = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int wordsPerDocument = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+
+        Path scratch = Files.createTempDirectory("search-benchmark-");
+        try {
+            Random random = new Random(42);
+            UserIndex index = UserIndex.open(scratch);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < documents; i++) {
+                index.add(UUID.randomUUID(), new StringReader(document(random, wordsPerDocument)));
+            }
+            long indexNanos = System.nanoTime() - start;
+            logger.info("Indexed {} documents of {} words in {} ms ({} documents/s)", documents, wordsPerDocument,
+                       indexNanos / 1_000_000, String.format("%.0f", documents / (indexNanos / 1e9)));
+
+            long[] latencies = new long[queries];
+            for (int q = 0; q < queries; q++) {
+                List<byte[]> terms = List.of(
+                    word(random).getBytes(StandardCharsets.UTF_8),
+                    word(random).getBytes(StandardCharsets.UTF_8));
+                long queryStart = System.nanoTime();
+                index.search(terms, 10, 200);
+                latencies[q] = System.nanoTime() - queryStart;
+            }
+            Arrays.sort(latencies);
+            logger.info("{} two-term queries: p50 {} ms, p95 {} ms, p99 {} ms, max {} ms", queries,
+                       millis(latencies[queries / 2]), millis(latencies[queries * 95 / 100]),
+                       millis(latencies[queries * 99 / 100]), millis(latencies[queries - 1]));
+        } finally {
+            try (var files = Files.walk(scratch)) {
+                files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static String document(Random random, int words) {
+        StringBuilder text = new StringBuilder(words * 8);
+        for (int i = 0; i < words; i++) {
+            text.append(word(random)).append(i % 15 == 14 ? ".\n" : " ");
+        }
+        return text.toString();
+    }
+
+    private static String word(Random random) {
+        // Squaring skews the draw towards low ranks, i.e. common words
+        double r = random.nextDouble();
+        return "w" + Integer.toString((int) (r * r * VOCABULARY), 36);
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,66 @@
+package com.studytool.search;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+
+public class SearchController {
+    private static final Logger logger = LoggerFactory.getLogger(SearchController.class);
+    
+    private static final int DEFAULT_LIMIT = 10;
+    
+    private final SearchService searchService;
+    
+    public SearchController(SearchService searchService) {
+        this.searchService = searchService;
+    }
+    
+    public void registerRoutes(Javalin app) {
+        app.get("/api/search", this::search);
+    }
+    
+    /**
+     * GET /api/search?q=...&amp;limit=...
+     * Searches the text of the user's uploaded files.
+     */
+    private void search(Context ctx) {
+        try {
+            String userId = getUserId(ctx);
+            String query = ctx.queryParam("q");
+            if (query == null || query.isBlank()) {
+                ctx.status(400).json(Map.of("error", "Query parameter q is required"));
+                return;
+            }
+            
+            int limit = DEFAULT_LIMIT;
+            String limitParam = ctx.queryParam("limit");
+            if (limitParam != null) {
+                try {
+                    limit = Integer.parseInt(limitParam);
+                } catch (NumberFormatException e) {
+                    ctx.status(400).json(Map.of("error", "limit must be a number"));
+                    return;
+                }
+            }
+            
+            ctx.status(200).json(searchService.search(userId, query, limit));
+            
+        } catch (Exception e) {
+            logger.error("Search error", e);
+            ctx.status(500).json(Map.of("error", "Search failed"));
+        }
+    }
+    
+    private String getUserId(Context ctx) {
+        // TODO: Extract user ID from JWT token or session
+        String userId = ctx.header("X-User-ID");
+        if (userId == null || userId.trim().isEmpty()) {
+            userId = "anonymous";
+        }
+        return userId;
+    }
+}
@@ -0,0 +1,13 @@
+package com.studytool.search;
+
+import java.util.List;
+
+/**
+ * Ranked results of a search, best first.
+ */
+public record SearchResponse(
+    String query,
+    List<SearchResult> results,
+    long tookMillis
+) {
+}
@@ -0,0 +1,15 @@
+package com.studytool.search;
+
+import java.util.UUID;
+
+/**
+ * One document matching a search, with a snippet of text around a match.
+ */
+public record SearchResult(
+    UUID fileId,
+    String originalFilename,
+    String storedFilename,
+    double score,
+    String snippet
+) {
+}
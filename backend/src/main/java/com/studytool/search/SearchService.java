@@ -0,0 +1,190 @@
+package com.studytool.search;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalListener;
+import com.studytool.database.File;
+import com.studytool.database.FileRepository;
+import com.studytool.database.User;
+import com.studytool.database.UserRepository;
+
+/**
+ * Full-text search over each user's uploaded documents.
+ *
+ * Every user has their own inverted index in a directory named after their
+ * ID, so searches only ever touch the searching user's postings. Documents
+ * are added once their text has been extracted and removed when the file is
+ * deleted. Open indexes are cached and dropped after a while without use,
+ * or when too many are open; their segments are memory-mapped, so an open
+ * index costs little heap. A dropped index is closed, and a write that
+ * raced with that is repeated on a freshly opened one.
+ */
+public class SearchService {
+    private static final Logger logger = LoggerFactory.getLogger(SearchService.class);
+
+    // Recorded on each indexed file; raising it has every file re-indexed in the background
+    public static final int INDEX_VERSION = 1;
+
+    private static final int MAX_QUERY_TERMS = 16;
+    private static final int MAX_RESULTS = 50;
+    private static final int SNIPPET_BYTES = 200;
+    // Each open index maps its segments, so this bounds the address space and file handles held
+    private static final int MAX_OPEN_INDEXES = 1_000;
+
+    private final FileRepository fileRepository;
+    private final UserRepository userRepository;
+    private final LoadingCache<UUID, UserIndex> indexes;
+
+    public SearchService(Path indexDirectory, FileRepository fileRepository, UserRepository userRepository) {
+        this.fileRepository = fileRepository;
+        this.userRepository = userRepository;
+        RemovalListener<UUID, UserIndex> closeIndex = removal -> removal.getValue().close();
+        this.indexes = CacheBuilder.newBuilder()
+            .expireAfterAccess(30, TimeUnit.MINUTES)
+            .maximumSize(MAX_OPEN_INDEXES)
+            .removalListener(closeIndex)
+            .build(new CacheLoader<>() {
+                @Override
+                public UserIndex load(UUID userId) throws IOException {
+                    return UserIndex.open(indexDirectory.resolve(userId.toString()));
+                }
+            });
+        try {
+            Files.createDirectories(indexDirectory);
+        } catch (IOException e) {
+            logger.error("Failed to create search index directory: {}", indexDirectory, e);
+            throw new RuntimeException("Failed to initialize search index", e);
+        }
+    }
+
+    /**
+     * Adds a file's extracted text to its owner's index, replacing any
+     * earlier version.
+     *
+     * @param text UTF-8 text; read to the end but not closed
+     */
+    public void indexFile(UUID userId, UUID fileId, InputStream text) throws IOException {
+        long start = System.nanoTime();
+        Reader reader = new InputStreamReader(text, StandardCharsets.UTF_8);
+        // A write refused by a closed index hasn't read the text yet, so it can be repeated
+        write(userId, index -> {
+            index.add(fileId, reader);
+            return null;
+        });
+        logger.debug("Indexed file {} for user {} in {} ms", fileId, userId, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Removes a deleted file from its owner's index.
+     */
+    public void removeFile(UUID userId, UUID fileId) {
+        try {
+            if (write(userId, index -> index.delete(fileId))) {
+                logger.debug("Removed file {} from the index of user {}", fileId, userId);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to remove file {} from the search index: {}", fileId, e.getMessage());
+        }
+    }
+
+    /**
+     * Whether the file's text is in its owner's index.
+     */
+    public boolean isIndexed(UUID userId, UUID fileId) {
+        try {
+            return index(userId).contains(fileId);
+        } catch (IOException e) {
+            logger.warn("Failed to open the search index of user {}: {}", userId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Searches the user's documents. Results are ranked with BM25; documents
+     * matching more (and rarer) query terms rank higher.
+     *
+     * @param username The searching user
+     * @param query Free text; terms are matched case-insensitively
+     * @param limit Maximum number of results
+     */
+    public SearchResponse search(String username, String query, int limit) throws IOException {
+        long start = System.nanoTime();
+        Optional<User> user = userRepository.findByUsername(username);
+        if (user.isEmpty()) {
+            throw new RuntimeException("User not found: " + username);
+        }
+        UUID userId = user.get().getId();
+
+        List<byte[]> terms = Tokenizer.terms(query).stream()
+            .limit(MAX_QUERY_TERMS)
+            .map(term -> term.getBytes(StandardCharsets.UTF_8))
+            .toList();
+        List<UserIndex.Hit> hits = index(userId).search(terms, Math.min(Math.max(limit, 1), MAX_RESULTS), SNIPPET_BYTES);
+
+        Map<UUID, File> files = fileRepository.findByIds(hits.stream().map(UserIndex.Hit::fileId).toList());
+        List<SearchResult> results = new ArrayList<>(hits.size());
+        for (UserIndex.Hit hit : hits) {
+            File file = files.get(hit.fileId());
+            // Skip files deleted since they were indexed
+            if (file != null && file.getUserId().equals(userId)) {
+                results.add(new SearchResult(file.getId(), file.getOriginalFilename(), file.getStoredFilename(),
+                                             hit.score(), hit.snippet()));
+            }
+        }
+
+        long tookMillis = (System.nanoTime() - start) / 1_000_000;
+        logger.debug("Search for '{}' by {} returned {} results in {} ms", query, username, results.size(), tookMillis);
+        return new SearchResponse(query, results, tookMillis);
+    }
+
+    @FunctionalInterface
+    private interface IndexWrite<T> {
+        T apply(UserIndex index) throws IOException;
+    }
+
+    /**
+     * Runs a write on the user's index, opening it again if it was closed
+     * (dropped from the cache) before the write got to it.
+     */
+    private <T> T write(UUID userId, IndexWrite<T> write) throws IOException {
+        while (true) {
+            UserIndex index = index(userId);
+            try {
+                return write.apply(index);
+            } catch (UserIndex.ClosedIndexException e) {
+                indexes.asMap().remove(userId, index);
+            }
+        }
+    }
+
+    private UserIndex index(UUID userId) throws IOException {
+        try {
+            return indexes.get(userId);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new UncheckedIOException(new IOException("Failed to open search index", e.getCause()));
+        }
+    }
+}
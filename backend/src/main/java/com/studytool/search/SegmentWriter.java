@@ -0,0 +1,269 @@
+package com.studytool.search;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Builds an immutable index segment. Documents are tokenized as they are
+ * added; their text is spooled to a scratch file and their postings are kept
+ * in growable int arrays until {@link #write(Path)} lays the segment out on
+ * disk in the format {@link IndexSegment} reads.
+ *
+ * Layout (big-endian):
+ * <pre>
+ * header      magic, version, docCount, termCount (ints);
+ *             docTable, termIndex, termData, postings, text offsets (longs)
+ * docTable    per doc: fileId (2 longs), tokenCount (int), textStart (long), textLength (int)
+ * termIndex   per term, in UTF-8 byte order: offset of its termData entry (int)
+ * termData    per term: length (short), UTF-8 bytes, docFreq (int), postings offset (long)
+ * postings    per term and doc: doc delta, term frequency, first byte offset (varints)
+ * text        the documents' UTF-8 text
+ * </pre>
+ */
+final class SegmentWriter implements AutoCloseable {
+
+    static final int MAGIC = 0x53545831; // "STX1"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 4 * 4 + 5 * 8;
+    static final int DOC_ENTRY_BYTES = 8 + 8 + 4 + 8 + 4;
+
+    private static final int POSTING_INTS = 3;
+
+    private final Path textFile;
+    private final Writer text;
+    private final List<UUID> fileIds = new ArrayList<>();
+    private final List<int[]> docStats = new ArrayList<>();
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private long textBytes;
+
+    SegmentWriter(Path scratchDirectory) throws IOException {
+        this.textFile = Files.createTempFile(scratchDirectory, "segment-text-", ".tmp");
+        this.text = new BufferedWriter(new OutputStreamWriter(
+            Files.newOutputStream(textFile), StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    int docCount() {
+        return fileIds.size();
+    }
+
+    /**
+     * Tokenizes a document, copying its text into the segment.
+     */
+    void addDocument(UUID fileId, Reader source) throws IOException {
+        int doc = fileIds.size();
+        Map<String, int[]> terms = new HashMap<>();
+        int[] tokens = new int[1];
+
+        Reader copying = new Reader() {
+            @Override
+            public int read(char[] buffer, int offset, int count) throws IOException {
+                int read = source.read(buffer, offset, count);
+                if (read > 0) {
+                    text.write(buffer, offset, read);
+                }
+                return read;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Tokenizer.tokenize(copying, (term, byteOffset) -> {
+            tokens[0]++;
+            int[] stats = terms.get(term);
+            if (stats == null) {
+                terms.put(term, new int[] {1, byteOffset});
+            } else {
+                stats[0]++;
+            }
+        });
+        text.flush();
+
+        long docTextLength = Files.size(textFile) - textBytes;
+        if (textBytes + docTextLength > Integer.MAX_VALUE) {
+            throw new IOException("Segment text would exceed 2GB");
+        }
+        fileIds.add(fileId);
+        docStats.add(new int[] {tokens[0], (int) textBytes, (int) docTextLength});
+        textBytes += docTextLength;
+
+        terms.forEach((term, stats) ->
+            postings.computeIfAbsent(term, t -> new PostingList()).add(doc, stats[0], stats[1]));
+    }
+
+    /**
+     * Writes the segment to the target file.
+     */
+    void write(Path target) throws IOException {
+        text.close();
+
+        byte[][] terms = new byte[postings.size()][];
+        int i = 0;
+        for (String term : postings.keySet()) {
+            terms[i++] = term.getBytes(StandardCharsets.UTF_8);
+        }
+        Arrays.sort(terms, Arrays::compareUnsigned);
+
+        PostingList[] lists = new PostingList[terms.length];
+        long[] postingOffsets = new long[terms.length];
+        long postingBytes = 0;
+        long termDataBytes = 0;
+        for (int t = 0; t < terms.length; t++) {
+            lists[t] = postings.get(new String(terms[t], StandardCharsets.UTF_8));
+            postingOffsets[t] = postingBytes;
+            postingBytes += lists[t].encodedSize();
+            termDataBytes += 2 + terms[t].length + 4 + 8;
+        }
+
+        long docTableOffset = HEADER_BYTES;
+        long termIndexOffset = docTableOffset + (long) fileIds.size() * DOC_ENTRY_BYTES;
+        long termDataOffset = termIndexOffset + 4L * terms.length;
+        long postingsOffset = termDataOffset + termDataBytes;
+        long textOffset = postingsOffset + postingBytes;
+        if (textOffset + textBytes > Integer.MAX_VALUE) {
+            throw new IOException("Segment would exceed 2GB");
+        }
+
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(fileIds.size());
+            out.writeInt(terms.length);
+            out.writeLong(docTableOffset);
+            out.writeLong(termIndexOffset);
+            out.writeLong(termDataOffset);
+            out.writeLong(postingsOffset);
+            out.writeLong(textOffset);
+
+            for (int doc = 0; doc < fileIds.size(); doc++) {
+                int[] stats = docStats.get(doc);
+                out.writeLong(fileIds.get(doc).getMostSignificantBits());
+                out.writeLong(fileIds.get(doc).getLeastSignificantBits());
+                out.writeInt(stats[0]);
+                out.writeLong(stats[1]);
+                out.writeInt(stats[2]);
+            }
+
+            int entryOffset = 0;
+            for (byte[] term : terms) {
+                out.writeInt(entryOffset);
+                entryOffset += 2 + term.length + 4 + 8;
+            }
+            for (int t = 0; t < terms.length; t++) {
+                out.writeShort(terms[t].length);
+                out.write(terms[t]);
+                out.writeInt(lists[t].docFreq());
+                out.writeLong(postingOffsets[t]);
+            }
+            for (PostingList list : lists) {
+                list.writeTo(out);
+            }
+            out.flush();
+
+            try (FileChannel textChannel = FileChannel.open(textFile, StandardOpenOption.READ)) {
+                for (long position = 0; position < textBytes; ) {
+                    position += textChannel.transferTo(position, textBytes - position, channel);
+                }
+            }
+            channel.force(false);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        text.close();
+        Files.deleteIfExists(textFile);
+    }
+
+    static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static int readVarint(ByteBuffer buffer, int[] position) {
+        int p = position[0];
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get(p++);
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        position[0] = p;
+        return value;
+    }
+
+    /**
+     * Postings of one term as (doc, frequency, first byte offset) triples in
+     * a flat int array; docs are added in increasing order.
+     */
+    private static final class PostingList {
+        private int[] data = new int[POSTING_INTS * 2];
+        private int size;
+
+        void add(int doc, int frequency, int firstOffset) {
+            if (size + POSTING_INTS > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[size++] = doc;
+            data[size++] = frequency;
+            data[size++] = firstOffset;
+        }
+
+        int docFreq() {
+            return size / POSTING_INTS;
+        }
+
+        long encodedSize() {
+            long bytes = 0;
+            int previous = 0;
+            for (int i = 0; i < size; i += POSTING_INTS) {
+                bytes += varintSize(data[i] - previous) + varintSize(data[i + 1]) + varintSize(data[i + 2]);
+                previous = data[i];
+            }
+            return bytes;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            int previous = 0;
+            for (int i = 0; i < size; i += POSTING_INTS) {
+                writeVarint(out, data[i] - previous);
+                writeVarint(out, data[i + 1]);
+                writeVarint(out, data[i + 2]);
+                previous = data[i];
+            }
+        }
+    }
+}
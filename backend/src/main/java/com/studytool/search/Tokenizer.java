@@ -0,0 +1,95 @@
+package com.studytool.search;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Splits text into lower-case terms: runs of letters and digits. Terms that
+ * are too short or too long to be useful search keys are dropped.
+ *
+ * Each term is reported with the UTF-8 byte offset it starts at, so snippets
+ * can be cut straight out of the stored text.
+ */
+final class Tokenizer {
+
+    static final int MIN_TERM_LENGTH = 2;
+    static final int MAX_TERM_LENGTH = 64;
+
+    interface TermConsumer {
+        void accept(String term, int byteOffset);
+    }
+
+    private Tokenizer() {
+    }
+
+    /**
+     * Streams the terms of the text to the consumer.
+     *
+     * @return Number of characters read
+     */
+    static long tokenize(Reader in, TermConsumer consumer) throws IOException {
+        char[] buffer = new char[8192];
+        StringBuilder term = new StringBuilder(MAX_TERM_LENGTH);
+        long chars = 0;
+        int byteOffset = 0;
+        int termStart = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                char c = buffer[i];
+                if (Character.isLetterOrDigit(c)) {
+                    if (term.length() == 0) {
+                        termStart = byteOffset;
+                    }
+                    // Past the limit the term will be dropped; stop growing it
+                    if (term.length() <= MAX_TERM_LENGTH) {
+                        term.append(Character.toLowerCase(c));
+                    }
+                } else if (term.length() > 0) {
+                    emit(term, termStart, consumer);
+                }
+                byteOffset += utf8Length(c);
+            }
+            chars += read;
+        }
+        if (term.length() > 0) {
+            emit(term, termStart, consumer);
+        }
+        return chars;
+    }
+
+    /**
+     * The distinct terms of a query, in order.
+     */
+    static Set<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        try {
+            tokenize(new StringReader(text), (term, offset) -> terms.add(term));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return terms;
+    }
+
+    private static void emit(StringBuilder term, int byteOffset, TermConsumer consumer) {
+        if (term.length() >= MIN_TERM_LENGTH && term.length() <= MAX_TERM_LENGTH) {
+            consumer.accept(term.toString(), byteOffset);
+        }
+        term.setLength(0);
+    }
+
+    private static int utf8Length(char c) {
+        if (c < 0x80) {
+            return 1;
+        }
+        // Each half of a surrogate pair accounts for two of its four bytes
+        if (c < 0x800 || Character.isSurrogate(c)) {
+            return 2;
+        }
+        return 3;
+    }
+}
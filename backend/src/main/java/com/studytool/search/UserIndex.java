@@ -0,0 +1,486 @@
+package com.studytool.search;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.Striped;
+
+/**
+ * One user's inverted index: a directory of immutable segments plus, per
+ * segment, a bitset of deleted documents.
+ *
+ * Every added document becomes a new small segment. Segments are grouped
+ * into tiers by document count, a factor of {@link #MERGE_FACTOR} apart;
+ * whenever a tier fills up its segments are merged into one of the next
+ * tier. The segment count thus grows only logarithmically and each document
+ * is rewritten a logarithmic number of times. Segments large enough that
+ * merging {@link #MERGE_FACTOR} of them could approach the 2GB segment limit
+ * are no longer merged. The segments file lists the live segments
+ * and is replaced atomically, so a crash leaves either the old or the new
+ * set; segment files it doesn't list are removed on the next open.
+ *
+ * Writers are serialized on the index directory, not just the instance: an
+ * index dropped from the cache may still be finishing a write when the next
+ * instance for the same directory is opened. Opening waits for that write,
+ * and a closed index refuses further ones. Searches run without locking
+ * against an immutable snapshot of segments and deletions.
+ */
+final class UserIndex {
+    private static final Logger logger = LoggerFactory.getLogger(UserIndex.class);
+
+    private static final String MANIFEST = "segments";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String DELETES_SUFFIX = ".del";
+
+    private static final int MERGE_FACTOR = 4;
+    // Most a merge may write; half the segment format's 2GB limit, as merged postings can encode a little larger
+    private static final long MAX_MERGED_SEGMENT_BYTES = 1L << 30;
+
+    // Held while opening or writing an index directory
+    private static final Striped<Lock> DIRECTORY_LOCKS = Striped.lock(64);
+
+    // BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private record LiveSegment(IndexSegment segment, BitSet deleted) {
+        String name() {
+            return segment.getFile().getFileName().toString();
+        }
+
+        int liveDocs() {
+            return segment.docCount() - deleted.cardinality();
+        }
+    }
+
+    private record Snapshot(List<LiveSegment> segments, long liveDocs, long liveTokens) {
+    }
+
+    private record DocRef(IndexSegment segment, int doc) {
+    }
+
+    /**
+     * A ranked document.
+     */
+    record Hit(UUID fileId, double score, String snippet) {
+    }
+
+    private final Path directory;
+    private final Map<UUID, DocRef> docs = new HashMap<>();
+    private volatile Snapshot snapshot;
+    private volatile boolean closed;
+
+    private UserIndex(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens (or creates) the index in the given directory.
+     */
+    static UserIndex open(Path directory) throws IOException {
+        Lock lock = directoryLock(directory);
+        lock.lock();
+        try {
+            return openLocked(directory);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static UserIndex openLocked(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        UserIndex index = new UserIndex(directory);
+
+        List<LiveSegment> segments = new ArrayList<>();
+        Path manifest = directory.resolve(MANIFEST);
+        Set<String> listed = new HashSet<>();
+        if (Files.exists(manifest)) {
+            for (String name : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+                if (!name.isBlank() && listed.add(name.trim())) {
+                    IndexSegment segment = IndexSegment.open(directory.resolve(name.trim()));
+                    segments.add(new LiveSegment(segment, readDeletes(directory.resolve(name.trim() + DELETES_SUFFIX))));
+                }
+            }
+        }
+        index.removeUnlisted(listed);
+
+        synchronized (index) {
+            for (LiveSegment live : segments) {
+                for (int doc = 0; doc < live.segment().docCount(); doc++) {
+                    if (!live.deleted().get(doc)) {
+                        index.docs.put(live.segment().fileId(doc), new DocRef(live.segment(), doc));
+                    }
+                }
+            }
+            index.publish(segments);
+        }
+        return index;
+    }
+
+    synchronized boolean contains(UUID fileId) {
+        return docs.containsKey(fileId);
+    }
+
+    synchronized int docCount() {
+        return docs.size();
+    }
+
+    /**
+     * Indexes a document, replacing any earlier version of it.
+     *
+     * @throws ClosedIndexException if the index was closed; open it again to write
+     */
+    void add(UUID fileId, Reader text) throws IOException {
+        Lock lock = directoryLock(directory);
+        lock.lock();
+        try {
+            synchronized (this) {
+                ensureOpen();
+                addLocked(fileId, text);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void addLocked(UUID fileId, Reader text) throws IOException {
+        Path segmentFile;
+        try (SegmentWriter writer = new SegmentWriter(directory)) {
+            writer.addDocument(fileId, text);
+            segmentFile = newSegmentFile();
+            writer.write(segmentFile);
+        }
+
+        List<LiveSegment> segments = new ArrayList<>(snapshot.segments());
+        markDeleted(fileId, segments);
+        IndexSegment segment = IndexSegment.open(segmentFile);
+        segments.add(new LiveSegment(segment, new BitSet()));
+        writeManifest(segments);
+        docs.put(fileId, new DocRef(segment, 0));
+        publish(segments);
+
+        // The document is listed by now, so a failed merge doesn't fail the add; the next add tries it again
+        try {
+            List<LiveSegment> tier;
+            while ((tier = fullTier()) != null) {
+                merge(tier);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to merge segments in {}: {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * Removes a document from the index.
+     *
+     * @return false if the document wasn't indexed
+     * @throws ClosedIndexException if the index was closed; open it again to write
+     */
+    boolean delete(UUID fileId) throws IOException {
+        Lock lock = directoryLock(directory);
+        lock.lock();
+        try {
+            synchronized (this) {
+                ensureOpen();
+                List<LiveSegment> segments = new ArrayList<>(snapshot.segments());
+                if (!markDeleted(fileId, segments)) {
+                    return false;
+                }
+                publish(segments);
+                return true;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Refuses further writes. A write in progress finishes; searches keep
+     * working on what they see. The segments are unmapped once unreachable.
+     */
+    void close() {
+        closed = true;
+    }
+
+    /**
+     * Thrown by writes to a closed index.
+     */
+    static final class ClosedIndexException extends IOException {
+        ClosedIndexException(Path directory) {
+            super("Search index is closed: " + directory);
+        }
+    }
+
+    private void ensureOpen() throws ClosedIndexException {
+        if (closed) {
+            throw new ClosedIndexException(directory);
+        }
+    }
+
+    private static Lock directoryLock(Path directory) {
+        return DIRECTORY_LOCKS.get(directory.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Ranks documents against the query terms with BM25 and returns the best
+     * with a snippet around the rarest matching term.
+     */
+    List<Hit> search(List<byte[]> terms, int limit, int snippetLength) {
+        Snapshot current = snapshot;
+        if (current.liveDocs() == 0 || terms.isEmpty()) {
+            return List.of();
+        }
+        double averageLength = Math.max(1.0, (double) current.liveTokens() / current.liveDocs());
+
+        // Document frequencies across all segments
+        int[] docFreqs = new int[terms.size()];
+        for (LiveSegment live : current.segments()) {
+            for (int t = 0; t < terms.size(); t++) {
+                int ordinal = live.segment().findTerm(terms.get(t));
+                if (ordinal >= 0) {
+                    docFreqs[t] += live.segment().docFreq(ordinal);
+                }
+            }
+        }
+
+        record Candidate(LiveSegment live, int doc, double score, int offset) {
+        }
+        PriorityQueue<Candidate> best = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score));
+
+        for (LiveSegment live : current.segments()) {
+            IndexSegment segment = live.segment();
+            double[] scores = new double[segment.docCount()];
+            int[] snippetOffsets = new int[segment.docCount()];
+            double[] snippetWeights = new double[segment.docCount()];
+            boolean matched = false;
+
+            for (int t = 0; t < terms.size(); t++) {
+                int ordinal = segment.findTerm(terms.get(t));
+                if (ordinal < 0) {
+                    continue;
+                }
+                matched = true;
+                double idf = Math.log(1 + (current.liveDocs() - docFreqs[t] + 0.5) / (docFreqs[t] + 0.5));
+                segment.forEachPosting(ordinal, (doc, frequency, firstOffset) -> {
+                    if (live.deleted().get(doc)) {
+                        return;
+                    }
+                    double norm = K1 * (1 - B + B * segment.tokenCount(doc) / averageLength);
+                    scores[doc] += idf * frequency * (K1 + 1) / (frequency + norm);
+                    if (idf > snippetWeights[doc]) {
+                        snippetWeights[doc] = idf;
+                        snippetOffsets[doc] = firstOffset;
+                    }
+                });
+            }
+            if (!matched) {
+                continue;
+            }
+
+            for (int doc = 0; doc < scores.length; doc++) {
+                if (scores[doc] > 0 && (best.size() < limit || scores[doc] > best.peek().score())) {
+                    best.add(new Candidate(live, doc, scores[doc], snippetOffsets[doc]));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            Candidate candidate = best.poll();
+            IndexSegment segment = candidate.live().segment();
+            hits.add(new Hit(segment.fileId(candidate.doc()), candidate.score(),
+                             segment.snippet(candidate.doc(), candidate.offset(), snippetLength)));
+        }
+        // The queue yields the lowest score first
+        Collections.reverse(hits);
+        return hits;
+    }
+
+    /**
+     * Finds the lowest tier holding {@link #MERGE_FACTOR} segments, leaving
+     * out segments too large to merge.
+     *
+     * @return Those segments, or null if no tier is full
+     */
+    private List<LiveSegment> fullTier() {
+        Map<Integer, List<LiveSegment>> tiers = new HashMap<>();
+        for (LiveSegment live : snapshot.segments()) {
+            if (live.segment().sizeBytes() > MAX_MERGED_SEGMENT_BYTES / MERGE_FACTOR) {
+                continue;
+            }
+            int tier = 0;
+            for (int docs = live.liveDocs(); docs >= MERGE_FACTOR; docs /= MERGE_FACTOR) {
+                tier++;
+            }
+            tiers.computeIfAbsent(tier, t -> new ArrayList<>()).add(live);
+        }
+        return tiers.entrySet().stream()
+            .filter(entry -> entry.getValue().size() >= MERGE_FACTOR)
+            .min(Map.Entry.comparingByKey())
+            .map(entry -> entry.getValue().subList(0, MERGE_FACTOR))
+            .orElse(null);
+    }
+
+    /**
+     * Merges segments into one, dropping deleted documents.
+     */
+    private void merge(List<LiveSegment> merging) throws IOException {
+        long start = System.nanoTime();
+
+        Path mergedFile = newSegmentFile();
+        List<UUID> mergedIds = new ArrayList<>();
+        try (SegmentWriter writer = new SegmentWriter(directory)) {
+            for (LiveSegment live : merging) {
+                for (int doc = 0; doc < live.segment().docCount(); doc++) {
+                    if (live.deleted().get(doc)) {
+                        continue;
+                    }
+                    // Stored text tokenizes to the same postings it was indexed with
+                    try (Reader text = new InputStreamReader(live.segment().openText(doc), StandardCharsets.UTF_8)) {
+                        writer.addDocument(live.segment().fileId(doc), text);
+                    }
+                    mergedIds.add(live.segment().fileId(doc));
+                }
+            }
+            writer.write(mergedFile);
+        }
+
+        IndexSegment merged = IndexSegment.open(mergedFile);
+        List<LiveSegment> remaining = new ArrayList<>(snapshot.segments());
+        remaining.removeAll(merging);
+        remaining.add(new LiveSegment(merged, new BitSet()));
+        writeManifest(remaining);
+        for (int doc = 0; doc < mergedIds.size(); doc++) {
+            docs.put(mergedIds.get(doc), new DocRef(merged, doc));
+        }
+        publish(remaining);
+
+        // Searches still holding the old segments keep their mappings
+        for (LiveSegment live : merging) {
+            Files.deleteIfExists(live.segment().getFile());
+            Files.deleteIfExists(deletesFile(live.name()));
+        }
+        logger.debug("Merged {} segments ({} documents) in {} in {} ms", merging.size(), mergedIds.size(),
+                    directory, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Marks the document deleted in a copy of its segment's bitset, replacing
+     * the segment's entry in the list.
+     */
+    private boolean markDeleted(UUID fileId, List<LiveSegment> segments) throws IOException {
+        DocRef ref = docs.remove(fileId);
+        if (ref == null) {
+            return false;
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            LiveSegment live = segments.get(i);
+            if (live.segment() == ref.segment()) {
+                BitSet deleted = (BitSet) live.deleted().clone();
+                deleted.set(ref.doc());
+                writeDeletes(deletesFile(live.name()), deleted);
+                segments.set(i, new LiveSegment(live.segment(), deleted));
+                break;
+            }
+        }
+        return true;
+    }
+
+    private void publish(List<LiveSegment> segments) {
+        long liveDocs = 0;
+        long liveTokens = 0;
+        for (LiveSegment live : segments) {
+            liveDocs += live.liveDocs();
+            liveTokens += live.segment().totalTokens();
+            for (int doc = live.deleted().nextSetBit(0); doc >= 0; doc = live.deleted().nextSetBit(doc + 1)) {
+                liveTokens -= live.segment().tokenCount(doc);
+            }
+        }
+        snapshot = new Snapshot(List.copyOf(segments), liveDocs, liveTokens);
+    }
+
+    private Path newSegmentFile() {
+        return directory.resolve(UUID.randomUUID() + SEGMENT_SUFFIX);
+    }
+
+    private Path deletesFile(String segmentName) {
+        return directory.resolve(segmentName + DELETES_SUFFIX);
+    }
+
+    private void writeManifest(List<LiveSegment> segments) throws IOException {
+        List<String> names = segments.stream().map(LiveSegment::name).toList();
+        Path temp = Files.createTempFile(directory, MANIFEST, ".tmp");
+        Files.write(temp, names, StandardCharsets.UTF_8);
+        Files.move(temp, directory.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeDeletes(Path file, BitSet deleted) throws IOException {
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+            long[] words = deleted.toLongArray();
+            out.writeInt(words.length);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static BitSet readDeletes(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return new BitSet();
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            long[] words = new long[in.readInt()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = in.readLong();
+            }
+            return BitSet.valueOf(words);
+        }
+    }
+
+    /**
+     * Deletes segments left behind by a crash between writing a segment and
+     * listing it, and leftover temp files.
+     */
+    private void removeUnlisted(Set<String> listed) throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                String segmentName = name.endsWith(DELETES_SUFFIX)
+                    ? name.substring(0, name.length() - DELETES_SUFFIX.length())
+                    : name;
+                if (name.endsWith(".tmp") || (segmentName.endsWith(SEGMENT_SUFFIX) && !listed.contains(segmentName))) {
+                    logger.debug("Removing unreferenced index file {}", entry);
+                    Files.deleteIfExists(entry);
+                }
+            }
+        }
+    }
+}
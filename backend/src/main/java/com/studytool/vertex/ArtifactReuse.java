@@ -0,0 +1,198 @@
+package com.studytool.vertex;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.studytool.database.ContentHash;
+import com.studytool.vertex.repository.SharedArtifactRepository;
+
+/**
+ * Reuses model output across users. When many students upload the same
+ * course material, the extracted text is identical, so the first summary,
+ * flashcard set or quiz generated from it can be handed to everyone else
+ * who asks for the same thing, without another model call.
+ *
+ * Output is keyed by the source text's hash and a generation hash covering
+ * the artifact kind, model, prompt template and requested count. Changing
+ * the model or editing a prompt therefore starts a fresh generation.
+ * Concurrent requests for the same key share one model call. If that call
+ * fails, one of the waiting requests tries once more for the rest; if the
+ * retry fails too, they all fail with its exception.
+ */
+public class ArtifactReuse {
+    private static final Logger logger = LoggerFactory.getLogger(ArtifactReuse.class);
+
+    public enum Kind { SUMMARY, FLASHCARDS, QUIZ }
+
+    /**
+     * Output for a request, and whether it came from an earlier generation.
+     */
+    public record Result<T>(T value, boolean reused) {
+    }
+
+    /**
+     * Requests since startup and how many of them were served without a
+     * model call.
+     */
+    public record Stats(long requests, long reused) {
+        public double reuseRatio() {
+            return requests == 0 ? 0 : (double) reused / requests;
+        }
+    }
+
+    private final SharedArtifactRepository repository;
+    private final String model;
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final Map<Kind, LongAdder> requests = new EnumMap<>(Kind.class);
+    private final Map<Kind, LongAdder> reused = new EnumMap<>(Kind.class);
+
+    /**
+     * @param model The model that generates output, part of every generation hash
+     */
+    public ArtifactReuse(SharedArtifactRepository repository, String model) {
+        this.repository = repository;
+        this.model = model;
+        for (Kind kind : Kind.values()) {
+            requests.put(kind, new LongAdder());
+            reused.put(kind, new LongAdder());
+        }
+    }
+
+    /**
+     * The generation hash for an artifact made with this prompt template.
+     *
+     * @param count Requested number of cards or questions; 0 for summaries
+     */
+    public String generation(Kind kind, String promptTemplate, int count) {
+        return ContentHash.sha256(kind + "\n" + model + "\n" + count + "\n" + promptTemplate);
+    }
+
+    /**
+     * Returns output generated earlier for the same source text and
+     * generation, or generates and stores it. Output is only stored once it
+     * parses, so a malformed model answer is never handed out again.
+     *
+     * @param contentHash Hash of the source text
+     * @param regenerate Ask the model even if output exists or is being
+     *        generated concurrently; the new output replaces it
+     * @param generate Calls the model
+     * @param parse Turns output into the artifact; throws if the output is unusable
+     */
+    public <T> Result<T> load(Kind kind, String contentHash, String generation, boolean regenerate,
+                              Supplier<String> generate, Function<String, T> parse) {
+        requests.get(kind).increment();
+        if (!regenerate) {
+            Optional<T> stored = findStored(kind, contentHash, generation, parse);
+            if (stored.isPresent()) {
+                reused.get(kind).increment();
+                logger.info("Reused {} for source text {}", kind, contentHash);
+                return new Result<>(stored.get(), true);
+            }
+        }
+
+        if (regenerate) {
+            // Output generated concurrently may be the very output being replaced, so don't wait for it
+            return new Result<>(generateAndStore(kind, contentHash, generation, generate, parse, null), false);
+        }
+
+        String key = contentHash + "/" + generation;
+        boolean retried = false;
+        while (true) {
+            CompletableFuture<String> mine = new CompletableFuture<>();
+            CompletableFuture<String> running = inFlight.putIfAbsent(key, mine);
+            if (running == null) {
+                try {
+                    return new Result<>(generateAndStore(kind, contentHash, generation, generate, parse, mine), false);
+                } finally {
+                    inFlight.remove(key, mine);
+                }
+            }
+            // Someone is generating the same thing right now
+            try {
+                T value = parse.apply(running.join());
+                reused.get(kind).increment();
+                logger.info("Reused {} for source text {} from a concurrent request", kind, contentHash);
+                return new Result<>(value, true);
+            } catch (CompletionException e) {
+                if (retried) {
+                    // Failed twice in a row; the model is likely down, so don't queue up behind yet another attempt
+                    throw failure(e);
+                }
+                // Their generation failed; start over so one waiter generates again and the rest wait for it
+                retried = true;
+                inFlight.remove(key, running);
+            }
+        }
+    }
+
+    private <T> Optional<T> findStored(Kind kind, String contentHash, String generation, Function<String, T> parse) {
+        try {
+            return repository.find(contentHash, generation).map(parse);
+        } catch (RuntimeException e) {
+            // Reuse is an optimization; fall back to the model
+            logger.warn("Failed to reuse {} for source text {}: {}", kind, contentHash, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private <T> T generateAndStore(Kind kind, String contentHash, String generation, Supplier<String> generate,
+                                   Function<String, T> parse, CompletableFuture<String> waiters) {
+        T value;
+        String output;
+        try {
+            output = generate.get();
+            value = parse.apply(output);
+        } catch (Throwable e) {
+            // Errors too, or waiters would block forever
+            if (waiters != null) {
+                waiters.completeExceptionally(e);
+            }
+            throw e;
+        }
+        if (waiters != null) {
+            waiters.complete(output);
+        }
+        try {
+            repository.save(contentHash, generation, kind.name().toLowerCase(), model, output);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to share {} for source text {}: {}", kind, contentHash, e.getMessage());
+        }
+        return value;
+    }
+
+    /**
+     * The exception a shared generation failed with, to rethrow as is.
+     */
+    private static RuntimeException failure(CompletionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return e;
+    }
+
+    /**
+     * Reuse counts per artifact kind since startup. Every reused request is
+     * a model call saved.
+     */
+    public Map<Kind, Stats> stats() {
+        Map<Kind, Stats> stats = new EnumMap<>(Kind.class);
+        for (Kind kind : Kind.values()) {
+            stats.put(kind, new Stats(requests.get(kind).sum(), reused.get(kind).sum()));
+        }
+        return stats;
+    }
+}
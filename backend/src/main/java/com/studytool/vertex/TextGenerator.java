@@ -0,0 +1,16 @@
+package com.studytool.vertex;
+
+/**
+ * Produces model output for a fully rendered prompt. Abstracts the Vertex AI
+ * client so calls can be recorded or replayed offline.
+ */
+public interface TextGenerator {
+    
+    /**
+     * Generates text for the given prompt.
+     * 
+     * @param prompt The rendered prompt
+     * @return The model's text response
+     */
+    String generate(String prompt);
+}
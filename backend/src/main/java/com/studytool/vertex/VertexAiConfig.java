@@ -9,10 +9,20 @@ public class VertexAiConfig {
     public static final String DEFAULT_PROJECT_ID = "csi3370-study-tool";
     public static final String DEFAULT_LOCATION = "us-central1";
     public static final String DEFAULT_TEXT_MODEL = "gemini-2.0-flash-lite-001";
+    public static final String DEFAULT_RECORDING_PATH = "./vertex-recording.jsonl.gz";
+    
+    /**
+     * How model calls are served: live against Vertex AI, live while recording
+     * every call to a file, or replayed from a previous recording.
+     */
+    public enum Mode { LIVE, RECORD, REPLAY }
     
     private final String projectId;
     private final String location;
     private final String textModel;
+    private final Mode mode;
+    private final String recordingPath;
+    private final double replayLatencyScale;
     
     /**
      * Creates a VertexAiConfig with default values.
@@ -29,9 +39,27 @@ public class VertexAiConfig {
      * @param textModel The text model to use
      */
     public VertexAiConfig(String projectId, String location, String textModel) {
+        this(projectId, location, textModel, Mode.LIVE, DEFAULT_RECORDING_PATH, 1.0);
+    }
+    
+    /**
+     * Creates a VertexAiConfig with record/replay settings.
+     * 
+     * @param projectId The Google Cloud project ID
+     * @param location The Vertex AI location
+     * @param textModel The text model to use
+     * @param mode Whether calls are live, recorded or replayed
+     * @param recordingPath File that recordings are written to and replayed from
+     * @param replayLatencyScale Multiplier applied to recorded latencies on replay (0 disables the delay)
+     */
+    public VertexAiConfig(String projectId, String location, String textModel,
+                          Mode mode, String recordingPath, double replayLatencyScale) {
         this.projectId = projectId;
         this.location = location;
         this.textModel = textModel;
+        this.mode = mode;
+        this.recordingPath = recordingPath;
+        this.replayLatencyScale = replayLatencyScale;
     }
     
     /**
@@ -58,7 +86,34 @@ public class VertexAiConfig {
             textModel = DEFAULT_TEXT_MODEL;
         }
         
-        return new VertexAiConfig(projectId, location, textModel);
+        Mode mode = Mode.LIVE;
+        String modeStr = System.getenv("VERTEX_MODE");
+        if (modeStr != null && !modeStr.isEmpty()) {
+            try {
+                mode = Mode.valueOf(modeStr.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                // Unknown mode, stay live
+                mode = Mode.LIVE;
+            }
+        }
+        
+        String recordingPath = System.getenv("VERTEX_RECORDING_PATH");
+        if (recordingPath == null || recordingPath.isEmpty()) {
+            recordingPath = DEFAULT_RECORDING_PATH;
+        }
+        
+        double replayLatencyScale = 1.0;
+        String scaleStr = System.getenv("VERTEX_REPLAY_LATENCY_SCALE");
+        if (scaleStr != null && !scaleStr.isEmpty()) {
+            try {
+                replayLatencyScale = Double.parseDouble(scaleStr);
+            } catch (NumberFormatException e) {
+                // Use recorded latency if parsing fails
+                replayLatencyScale = 1.0;
+            }
+        }
+        
+        return new VertexAiConfig(projectId, location, textModel, mode, recordingPath, replayLatencyScale);
     }
     
     public String getProjectId() {
@@ -73,12 +128,27 @@ public class VertexAiConfig {
         return textModel;
     }
     
+    public Mode getMode() {
+        return mode;
+    }
+    
+    public String getRecordingPath() {
+        return recordingPath;
+    }
+    
+    public double getReplayLatencyScale() {
+        return replayLatencyScale;
+    }
+    
     @Override
     public String toString() {
         return "VertexAiConfig{" +
                "projectId='" + projectId + '\'' +
                ", location='" + location + '\'' +
                ", textModel='" + textModel + '\'' +
+               ", mode=" + mode +
+               ", recordingPath='" + recordingPath + '\'' +
+               ", replayLatencyScale=" + replayLatencyScale +
                '}';
     }
 } 
\ No newline at end of file
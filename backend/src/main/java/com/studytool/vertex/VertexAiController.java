@@ -1,10 +1,14 @@
 package com.studytool.vertex;
 
+import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.studytool.filestorage.FileStorageService;
 import com.studytool.vertex.dto.ExplainRequest;
 import com.studytool.vertex.dto.ExplainResponse;
 import com.studytool.vertex.dto.FlashcardDto;
@@ -24,9 +28,11 @@ public class VertexAiController {
     private static final Logger logger = LoggerFactory.getLogger(VertexAiController.class);
     
     private final VertexAiService vertexAiService;
+    private final FileStorageService fileStorageService;
     
-    public VertexAiController(VertexAiService vertexAiService) {
+    public VertexAiController(VertexAiService vertexAiService, FileStorageService fileStorageService) {
         this.vertexAiService = vertexAiService;
+        this.fileStorageService = fileStorageService;
     }
     
     /**
@@ -36,6 +42,9 @@ public class VertexAiController {
     public void summarize(Context ctx) {
         try {
             SummarizeRequest request = ctx.bodyAsClass(SummarizeRequest.class);
+            if (request.getFiles() != null && !request.getFiles().isEmpty()) {
+                request.setContent(filesText(ctx, request.getFiles()));
+            }
             
             // Validate request
             if (request.getContent() == null || request.getContent().trim().isEmpty()) {
@@ -68,6 +77,9 @@ public class VertexAiController {
     public void generateFlashcards(Context ctx) {
         try {
             FlashcardRequest request = ctx.bodyAsClass(FlashcardRequest.class);
+            if (request.getFiles() != null && !request.getFiles().isEmpty()) {
+                request.setContent(filesText(ctx, request.getFiles()));
+            }
             
             // Validate request
             if (request.getContent() == null || request.getContent().trim().isEmpty()) {
@@ -106,6 +118,9 @@ public class VertexAiController {
     public void createQuiz(Context ctx) {
         try {
             QuizRequest request = ctx.bodyAsClass(QuizRequest.class);
+            if (request.getFiles() != null && !request.getFiles().isEmpty()) {
+                request.setContent(filesText(ctx, request.getFiles()));
+            }
             
             // Validate request
             if (request.getContent() == null || request.getContent().trim().isEmpty()) {
@@ -141,6 +156,19 @@ public class VertexAiController {
         }
     }
     
+    /**
+     * The text of the user's uploaded files, for requests that name files
+     * instead of sending their text. The text is read on the server, from
+     * the text cache, rather than sent to the browser and back.
+     */
+    private String filesText(Context ctx, List<String> files) throws IOException {
+        String username = ctx.header("X-User-ID");
+        if (username == null || username.trim().isEmpty()) {
+            username = "anonymous";
+        }
+        return fileStorageService.readFilesText(username, files);
+    }
+    
     /**
      * POST /api/ai/explain
      * Explains a concept within the given context.
@@ -206,6 +234,41 @@ public class VertexAiController {
         }
     }
     
+    /**
+     * GET /api/ai/reuse
+     * Reports how many artifact requests were served from output generated
+     * for the same source text, per kind and in total, and the model calls
+     * that saved.
+     */
+    public void getReuseStats(Context ctx) {
+        try {
+            Map<String, Object> response = new LinkedHashMap<>();
+            long requests = 0;
+            long reused = 0;
+            for (var entry : vertexAiService.getReuseStats().entrySet()) {
+                ArtifactReuse.Stats stats = entry.getValue();
+                response.put(entry.getKey().name().toLowerCase(), reuseJson(stats));
+                requests += stats.requests();
+                reused += stats.reused();
+            }
+            response.put("total", reuseJson(new ArtifactReuse.Stats(requests, reused)));
+            response.put("modelCalls", vertexAiService.getModelCalls());
+            response.put("modelCallsSaved", reused);
+            ctx.status(HttpStatus.OK).json(response);
+        } catch (Exception e) {
+            logger.error("Error fetching reuse stats", e);
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR).json(new ErrorResponse("Failed to fetch reuse stats"));
+        }
+    }
+    
+    private static Map<String, Object> reuseJson(ArtifactReuse.Stats stats) {
+        return Map.of(
+            "requests", stats.requests(),
+            "reused", stats.reused(),
+            "reuseRatio", stats.reuseRatio()
+        );
+    }
+    
     /**
      * Error response DTO for API errors.
      */
@@ -57,4 +57,15 @@ public interface VertexAiService {
      * Retrieves a full flashcard set by its setId.
      */
     com.studytool.vertex.dto.FlashcardSetDto getFlashcardSet(java.util.UUID setId);
+
+    /**
+     * Per artifact kind, how many requests since startup were answered with
+     * output generated earlier for the same source text.
+     */
+    java.util.Map<ArtifactReuse.Kind, ArtifactReuse.Stats> getReuseStats();
+
+    /**
+     * Model calls made since startup.
+     */
+    long getModelCalls();
 } 
\ No newline at end of file
@@ -4,13 +4,16 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.cloud.vertexai.VertexAI;
-import com.google.cloud.vertexai.api.GenerateContentResponse;
 import com.google.cloud.vertexai.generativeai.GenerativeModel;
-import com.google.cloud.vertexai.generativeai.ResponseHandler;
 import com.studytool.vertex.dto.*;
 import com.studytool.vertex.entity.*;
 import com.studytool.vertex.repository.SummaryRepository;
 import com.studytool.vertex.repository.FlashcardRepository;
+import com.studytool.vertex.repository.QuestionBankRepository;
+import com.studytool.vertex.repository.SharedArtifactRepository;
+import com.studytool.vertex.repository.SourceTextRepository;
+import com.studytool.vertex.replay.RecordingTextGenerator;
+import com.studytool.vertex.replay.ReplayTextGenerator;
 import com.studytool.vertex.dto.FlashcardSetSummaryDto;
 import com.studytool.vertex.dto.FlashcardSetDto;
 import org.slf4j.Logger;
@@ -19,24 +22,34 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Implementation of VertexAiService using Google Vertex AI.
  */
-public class VertexAiServiceImpl implements VertexAiService {
+public class VertexAiServiceImpl implements VertexAiService, AutoCloseable {
     private static final Logger logger = LoggerFactory.getLogger(VertexAiServiceImpl.class);
     
-    private final VertexAI vertexAI;
-    private final GenerativeModel model;
+    private final TextGenerator textGenerator;
     private final SummaryRepository summaryRepository;
     private final FlashcardRepository flashcardRepository;
     private final com.studytool.vertex.repository.QuizRepository quizRepository;
     private final com.studytool.vertex.repository.QuizQuestionRepository quizQuestionRepository;
+    private final QuestionBankRepository questionBankRepository;
+    private final SourceTextRepository sourceTextRepository;
+    private final ArtifactReuse artifactReuse;
     private final ObjectMapper objectMapper;
+    private final LongAdder modelCalls = new LongAdder();
     
     // Prompt templates
     private final String summarizePrompt;
@@ -46,16 +59,21 @@ public class VertexAiServiceImpl implements VertexAiService {
     
     public VertexAiServiceImpl(VertexAiConfig config, SummaryRepository summaryRepository, FlashcardRepository flashcardRepository,
                               com.studytool.vertex.repository.QuizRepository quizRepository,
-                              com.studytool.vertex.repository.QuizQuestionRepository quizQuestionRepository) {
+                              com.studytool.vertex.repository.QuizQuestionRepository quizQuestionRepository,
+                              QuestionBankRepository questionBankRepository,
+                              SourceTextRepository sourceTextRepository,
+                              SharedArtifactRepository sharedArtifactRepository) {
         this.summaryRepository = summaryRepository;
         this.flashcardRepository = flashcardRepository;
         this.quizRepository = quizRepository;
         this.quizQuestionRepository = quizQuestionRepository;
+        this.questionBankRepository = questionBankRepository;
+        this.sourceTextRepository = sourceTextRepository;
+        this.artifactReuse = new ArtifactReuse(sharedArtifactRepository, config.getTextModel());
         this.objectMapper = new ObjectMapper();
         
         try {
-            this.vertexAI = new VertexAI(config.getProjectId(), config.getLocation());
-            this.model = new GenerativeModel(config.getTextModel(), vertexAI);
+            this.textGenerator = createTextGenerator(config);
             
             // Load prompt templates
             this.summarizePrompt = loadPromptTemplate("prompts/summarize.txt");
@@ -63,25 +81,46 @@ public class VertexAiServiceImpl implements VertexAiService {
             this.quizPrompt = loadPromptTemplate("prompts/quiz.txt");
             this.explainPrompt = loadPromptTemplate("prompts/explain.txt");
             
-            logger.info("VertexAiServiceImpl initialized with project: {}, location: {}, model: {}", 
-                       config.getProjectId(), config.getLocation(), config.getTextModel());
+            logger.info("VertexAiServiceImpl initialized with project: {}, location: {}, model: {}, mode: {}", 
+                       config.getProjectId(), config.getLocation(), config.getTextModel(), config.getMode());
         } catch (Exception e) {
             logger.error("Failed to initialize VertexAI service: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to initialize VertexAI service", e);
         }
     }
     
+    /**
+     * Builds the model backend for the configured mode. Replay never touches
+     * Vertex AI, so it works offline and without credentials.
+     */
+    private static TextGenerator createTextGenerator(VertexAiConfig config) throws IOException {
+        Path recordingPath = Paths.get(config.getRecordingPath());
+        if (config.getMode() == VertexAiConfig.Mode.REPLAY) {
+            return new ReplayTextGenerator(recordingPath, config.getReplayLatencyScale());
+        }
+        
+        VertexAI vertexAI = new VertexAI(config.getProjectId(), config.getLocation());
+        TextGenerator live = new VertexTextGenerator(new GenerativeModel(config.getTextModel(), vertexAI));
+        if (config.getMode() == VertexAiConfig.Mode.RECORD) {
+            return new RecordingTextGenerator(live, recordingPath);
+        }
+        return live;
+    }
+    
     @Override
     public SummarizeResponse summarizeMaterial(SummarizeRequest request) {
         try {
             logger.info("Generating summary for user: {}, file: {}", request.getUserId(), request.getFileId());
             
-            String prompt = summarizePrompt.replace("{content}", request.getContent());
-            String summaryText = generateText(prompt);
+            String contentHash = sourceTextRepository.save(request.getContent());
+            String summaryText = artifactReuse.load(ArtifactReuse.Kind.SUMMARY, contentHash,
+                    artifactReuse.generation(ArtifactReuse.Kind.SUMMARY, summarizePrompt, 0), request.isRegenerate(),
+                    () -> generateText(summarizePrompt.replace("{content}", request.getContent())),
+                    text -> text).value();
             
-            // Save to database
+            // Save to database, referencing the source text by hash
             Summary summary = new Summary(request.getUserId(), request.getFileId(), 
-                                        request.getContent(), summaryText);
+                                        contentHash, summaryText);
             summaryRepository.save(summary);
             
             return new SummarizeResponse(summary.getId(), summaryText, summary.getCreatedAt());
@@ -101,14 +140,17 @@ public class VertexAiServiceImpl implements VertexAiService {
                 .replace("{content}", request.getContent())
                 .replace("{count}", String.valueOf(request.getCount()));
             
-            String jsonResponse = generateText(prompt);
+            // The source text is stored once per set
+            String contentHash = sourceTextRepository.save(request.getContent());
+            List<FlashcardDto> flashcards = artifactReuse.load(ArtifactReuse.Kind.FLASHCARDS, contentHash,
+                    artifactReuse.generation(ArtifactReuse.Kind.FLASHCARDS, flashcardsPrompt, request.getCount()),
+                    request.isRegenerate(), () -> generateText(prompt), this::parseFlashcardsFromJson).value();
             UUID setId = UUID.randomUUID();
-            List<FlashcardDto> flashcards = parseFlashcardsFromJson(jsonResponse);
             
             // Save flashcards to database & enrich DTOs
             for (FlashcardDto dto : flashcards) {
                 Flashcard flashcard = new Flashcard(setId, request.getUserId(), request.getFileId(),
-                        request.getContent(), dto.getFront(), dto.getBack());
+                        contentHash, dto.getFront(), dto.getBack());
                 flashcardRepository.save(flashcard);
 
                 dto.setId(flashcard.getId());
@@ -129,12 +171,49 @@ public class VertexAiServiceImpl implements VertexAiService {
             logger.info("Generating quiz with {} questions for user: {}, file: {}", 
                        request.getQuestionCount(), request.getUserId(), request.getFileId());
             
-            String prompt = quizPrompt
-                .replace("{content}", request.getContent())
-                .replace("{questionCount}", String.valueOf(request.getQuestionCount()));
+            String contentHash = sourceTextRepository.save(request.getContent());
+            List<QuizQuestionDto> questions = new ArrayList<>();
+            List<UUID> bankedIds = new ArrayList<>();
             
-            String jsonResponse = generateText(prompt);
-            List<QuizQuestionDto> questions = parseQuizQuestionsFromJson(jsonResponse);
+            if (request.isUseQuestionBank()) {
+                // Serve as much of the quiz as possible from questions the user hasn't seen recently
+                List<QuizQuestion> candidates = new ArrayList<>(questionBankRepository.findByContentHash(contentHash));
+                Set<UUID> seen = questionBankRepository.findSeen(request.getUserId(), contentHash);
+                candidates.removeIf(q -> seen.contains(q.getId()));
+                Collections.shuffle(candidates, ThreadLocalRandom.current());
+                
+                for (QuizQuestion q : candidates.subList(0, Math.min(candidates.size(), request.getQuestionCount()))) {
+                    questions.add(new QuizQuestionDto(q.getId(), q.getQuestion(), q.getOptionA(), q.getOptionB(),
+                            q.getOptionC(), q.getOptionD(), q.getCorrectOption(), q.getCreatedAt()));
+                    bankedIds.add(q.getId());
+                }
+                logger.info("Question bank {} supplied {} of {} questions ({} unseen available)",
+                           contentHash, questions.size(), request.getQuestionCount(), candidates.size());
+            }
+            
+            // Only ask the model for the questions the bank couldn't supply
+            int missing = request.getQuestionCount() - questions.size();
+            if (missing > 0) {
+                String prompt = quizPrompt
+                    .replace("{content}", request.getContent())
+                    .replace("{questionCount}", String.valueOf(missing));
+                
+                ArtifactReuse.Result<List<QuizQuestionDto>> generated;
+                if (request.isUseQuestionBank()) {
+                    // The bank already shares questions across users; reusing a whole answer would repeat them
+                    generated = new ArtifactReuse.Result<>(parseQuizQuestionsFromJson(generateText(prompt)), false);
+                } else {
+                    generated = artifactReuse.load(ArtifactReuse.Kind.QUIZ, contentHash,
+                            artifactReuse.generation(ArtifactReuse.Kind.QUIZ, quizPrompt, missing),
+                            request.isRegenerate(), () -> generateText(prompt), this::parseQuizQuestionsFromJson);
+                }
+                questions.addAll(generated.value());
+                if (!generated.reused()) {
+                    // Reused questions were banked when they were first generated
+                    addToQuestionBank(contentHash, generated.value());
+                    generated.value().forEach(dto -> bankedIds.add(dto.getId()));
+                }
+            }
             
             // Determine title if not provided
             String title = (request.getTitle() == null || request.getTitle().trim().isEmpty())
@@ -143,7 +222,7 @@ public class VertexAiServiceImpl implements VertexAiService {
 
             // Save quiz entity
             Quiz quiz = new Quiz(request.getUserId(), request.getFileId(),
-                    request.getContent(), title);
+                    contentHash, title);
             quizRepository.save(quiz);
 
             // Persist each question
@@ -161,6 +240,8 @@ public class VertexAiServiceImpl implements VertexAiService {
                 quizQuestionRepository.save(entity);
                 questionEntities.add(entity);
             }
+            
+            questionBankRepository.markSeen(request.getUserId(), contentHash, bankedIds);
 
             return new QuizDto(quiz.getId(), quiz.getTitle(), questions, quiz.getCreatedAt());
         } catch (Exception e) {
@@ -169,6 +250,24 @@ public class VertexAiServiceImpl implements VertexAiService {
         }
     }
     
+    /**
+     * Accumulates freshly generated questions in the bank under the source
+     * text's hash. The DTO id becomes the bank question id.
+     */
+    private void addToQuestionBank(String contentHash, List<QuizQuestionDto> generated) {
+        List<QuizQuestion> banked = new ArrayList<>();
+        for (QuizQuestionDto dto : generated) {
+            banked.add(new QuizQuestion(dto.getId(), null, dto.getQuestion(), dto.getOptionA(),
+                    dto.getOptionB(), dto.getOptionC(), dto.getOptionD(), dto.getCorrectOption(), dto.getCreatedAt()));
+        }
+        try {
+            questionBankRepository.addAll(contentHash, banked);
+        } catch (Exception e) {
+            // The quiz itself is still valid; the bank just doesn't grow this time
+            logger.warn("Failed to add generated questions to bank {}: {}", contentHash, e.getMessage());
+        }
+    }
+    
     @Override
     public ExplainResponse explainConcept(ExplainRequest request) {
         try {
@@ -186,10 +285,30 @@ public class VertexAiServiceImpl implements VertexAiService {
         }
     }
     
+    @Override
+    public Map<ArtifactReuse.Kind, ArtifactReuse.Stats> getReuseStats() {
+        return artifactReuse.stats();
+    }
+    
+    @Override
+    public long getModelCalls() {
+        return modelCalls.sum();
+    }
+    
+    /**
+     * Closes the model backend, which finishes a recording in record mode.
+     */
+    @Override
+    public void close() throws Exception {
+        if (textGenerator instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+    
     private String generateText(String prompt) {
         try {
-            GenerateContentResponse response = model.generateContent(prompt);
-            return ResponseHandler.getText(response);
+            modelCalls.increment();
+            return textGenerator.generate(prompt);
         } catch (Exception e) {
             logger.error("Failed to generate text from Vertex AI: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to generate text", e);
@@ -0,0 +1,27 @@
+package com.studytool.vertex;
+
+import com.google.cloud.vertexai.api.GenerateContentResponse;
+import com.google.cloud.vertexai.generativeai.GenerativeModel;
+import com.google.cloud.vertexai.generativeai.ResponseHandler;
+
+/**
+ * TextGenerator backed by a live Vertex AI generative model.
+ */
+public class VertexTextGenerator implements TextGenerator {
+    
+    private final GenerativeModel model;
+    
+    public VertexTextGenerator(GenerativeModel model) {
+        this.model = model;
+    }
+    
+    @Override
+    public String generate(String prompt) {
+        try {
+            GenerateContentResponse response = model.generateContent(prompt);
+            return ResponseHandler.getText(response);
+        } catch (Exception e) {
+            throw new RuntimeException("Vertex AI call failed", e);
+        }
+    }
+}
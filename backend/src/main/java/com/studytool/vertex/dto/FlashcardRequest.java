@@ -1,5 +1,6 @@
 package com.studytool.vertex.dto;
 
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -10,6 +11,8 @@ public class FlashcardRequest {
     private UUID fileId;
     private UUID userId;
     private int count = 5; // Default number of flashcards
+    private boolean regenerate; // Ask the model even if output for the same text can be reused
+    private List<String> files; // Stored filenames whose text is used instead of content
     
     public FlashcardRequest() {
     }
@@ -52,4 +55,20 @@ public class FlashcardRequest {
     public void setCount(int count) {
         this.count = count;
     }
-} 
\ No newline at end of file
+    
+    public boolean isRegenerate() {
+        return regenerate;
+    }
+    
+    public void setRegenerate(boolean regenerate) {
+        this.regenerate = regenerate;
+    }
+    
+    public List<String> getFiles() {
+        return files;
+    }
+    
+    public void setFiles(List<String> files) {
+        this.files = files;
+    }
+}
@@ -1,5 +1,6 @@
 package com.studytool.vertex.dto;
 
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -11,6 +12,9 @@ public class QuizRequest {
     private UUID userId;
     private String title;
     private int questionCount = 5; // Default number of questions
+    private boolean useQuestionBank; // Sample from previously generated questions when possible
+    private boolean regenerate; // Ask the model even if output for the same text can be reused
+    private List<String> files; // Stored filenames whose text is used instead of content
     
     public QuizRequest() {
     }
@@ -62,4 +66,28 @@ public class QuizRequest {
     public void setQuestionCount(int questionCount) {
         this.questionCount = questionCount;
     }
-} 
\ No newline at end of file
+    
+    public boolean isUseQuestionBank() {
+        return useQuestionBank;
+    }
+    
+    public void setUseQuestionBank(boolean useQuestionBank) {
+        this.useQuestionBank = useQuestionBank;
+    }
+    
+    public boolean isRegenerate() {
+        return regenerate;
+    }
+    
+    public void setRegenerate(boolean regenerate) {
+        this.regenerate = regenerate;
+    }
+    
+    public List<String> getFiles() {
+        return files;
+    }
+    
+    public void setFiles(List<String> files) {
+        this.files = files;
+    }
+}
@@ -1,5 +1,6 @@
 package com.studytool.vertex.dto;
 
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -9,6 +10,8 @@ public class SummarizeRequest {
     private String content;
     private UUID fileId;
     private UUID userId;
+    private boolean regenerate; // Ask the model even if output for the same text can be reused
+    private List<String> files; // Stored filenames whose text is used instead of content
     
     public SummarizeRequest() {
     }
@@ -42,4 +45,20 @@ public class SummarizeRequest {
     public void setUserId(UUID userId) {
         this.userId = userId;
     }
-} 
\ No newline at end of file
+    
+    public boolean isRegenerate() {
+        return regenerate;
+    }
+    
+    public void setRegenerate(boolean regenerate) {
+        this.regenerate = regenerate;
+    }
+    
+    public List<String> getFiles() {
+        return files;
+    }
+    
+    public void setFiles(List<String> files) {
+        this.files = files;
+    }
+}
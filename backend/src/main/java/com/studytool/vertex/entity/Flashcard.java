@@ -13,7 +13,7 @@ public class Flashcard {
     private UUID setId;
     private UUID userId;
     private UUID fileId;
-    private String content;
+    private String contentHash; // SHA-256 of the source text, stored once in source_texts
     private String front;
     private String back;
     private Instant createdAt;
@@ -22,25 +22,25 @@ public class Flashcard {
     public Flashcard() {
     }
 
-    public Flashcard(UUID id, UUID setId, UUID userId, UUID fileId, String content, String front, String back,
+    public Flashcard(UUID id, UUID setId, UUID userId, UUID fileId, String contentHash, String front, String back,
             Instant createdAt, Instant updatedAt) {
         this.id = id;
         this.setId = setId;
         this.userId = userId;
         this.fileId = fileId;
-        this.content = content;
+        this.contentHash = contentHash;
         this.front = front;
         this.back = back;
         this.createdAt = createdAt;
         this.updatedAt = updatedAt;
     }
 
-    public Flashcard(UUID setId, UUID userId, UUID fileId, String content, String front, String back) {
+    public Flashcard(UUID setId, UUID userId, UUID fileId, String contentHash, String front, String back) {
         this.id = UUID.randomUUID();
         this.setId = setId;
         this.userId = userId;
         this.fileId = fileId;
-        this.content = content;
+        this.contentHash = contentHash;
         this.front = front;
         this.back = back;
         this.createdAt = Instant.now();
@@ -79,12 +79,12 @@ public class Flashcard {
         this.fileId = fileId;
     }
 
-    public String getContent() {
-        return content;
+    public String getContentHash() {
+        return contentHash;
     }
 
-    public void setContent(String content) {
-        this.content = content;
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
     }
 
     public String getFront() {
@@ -132,7 +132,7 @@ public class Flashcard {
                 && Objects.equals(setId, flashcard.setId)
                 && Objects.equals(userId, flashcard.userId)
                 && Objects.equals(fileId, flashcard.fileId)
-                && Objects.equals(content, flashcard.content)
+                && Objects.equals(contentHash, flashcard.contentHash)
                 && Objects.equals(front, flashcard.front)
                 && Objects.equals(back, flashcard.back)
                 && Objects.equals(createdAt, flashcard.createdAt)
@@ -141,7 +141,7 @@ public class Flashcard {
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, setId, userId, fileId, content, front, back, createdAt, updatedAt);
+        return Objects.hash(id, setId, userId, fileId, contentHash, front, back, createdAt, updatedAt);
     }
 
     @Override
@@ -11,7 +11,7 @@ public class Quiz {
     private UUID id;
     private UUID userId;
     private UUID fileId;
-    private String content;
+    private String contentHash; // SHA-256 of the source text, stored once in source_texts
     private String title;
     private Instant createdAt;
     private Instant updatedAt;
@@ -19,22 +19,22 @@ public class Quiz {
     public Quiz() {
     }
     
-    public Quiz(UUID id, UUID userId, UUID fileId, String content, String title, 
+    public Quiz(UUID id, UUID userId, UUID fileId, String contentHash, String title, 
                Instant createdAt, Instant updatedAt) {
         this.id = id;
         this.userId = userId;
         this.fileId = fileId;
-        this.content = content;
+        this.contentHash = contentHash;
         this.title = title;
         this.createdAt = createdAt;
         this.updatedAt = updatedAt;
     }
     
-    public Quiz(UUID userId, UUID fileId, String content, String title) {
+    public Quiz(UUID userId, UUID fileId, String contentHash, String title) {
         this.id = UUID.randomUUID();
         this.userId = userId;
         this.fileId = fileId;
-        this.content = content;
+        this.contentHash = contentHash;
         this.title = title;
         this.createdAt = Instant.now();
         this.updatedAt = Instant.now();
@@ -64,12 +64,12 @@ public class Quiz {
         this.fileId = fileId;
     }
     
-    public String getContent() {
-        return content;
+    public String getContentHash() {
+        return contentHash;
     }
     
-    public void setContent(String content) {
-        this.content = content;
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
     }
     
     public String getTitle() {
@@ -104,7 +104,7 @@ public class Quiz {
         return Objects.equals(id, quiz.id) &&
                Objects.equals(userId, quiz.userId) &&
                Objects.equals(fileId, quiz.fileId) &&
-               Objects.equals(content, quiz.content) &&
+               Objects.equals(contentHash, quiz.contentHash) &&
                Objects.equals(title, quiz.title) &&
                Objects.equals(createdAt, quiz.createdAt) &&
                Objects.equals(updatedAt, quiz.updatedAt);
@@ -112,7 +112,7 @@ public class Quiz {
     
     @Override
     public int hashCode() {
-        return Objects.hash(id, userId, fileId, content, title, createdAt, updatedAt);
+        return Objects.hash(id, userId, fileId, contentHash, title, createdAt, updatedAt);
     }
     
     @Override
@@ -11,7 +11,7 @@ public class Summary {
     private UUID id;
     private UUID userId;
     private UUID fileId;
-    private String content;
+    private String contentHash; // SHA-256 of the source text, stored once in source_texts
     private String summary;
     private Instant createdAt;
     private Instant updatedAt;
@@ -19,22 +19,22 @@ public class Summary {
     public Summary() {
     }
     
-    public Summary(UUID id, UUID userId, UUID fileId, String content, String summary, 
+    public Summary(UUID id, UUID userId, UUID fileId, String contentHash, String summary, 
                   Instant createdAt, Instant updatedAt) {
         this.id = id;
         this.userId = userId;
         this.fileId = fileId;
-        this.content = content;
+        this.contentHash = contentHash;
         this.summary = summary;
         this.createdAt = createdAt;
         this.updatedAt = updatedAt;
     }
     
-    public Summary(UUID userId, UUID fileId, String content, String summary) {
+    public Summary(UUID userId, UUID fileId, String contentHash, String summary) {
         this.id = UUID.randomUUID();
         this.userId = userId;
         this.fileId = fileId;
-        this.content = content;
+        this.contentHash = contentHash;
         this.summary = summary;
         this.createdAt = Instant.now();
         this.updatedAt = Instant.now();
@@ -64,12 +64,12 @@ public class Summary {
         this.fileId = fileId;
     }
     
-    public String getContent() {
-        return content;
+    public String getContentHash() {
+        return contentHash;
     }
     
-    public void setContent(String content) {
-        this.content = content;
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
     }
     
     public String getSummary() {
@@ -104,7 +104,7 @@ public class Summary {
         return Objects.equals(id, summary1.id) &&
                Objects.equals(userId, summary1.userId) &&
                Objects.equals(fileId, summary1.fileId) &&
-               Objects.equals(content, summary1.content) &&
+               Objects.equals(contentHash, summary1.contentHash) &&
                Objects.equals(summary, summary1.summary) &&
                Objects.equals(createdAt, summary1.createdAt) &&
                Objects.equals(updatedAt, summary1.updatedAt);
@@ -112,7 +112,7 @@ public class Summary {
     
     @Override
     public int hashCode() {
-        return Objects.hash(id, userId, fileId, content, summary, createdAt, updatedAt);
+        return Objects.hash(id, userId, fileId, contentHash, summary, createdAt, updatedAt);
     }
     
     @Override
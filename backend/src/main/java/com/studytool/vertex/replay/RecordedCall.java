@@ -0,0 +1,13 @@
+package com.studytool.vertex.replay;
+
+/**
+ * A single recorded model call: the prompt (and its hash, used as the replay
+ * key), the response text and how long the live call took.
+ */
+public record RecordedCall(
+    String promptHash,
+    String prompt,
+    String response,
+    long latencyMillis
+) {
+}
@@ -0,0 +1,76 @@
+package com.studytool.vertex.replay;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+import com.studytool.vertex.TextGenerator;
+
+/**
+ * Decorates a live TextGenerator and appends every call to a gzip-compressed
+ * JSON-lines file that {@link ReplayTextGenerator} can serve later.
+ * Each record is written as a complete gzip member of its own, so the file
+ * is valid after every call and later sessions simply append to it; a
+ * crash loses at most the call in flight.
+ */
+public class RecordingTextGenerator implements TextGenerator, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(RecordingTextGenerator.class);
+    
+    private final TextGenerator delegate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final OutputStream out;
+    
+    public RecordingTextGenerator(TextGenerator delegate, Path recordingPath) throws IOException {
+        this.delegate = delegate;
+        Path parent = recordingPath.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.out = Files.newOutputStream(recordingPath, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        logger.info("Recording Vertex AI calls to {}", recordingPath);
+    }
+    
+    @Override
+    public String generate(String prompt) {
+        long start = System.nanoTime();
+        String response = delegate.generate(prompt);
+        long latencyMillis = (System.nanoTime() - start) / 1_000_000;
+        
+        record(new RecordedCall(promptHash(prompt), prompt, response, latencyMillis));
+        return response;
+    }
+    
+    private synchronized void record(RecordedCall call) {
+        try {
+            ByteArrayOutputStream member = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(member)) {
+                gzip.write((objectMapper.writeValueAsString(call) + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            // One write per record, so the file only ever ends in a partial member after a crash
+            out.write(member.toByteArray());
+            out.flush();
+        } catch (IOException e) {
+            // A missing recording must never break a live request
+            logger.warn("Failed to record Vertex AI call {}: {}", call.promptHash(), e.getMessage());
+        }
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+    
+    static String promptHash(String prompt) {
+        return Hashing.sha256().hashString(prompt, StandardCharsets.UTF_8).toString();
+    }
+}
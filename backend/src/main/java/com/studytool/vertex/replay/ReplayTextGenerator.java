@@ -0,0 +1,221 @@
+package com.studytool.vertex.replay;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.studytool.vertex.TextGenerator;
+
+/**
+ * Serves model responses from a recording made by {@link RecordingTextGenerator},
+ * without any network access. Calls are matched by prompt hash; when the same
+ * prompt was recorded several times the recordings are served round-robin.
+ * Each call sleeps for the recorded latency multiplied by latencyScale so
+ * benchmarks see a realistic (or compressed) latency profile.
+ */
+public class ReplayTextGenerator implements TextGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(ReplayTextGenerator.class);
+    
+    // Magic, deflate and no flags: the header GZIPOutputStream writes, followed by 6 more bytes
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, 8, 0};
+    
+    private final Map<String, List<RecordedCall>> callsByPrompt;
+    private final Map<String, AtomicInteger> cursors = new ConcurrentHashMap<>();
+    private final double latencyScale;
+    
+    public ReplayTextGenerator(Path recordingPath, double latencyScale) throws IOException {
+        this.callsByPrompt = load(recordingPath);
+        this.latencyScale = latencyScale;
+        logger.info("Replaying {} distinct Vertex AI prompts from {} (latency scale {})",
+                   callsByPrompt.size(), recordingPath, latencyScale);
+    }
+    
+    @Override
+    public String generate(String prompt) {
+        String hash = RecordingTextGenerator.promptHash(prompt);
+        List<RecordedCall> calls = callsByPrompt.get(hash);
+        if (calls == null) {
+            throw new RuntimeException("No recorded response for prompt " + hash);
+        }
+        
+        int index = cursors.computeIfAbsent(hash, k -> new AtomicInteger()).getAndIncrement();
+        RecordedCall call = calls.get(Math.floorMod(index, calls.size()));
+        
+        long delay = Math.round(call.latencyMillis() * latencyScale);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while replaying response", e);
+            }
+        }
+        return call.response();
+    }
+    
+    private static Map<String, List<RecordedCall>> load(Path recordingPath) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, List<RecordedCall>> calls = new HashMap<>();
+        Recording recording = read(Files.readAllBytes(recordingPath));
+        int unreadable = 0;
+        for (String line : recording.lines()) {
+            if (line.isBlank()) continue;
+            try {
+                RecordedCall call = objectMapper.readValue(line, RecordedCall.class);
+                calls.computeIfAbsent(call.promptHash(), k -> new ArrayList<>()).add(call);
+            } catch (JsonProcessingException e) {
+                unreadable++;
+            }
+        }
+        if (recording.damaged() || unreadable > 0) {
+            // Recorder was killed mid-stream, or an older recorder left a member unterminated
+            logger.warn("Recording {} is damaged ({} unreadable records), replaying the complete records only",
+                       recordingPath, unreadable);
+        }
+        return calls;
+    }
+    
+    private record Recording(List<String> lines, boolean damaged) {
+    }
+    
+    /**
+     * Decodes a recording gzip member by member. A member that is cut off or
+     * corrupt contributes the complete lines it decodes to, and reading
+     * resumes at the next gzip header after it, so one damaged session never
+     * hides the sessions recorded after it.
+     */
+    private static Recording read(byte[] data) {
+        List<String> lines = new ArrayList<>();
+        boolean damaged = false;
+        int position = 0;
+        while (position < data.length) {
+            int header = indexOf(data, GZIP_HEADER, position);
+            if (header != position) {
+                damaged = true;
+                if (header < 0) {
+                    break;
+                }
+            }
+            int end = inflateMember(data, header, lines);
+            if (end < 0) {
+                damaged = true;
+                position = header + 1;
+            } else {
+                position = end;
+            }
+        }
+        return new Recording(lines, damaged);
+    }
+    
+    /**
+     * Inflates the gzip member starting at the given offset and adds its
+     * lines. Of a member that doesn't end properly only the complete lines
+     * are added.
+     * 
+     * @return Where the next member starts, or -1 if this one is damaged
+     */
+    private static int inflateMember(byte[] data, int start, List<String> lines) {
+        int body = start + GZIP_HEADER.length + 6;
+        if (body > data.length) {
+            return -1;
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            byte[] text;
+            try {
+                text = inflate(inflater, data, body, data.length - body);
+            } catch (DataFormatException e) {
+                // The inflater drops what it decoded in the failing call, so decode again up to
+                // the longest input that doesn't fail; a damaged prefix stays damaged when extended
+                int good = 0;
+                int bad = data.length - body;
+                while (bad - good > 1) {
+                    int middle = (good + bad) >>> 1;
+                    try {
+                        inflater.reset();
+                        inflate(inflater, data, body, middle);
+                        good = middle;
+                    } catch (DataFormatException stillBad) {
+                        bad = middle;
+                    }
+                }
+                inflater.reset();
+                try {
+                    text = inflate(inflater, data, body, good);
+                } catch (DataFormatException impossible) {
+                    text = new byte[0];
+                }
+            }
+            int trailer = data.length - inflater.getRemaining();
+            if (inflater.finished() && trailer + 8 <= data.length && crcMatches(data, trailer, text)) {
+                addLines(text, text.length, lines);
+                return trailer + 8;
+            }
+            int complete = text.length;
+            while (complete > 0 && text[complete - 1] != '\n') {
+                complete--;
+            }
+            addLines(text, complete, lines);
+            return -1;
+        } finally {
+            inflater.end();
+        }
+    }
+    
+    /**
+     * Inflates until the deflate stream ends or the input runs out.
+     */
+    private static byte[] inflate(Inflater inflater, byte[] data, int offset, int length) throws DataFormatException {
+        inflater.setInput(data, offset, length);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8 * 1024];
+        while (!inflater.finished()) {
+            int n = inflater.inflate(buffer);
+            if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                break;
+            }
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+    
+    private static boolean crcMatches(byte[] data, int trailer, byte[] text) {
+        CRC32 crc = new CRC32();
+        crc.update(text);
+        long expected = (data[trailer] & 0xFFL) | (data[trailer + 1] & 0xFFL) << 8
+                | (data[trailer + 2] & 0xFFL) << 16 | (data[trailer + 3] & 0xFFL) << 24;
+        return crc.getValue() == expected;
+    }
+    
+    private static void addLines(byte[] text, int length, List<String> lines) {
+        for (String line : new String(text, 0, length, StandardCharsets.UTF_8).split("\n")) {
+            lines.add(line);
+        }
+    }
+    
+    private static int indexOf(byte[] data, byte[] pattern, int from) {
+        for (int i = from; i <= data.length - pattern.length; i++) {
+            if (Arrays.equals(data, i, i + pattern.length, pattern, 0, pattern.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
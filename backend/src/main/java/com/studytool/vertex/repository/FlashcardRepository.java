@@ -13,6 +13,8 @@ import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.PreparedStatement;
 import com.datastax.oss.driver.api.core.cql.ResultSet;
 import com.datastax.oss.driver.api.core.cql.Row;
+import com.studytool.database.TextCompression;
+import com.studytool.database.TextCompression.StoredText;
 import com.studytool.vertex.entity.Flashcard;
 
 /**
@@ -21,6 +23,10 @@ import com.studytool.vertex.entity.Flashcard;
 public class FlashcardRepository {
     private static final Logger logger = LoggerFactory.getLogger(FlashcardRepository.class);
 
+    // Explicit column list so reads never pull the legacy inline content column
+    private static final String COLUMNS =
+            "id, set_id, user_id, file_id, content_hash, front, back, codec, front_data, back_data, created_at, updated_at";
+
     private final CqlSession session;
     private final PreparedStatement insertStatement;
     private final PreparedStatement findBySetIdStatement;
@@ -29,27 +35,32 @@ public class FlashcardRepository {
     public FlashcardRepository(CqlSession session) {
         this.session = session;
         this.insertStatement = session.prepare(
-                "INSERT INTO flashcards (id, set_id, user_id, file_id, content, front, back, created_at, updated_at) " +
-                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)"
+                "INSERT INTO flashcards (id, set_id, user_id, file_id, content_hash, front, back, codec, front_data, back_data, created_at, updated_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"
         );
         this.findBySetIdStatement = session.prepare(
-                "SELECT * FROM flashcards WHERE set_id = ? ALLOW FILTERING"
+                "SELECT " + COLUMNS + " FROM flashcards WHERE set_id = ? ALLOW FILTERING"
         );
         this.findByUserIdStatement = session.prepare(
-                "SELECT * FROM flashcards WHERE user_id = ?"
+                "SELECT " + COLUMNS + " FROM flashcards WHERE user_id = ?"
         );
     }
 
     public Flashcard save(Flashcard flashcard) {
         try {
+            StoredText front = TextCompression.encode(flashcard.getFront());
+            StoredText back = TextCompression.encode(flashcard.getBack());
             session.execute(insertStatement.bind(
                     flashcard.getId(),
                     flashcard.getSetId(),
                     flashcard.getUserId(),
                     flashcard.getFileId(),
-                    flashcard.getContent(),
-                    flashcard.getFront(),
-                    flashcard.getBack(),
+                    flashcard.getContentHash(),
+                    front.text(),
+                    back.text(),
+                    front.data() != null || back.data() != null ? TextCompression.CODEC_LZ4 : null,
+                    front.data(),
+                    back.data(),
                     flashcard.getCreatedAt(),
                     flashcard.getUpdatedAt()
             ));
@@ -94,14 +105,15 @@ public class FlashcardRepository {
     }
 
     private Flashcard mapRow(Row row) {
+        String codec = row.getString("codec");
         return new Flashcard(
                 row.getUuid("id"),
                 row.getUuid("set_id"),
                 row.getUuid("user_id"),
                 row.getUuid("file_id"),
-                row.getString("content"),
-                row.getString("front"),
-                row.getString("back"),
+                row.getString("content_hash"),
+                TextCompression.decode(row.getString("front"), codec, row.getByteBuffer("front_data")),
+                TextCompression.decode(row.getString("back"), codec, row.getByteBuffer("back_data")),
                 row.getInstant("created_at"),
                 row.getInstant("updated_at")
         );
@@ -0,0 +1,151 @@
+package com.studytool.vertex.repository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BatchStatementBuilder;
+import com.datastax.oss.driver.api.core.cql.DefaultBatchType;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.ResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.studytool.database.TextCompression;
+import com.studytool.database.TextCompression.StoredText;
+import com.studytool.vertex.entity.QuizQuestion;
+
+/**
+ * Repository for the quiz question bank. Questions are keyed by the hash of the
+ * source text they were generated from, so every quiz over the same material
+ * adds to (and can be sampled from) the same partition.
+ */
+public class QuestionBankRepository {
+    private static final Logger logger = LoggerFactory.getLogger(QuestionBankRepository.class);
+
+    private final CqlSession session;
+    private final PreparedStatement insertStmt;
+    private final PreparedStatement findByHashStmt;
+    private final PreparedStatement insertViewStmt;
+    private final PreparedStatement findViewsStmt;
+
+    public QuestionBankRepository(CqlSession session) {
+        this.session = session;
+        this.insertStmt = session.prepare(
+                "INSERT INTO question_bank (content_hash, question_id, question, codec, question_data, option_a, option_b, option_c, option_d, correct_option, created_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"
+        );
+        this.findByHashStmt = session.prepare(
+                "SELECT question_id, question, codec, question_data, option_a, option_b, option_c, option_d, correct_option, created_at " +
+                        "FROM question_bank WHERE content_hash = ?"
+        );
+        this.insertViewStmt = session.prepare(
+                "INSERT INTO question_bank_views (user_id, content_hash, question_id, seen_at) VALUES (?, ?, ?, ?)"
+        );
+        this.findViewsStmt = session.prepare(
+                "SELECT question_id FROM question_bank_views WHERE user_id = ? AND content_hash = ?"
+        );
+    }
+
+    /**
+     * Adds questions to the bank for the given content hash. The question id is
+     * used as the bank key, so re-adding the same question is idempotent.
+     */
+    public void addAll(String contentHash, List<QuizQuestion> questions) {
+        if (questions.isEmpty()) return;
+        try {
+            // Single-partition unlogged batch: one round trip for the whole quiz
+            BatchStatementBuilder batch = BatchStatement.builder(DefaultBatchType.UNLOGGED);
+            for (QuizQuestion q : questions) {
+                StoredText question = TextCompression.encode(q.getQuestion());
+                batch.addStatement(insertStmt.bind(
+                        contentHash,
+                        q.getId(),
+                        question.text(),
+                        question.codec(),
+                        question.data(),
+                        q.getOptionA(),
+                        q.getOptionB(),
+                        q.getOptionC(),
+                        q.getOptionD(),
+                        q.getCorrectOption(),
+                        q.getCreatedAt()
+                ));
+            }
+            session.execute(batch.build());
+            logger.debug("Added {} questions to bank {}", questions.size(), contentHash);
+        } catch (Exception e) {
+            logger.error("Failed to add questions to bank {}", contentHash, e);
+            throw new RuntimeException("Failed to add questions to bank", e);
+        }
+    }
+
+    /**
+     * Returns every banked question for the given content hash. The returned
+     * entities carry the bank question id and no quiz id.
+     */
+    public List<QuizQuestion> findByContentHash(String contentHash) {
+        try {
+            ResultSet rs = session.execute(findByHashStmt.bind(contentHash));
+            List<QuizQuestion> list = new ArrayList<>();
+            for (Row row : rs) {
+                list.add(new QuizQuestion(
+                        row.getUuid("question_id"),
+                        null,
+                        TextCompression.decode(row.getString("question"), row.getString("codec"), row.getByteBuffer("question_data")),
+                        row.getString("option_a"),
+                        row.getString("option_b"),
+                        row.getString("option_c"),
+                        row.getString("option_d"),
+                        row.getInt("correct_option"),
+                        row.getInstant("created_at")
+                ));
+            }
+            return list;
+        } catch (Exception e) {
+            logger.error("Failed to fetch question bank {}", contentHash, e);
+            throw new RuntimeException("Failed to fetch question bank", e);
+        }
+    }
+
+    /**
+     * Records that a user has been served the given bank questions.
+     */
+    public void markSeen(UUID userId, String contentHash, List<UUID> questionIds) {
+        if (questionIds.isEmpty()) return;
+        try {
+            Instant now = Instant.now();
+            BatchStatementBuilder batch = BatchStatement.builder(DefaultBatchType.UNLOGGED);
+            for (UUID questionId : questionIds) {
+                batch.addStatement(insertViewStmt.bind(userId, contentHash, questionId, now));
+            }
+            session.execute(batch.build());
+        } catch (Exception e) {
+            // Losing view history only makes repeats more likely; don't fail the quiz
+            logger.warn("Failed to record seen questions for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the ids of bank questions the user has recently been served.
+     */
+    public Set<UUID> findSeen(UUID userId, String contentHash) {
+        try {
+            ResultSet rs = session.execute(findViewsStmt.bind(userId, contentHash));
+            Set<UUID> seen = new HashSet<>();
+            for (Row row : rs) {
+                seen.add(row.getUuid("question_id"));
+            }
+            return seen;
+        } catch (Exception e) {
+            logger.warn("Failed to fetch seen questions for user {}: {}", userId, e.getMessage());
+            return Set.of();
+        }
+    }
+}
@@ -5,6 +5,8 @@ import org.slf4j.LoggerFactory;
 
 import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.studytool.database.TextCompression;
+import com.studytool.database.TextCompression.StoredText;
 import com.studytool.vertex.entity.QuizQuestion;
 
 /**
@@ -19,17 +21,20 @@ public class QuizQuestionRepository {
     public QuizQuestionRepository(CqlSession session) {
         this.session = session;
         this.insertStmt = session.prepare(
-                "INSERT INTO quiz_questions (id, quiz_id, question, option_a, option_b, option_c, option_d, correct_option, created_at) " +
-                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)"
+                "INSERT INTO quiz_questions (id, quiz_id, question, codec, question_data, option_a, option_b, option_c, option_d, correct_option, created_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"
         );
     }
 
     public QuizQuestion save(QuizQuestion q) {
         try {
+            StoredText question = TextCompression.encode(q.getQuestion());
             session.execute(insertStmt.bind(
                     q.getId(),
                     q.getQuizId(),
-                    q.getQuestion(),
+                    question.text(),
+                    question.codec(),
+                    question.data(),
                     q.getOptionA(),
                     q.getOptionB(),
                     q.getOptionC(),
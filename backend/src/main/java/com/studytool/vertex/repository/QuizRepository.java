@@ -19,7 +19,7 @@ public class QuizRepository {
     public QuizRepository(CqlSession session) {
         this.session = session;
         this.insertStmt = session.prepare(
-                "INSERT INTO quizzes (id, user_id, file_id, content, title, created_at, updated_at) " +
+                "INSERT INTO quizzes (id, user_id, file_id, content_hash, title, created_at, updated_at) " +
                         "VALUES (?, ?, ?, ?, ?, ?, ?)"
         );
     }
@@ -30,7 +30,7 @@ public class QuizRepository {
                     quiz.getId(),
                     quiz.getUserId(),
                     quiz.getFileId(),
-                    quiz.getContent(),
+                    quiz.getContentHash(),
                     quiz.getTitle(),
                     quiz.getCreatedAt(),
                     quiz.getUpdatedAt()
@@ -0,0 +1,74 @@
+package com.studytool.vertex.repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.studytool.database.TextCompression;
+import com.studytool.database.TextCompression.StoredText;
+
+/**
+ * Model output shared across users, keyed by the hash of the source text it
+ * was generated from and by a generation hash (artifact kind, model, prompt
+ * and parameters). Users get their own artifact rows built from the output;
+ * only the model's answer is shared.
+ */
+public class SharedArtifactRepository {
+    private static final Logger logger = LoggerFactory.getLogger(SharedArtifactRepository.class);
+
+    private final CqlSession session;
+    private final PreparedStatement insertStatement;
+    private final PreparedStatement findStatement;
+
+    public SharedArtifactRepository(CqlSession session) {
+        this.session = session;
+        this.insertStatement = session.prepare(
+                "INSERT INTO shared_artifacts (content_hash, generation, kind, model, output, codec, output_data, created_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)"
+        );
+        this.findStatement = session.prepare(
+                "SELECT output, codec, output_data FROM shared_artifacts WHERE content_hash = ? AND generation = ?"
+        );
+    }
+
+    /**
+     * Stores model output, replacing any earlier output for the same key.
+     */
+    public void save(String contentHash, String generation, String kind, String model, String output) {
+        try {
+            StoredText stored = TextCompression.encode(output);
+            session.execute(insertStatement.bind(
+                    contentHash,
+                    generation,
+                    kind,
+                    model,
+                    stored.text(),
+                    stored.codec(),
+                    stored.data(),
+                    Instant.now()
+            ));
+        } catch (Exception e) {
+            logger.error("Failed to save shared {} for {}: {}", kind, contentHash, e.getMessage(), e);
+            throw new RuntimeException("Failed to save shared artifact", e);
+        }
+    }
+
+    public Optional<String> find(String contentHash, String generation) {
+        try {
+            Row row = session.execute(findStatement.bind(contentHash, generation)).one();
+            if (row == null) {
+                return Optional.empty();
+            }
+            return Optional.of(TextCompression.decode(row.getString("output"), row.getString("codec"),
+                    row.getByteBuffer("output_data")));
+        } catch (Exception e) {
+            logger.error("Failed to find shared artifact {} for {}: {}", generation, contentHash, e.getMessage(), e);
+            throw new RuntimeException("Failed to find shared artifact", e);
+        }
+    }
+}
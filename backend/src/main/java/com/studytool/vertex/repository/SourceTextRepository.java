@@ -0,0 +1,99 @@
+package com.studytool.vertex.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.studytool.database.ContentHash;
+import com.studytool.database.TextCompression;
+
+/**
+ * Content-addressed store for the source text that summaries, quizzes and
+ * flashcards were generated from. Each distinct text is compressed and
+ * written once, keyed by its SHA-256; artifacts reference it by hash.
+ */
+public class SourceTextRepository {
+    private static final Logger logger = LoggerFactory.getLogger(SourceTextRepository.class);
+    
+    private final CqlSession session;
+    private final PreparedStatement insertStatement;
+    private final PreparedStatement existsStatement;
+    private final PreparedStatement findByHashStatement;
+    
+    // Hashes known to be stored, so repeat requests over the same text skip the existence check
+    private final Cache<String, Boolean> knownHashes = CacheBuilder.newBuilder()
+            .maximumSize(10_000)
+            .build();
+    
+    public SourceTextRepository(CqlSession session) {
+        this.session = session;
+        this.insertStatement = session.prepare(
+            "INSERT INTO source_texts (content_hash, codec, data, original_length, created_at) " +
+            "VALUES (?, ?, ?, ?, ?)"
+        );
+        this.existsStatement = session.prepare(
+            "SELECT content_hash FROM source_texts WHERE content_hash = ?"
+        );
+        this.findByHashStatement = session.prepare(
+            "SELECT codec, data FROM source_texts WHERE content_hash = ?"
+        );
+    }
+    
+    /**
+     * Stores the text if it isn't stored yet and returns its content hash.
+     * 
+     * @param text The source text
+     * @return The SHA-256 hash that references the stored text
+     */
+    public String save(String text) {
+        String hash = ContentHash.sha256(text);
+        if (knownHashes.getIfPresent(hash) != null) {
+            return hash;
+        }
+        
+        try {
+            if (session.execute(existsStatement.bind(hash)).one() == null) {
+                ByteBuffer data = TextCompression.compress(text);
+                int originalLength = text.getBytes(StandardCharsets.UTF_8).length;
+                session.execute(insertStatement.bind(
+                    hash,
+                    TextCompression.defaultCodec(),
+                    data,
+                    originalLength,
+                    Instant.now()
+                ));
+                logger.debug("Stored source text {} ({} bytes, {} compressed)", hash, originalLength, data.remaining());
+            }
+            knownHashes.put(hash, Boolean.TRUE);
+            return hash;
+        } catch (Exception e) {
+            logger.error("Failed to save source text {}: {}", hash, e.getMessage(), e);
+            throw new RuntimeException("Failed to save source text", e);
+        }
+    }
+    
+    /**
+     * Loads and decompresses the text stored under the given hash.
+     */
+    public Optional<String> findByHash(String contentHash) {
+        try {
+            Row row = session.execute(findByHashStatement.bind(contentHash)).one();
+            if (row == null) {
+                return Optional.empty();
+            }
+            return Optional.of(TextCompression.decompress(row.getByteBuffer("data"), row.getString("codec")));
+        } catch (Exception e) {
+            logger.error("Failed to find source text {}: {}", contentHash, e.getMessage(), e);
+            throw new RuntimeException("Failed to find source text", e);
+        }
+    }
+}
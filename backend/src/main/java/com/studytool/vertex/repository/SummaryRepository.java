@@ -12,6 +12,8 @@ import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.PreparedStatement;
 import com.datastax.oss.driver.api.core.cql.ResultSet;
 import com.datastax.oss.driver.api.core.cql.Row;
+import com.studytool.database.TextCompression;
+import com.studytool.database.TextCompression.StoredText;
 import com.studytool.vertex.entity.Summary;
 
 /**
@@ -29,31 +31,34 @@ public class SummaryRepository {
     public SummaryRepository(CqlSession session) {
         this.session = session;
         this.insertStatement = session.prepare(
-            "INSERT INTO summaries (id, user_id, file_id, content, summary, created_at, updated_at) " +
-            "VALUES (?, ?, ?, ?, ?, ?, ?)"
+            "INSERT INTO summaries (id, user_id, file_id, content_hash, summary, summary_codec, summary_data, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)"
         );
         this.findByIdStatement = session.prepare(
-            "SELECT id, user_id, file_id, content, summary, created_at, updated_at " +
+            "SELECT id, user_id, file_id, content_hash, summary, summary_codec, summary_data, created_at, updated_at " +
             "FROM summaries WHERE id = ?"
         );
         this.findByUserIdStatement = session.prepare(
-            "SELECT id, user_id, file_id, content, summary, created_at, updated_at " +
+            "SELECT id, user_id, file_id, content_hash, summary, summary_codec, summary_data, created_at, updated_at " +
             "FROM summaries WHERE user_id = ?"
         );
         this.findByFileIdStatement = session.prepare(
-            "SELECT id, user_id, file_id, content, summary, created_at, updated_at " +
+            "SELECT id, user_id, file_id, content_hash, summary, summary_codec, summary_data, created_at, updated_at " +
             "FROM summaries WHERE file_id = ?"
         );
     }
     
     public Summary save(Summary summary) {
         try {
+            StoredText stored = TextCompression.encode(summary.getSummary());
             session.execute(insertStatement.bind(
                 summary.getId(),
                 summary.getUserId(),
                 summary.getFileId(),
-                summary.getContent(),
-                summary.getSummary(),
+                summary.getContentHash(),
+                stored.text(),
+                stored.codec(),
+                stored.data(),
                 summary.getCreatedAt(),
                 summary.getUpdatedAt()
             ));
@@ -112,8 +117,8 @@ public class SummaryRepository {
             row.getUuid("id"),
             row.getUuid("user_id"),
             row.getUuid("file_id"),
-            row.getString("content"),
-            row.getString("summary"),
+            row.getString("content_hash"),
+            TextCompression.decode(row.getString("summary"), row.getString("summary_codec"), row.getByteBuffer("summary_data")),
             row.getInstant("created_at"),
             row.getInstant("updated_at")
         );
@@ -0,0 +1,291 @@
+package com.studytool.vertex.tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.ResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.studytool.database.DatabaseConfig;
+import com.studytool.database.ScyllaManager;
+import com.studytool.database.TextCompression;
+import com.studytool.database.TextCompression.StoredText;
+
+/**
+ * Benchmark that copies the stored artifact texts into two scratch tables,
+ * one holding them as plain text and one the way {@link TextCompression}
+ * stores them, and reports per column:
+ * <ul>
+ *   <li>the plain and compressed value sizes and encode/decode time;</li>
+ *   <li>INSERT and SELECT round-trip latency (mean and p99) against each
+ *       scratch table, decoding included for the compressed one;</li>
+ *   <li>each scratch table's on-disk size once flushed, from
+ *       {@code nodetool tablestats}.</li>
+ * </ul>
+ * The size of the real artifact tables is reported before and after too.
+ * They are only read, so the two should match unless the application wrote
+ * meanwhile. The scratch tables are dropped at the end.
+ *
+ * nodetool runs on the database host, so its command is taken from
+ * NODETOOL_COMMAND (default {@code nodetool}), e.g.
+ * {@code docker exec scylla nodetool}. Without it sizes are skipped and
+ * only latency is reported.
+ *
+ * Run with {@code gradle benchmarkArtifactCompression}.
+ */
+public class ArtifactCompressionBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(ArtifactCompressionBenchmark.class);
+
+    private static final String PLAIN_TABLE = "artifact_benchmark_plain";
+    private static final String COMPRESSED_TABLE = "artifact_benchmark_compressed";
+
+    private record Column(String table, String column, String codecColumn, String dataColumn) {
+    }
+
+    private static final List<Column> COLUMNS = List.of(
+        new Column("summaries", "summary", "summary_codec", "summary_data"),
+        new Column("flashcards", "front", "codec", "front_data"),
+        new Column("flashcards", "back", "codec", "back_data"),
+        new Column("quiz_questions", "question", "codec", "question_data")
+    );
+
+    private final CqlSession session;
+    private final String keyspace;
+    private final List<String> nodetool;
+    private final PreparedStatement insertPlain;
+    private final PreparedStatement insertCompressed;
+    private final PreparedStatement selectPlain;
+    private final PreparedStatement selectCompressed;
+
+    private ArtifactCompressionBenchmark(CqlSession session, String keyspace, List<String> nodetool) {
+        this.session = session;
+        this.keyspace = keyspace;
+        this.nodetool = nodetool;
+        session.execute("CREATE TABLE IF NOT EXISTS " + PLAIN_TABLE + " (id uuid PRIMARY KEY, text text)");
+        session.execute("CREATE TABLE IF NOT EXISTS " + COMPRESSED_TABLE +
+                        " (id uuid PRIMARY KEY, text text, codec text, data blob)");
+        session.execute("TRUNCATE " + PLAIN_TABLE);
+        session.execute("TRUNCATE " + COMPRESSED_TABLE);
+        this.insertPlain = session.prepare("INSERT INTO " + PLAIN_TABLE + " (id, text) VALUES (?, ?)");
+        this.insertCompressed = session.prepare(
+            "INSERT INTO " + COMPRESSED_TABLE + " (id, text, codec, data) VALUES (?, ?, ?, ?)");
+        this.selectPlain = session.prepare("SELECT text FROM " + PLAIN_TABLE + " WHERE id = ?");
+        this.selectCompressed = session.prepare("SELECT text, codec, data FROM " + COMPRESSED_TABLE + " WHERE id = ?");
+    }
+
+    public static void main(String[] args) {
+        DatabaseConfig dbConfig = DatabaseConfig.fromEnvironment();
+        ScyllaManager scyllaManager = new ScyllaManager(
+            dbConfig.getContactPoint(),
+            dbConfig.getDatacenter(),
+            dbConfig.getKeyspace()
+        );
+        String nodetoolCommand = System.getenv("NODETOOL_COMMAND");
+        if (nodetoolCommand == null || nodetoolCommand.trim().isEmpty()) {
+            nodetoolCommand = "nodetool";
+        }
+
+        try {
+            scyllaManager.initialize();
+            ArtifactCompressionBenchmark benchmark = new ArtifactCompressionBenchmark(scyllaManager.getSession(),
+                dbConfig.getKeyspace(), Arrays.asList(nodetoolCommand.trim().split("\\s+")));
+            try {
+                benchmark.run();
+            } finally {
+                benchmark.dropScratchTables();
+            }
+        } finally {
+            scyllaManager.close();
+        }
+    }
+
+    private void run() {
+        List<String> artifactTables = COLUMNS.stream().map(Column::table).distinct().toList();
+        for (String table : artifactTables) {
+            logTableSize("before", table);
+        }
+
+        for (Column column : COLUMNS) {
+            measure(column);
+        }
+        logTableSize("after", PLAIN_TABLE);
+        logTableSize("after", COMPRESSED_TABLE);
+
+        for (String table : artifactTables) {
+            logTableSize("after", table);
+        }
+    }
+
+    private void measure(Column column) {
+        ResultSet rows = session.execute(
+            "SELECT " + column.column() + ", " + column.codecColumn() + ", " + column.dataColumn() +
+            " FROM " + column.table()
+        );
+
+        List<UUID> ids = new ArrayList<>();
+        long compressedValues = 0;
+        long plainBytes = 0;
+        long storedBytes = 0;
+        long encodeNanos = 0;
+        long decodeNanos = 0;
+        Latencies plainWrites = new Latencies();
+        Latencies compressedWrites = new Latencies();
+
+        for (Row row : rows) {
+            String text = TextCompression.decode(row.getString(column.column()),
+                    row.getString(column.codecColumn()), row.getByteBuffer(column.dataColumn()));
+            if (text == null) continue;
+
+            long start = System.nanoTime();
+            StoredText stored = TextCompression.encode(text);
+            encodeNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            TextCompression.decode(stored.text(), stored.codec(), stored.data());
+            decodeNanos += System.nanoTime() - start;
+
+            plainBytes += text.getBytes(StandardCharsets.UTF_8).length;
+            ByteBuffer data = stored.data();
+            if (data != null) {
+                compressedValues++;
+                storedBytes += data.remaining();
+            } else {
+                storedBytes += text.getBytes(StandardCharsets.UTF_8).length;
+            }
+
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            // Alternate which table goes first, so neither always gets the warmer connection
+            if (ids.size() % 2 == 0) {
+                plainWrites.time(() -> session.execute(insertPlain.bind(id, text)));
+                compressedWrites.time(() -> session.execute(
+                    insertCompressed.bind(id, stored.text(), stored.codec(), stored.data())));
+            } else {
+                compressedWrites.time(() -> session.execute(
+                    insertCompressed.bind(id, stored.text(), stored.codec(), stored.data())));
+                plainWrites.time(() -> session.execute(insertPlain.bind(id, text)));
+            }
+        }
+
+        if (ids.isEmpty()) {
+            logger.info("{}.{}: no rows", column.table(), column.column());
+            return;
+        }
+
+        Latencies plainReads = new Latencies();
+        Latencies compressedReads = new Latencies();
+        for (int i = 0; i < ids.size(); i++) {
+            UUID id = ids.get(i);
+            Runnable readPlain = () -> session.execute(selectPlain.bind(id)).one().getString("text");
+            Runnable readCompressed = () -> {
+                Row row = session.execute(selectCompressed.bind(id)).one();
+                TextCompression.decode(row.getString("text"), row.getString("codec"), row.getByteBuffer("data"));
+            };
+            if (i % 2 == 0) {
+                plainReads.time(readPlain);
+                compressedReads.time(readCompressed);
+            } else {
+                compressedReads.time(readCompressed);
+                plainReads.time(readPlain);
+            }
+        }
+
+        int values = ids.size();
+        logger.info("{}.{}: {} values ({} compressed), plain {} bytes, stored {} bytes ({}%), encode {} us/value, decode {} us/value",
+                   column.table(), column.column(), values, compressedValues, plainBytes, storedBytes,
+                   String.format("%.1f", 100.0 * storedBytes / plainBytes),
+                   String.format("%.2f", encodeNanos / 1000.0 / values),
+                   String.format("%.2f", decodeNanos / 1000.0 / values));
+        logger.info("{}.{}: INSERT plain {}, compressed {}; SELECT plain {}, compressed {}",
+                   column.table(), column.column(), plainWrites, compressedWrites, plainReads, compressedReads);
+    }
+
+    /**
+     * Flushes the table and logs its live on-disk size.
+     */
+    private void logTableSize(String when, String table) {
+        try {
+            nodetool("flush", keyspace, table);
+            OptionalLong size = nodetool("tablestats", keyspace + "." + table).stream()
+                .map(String::trim)
+                .filter(line -> line.startsWith("Space used (live):"))
+                .mapToLong(line -> Long.parseLong(line.substring(line.indexOf(':') + 1).trim()))
+                .findFirst();
+            if (size.isPresent()) {
+                logger.info("{} on disk {}: {} bytes", table, when, size.getAsLong());
+            } else {
+                logger.warn("nodetool tablestats reported no size for {}", table);
+            }
+        } catch (IOException e) {
+            logger.warn("Skipping on-disk size of {}: {}", table, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted measuring the on-disk size of {}", table);
+        }
+    }
+
+    private List<String> nodetool(String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(nodetool);
+        command.addAll(Arrays.asList(args));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        List<String> output = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                output.add(line);
+            }
+        }
+        int exit = process.waitFor();
+        if (exit != 0) {
+            throw new IOException(String.join(" ", command) + " exited with " + exit + ": " + String.join("\n", output));
+        }
+        return output;
+    }
+
+    private void dropScratchTables() {
+        session.execute("DROP TABLE IF EXISTS " + PLAIN_TABLE);
+        session.execute("DROP TABLE IF EXISTS " + COMPRESSED_TABLE);
+    }
+
+    /**
+     * Round-trip times of one kind of query.
+     */
+    private static final class Latencies {
+        private long[] nanos = new long[1024];
+        private int count;
+
+        void time(Runnable query) {
+            long start = System.nanoTime();
+            query.run();
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = System.nanoTime() - start;
+        }
+
+        @Override
+        public String toString() {
+            if (count == 0) {
+                return "n/a";
+            }
+            long[] sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            double mean = Arrays.stream(sorted).average().orElse(0);
+            long p99 = sorted[Math.min(count - 1, (int) Math.ceil(count * 0.99) - 1)];
+            return String.format("mean %.0f us, p99 %d us", mean / 1000, p99 / 1000);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.studytool.vertex.tools;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.ResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.studytool.database.ContentHash;
+import com.studytool.database.DatabaseConfig;
+import com.studytool.database.ScyllaManager;
+import com.studytool.database.TextCompression;
+import com.studytool.vertex.repository.SourceTextRepository;
+
+/**
+ * One-off tool that moves the inline {@code content} column of summaries,
+ * quizzes and flashcards into the content-addressed source_texts table and
+ * reports how much text was stored before and after.
+ * 
+ * Run with {@code gradle backfillSourceTexts} (add {@code --args=--dry-run}
+ * to only measure).
+ */
+public class SourceTextBackfill {
+    private static final Logger logger = LoggerFactory.getLogger(SourceTextBackfill.class);
+    
+    private static final List<String> TABLES = List.of("summaries", "quizzes", "flashcards");
+    
+    private final CqlSession session;
+    private final SourceTextRepository sourceTextRepository;
+    private final boolean dryRun;
+    
+    private final Set<String> distinctHashes = new HashSet<>();
+    private long rowsMigrated;
+    private long inlineBytes;
+    private long distinctBytes;
+    private long compressedBytes;
+    
+    public SourceTextBackfill(CqlSession session, boolean dryRun) {
+        this.session = session;
+        this.sourceTextRepository = new SourceTextRepository(session);
+        this.dryRun = dryRun;
+    }
+    
+    public static void main(String[] args) {
+        boolean dryRun = List.of(args).contains("--dry-run");
+        DatabaseConfig dbConfig = DatabaseConfig.fromEnvironment();
+        ScyllaManager scyllaManager = new ScyllaManager(
+            dbConfig.getContactPoint(),
+            dbConfig.getDatacenter(),
+            dbConfig.getKeyspace()
+        );
+        
+        try {
+            scyllaManager.initialize();
+            SourceTextBackfill backfill = new SourceTextBackfill(scyllaManager.getSession(), dryRun);
+            for (String table : TABLES) {
+                backfill.backfillTable(table);
+            }
+            backfill.report();
+        } finally {
+            scyllaManager.close();
+        }
+    }
+    
+    private void backfillTable(String table) {
+        PreparedStatement update = session.prepare(
+            "UPDATE " + table + " SET content_hash = ?, content = null WHERE id = ?"
+        );
+        
+        // The driver fetches further pages transparently while iterating
+        ResultSet rows = session.execute("SELECT id, content FROM " + table);
+        long tableRows = 0;
+        for (Row row : rows) {
+            String content = row.getString("content");
+            if (content == null) continue;
+            
+            String hash = dryRun ? ContentHash.sha256(content) : sourceTextRepository.save(content);
+            long rawLength = content.getBytes(StandardCharsets.UTF_8).length;
+            inlineBytes += rawLength;
+            if (distinctHashes.add(hash)) {
+                distinctBytes += rawLength;
+                compressedBytes += TextCompression.compress(content).remaining();
+            }
+            
+            if (!dryRun) {
+                session.execute(update.bind(hash, row.getUuid("id")));
+            }
+            tableRows++;
+        }
+        rowsMigrated += tableRows;
+        logger.info("{}: {} rows with inline content{}", table, tableRows, dryRun ? " (dry run)" : " migrated");
+    }
+    
+    private void report() {
+        logger.info("Rows with inline content: {}", rowsMigrated);
+        logger.info("Inline content bytes (before): {}", inlineBytes);
+        logger.info("Distinct source texts: {} ({} bytes uncompressed)", distinctHashes.size(), distinctBytes);
+        logger.info("source_texts data bytes (after): {}", compressedBytes);
+        if (distinctBytes > 0 && compressedBytes > 0) {
+            logger.info("Write amplification removed: {}x, compression: {}x, total reduction: {}x",
+                       String.format("%.1f", (double) inlineBytes / distinctBytes),
+                       String.format("%.1f", (double) distinctBytes / compressedBytes),
+                       String.format("%.1f", (double) inlineBytes / compressedBytes));
+        }
+    }
+}
@@ -1,7 +1,7 @@
 import React, { useState } from 'react';
 import { Card, CardContent, CardHeader, CardTitle } from '../ui/card';
 import { Users, Activity, BookOpen, FileText } from 'lucide-react';
-import { FileUpload, FileManager } from '../files';
+import { FileUpload, FileManager, FileSearch } from '../files';
 import SummaryWidget from '../summary/SummaryWidget';
 import FlashcardWidget from '../flashcards/FlashcardWidget';
 import QuizWidget from '../quiz/QuizWidget';
@@ -37,6 +37,8 @@ const Dashboard: React.FC<DashboardProps> = ({ user }) => {
         />
       </div>
 
+      <FileSearch userId={user?.username || "anonymous"} />
+
       {/* Summarization Section */}
       <SummaryWidget 
         userId={user?.username || "anonymous"} 
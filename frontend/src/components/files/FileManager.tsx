@@ -4,13 +4,14 @@ import { Button } from '../ui/button';
 import { Badge } from '../ui/badge';
 import { Alert, AlertDescription } from '../ui/alert';
 import { FileText, Download, Trash2, RefreshCw, AlertCircle, File, FolderOpen } from 'lucide-react';
+import { ExtractionInfo, isExtracting } from '../../lib/files';
 
 interface FileManagerProps {
   userId?: string;
   refreshTrigger?: number;
 }
 
-interface FileInfo {
+interface FileInfo extends ExtractionInfo {
   id: string;
   originalFilename: string;
   storedFilename: string;
@@ -19,11 +20,23 @@ interface FileInfo {
   userId: string;
 }
 
+interface StorageUsage {
+  bytes: number;
+  files: number;
+  quotaBytes?: number;
+  remainingBytes?: number;
+}
+
+const PAGE_SIZE = 50;
+
 const FileManager: React.FC<FileManagerProps> = ({ userId, refreshTrigger }) => {
   const [files, setFiles] = useState<FileInfo[]>([]);
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState<string | null>(null);
   const [deletingFile, setDeletingFile] = useState<string | null>(null);
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
+  const [loadingMore, setLoadingMore] = useState(false);
+  const [usage, setUsage] = useState<StorageUsage | null>(null);
 
   const formatFileSize = (bytes: number): string => {
     if (bytes === 0) return '0 Bytes';
@@ -73,8 +86,13 @@ const FileManager: React.FC<FileManagerProps> = ({ userId, refreshTrigger }) =>
     }
   };
 
-  const fetchFiles = async () => {
-    setLoading(true);
+  // Without a cursor the list is reloaded from the newest file; with one the next page is appended
+  const fetchFiles = async (cursor?: string) => {
+    if (cursor) {
+      setLoadingMore(true);
+    } else {
+      setLoading(true);
+    }
     setError(null);
     
     try {
@@ -83,14 +101,20 @@ const FileManager: React.FC<FileManagerProps> = ({ userId, refreshTrigger }) =>
         headers['X-User-ID'] = userId;
       }
 
-      const response = await fetch('http://localhost:8080/api/files', {
+      const params = new URLSearchParams({ pageSize: String(PAGE_SIZE) });
+      if (cursor) {
+        params.set('cursor', cursor);
+      }
+      const response = await fetch(`http://localhost:8080/api/files?${params}`, {
         method: 'GET',
         headers,
       });
 
       if (response.ok) {
         const data = await response.json();
-        setFiles(data.files || []);
+        const page: FileInfo[] = data.files || [];
+        setFiles(prev => (cursor ? [...prev, ...page] : page));
+        setNextCursor(data.nextCursor ?? null);
       } else {
         const errorData = await response.json();
         setError(errorData.error || 'Failed to fetch files');
@@ -99,6 +123,28 @@ const FileManager: React.FC<FileManagerProps> = ({ userId, refreshTrigger }) =>
       setError('Network error occurred');
     } finally {
       setLoading(false);
+      setLoadingMore(false);
+    }
+  };
+
+  // Usage is informational, so a failure just leaves the last value shown
+  const fetchUsage = async () => {
+    try {
+      const headers: Record<string, string> = {};
+      if (userId) {
+        headers['X-User-ID'] = userId;
+      }
+
+      const response = await fetch('http://localhost:8080/api/files/usage', {
+        method: 'GET',
+        headers,
+      });
+
+      if (response.ok) {
+        setUsage(await response.json());
+      }
+    } catch (error) {
+      // Ignored, see above
     }
   };
 
@@ -150,6 +196,7 @@ const FileManager: React.FC<FileManagerProps> = ({ userId, refreshTrigger }) =>
 
       if (response.ok) {
         setFiles(prev => prev.filter(f => f.id !== file.id));
+        fetchUsage();
       } else {
         const errorData = await response.json();
         setError(errorData.error || 'Failed to delete file');
@@ -163,6 +210,7 @@ const FileManager: React.FC<FileManagerProps> = ({ userId, refreshTrigger }) =>
 
   useEffect(() => {
     fetchFiles();
+    fetchUsage();
   }, [userId, refreshTrigger]);
 
   if (loading && files.length === 0) {
@@ -193,12 +241,15 @@ const FileManager: React.FC<FileManagerProps> = ({ userId, refreshTrigger }) =>
           <div className="flex items-center gap-2">
             <FolderOpen className="h-5 w-5" />
             My Files
-            <Badge variant="secondary">{files.length}</Badge>
+            <Badge variant="secondary">{files.length}{nextCursor ? '+' : ''}</Badge>
           </div>
           <Button
             variant="ghost"
             size="sm"
-            onClick={fetchFiles}
+            onClick={() => {
+              fetchFiles();
+              fetchUsage();
+            }}
             disabled={loading}
           >
             <RefreshCw className={`h-4 w-4 ${loading ? 'animate-spin' : ''}`} />
@@ -206,6 +257,12 @@ const FileManager: React.FC<FileManagerProps> = ({ userId, refreshTrigger }) =>
         </CardTitle>
         <CardDescription>
           Manage your uploaded files and documents
+          {usage && (
+            <span className="block">
+              {formatFileSize(usage.bytes)} used
+              {usage.quotaBytes !== undefined && ` of ${formatFileSize(usage.quotaBytes)}`}
+            </span>
+          )}
         </CardDescription>
       </CardHeader>
       <CardContent className="space-y-4">
@@ -249,6 +306,26 @@ const FileManager: React.FC<FileManagerProps> = ({ userId, refreshTrigger }) =>
                           </p>
                         </>
                       )}
+                      {isExtracting(file) && (
+                        <>
+                          <span className="text-xs text-muted-foreground">•</span>
+                          <p className="text-xs text-muted-foreground">Extracting text...</p>
+                        </>
+                      )}
+                      {file.extractionStatus === 'FAILED' && (
+                        <>
+                          <span className="text-xs text-muted-foreground">•</span>
+                          <p className="text-xs text-destructive">Text extraction failed</p>
+                        </>
+                      )}
+                      {file.extractionStatus === 'READY' && file.pageCount != null && (
+                        <>
+                          <span className="text-xs text-muted-foreground">•</span>
+                          <p className="text-xs text-muted-foreground">
+                            {file.pageCount} {file.pageCount === 1 ? 'page' : 'pages'}
+                          </p>
+                        </>
+                      )}
                     </div>
                   </div>
                   <Badge variant={getFileTypeColor(file.originalFilename)}>
@@ -281,6 +358,19 @@ const FileManager: React.FC<FileManagerProps> = ({ userId, refreshTrigger }) =>
                 </div>
               </div>
             ))}
+            {nextCursor && (
+              <Button
+                variant="outline"
+                className="w-full"
+                onClick={() => fetchFiles(nextCursor)}
+                disabled={loadingMore}
+              >
+                {loadingMore ? (
+                  <RefreshCw className="h-4 w-4 mr-2 animate-spin" />
+                ) : null}
+                Load more
+              </Button>
+            )}
           </div>
         )}
       </CardContent>
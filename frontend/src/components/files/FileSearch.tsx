@@ -0,0 +1,111 @@
+import React, { useState } from 'react';
+import { Card, CardContent, CardDescription, CardHeader, CardTitle } from '../ui/card';
+import { Button } from '../ui/button';
+import { Input } from '../ui/input';
+import { Alert, AlertDescription } from '../ui/alert';
+import { Search, RefreshCw, AlertCircle, FileText } from 'lucide-react';
+
+interface FileSearchProps {
+  userId?: string;
+}
+
+interface SearchResult {
+  fileId: string;
+  originalFilename: string;
+  storedFilename: string;
+  score: number;
+  snippet: string;
+}
+
+const FileSearch: React.FC<FileSearchProps> = ({ userId }) => {
+  const [query, setQuery] = useState('');
+  const [results, setResults] = useState<SearchResult[] | null>(null);
+  const [loading, setLoading] = useState(false);
+  const [error, setError] = useState<string | null>(null);
+
+  const search = async (e: React.FormEvent) => {
+    e.preventDefault();
+    if (!query.trim()) return;
+
+    setLoading(true);
+    setError(null);
+
+    try {
+      const headers: Record<string, string> = {};
+      if (userId) {
+        headers['X-User-ID'] = userId;
+      }
+
+      const response = await fetch(`http://localhost:8080/api/search?q=${encodeURIComponent(query)}`, {
+        method: 'GET',
+        headers,
+      });
+
+      if (response.ok) {
+        const data = await response.json();
+        setResults(data.results || []);
+      } else {
+        const errorData = await response.json();
+        setError(errorData.error || 'Search failed');
+      }
+    } catch (error) {
+      setError('Network error occurred');
+    } finally {
+      setLoading(false);
+    }
+  };
+
+  return (
+    <Card className="w-full">
+      <CardHeader>
+        <CardTitle className="flex items-center gap-2">
+          <Search className="h-5 w-5" />
+          Search My Files
+        </CardTitle>
+        <CardDescription>
+          Find text across all of your uploaded documents
+        </CardDescription>
+      </CardHeader>
+      <CardContent className="space-y-4">
+        <form onSubmit={search} className="flex gap-2">
+          <Input
+            value={query}
+            onChange={(e) => setQuery(e.target.value)}
+            placeholder="Search your notes..."
+          />
+          <Button type="submit" disabled={loading || !query.trim()}>
+            {loading ? <RefreshCw className="h-4 w-4 animate-spin" /> : <Search className="h-4 w-4" />}
+            Search
+          </Button>
+        </form>
+
+        {error && (
+          <Alert variant="destructive">
+            <AlertCircle className="h-4 w-4" />
+            <AlertDescription>{error}</AlertDescription>
+          </Alert>
+        )}
+
+        {results && results.length === 0 && (
+          <p className="text-sm text-muted-foreground text-center py-4">No matches found</p>
+        )}
+
+        {results && results.length > 0 && (
+          <div className="space-y-2">
+            {results.map((result) => (
+              <div key={result.fileId} className="p-3 bg-gray-50 dark:bg-gray-800 rounded-lg">
+                <div className="flex items-center gap-2">
+                  <FileText className="h-4 w-4 text-gray-500" />
+                  <p className="text-sm font-medium truncate">{result.originalFilename}</p>
+                </div>
+                <p className="text-xs text-muted-foreground mt-1">{result.snippet}</p>
+              </div>
+            ))}
+          </div>
+        )}
+      </CardContent>
+    </Card>
+  );
+};
+
+export default FileSearch;
@@ -20,33 +20,47 @@ interface UploadedFileInfo {
   userId: string;
 }
 
+interface UploadFailure {
+  originalFilename: string;
+  error: string;
+}
+
 interface FileUploadState {
-  file: File | null;
+  files: File[];
   uploading: boolean;
   progress: number;
   success: boolean;
   error: string | null;
+  failures: UploadFailure[];
 }
 
+// Files beyond this are left for another batch
+const MAX_BATCH_FILES = 100;
+
 const FileUpload: React.FC<FileUploadProps> = ({ userId, onUploadComplete }) => {
   const [uploadState, setUploadState] = useState<FileUploadState>({
-    file: null,
+    files: [],
     uploading: false,
     progress: 0,
     success: false,
     error: null,
+    failures: [],
   });
   const [dragActive, setDragActive] = useState(false);
   const inputRef = useRef<HTMLInputElement>(null);
 
   const resetUploadState = () => {
     setUploadState({
-      file: null,
+      files: [],
       uploading: false,
       progress: 0,
       success: false,
       error: null,
+      failures: [],
     });
+    if (inputRef.current) {
+      inputRef.current.value = '';
+    }
   };
 
   const formatFileSize = (bytes: number): string => {
@@ -75,12 +89,12 @@ const FileUpload: React.FC<FileUploadProps> = ({ userId, onUploadComplete }) =>
   const handleFiles = useCallback((files: FileList | null) => {
     if (!files || files.length === 0) return;
     
-    const file = files[0];
     setUploadState(prev => ({
       ...prev,
-      file,
+      files: Array.from(files).slice(0, MAX_BATCH_FILES),
       success: false,
       error: null,
+      failures: [],
     }));
   }, []);
 
@@ -106,14 +120,29 @@ const FileUpload: React.FC<FileUploadProps> = ({ userId, onUploadComplete }) =>
     handleFiles(e.target.files);
   }, [handleFiles]);
 
-  const uploadFile = async () => {
-    if (!uploadState.file) return;
+  const toUploadedFileInfo = (file: any): UploadedFileInfo => ({
+    id: file.id,
+    filename: file.filename,
+    originalFilename: file.originalFilename,
+    size: file.size,
+    uploadTime: file.uploadTime,
+    userId: file.userId,
+  });
+
+  // One file goes to the single upload endpoint; several go in one batch request
+  const uploadFiles = async () => {
+    if (uploadState.files.length === 0) return;
+    const batch = uploadState.files.length > 1;
 
-    setUploadState(prev => ({ ...prev, uploading: true, progress: 0, error: null }));
+    setUploadState(prev => ({ ...prev, uploading: true, progress: 0, error: null, failures: [] }));
 
     try {
       const formData = new FormData();
-      formData.append('file', uploadState.file);
+      if (batch) {
+        uploadState.files.forEach(file => formData.append('files', file));
+      } else {
+        formData.append('file', uploadState.files[0]);
+      }
 
       const xhr = new XMLHttpRequest();
 
@@ -127,22 +156,21 @@ const FileUpload: React.FC<FileUploadProps> = ({ userId, onUploadComplete }) =>
       xhr.addEventListener('load', () => {
         if (xhr.status === 200) {
           const response = JSON.parse(xhr.responseText);
+          const results: any[] = batch ? response.results || [] : [{ file: response.file }];
+          const uploaded = results.filter(result => result.file).map(result => toUploadedFileInfo(result.file));
+          const failures: UploadFailure[] = results
+            .filter(result => result.error)
+            .map(result => ({ originalFilename: result.originalFilename, error: result.error }));
           setUploadState(prev => ({ 
             ...prev, 
             uploading: false, 
-            success: true,
-            progress: 100 
+            success: uploaded.length > 0,
+            progress: 100,
+            failures,
           }));
           
-          if (onUploadComplete && response.file) {
-            onUploadComplete([{
-              id: response.file.id,
-              filename: response.file.filename,
-              originalFilename: response.file.originalFilename,
-              size: response.file.size,
-              uploadTime: response.file.uploadTime,
-              userId: response.file.userId,
-            }]);
+          if (onUploadComplete && uploaded.length > 0) {
+            onUploadComplete(uploaded);
           }
         } else {
           const errorResponse = JSON.parse(xhr.responseText);
@@ -164,7 +192,7 @@ const FileUpload: React.FC<FileUploadProps> = ({ userId, onUploadComplete }) =>
         }));
       });
 
-      xhr.open('POST', 'http://localhost:8080/api/files/upload');
+      xhr.open('POST', batch ? 'http://localhost:8080/api/files/batch' : 'http://localhost:8080/api/files/upload');
       
       // Add user ID header if available
       if (userId) {
@@ -182,13 +210,21 @@ const FileUpload: React.FC<FileUploadProps> = ({ userId, onUploadComplete }) =>
     }
   };
 
-  const removeFile = () => {
-    setUploadState(prev => ({ ...prev, file: null, success: false, error: null }));
+  const removeFile = (index: number) => {
+    setUploadState(prev => ({
+      ...prev,
+      files: prev.files.filter((_, i) => i !== index),
+      success: false,
+      error: null,
+      failures: [],
+    }));
     if (inputRef.current) {
       inputRef.current.value = '';
     }
   };
 
+  const failureFor = (file: File) => uploadState.failures.find(failure => failure.originalFilename === file.name);
+
   return (
     <Card className="w-full">
       <CardHeader>
@@ -201,7 +237,7 @@ const FileUpload: React.FC<FileUploadProps> = ({ userId, onUploadComplete }) =>
         </CardDescription>
       </CardHeader>
       <CardContent className="space-y-4">
-        {!uploadState.file ? (
+        {uploadState.files.length === 0 ? (
           <div
             className={`border-2 border-dashed rounded-lg p-6 text-center transition-colors ${
               dragActive 
@@ -216,7 +252,7 @@ const FileUpload: React.FC<FileUploadProps> = ({ userId, onUploadComplete }) =>
             <Upload className="mx-auto h-12 w-12 text-gray-400 mb-4" />
             <div className="space-y-2">
               <p className="text-lg font-medium">
-                Drag and drop your file here
+                Drag and drop your files here
               </p>
               <p className="text-sm text-muted-foreground">
                 or click to browse files
@@ -233,39 +269,50 @@ const FileUpload: React.FC<FileUploadProps> = ({ userId, onUploadComplete }) =>
               ref={inputRef}
               type="file"
               className="hidden"
+              multiple
               onChange={handleChange}
-              accept=".pdf,.doc,.docx,.txt,.png,.jpg,.jpeg"
+              accept=".pdf,.txt,.docx,.pptx,.md,.markdown,.html,.htm"
             />
           </div>
         ) : (
           <div className="space-y-4">
-            <div className="flex items-center justify-between p-3 bg-gray-50 dark:bg-gray-800 rounded-lg">
-              <div className="flex items-center gap-3">
-                {getFileIcon(uploadState.file.name)}
-                <div>
-                  <p className="text-sm font-medium">{uploadState.file.name}</p>
-                  <p className="text-xs text-muted-foreground">
-                    {formatFileSize(uploadState.file.size)}
-                  </p>
+            <div className="space-y-2 max-h-80 overflow-y-auto">
+              {uploadState.files.map((file, index) => (
+                <div
+                  key={`${file.name}-${index}`}
+                  className="flex items-center justify-between p-3 bg-gray-50 dark:bg-gray-800 rounded-lg"
+                >
+                  <div className="flex items-center gap-3 min-w-0">
+                    {getFileIcon(file.name)}
+                    <div className="min-w-0">
+                      <p className="text-sm font-medium truncate">{file.name}</p>
+                      <p className="text-xs text-muted-foreground">
+                        {failureFor(file)?.error ?? formatFileSize(file.size)}
+                      </p>
+                    </div>
+                  </div>
+                  <div className="flex items-center gap-2">
+                    {uploadState.success && !failureFor(file) && (
+                      <Badge variant="default" className="bg-green-500">
+                        <CheckCircle className="h-3 w-3 mr-1" />
+                        Uploaded
+                      </Badge>
+                    )}
+                    {failureFor(file) && (
+                      <Badge variant="destructive">Failed</Badge>
+                    )}
+                    {!uploadState.uploading && !uploadState.success && (
+                      <Button
+                        variant="ghost"
+                        size="sm"
+                        onClick={() => removeFile(index)}
+                      >
+                        <X className="h-4 w-4" />
+                      </Button>
+                    )}
+                  </div>
                 </div>
-              </div>
-              <div className="flex items-center gap-2">
-                {uploadState.success && (
-                  <Badge variant="default" className="bg-green-500">
-                    <CheckCircle className="h-3 w-3 mr-1" />
-                    Uploaded
-                  </Badge>
-                )}
-                {!uploadState.uploading && !uploadState.success && (
-                  <Button
-                    variant="ghost"
-                    size="sm"
-                    onClick={removeFile}
-                  >
-                    <X className="h-4 w-4" />
-                  </Button>
-                )}
-              </div>
+              ))}
             </div>
 
             {uploadState.uploading && (
@@ -289,21 +336,23 @@ const FileUpload: React.FC<FileUploadProps> = ({ userId, onUploadComplete }) =>
               <Alert className="border-green-200 bg-green-50 dark:border-green-800 dark:bg-green-950">
                 <CheckCircle className="h-4 w-4 text-green-600" />
                 <AlertDescription className="text-green-800 dark:text-green-200">
-                  File uploaded successfully!
+                  {uploadState.failures.length === 0
+                    ? `${uploadState.files.length === 1 ? 'File' : 'Files'} uploaded successfully!`
+                    : `${uploadState.files.length - uploadState.failures.length} of ${uploadState.files.length} files uploaded.`}
                 </AlertDescription>
               </Alert>
             )}
 
             <div className="flex gap-2">
               {!uploadState.uploading && !uploadState.success && (
-                <Button onClick={uploadFile} className="flex-1">
+                <Button onClick={uploadFiles} className="flex-1">
                   <Upload className="h-4 w-4 mr-2" />
-                  Upload File
+                  {uploadState.files.length > 1 ? `Upload ${uploadState.files.length} Files` : 'Upload File'}
                 </Button>
               )}
               {uploadState.success && (
                 <Button onClick={resetUploadState} variant="outline" className="flex-1">
-                  Upload Another File
+                  Upload More Files
                 </Button>
               )}
             </div>
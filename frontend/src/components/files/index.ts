@@ -1,2 +1,3 @@
 export { default as FileUpload } from './FileUpload';
-export { default as FileManager } from './FileManager'; 
\ No newline at end of file
+export { default as FileManager } from './FileManager';
+export { default as FileSearch } from './FileSearch';
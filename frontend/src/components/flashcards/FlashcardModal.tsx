@@ -2,6 +2,7 @@ import React, { useEffect, useState } from 'react';
 import { X, RefreshCw, FolderOpen, AlignLeft } from 'lucide-react';
 import FlashcardCard from './FlashcardCard';
 import { Button } from '../ui/button';
+import { EXTRACTION_POLL_MS, isExtracting, isTextReady, fetchAllFiles } from '../../lib/files';
 import { Alert, AlertDescription } from '../ui/alert';
 
 export interface Flashcard {
@@ -25,6 +26,7 @@ const FlashcardModal: React.FC<FlashcardModalProps> = ({ userId, isOpen, onClose
   const [content, setContent] = useState('');
   const [files, setFiles] = useState<any[]>([]);
   const [fetchingFiles, setFetchingFiles] = useState(false);
+  const [pollTick, setPollTick] = useState(0);
 
   // Close on ESC
   useEffect(() => {
@@ -42,13 +44,7 @@ const FlashcardModal: React.FC<FlashcardModalProps> = ({ userId, isOpen, onClose
       if (!userId) return;
       setFetchingFiles(true);
       try {
-        const resp = await fetch('http://localhost:8080/api/files', {
-          headers: { 'X-User-ID': userId },
-        });
-        if (resp.ok) {
-          const data = await resp.json();
-          setFiles(data.files || []);
-        }
+        setFiles(await fetchAllFiles(userId));
       } catch (_) {
         /* ignore */
       } finally {
@@ -56,22 +52,30 @@ const FlashcardModal: React.FC<FlashcardModalProps> = ({ userId, isOpen, onClose
       }
     };
     fetchFiles();
-  }, [isOpen, userId]);
+  }, [isOpen, userId, pollTick]);
+
+  // Re-fetch while uploaded files are still having their text extracted
+  const extracting = files.some(isExtracting);
+  useEffect(() => {
+    if (!isOpen || !extracting) return;
+    const timer = setTimeout(() => setPollTick((tick) => tick + 1), EXTRACTION_POLL_MS);
+    return () => clearTimeout(timer);
+  }, [isOpen, extracting, files]);
 
   if (!isOpen) return null;
 
   const validUserId =
     userId && userId.length === 36 ? userId : '00000000-0000-0000-0000-000000000000';
 
-  const handleGenerate = async (input: string) => {
+  const handleGenerate = async (input: { content: string } | { files: string[] }) => {
     setLoading(true);
     setError(null);
     try {
       const resp = await fetch('http://localhost:8080/api/ai/flashcards', {
         method: 'POST',
-        headers: { 'Content-Type': 'application/json' },
+        headers: { 'Content-Type': 'application/json', 'X-User-ID': userId || 'anonymous' },
         body: JSON.stringify({
-          content: input,
+          ...input,
           userId: validUserId,
           count: 5,
         }),
@@ -95,7 +99,7 @@ const FlashcardModal: React.FC<FlashcardModalProps> = ({ userId, isOpen, onClose
       setError('Please enter some text');
       return;
     }
-    handleGenerate(content);
+    handleGenerate({ content });
   };
 
   const handleGenerateFromFiles = async () => {
@@ -104,30 +108,13 @@ const FlashcardModal: React.FC<FlashcardModalProps> = ({ userId, isOpen, onClose
       return;
     }
 
-    const texts: string[] = [];
-    for (const file of files) {
-      const lower = file.originalFilename.toLowerCase();
-      const endpoint = lower.endsWith('.pdf')
-        ? `http://localhost:8080/api/files/text/${file.storedFilename}`
-        : `http://localhost:8080/api/files/${file.storedFilename}`;
-      try {
-        const resp = await fetch(endpoint, {
-          headers: { 'X-User-ID': userId },
-        });
-        if (resp.ok) {
-          const txt = await resp.text();
-          texts.push(txt);
-        }
-      } catch (_) {
-        /* ignore */
-      }
-    }
-
-    if (texts.length === 0) {
+    // The server reads the extracted text itself, so it isn't downloaded and sent back
+    const ready = files.filter(isTextReady).map((file) => file.storedFilename);
+    if (ready.length === 0) {
       setError('No text content extracted from files');
       return;
     }
-    handleGenerate(texts.join('\n\n'));
+    handleGenerate({ files: ready });
   };
 
   return (
@@ -160,10 +147,10 @@ const FlashcardModal: React.FC<FlashcardModalProps> = ({ userId, isOpen, onClose
                 <AlignLeft className="h-4 w-4" />
                 Generate From Text
               </Button>
-              <Button variant="secondary" onClick={handleGenerateFromFiles} disabled={loading || fetchingFiles}>
-                {(loading || fetchingFiles) && <RefreshCw className="h-4 w-4 animate-spin" />}
+              <Button variant="secondary" onClick={handleGenerateFromFiles} disabled={loading || fetchingFiles || extracting}>
+                {(loading || fetchingFiles || extracting) && <RefreshCw className="h-4 w-4 animate-spin" />}
                 <FolderOpen className="h-4 w-4" />
-                Generate From Uploaded Files
+                {extracting ? 'Preparing Uploaded Files...' : 'Generate From Uploaded Files'}
               </Button>
             </div>
           </div>
@@ -1,6 +1,7 @@
 import React, { useEffect, useState } from 'react';
 import { X, RefreshCw, FolderOpen, AlignLeft, CheckCircle, XCircle } from 'lucide-react';
 import { Button } from '../ui/button';
+import { EXTRACTION_POLL_MS, isExtracting, isTextReady, fetchAllFiles } from '../../lib/files';
 import { Alert, AlertDescription } from '../ui/alert';
 import { Card, CardContent, CardHeader, CardTitle } from '../ui/card';
 
@@ -34,6 +35,7 @@ const QuizModal: React.FC<QuizModalProps> = ({ userId, isOpen, onClose }) => {
   const [content, setContent] = useState('');
   const [files, setFiles] = useState<any[]>([]);
   const [fetchingFiles, setFetchingFiles] = useState(false);
+  const [pollTick, setPollTick] = useState(0);
   const [answers, setAnswers] = useState<Record<string, number>>({});
   const [submitted, setSubmitted] = useState(false);
 
@@ -53,13 +55,7 @@ const QuizModal: React.FC<QuizModalProps> = ({ userId, isOpen, onClose }) => {
       if (!userId) return;
       setFetchingFiles(true);
       try {
-        const resp = await fetch('http://localhost:8080/api/files', {
-          headers: { 'X-User-ID': userId },
-        });
-        if (resp.ok) {
-          const data = await resp.json();
-          setFiles(data.files || []);
-        }
+        setFiles(await fetchAllFiles(userId));
       } catch (_) {
         /* ignore */
       } finally {
@@ -67,23 +63,32 @@ const QuizModal: React.FC<QuizModalProps> = ({ userId, isOpen, onClose }) => {
       }
     };
     fetchFiles();
-  }, [isOpen, userId]);
+  }, [isOpen, userId, pollTick]);
+
+  // Re-fetch while uploaded files are still having their text extracted
+  const extracting = files.some(isExtracting);
+  useEffect(() => {
+    if (!isOpen || !extracting) return;
+    const timer = setTimeout(() => setPollTick((tick) => tick + 1), EXTRACTION_POLL_MS);
+    return () => clearTimeout(timer);
+  }, [isOpen, extracting, files]);
 
   if (!isOpen) return null;
 
   const placeholderUuid = '00000000-0000-0000-0000-000000000000';
 
-  const handleGenerate = async (input: string) => {
+  const handleGenerate = async (input: { content: string } | { files: string[] }) => {
     setLoading(true);
     setError(null);
     try {
       const resp = await fetch('http://localhost:8080/api/ai/quiz', {
         method: 'POST',
-        headers: { 'Content-Type': 'application/json' },
+        headers: { 'Content-Type': 'application/json', 'X-User-ID': userId || 'anonymous' },
         body: JSON.stringify({
-          content: input,
+          ...input,
           userId: placeholderUuid,
           questionCount: 5,
+          useQuestionBank: true,
         }),
       });
       if (resp.ok) {
@@ -107,7 +112,7 @@ const QuizModal: React.FC<QuizModalProps> = ({ userId, isOpen, onClose }) => {
       setError('Please enter some text');
       return;
     }
-    handleGenerate(content);
+    handleGenerate({ content });
   };
 
   const handleGenerateFromFiles = async () => {
@@ -116,30 +121,13 @@ const QuizModal: React.FC<QuizModalProps> = ({ userId, isOpen, onClose }) => {
       return;
     }
 
-    const texts: string[] = [];
-    for (const file of files) {
-      const lower = file.originalFilename.toLowerCase();
-      const endpoint = lower.endsWith('.pdf')
-        ? `http://localhost:8080/api/files/text/${file.storedFilename}`
-        : `http://localhost:8080/api/files/${file.storedFilename}`;
-      try {
-        const resp = await fetch(endpoint, {
-          headers: { 'X-User-ID': userId },
-        });
-        if (resp.ok) {
-          const txt = await resp.text();
-          texts.push(txt);
-        }
-      } catch (_) {
-        /* ignore */
-      }
-    }
-
-    if (texts.length === 0) {
+    // The server reads the extracted text itself, so it isn't downloaded and sent back
+    const ready = files.filter(isTextReady).map((file) => file.storedFilename);
+    if (ready.length === 0) {
       setError('No text content extracted from files');
       return;
     }
-    handleGenerate(texts.join('\n\n'));
+    handleGenerate({ files: ready });
   };
 
   const selectAnswer = (questionId: string, option: number) => {
@@ -192,10 +180,10 @@ const QuizModal: React.FC<QuizModalProps> = ({ userId, isOpen, onClose }) => {
                 <AlignLeft className="h-4 w-4" />
                 Generate From Text
               </Button>
-              <Button variant="secondary" onClick={handleGenerateFromFiles} disabled={loading || fetchingFiles}>
-                {(loading || fetchingFiles) && <RefreshCw className="h-4 w-4 animate-spin" />}
+              <Button variant="secondary" onClick={handleGenerateFromFiles} disabled={loading || fetchingFiles || extracting}>
+                {(loading || fetchingFiles || extracting) && <RefreshCw className="h-4 w-4 animate-spin" />}
                 <FolderOpen className="h-4 w-4" />
-                Generate From Uploaded Files
+                {extracting ? 'Preparing Uploaded Files...' : 'Generate From Uploaded Files'}
               </Button>
             </div>
           </div>
@@ -4,6 +4,7 @@ import { Card, CardHeader, CardTitle, CardDescription, CardContent } from '../ui
 import { Button } from '../ui/button';
 import { Alert, AlertDescription } from '../ui/alert';
 import { RefreshCw, AlignLeft, AlertCircle, FolderOpen } from 'lucide-react';
+import { EXTRACTION_POLL_MS, ExtractionInfo, isExtracting, isTextReady, fetchAllFiles } from '../../lib/files';
 
 interface SummaryWidgetProps {
   userId?: string;
@@ -15,7 +16,7 @@ interface SummaryWidgetProps {
   refreshTrigger?: number;
 }
 
-interface FileInfo {
+interface FileInfo extends ExtractionInfo {
   id: string;
   originalFilename: string;
   storedFilename: string;
@@ -31,6 +32,7 @@ const SummaryWidget: React.FC<SummaryWidgetProps> = ({ userId, refreshTrigger })
   const [error, setError] = useState<string | null>(null);
   const [files, setFiles] = useState<FileInfo[]>([]);
   const [fetchingFiles, setFetchingFiles] = useState(false);
+  const [pollTick, setPollTick] = useState(0);
 
   const placeholderUuid = '00000000-0000-0000-0000-000000000000';
 
@@ -40,13 +42,7 @@ const SummaryWidget: React.FC<SummaryWidgetProps> = ({ userId, refreshTrigger })
     const fetchFiles = async () => {
       setFetchingFiles(true);
       try {
-        const response = await fetch('http://localhost:8080/api/files', {
-          headers: { 'X-User-ID': userId },
-        });
-        if (response.ok) {
-          const data = await response.json();
-          setFiles(data.files || []);
-        }
+        setFiles(await fetchAllFiles<FileInfo>(userId));
       } catch (_) {
         /* silently ignore */
       } finally {
@@ -54,7 +50,15 @@ const SummaryWidget: React.FC<SummaryWidgetProps> = ({ userId, refreshTrigger })
       }
     };
     fetchFiles();
-  }, [userId, refreshTrigger]);
+  }, [userId, refreshTrigger, pollTick]);
+
+  // Re-fetch while uploaded files are still having their text extracted
+  const extracting = files.some(isExtracting);
+  useEffect(() => {
+    if (!extracting) return;
+    const timer = setTimeout(() => setPollTick((tick) => tick + 1), EXTRACTION_POLL_MS);
+    return () => clearTimeout(timer);
+  }, [extracting, files]);
 
   const handleSummarize = async () => {
     if (!content.trim()) {
@@ -103,37 +107,18 @@ const SummaryWidget: React.FC<SummaryWidgetProps> = ({ userId, refreshTrigger })
     setSummary(null);
 
     try {
-      // Fetch content of each .txt file
-      const texts: string[] = [];
-      for (const file of files) {
-        const lowerName = file.originalFilename.toLowerCase();
-        if (!(lowerName.endsWith('.txt') || lowerName.endsWith('.pdf'))) continue;
-
-        const endpoint = lowerName.endsWith('.pdf')
-          ? `http://localhost:8080/api/files/text/${file.storedFilename}`
-          : `http://localhost:8080/api/files/${file.storedFilename}`;
-
-        const resp = await fetch(endpoint, {
-          headers: { 'X-User-ID': userId || 'anonymous' },
-        });
-        if (resp.ok) {
-          const txt = await resp.text();
-          texts.push(txt);
-        }
-      }
-
-      if (texts.length === 0) {
+      // The server reads the extracted text itself, so it isn't downloaded and sent back
+      const ready = files.filter(isTextReady).map((file) => file.storedFilename);
+      if (ready.length === 0) {
         setError('No text-based files available for summarization.');
         return;
       }
 
-      const combinedContent = texts.join('\n\n');
-
       const response = await fetch('http://localhost:8080/api/ai/summarize', {
         method: 'POST',
-        headers: { 'Content-Type': 'application/json' },
+        headers: { 'Content-Type': 'application/json', 'X-User-ID': userId || 'anonymous' },
         body: JSON.stringify({
-          content: combinedContent,
+          files: ready,
           userId: placeholderUuid,
         }),
       });
@@ -184,12 +169,12 @@ const SummaryWidget: React.FC<SummaryWidgetProps> = ({ userId, refreshTrigger })
           <Button
             variant="secondary"
             onClick={handleSummarizeFiles}
-            disabled={loading || fetchingFiles}
+            disabled={loading || fetchingFiles || extracting}
           >
             {loading && <RefreshCw className="h-4 w-4 animate-spin" />}
-            {fetchingFiles && !loading && <RefreshCw className="h-4 w-4 animate-spin" />}
+            {(fetchingFiles || extracting) && !loading && <RefreshCw className="h-4 w-4 animate-spin" />}
             <FolderOpen className="h-4 w-4" />
-            Summarize Uploaded Files
+            {extracting ? 'Preparing Uploaded Files...' : 'Summarize Uploaded Files'}
           </Button>
         </div>
         {summary && (
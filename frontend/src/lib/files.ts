@@ -0,0 +1,44 @@
+export type ExtractionStatus = 'PENDING' | 'PROCESSING' | 'READY' | 'FAILED';
+
+export interface ExtractionInfo {
+  extractionStatus?: ExtractionStatus | null;
+  pageCount?: number | null;
+  tokenEstimate?: number | null;
+}
+
+// How often file lists are re-fetched while text is still being extracted
+export const EXTRACTION_POLL_MS = 3000;
+
+// Files uploaded before background extraction have no status; their text is extracted on first use
+export function isTextReady(file: ExtractionInfo): boolean {
+  return file.extractionStatus == null || file.extractionStatus === 'READY';
+}
+
+export function isExtracting(file: ExtractionInfo): boolean {
+  return file.extractionStatus === 'PENDING' || file.extractionStatus === 'PROCESSING';
+}
+
+// Largest page the file listing serves
+const LIST_PAGE_SIZE = 200;
+
+// Fetches every one of the user's files, following the listing's cursor page by page
+export async function fetchAllFiles<T>(userId: string): Promise<T[]> {
+  const files: T[] = [];
+  let cursor: string | null = null;
+  do {
+    const params = new URLSearchParams({ pageSize: String(LIST_PAGE_SIZE) });
+    if (cursor) {
+      params.set('cursor', cursor);
+    }
+    const response = await fetch(`http://localhost:8080/api/files?${params}`, {
+      headers: { 'X-User-ID': userId },
+    });
+    if (!response.ok) {
+      throw new Error(`Failed to fetch files: ${response.status}`);
+    }
+    const data = await response.json();
+    files.push(...(data.files || []));
+    cursor = data.nextCursor ?? null;
+  } while (cursor);
+  return files;
+}